@@ -0,0 +1,98 @@
+package i5.las2peer.p2p;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import i5.las2peer.api.p2p.ServiceNameVersion;
+import i5.las2peer.p2p.NodeServiceCache.ServiceInstance;
+import i5.las2peer.security.ServiceAgentImpl;
+
+/**
+ * Measures the lookup throughput of the {@link NodeServiceCache}.
+ *
+ * Run it with increasing thread counts to see whether lookups scale, e.g. with
+ * {@code gradle jmh -Pargs="NodeServiceCacheBenchmark -t 8"}.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NodeServiceCacheBenchmark {
+
+	private static final String LOCAL_SERVICE = "i5.las2peer.benchmark.LocalService";
+	private static final String GLOBAL_SERVICE = "i5.las2peer.benchmark.GlobalService";
+
+	/**
+	 * number of versions registered for each service
+	 */
+	@Param({ "1", "10" })
+	public int versions;
+
+	/**
+	 * number of nodes running each global service version
+	 */
+	@Param({ "4" })
+	public int instances;
+
+	private Node node;
+	private NodeServiceCache cache;
+
+	private ServiceNameVersion localExact;
+	private ServiceNameVersion localRange;
+	private ServiceNameVersion globalRange;
+
+	@Setup
+	public void setup() throws Exception {
+		node = new LocalNodeManager().launchNode();
+		// the cpu load of the benchmark must not make the cache prefer global instances
+		node.setCpuLoadThreshold(Double.MAX_VALUE);
+		cache = new NodeServiceCache(node, 3600, 0);
+		for (int v = 0; v < versions; v++) {
+			ServiceNameVersion local = ServiceNameVersion.fromString(LOCAL_SERVICE + "@1." + v);
+			cache.registerLocalService(ServiceAgentImpl.createServiceAgent(local, "benchmark"));
+			ServiceNameVersion global = ServiceNameVersion.fromString(GLOBAL_SERVICE + "@1." + v);
+			for (int i = 0; i < instances; i++) {
+				cache.addGlobalServiceInstance(cache.new ServiceInstance(global, "agent-" + v + "-" + i, "node-" + i));
+			}
+		}
+		localExact = ServiceNameVersion.fromString(LOCAL_SERVICE + "@1.0");
+		localRange = ServiceNameVersion.fromString(LOCAL_SERVICE + "@1");
+		globalRange = ServiceNameVersion.fromString(GLOBAL_SERVICE + "@1");
+	}
+
+	@TearDown
+	public void tearDown() {
+		node.shutDown();
+	}
+
+	@Benchmark
+	public ServiceInstance localExactLookup() throws AgentNotRegisteredException {
+		return cache.getServiceAgentInstance(localExact, true, true, null);
+	}
+
+	@Benchmark
+	public ServiceInstance localRangeLookup() throws AgentNotRegisteredException {
+		return cache.getServiceAgentInstance(localRange, false, true, null);
+	}
+
+	@Benchmark
+	public ServiceInstance globalRangeLookup() throws AgentNotRegisteredException {
+		return cache.getServiceAgentInstance(globalRange, false, false, null);
+	}
+
+}
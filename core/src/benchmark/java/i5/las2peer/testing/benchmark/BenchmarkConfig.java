@@ -0,0 +1,242 @@
+package i5.las2peer.testing.benchmark;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The settings of a {@link NodeBenchmark} run.
+ *
+ */
+public class BenchmarkConfig {
+
+	/**
+	 * the kind of nodes the benchmark network consists of
+	 */
+	public enum Network {
+		/**
+		 * {@link i5.las2peer.p2p.LocalNode}s in one JVM
+		 */
+		LOCAL,
+		/**
+		 * {@link i5.las2peer.p2p.PastryNodeImpl}s on the loopback interface
+		 */
+		PASTRY
+	}
+
+	/**
+	 * the operations a benchmark agent performs
+	 */
+	public enum Operation {
+		/**
+		 * invoke the service instance at the node of the agent
+		 */
+		LOCAL,
+		/**
+		 * invoke the service instance at another node
+		 */
+		REMOTE,
+		/**
+		 * discover all service instances via a topic broadcast
+		 */
+		BROADCAST,
+		/**
+		 * let the service store an envelope with a payload
+		 */
+		STORAGE
+	}
+
+	public static final int DEFAULT_NODES = 3;
+	public static final Network DEFAULT_NETWORK = Network.LOCAL;
+	public static final int DEFAULT_AGENTS = 8;
+	public static final int DEFAULT_DURATION = 30; // seconds
+	public static final int DEFAULT_WARMUP = 5; // seconds
+	public static final int DEFAULT_PAYLOAD_SIZE = 1024; // bytes
+	public static final String DEFAULT_MIX = "local=40,remote=40,broadcast=10,storage=10";
+	public static final long DEFAULT_SEED = 1;
+
+	private int nodes = DEFAULT_NODES;
+	private Network network = DEFAULT_NETWORK;
+	private int agents = DEFAULT_AGENTS;
+	private int duration = DEFAULT_DURATION;
+	private int warmup = DEFAULT_WARMUP;
+	private int payloadSize = DEFAULT_PAYLOAD_SIZE;
+	private Map<Operation, Integer> mix = parseMix(DEFAULT_MIX);
+	private long seed = DEFAULT_SEED;
+	private String output = null;
+
+	/**
+	 * read a configuration from command line arguments like {@code --nodes 4 --mix local=50,remote=50}
+	 *
+	 * @param args Command line arguments
+	 * @return the configuration
+	 * @throws IllegalArgumentException If an argument is unknown or invalid
+	 */
+	public static BenchmarkConfig fromArgs(String[] args) {
+		BenchmarkConfig config = new BenchmarkConfig();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (i + 1 >= args.length) {
+				throw new IllegalArgumentException("missing value for " + arg);
+			}
+			String value = args[++i];
+			try {
+				switch (arg) {
+				case "--nodes":
+					config.setNodes(Integer.parseInt(value));
+					break;
+				case "--network":
+					config.setNetwork(Network.valueOf(value.toUpperCase()));
+					break;
+				case "--agents":
+					config.setAgents(Integer.parseInt(value));
+					break;
+				case "--duration":
+					config.setDuration(Integer.parseInt(value));
+					break;
+				case "--warmup":
+					config.setWarmup(Integer.parseInt(value));
+					break;
+				case "--payload":
+					config.setPayloadSize(Integer.parseInt(value));
+					break;
+				case "--mix":
+					config.setMix(parseMix(value));
+					break;
+				case "--seed":
+					config.setSeed(Long.parseLong(value));
+					break;
+				case "--output":
+					config.setOutput(value);
+					break;
+				default:
+					throw new IllegalArgumentException("unknown argument " + arg);
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("invalid value for " + arg + ": " + value, e);
+			}
+		}
+		return config;
+	}
+
+	/**
+	 * parse an operation mix like {@code local=40,remote=40,broadcast=10,storage=10}
+	 *
+	 * @param mix Comma separated weights of operations, missing operations have weight 0
+	 * @return the weights of all operations
+	 * @throws IllegalArgumentException If the mix is invalid
+	 */
+	public static Map<Operation, Integer> parseMix(String mix) {
+		Map<Operation, Integer> result = new EnumMap<>(Operation.class);
+		for (Operation op : Operation.values()) {
+			result.put(op, 0);
+		}
+		int total = 0;
+		for (String part : mix.split(",")) {
+			String[] pair = part.trim().split("=");
+			if (pair.length != 2) {
+				throw new IllegalArgumentException("invalid mix entry " + part);
+			}
+			int weight = Integer.parseInt(pair[1].trim());
+			if (weight < 0) {
+				throw new IllegalArgumentException("negative weight for " + pair[0]);
+			}
+			result.put(Operation.valueOf(pair[0].trim().toUpperCase()), weight);
+			total += weight;
+		}
+		if (total == 0) {
+			throw new IllegalArgumentException("mix contains no operation");
+		}
+		return result;
+	}
+
+	public int getNodes() {
+		return nodes;
+	}
+
+	public void setNodes(int nodes) {
+		if (nodes < 1) {
+			throw new IllegalArgumentException("at least one node is needed");
+		}
+		this.nodes = nodes;
+	}
+
+	public Network getNetwork() {
+		return network;
+	}
+
+	public void setNetwork(Network network) {
+		this.network = network;
+	}
+
+	public int getAgents() {
+		return agents;
+	}
+
+	public void setAgents(int agents) {
+		if (agents < 1) {
+			throw new IllegalArgumentException("at least one agent is needed");
+		}
+		this.agents = agents;
+	}
+
+	/**
+	 * @return the measured time in seconds
+	 */
+	public int getDuration() {
+		return duration;
+	}
+
+	public void setDuration(int duration) {
+		this.duration = duration;
+	}
+
+	/**
+	 * @return the time in seconds the operations run before measuring starts
+	 */
+	public int getWarmup() {
+		return warmup;
+	}
+
+	public void setWarmup(int warmup) {
+		this.warmup = warmup;
+	}
+
+	/**
+	 * @return the size in bytes of payloads stored by storage operations
+	 */
+	public int getPayloadSize() {
+		return payloadSize;
+	}
+
+	public void setPayloadSize(int payloadSize) {
+		this.payloadSize = payloadSize;
+	}
+
+	public Map<Operation, Integer> getMix() {
+		return mix;
+	}
+
+	public void setMix(Map<Operation, Integer> mix) {
+		this.mix = mix;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * @return the file the JSON report is written to, null for standard output
+	 */
+	public String getOutput() {
+		return output;
+	}
+
+	public void setOutput(String output) {
+		this.output = output;
+	}
+
+}
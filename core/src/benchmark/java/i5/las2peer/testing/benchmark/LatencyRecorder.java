@@ -0,0 +1,111 @@
+package i5.las2peer.testing.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Records the latencies of benchmark operations and computes percentiles.
+ *
+ * A recorder is used by a single thread, the recorders of all threads are merged after the run.
+ *
+ */
+public class LatencyRecorder {
+
+	private long[] values = new long[1024];
+	private int count = 0;
+	private long errors = 0;
+	private boolean sorted = true;
+
+	/**
+	 * record a successful operation
+	 *
+	 * @param nanos Latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		if (count == values.length) {
+			values = Arrays.copyOf(values, values.length * 2);
+		}
+		values[count++] = nanos;
+		sorted = false;
+	}
+
+	/**
+	 * record a failed operation
+	 */
+	public void recordError() {
+		errors++;
+	}
+
+	/**
+	 * add all values of another recorder
+	 *
+	 * @param other A recorder
+	 */
+	public void merge(LatencyRecorder other) {
+		if (count + other.count > values.length) {
+			values = Arrays.copyOf(values, Math.max(values.length * 2, count + other.count));
+		}
+		System.arraycopy(other.values, 0, values, count, other.count);
+		count += other.count;
+		errors += other.errors;
+		sorted = false;
+	}
+
+	/**
+	 * @return the number of successful operations
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the number of failed operations
+	 */
+	public long getErrors() {
+		return errors;
+	}
+
+	/**
+	 * get a percentile using the nearest rank method
+	 *
+	 * @param percentile A percentile between 0 and 100
+	 * @return the latency in nanoseconds, 0 if nothing was recorded
+	 */
+	public long getPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		sort();
+		// tolerate rounding errors, e.g. 99.9 / 100 * 1000 is slightly above 999
+		int rank = (int) Math.ceil(percentile / 100 * count - 1e-9);
+		return values[Math.min(count, Math.max(1, rank)) - 1];
+	}
+
+	/**
+	 * @return the mean latency in nanoseconds, 0 if nothing was recorded
+	 */
+	public double getMean() {
+		if (count == 0) {
+			return 0;
+		}
+		double sum = 0;
+		for (int i = 0; i < count; i++) {
+			sum += values[i];
+		}
+		return sum / count;
+	}
+
+	/**
+	 * @return the maximum latency in nanoseconds, 0 if nothing was recorded
+	 */
+	public long getMax() {
+		return getPercentile(100);
+	}
+
+	private void sort() {
+		if (!sorted) {
+			Arrays.sort(values, 0, count);
+			sorted = true;
+		}
+	}
+
+}
@@ -0,0 +1,312 @@
+package i5.las2peer.testing.benchmark;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import i5.las2peer.api.p2p.ServiceNameVersion;
+import i5.las2peer.communication.Message;
+import i5.las2peer.communication.ServiceDiscoveryContent;
+import i5.las2peer.p2p.LocalNodeManager;
+import i5.las2peer.p2p.Node;
+import i5.las2peer.security.ServiceAgentImpl;
+import i5.las2peer.security.UserAgentImpl;
+import i5.las2peer.testing.TestService;
+import i5.las2peer.testing.TestSuite;
+import i5.las2peer.testing.benchmark.BenchmarkConfig.Network;
+import i5.las2peer.testing.benchmark.BenchmarkConfig.Operation;
+
+/**
+ * Measures throughput and latency of a network of nodes running the {@link TestService}.
+ *
+ * A number of user agents is spread over the nodes. Each agent runs in its own thread and performs a random mix of
+ * operations as fast as possible. After a warm up phase the latencies of all operations are recorded. The result is
+ * reported as JSON, e.g. to compare runs before and after a change.
+ *
+ * Usage: {@code NodeBenchmark [--network local|pastry] [--nodes n] [--agents n] [--duration s] [--warmup s]
+ * [--mix local=40,remote=40,broadcast=10,storage=10] [--payload bytes] [--seed n] [--output file]}
+ *
+ */
+public class NodeBenchmark {
+
+	public static final ServiceNameVersion SERVICE = new ServiceNameVersion(TestService.class.getName(), "1.0");
+
+	private static final String PASSPHRASE = "benchmark";
+
+	private final BenchmarkConfig config;
+
+	private LocalNodeManager localNodeManager;
+	private final List<Node> nodes = new ArrayList<>();
+	private final List<ServiceAgentImpl> serviceAgents = new ArrayList<>();
+
+	private final Map<Operation, LatencyRecorder> results = new EnumMap<>(Operation.class);
+	private long measuredNanos;
+
+	public NodeBenchmark(BenchmarkConfig config) {
+		this.config = config;
+	}
+
+	/**
+	 * launch the nodes and start a service instance at each of them
+	 *
+	 * @throws Exception If a node or service can not be started
+	 */
+	public void setUp() throws Exception {
+		if (config.getNetwork() == Network.LOCAL) {
+			localNodeManager = new LocalNodeManager();
+			for (int i = 0; i < config.getNodes(); i++) {
+				nodes.add(localNodeManager.launchNode());
+			}
+		} else {
+			nodes.addAll(TestSuite.launchNetwork(config.getNodes()));
+		}
+		for (Node node : nodes) {
+			serviceAgents.add(node.startService(SERVICE, PASSPHRASE));
+		}
+	}
+
+	/**
+	 * run the benchmark
+	 *
+	 * @throws Exception If the agents can not be created
+	 */
+	public void run() throws Exception {
+		List<UserAgentImpl> agents = new ArrayList<>();
+		for (int i = 0; i < config.getAgents(); i++) {
+			UserAgentImpl agent = UserAgentImpl.createUserAgent(PASSPHRASE);
+			agent.unlock(PASSPHRASE);
+			nodes.get(i % nodes.size()).storeAgent(agent);
+			agents.add(agent);
+		}
+
+		long measureStart = System.nanoTime() + config.getWarmup() * 1000000000L;
+		long end = measureStart + config.getDuration() * 1000000000L;
+
+		List<Map<Operation, LatencyRecorder>> recorders = new ArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < agents.size(); i++) {
+			Map<Operation, LatencyRecorder> recorder = newRecorders();
+			recorders.add(recorder);
+			final int index = i;
+			Thread thread = new Thread(() -> runAgent(agents.get(index), index, measureStart, end, recorder),
+					"las2peer-benchmark-" + i);
+			threads.add(thread);
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		measuredNanos = Math.max(1, System.nanoTime() - measureStart);
+
+		results.clear();
+		results.putAll(newRecorders());
+		for (Map<Operation, LatencyRecorder> recorder : recorders) {
+			for (Operation op : Operation.values()) {
+				results.get(op).merge(recorder.get(op));
+			}
+		}
+	}
+
+	private static Map<Operation, LatencyRecorder> newRecorders() {
+		Map<Operation, LatencyRecorder> recorders = new EnumMap<>(Operation.class);
+		for (Operation op : Operation.values()) {
+			recorders.put(op, new LatencyRecorder());
+		}
+		return recorders;
+	}
+
+	private void runAgent(UserAgentImpl agent, int index, long measureStart, long end,
+			Map<Operation, LatencyRecorder> recorder) {
+		Random random = new Random(config.getSeed() + index);
+		int home = index % nodes.size();
+		char[] chars = new char[config.getPayloadSize()];
+		Arrays.fill(chars, 'x');
+		String payload = new String(chars);
+
+		long start;
+		while ((start = System.nanoTime()) < end) {
+			Operation op = pickOperation(random);
+			try {
+				perform(op, agent, home, random, payload);
+				if (start >= measureStart) {
+					recorder.get(op).record(System.nanoTime() - start);
+				}
+			} catch (Exception e) {
+				if (start >= measureStart) {
+					recorder.get(op).recordError();
+				}
+			}
+		}
+	}
+
+	private Operation pickOperation(Random random) {
+		int total = 0;
+		for (int weight : config.getMix().values()) {
+			total += weight;
+		}
+		int pick = random.nextInt(total);
+		for (Map.Entry<Operation, Integer> entry : config.getMix().entrySet()) {
+			pick -= entry.getValue();
+			if (pick < 0) {
+				return entry.getKey();
+			}
+		}
+		throw new IllegalStateException();
+	}
+
+	private void perform(Operation op, UserAgentImpl agent, int home, Random random, String payload)
+			throws Exception {
+		Node node = nodes.get(home);
+		switch (op) {
+		case LOCAL:
+			node.invokeLocally(agent, serviceAgents.get(home), "counter", new Serializable[0]);
+			break;
+		case REMOTE:
+			int target = nodes.size() > 1 ? (home + 1 + random.nextInt(nodes.size() - 1)) % nodes.size() : home;
+			node.invokeGlobally(agent, serviceAgents.get(target).getIdentifier(), nodes.get(target).getNodeId(),
+					"counter", new Serializable[0]);
+			break;
+		case BROADCAST:
+			Message m = new Message(agent, ServiceAgentImpl.serviceNameToTopicId(SERVICE.getName()),
+					new ServiceDiscoveryContent(SERVICE, false));
+			m.setSendingNodeId(node.getNodeId());
+			node.sendMessageAndCollectAnswers(m, nodes.size());
+			break;
+		case STORAGE:
+			node.invokeLocally(agent, serviceAgents.get(home), "storeEnvelopeString", new Serializable[] { payload });
+			break;
+		}
+	}
+
+	/**
+	 * shut down all nodes
+	 */
+	public void tearDown() {
+		for (Node node : nodes) {
+			node.shutDown();
+		}
+		nodes.clear();
+		serviceAgents.clear();
+		if (localNodeManager != null) {
+			localNodeManager.stopCleaner();
+			localNodeManager.getTransport().shutdown();
+			localNodeManager = null;
+		}
+	}
+
+	/**
+	 * get the recorded latencies of an operation
+	 *
+	 * @param op An operation
+	 * @return the recorder with all latencies measured in the last run
+	 */
+	public LatencyRecorder getResult(Operation op) {
+		return results.get(op);
+	}
+
+	/**
+	 * create the report of the last run
+	 *
+	 * @return the report in JSON format
+	 */
+	public String toJson() {
+		double seconds = measuredNanos / 1e9;
+		LatencyRecorder total = new LatencyRecorder();
+		StringBuilder ops = new StringBuilder();
+		for (Operation op : Operation.values()) {
+			LatencyRecorder recorder = results.get(op);
+			if (recorder == null || config.getMix().get(op) == 0) {
+				continue;
+			}
+			total.merge(recorder);
+			if (ops.length() > 0) {
+				ops.append(",\n");
+			}
+			ops.append("    \"").append(op.name().toLowerCase()).append("\": ").append(toJson(recorder, seconds));
+		}
+
+		StringBuilder mix = new StringBuilder();
+		for (Map.Entry<Operation, Integer> entry : config.getMix().entrySet()) {
+			if (mix.length() > 0) {
+				mix.append(", ");
+			}
+			mix.append('"').append(entry.getKey().name().toLowerCase()).append("\": ").append(entry.getValue());
+		}
+
+		return "{\n" //
+				+ "  \"network\": \"" + config.getNetwork().name().toLowerCase() + "\",\n" //
+				+ "  \"nodes\": " + config.getNodes() + ",\n" //
+				+ "  \"agents\": " + config.getAgents() + ",\n" //
+				+ "  \"payloadBytes\": " + config.getPayloadSize() + ",\n" //
+				+ "  \"seed\": " + config.getSeed() + ",\n" //
+				+ "  \"mix\": {" + mix + "},\n" //
+				+ "  \"seconds\": " + format(seconds) + ",\n" //
+				+ "  \"total\": " + toJson(total, seconds) + ",\n" //
+				+ "  \"operations\": {\n" + ops + "\n  }\n" //
+				+ "}\n";
+	}
+
+	private static String toJson(LatencyRecorder recorder, double seconds) {
+		return "{\"count\": " + recorder.getCount() //
+				+ ", \"errors\": " + recorder.getErrors() //
+				+ ", \"throughput\": " + format(recorder.getCount() / seconds) //
+				+ ", \"meanMs\": " + format(recorder.getMean() / 1e6) //
+				+ ", \"p50Ms\": " + format(recorder.getPercentile(50) / 1e6) //
+				+ ", \"p99Ms\": " + format(recorder.getPercentile(99) / 1e6) //
+				+ ", \"p999Ms\": " + format(recorder.getPercentile(99.9) / 1e6) //
+				+ ", \"maxMs\": " + format(recorder.getMax() / 1e6) + "}";
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+
+	public static void main(String[] args) {
+		BenchmarkConfig config;
+		try {
+			config = BenchmarkConfig.fromArgs(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: NodeBenchmark [--network local|pastry] [--nodes n] [--agents n] [--duration s]"
+					+ " [--warmup s] [--mix local=40,remote=40,broadcast=10,storage=10] [--payload bytes] [--seed n]"
+					+ " [--output file]");
+			System.exit(2);
+			return;
+		}
+
+		NodeBenchmark benchmark = new NodeBenchmark(config);
+		int status = 0;
+		try {
+			benchmark.setUp();
+			benchmark.run();
+			String report = benchmark.toJson();
+			if (config.getOutput() == null) {
+				System.out.print(report);
+			} else {
+				try (Writer writer = new FileWriter(config.getOutput())) {
+					writer.write(report);
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Could not write report: " + e);
+			status = 1;
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = 1;
+		} finally {
+			benchmark.tearDown();
+		}
+		System.exit(status);
+	}
+
+}
@@ -1,11 +1,17 @@
 package i5.las2peer.api;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.logging.Logger;
 
 import i5.las2peer.api.execution.InternalServiceException;
 import i5.las2peer.api.execution.ServiceAccessDeniedException;
+import i5.las2peer.api.execution.ServiceCall;
+import i5.las2peer.api.execution.ServiceCallResult;
 import i5.las2peer.api.execution.ServiceInvocationFailedException;
 import i5.las2peer.api.execution.ServiceMethodNotFoundException;
 import i5.las2peer.api.execution.ServiceNotAuthorizedException;
@@ -265,6 +271,34 @@ public interface Context {
 	public Envelope requestEnvelope(String identifier)
 			throws EnvelopeAccessDeniedException, EnvelopeNotFoundException, EnvelopeOperationFailedException;
 
+	/**
+	 * Requests several envelopes from the network at once. The envelopes are
+	 * fetched in parallel and opened using the specified agent.
+	 * 
+	 * The returned futures are completed by a thread of the node, which has no
+	 * access to the current context.
+	 * 
+	 * @param identifiers Identifiers of the envelopes.
+	 * @param using       Agent using to open the envelopes.
+	 * @return A map with a future for each identifier, which is completed with the
+	 *         opened envelope as soon as it is fetched. If the request fails, it is
+	 *         completed exceptionally with one of the exceptions thrown by
+	 *         {@link #requestEnvelope(String, Agent)}.
+	 */
+	public Map<String, CompletableFuture<Envelope>> requestEnvelopes(Collection<String> identifiers, Agent using);
+
+	/**
+	 * Requests several envelopes from the network at once. The envelopes are
+	 * fetched in parallel and opened using the current main agent.
+	 * 
+	 * See {@link #requestEnvelopes(Collection, Agent)} for details.
+	 * 
+	 * @param identifiers Identifiers of the envelopes.
+	 * @return A map with a future for each identifier, which is completed with the
+	 *         opened envelope as soon as it is fetched.
+	 */
+	public Map<String, CompletableFuture<Envelope>> requestEnvelopes(Collection<String> identifiers);
+
 	/**
 	 * Stores the envelope to the network and signs it with the specified agent.
 	 * 
@@ -513,6 +547,108 @@ public interface Context {
 			ServiceMethodNotFoundException, ServiceInvocationFailedException, ServiceAccessDeniedException,
 			ServiceNotAuthorizedException;
 
+	/**
+	 * Invokes the method of any other service on behalf of the main agent without
+	 * blocking the calling thread, thus sending the main agent as calling agent.
+	 * 
+	 * Use this method to run several invocations in parallel. The returned future
+	 * is completed by a thread of the node, which has no access to the current
+	 * context. Dependent actions needing the context should be run using
+	 * {@link #getExecutor()}, e.g. with
+	 * {@link CompletableFuture#thenApplyAsync(java.util.function.Function, java.util.concurrent.Executor)}.
+	 * 
+	 * @param service    The service class. A version may be specified (for example
+	 *                   package.serviceClass@1.0.0-1 or package.serviceClass@1.0).
+	 *                   The core tries to find an appropriate version (version
+	 *                   1.0.5 matches 1.0). If no version is specified, the newest
+	 *                   version is picked.
+	 * @param method     The service method.
+	 * @param parameters The parameters list.
+	 * @return A future for the invocation result. If the invocation fails, it is
+	 *         completed exceptionally with one of the exceptions thrown by
+	 *         {@link #invoke(String, String, Serializable...)}.
+	 */
+	public CompletableFuture<Serializable> invokeAsync(String service, String method, Serializable... parameters);
+
+	/**
+	 * Invokes the method of any other service on behalf of the main agent without
+	 * blocking the calling thread, thus sending the main agent as calling agent.
+	 * 
+	 * See {@link #invokeAsync(String, String, Serializable...)} for details.
+	 * 
+	 * @param service    The service class and version.
+	 * @param method     The service method.
+	 * @param parameters The parameters list.
+	 * @return A future for the invocation result. If the invocation fails, it is
+	 *         completed exceptionally with one of the exceptions thrown by
+	 *         {@link #invoke(ServiceNameVersion, String, Serializable...)}.
+	 */
+	public CompletableFuture<Serializable> invokeAsync(ServiceNameVersion service, String method,
+			Serializable... parameters);
+
+	/**
+	 * Invokes several methods of another service at once on behalf of the main
+	 * agent, thus sending the main agent as calling agent.
+	 * 
+	 * All calls are executed by the same service instance in the given order. If
+	 * the service runs on another node, the calls are sent with a single message.
+	 * A failing call does not abort the batch, its exception is part of the
+	 * returned outcomes.
+	 * 
+	 * @param service The service class. A version may be specified (for example
+	 *                package.serviceClass@1.0.0-1 or package.serviceClass@1.0).
+	 *                The core tries to find an appropriate version (version 1.0.5
+	 *                matches 1.0). If no version is specified, the newest version
+	 *                is picked.
+	 * @param calls   The method calls.
+	 * @return The outcomes of the calls in the same order.
+	 * @throws ServiceNotFoundException         If the service is not known to the
+	 *                                          network.
+	 * @throws ServiceNotAvailableException     If the service is temporarily not
+	 *                                          available.
+	 * @throws InternalServiceException         If the remote service throws an
+	 *                                          exception.
+	 * @throws ServiceMethodNotFoundException   If the service method does not
+	 *                                          exist.
+	 * @throws ServiceInvocationFailedException If the service invocation failed.
+	 * @throws ServiceAccessDeniedException     If the access to the service has
+	 *                                          been denied.
+	 * @throws ServiceNotAuthorizedException    If access to the service method
+	 *                                          requires a logged in user.
+	 */
+	public List<ServiceCallResult> invokeBatch(String service, List<ServiceCall> calls)
+			throws ServiceNotFoundException, ServiceNotAvailableException, InternalServiceException,
+			ServiceMethodNotFoundException, ServiceInvocationFailedException, ServiceAccessDeniedException,
+			ServiceNotAuthorizedException;
+
+	/**
+	 * Invokes several methods of another service at once on behalf of the main
+	 * agent, thus sending the main agent as calling agent.
+	 * 
+	 * See {@link #invokeBatch(String, List)} for details.
+	 * 
+	 * @param service The service class and version.
+	 * @param calls   The method calls.
+	 * @return The outcomes of the calls in the same order.
+	 * @throws ServiceNotFoundException         If the service is not known to the
+	 *                                          network.
+	 * @throws ServiceNotAvailableException     If the service is temporarily not
+	 *                                          available.
+	 * @throws InternalServiceException         If the remote service throws an
+	 *                                          exception.
+	 * @throws ServiceMethodNotFoundException   If the service method does not
+	 *                                          exist.
+	 * @throws ServiceInvocationFailedException If the service invocation failed.
+	 * @throws ServiceAccessDeniedException     If the access to the service has
+	 *                                          been denied.
+	 * @throws ServiceNotAuthorizedException    If access to the service method
+	 *                                          requires a logged in user.
+	 */
+	public List<ServiceCallResult> invokeBatch(ServiceNameVersion service, List<ServiceCall> calls)
+			throws ServiceNotFoundException, ServiceNotAvailableException, InternalServiceException,
+			ServiceMethodNotFoundException, ServiceInvocationFailedException, ServiceAccessDeniedException,
+			ServiceNotAuthorizedException;
+
 	// Execution
 
 	/**
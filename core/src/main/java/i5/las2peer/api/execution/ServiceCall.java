@@ -0,0 +1,42 @@
+package i5.las2peer.api.execution;
+
+import java.io.Serializable;
+
+/**
+ * A single method call of a batch invocation.
+ */
+public class ServiceCall {
+
+	private final String method;
+	private final Serializable[] parameters;
+
+	/**
+	 * Creates a method call.
+	 * 
+	 * @param method The service method.
+	 * @param parameters The parameters list.
+	 */
+	public ServiceCall(String method, Serializable... parameters) {
+		this.method = method;
+		this.parameters = parameters.clone();
+	}
+
+	/**
+	 * Gets the name of the called method.
+	 * 
+	 * @return The method name.
+	 */
+	public String getMethod() {
+		return method;
+	}
+
+	/**
+	 * Gets the call parameters.
+	 * 
+	 * @return The parameters list.
+	 */
+	public Serializable[] getParameters() {
+		return parameters;
+	}
+
+}
@@ -0,0 +1,55 @@
+package i5.las2peer.api.execution;
+
+import java.io.Serializable;
+
+/**
+ * The outcome of a single method call of a batch invocation, either a result or an exception.
+ */
+public class ServiceCallResult {
+
+	private final Serializable result;
+	private final ServiceInvocationException exception;
+
+	/**
+	 * Creates an outcome.
+	 * 
+	 * @param result The result of a successful call.
+	 * @param exception The exception of a failed call or null, if the call was successful.
+	 */
+	public ServiceCallResult(Serializable result, ServiceInvocationException exception) {
+		this.result = result;
+		this.exception = exception;
+	}
+
+	/**
+	 * Checks if the call was successful.
+	 * 
+	 * @return true, if the call returned a result.
+	 */
+	public boolean isSuccessful() {
+		return exception == null;
+	}
+
+	/**
+	 * Gets the result of the call.
+	 * 
+	 * @return The call result.
+	 * @throws ServiceInvocationException The exception of the call, if it failed.
+	 */
+	public Serializable getResult() throws ServiceInvocationException {
+		if (exception != null) {
+			throw exception;
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the exception of a failed call.
+	 * 
+	 * @return The exception or null, if the call was successful.
+	 */
+	public ServiceInvocationException getException() {
+		return exception;
+	}
+
+}
@@ -0,0 +1,100 @@
+package i5.las2peer.api.execution;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+
+/**
+ * A service method result, which is transferred as a stream instead of a single serialized object.
+ *
+ * If the service is invoked at another node, the result is sent in individually encrypted chunks, which are requested
+ * by the caller while it reads the stream. Thus large results never have to be held in memory as a whole.
+ *
+ * Streaming results can not be part of batch invocations.
+ */
+public class StreamingResult implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * used for results of unknown length
+	 */
+	public static final long UNKNOWN_LENGTH = -1;
+
+	private final transient InputStream stream;
+	private final long length;
+	private final String contentType;
+
+	/**
+	 * Creates a streaming result of unknown length.
+	 *
+	 * @param stream The stream to read the result from. It is closed after it was transferred.
+	 */
+	public StreamingResult(InputStream stream) {
+		this(stream, UNKNOWN_LENGTH, null);
+	}
+
+	/**
+	 * Creates a streaming result.
+	 *
+	 * @param stream The stream to read the result from. It is closed after it was transferred.
+	 * @param length The number of bytes of the result or {@link #UNKNOWN_LENGTH}.
+	 * @param contentType The media type of the result or null.
+	 */
+	public StreamingResult(InputStream stream, long length, String contentType) {
+		if (stream == null) {
+			throw new IllegalArgumentException("stream must not be null");
+		}
+		this.stream = stream;
+		this.length = length;
+		this.contentType = contentType;
+	}
+
+	/**
+	 * Gets the stream of the result. It can be read only once.
+	 *
+	 * @return The result stream.
+	 */
+	public InputStream getInputStream() {
+		return stream;
+	}
+
+	/**
+	 * Gets the number of bytes of the result.
+	 *
+	 * @return The length or {@link #UNKNOWN_LENGTH}.
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Gets the media type of the result.
+	 *
+	 * @return The media type or null, if not set.
+	 */
+	public String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * Copies the whole result to the given stream and closes the result stream afterwards.
+	 *
+	 * @param out A stream to write the result to, for example the body of a HTTP response.
+	 * @return The number of copied bytes.
+	 * @throws IOException If reading the result or writing it fails.
+	 */
+	public long transferTo(OutputStream out) throws IOException {
+		try (InputStream in = stream) {
+			return in.transferTo(out);
+		}
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		throw new NotSerializableException("streaming results are transferred in chunks only");
+	}
+
+}
@@ -1,6 +1,9 @@
 package i5.las2peer.communication;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
@@ -29,7 +32,9 @@ import i5.las2peer.persistency.EncodingFailedException;
 import i5.las2peer.security.AgentImpl;
 import i5.las2peer.security.AgentStorage;
 import i5.las2peer.security.AnonymousAgentImpl;
+import i5.las2peer.security.BotAgent;
 import i5.las2peer.security.InternalSecurityException;
+import i5.las2peer.security.MonitoringAgent;
 import i5.las2peer.serialization.MalformedXMLException;
 import i5.las2peer.serialization.SerializationException;
 import i5.las2peer.serialization.SerializeTools;
@@ -37,14 +42,17 @@ import i5.las2peer.serialization.XmlAble;
 import i5.las2peer.serialization.XmlTools;
 import i5.las2peer.tools.CryptoException;
 import i5.las2peer.tools.CryptoTools;
+import i5.las2peer.tools.PayloadCompressor;
 import rice.p2p.commonapi.NodeHandle;
 
 /**
  * Base class for sending messages between {@link AgentImpl}s.
  * 
  * The content of the message will be encrypted symmetrically with a randomly generated key, this key will be encrypted
- * asymmetrically for the recipient of the message.
- * 
+ * asymmetrically for the recipient of the message. If enabled, the key is a session key reused for several messages
+ * between the same pair of agents (see {@link SessionKeyCache}). Large contents are compressed before encryption (see
+ * {@link PayloadCompressor}).
+ *
  * Additionally, the contents will be signed with the private key of the sender.
  * 
  * Therefore, it is necessary, that the generating Thread has access to the private key of the sending agent.
@@ -57,6 +65,25 @@ public class Message implements XmlAble, Cloneable {
 
 	public static final long DEFAULT_TIMEOUT = 30 * 1000; // 30 seconds
 
+	/**
+	 * magic number at the start of each binary message representation ("L2PM")
+	 */
+	private static final int BINARY_MAGIC = 0x4C32504D;
+	private static final byte BINARY_VERSION = 1;
+	/**
+	 * binary version with an additional compression byte, only used for compressed contents
+	 */
+	private static final byte BINARY_VERSION_COMPRESSED = 2;
+
+	private static final byte BINARY_FLAG_RESPONSE = 0x01;
+	private static final byte BINARY_FLAG_TOPIC = 0x02;
+	private static final byte BINARY_FLAG_RECIPIENT = 0x04;
+	private static final byte BINARY_FLAG_CONTENT_KEY = 0x08;
+	private static final byte BINARY_FLAG_SIGNATURE = 0x10;
+	private static final byte BINARY_FLAG_SENDING_NODE_ID = 0x20;
+	private static final byte BINARY_FLAG_SENDING_NODE_HANDLE = 0x40;
+	private static final byte BINARY_FLAG_SESSION_KEY = (byte) 0x80;
+
 	/**
 	 * sender of the message
 	 */
@@ -107,6 +134,16 @@ public class Message implements XmlAble, Cloneable {
 	 */
 	private byte[] baContentKey;
 
+	/**
+	 * true, if the content is encrypted with a reused session key (see {@link SessionKeyCache})
+	 */
+	private boolean sessionKeyEncryption = false;
+
+	/**
+	 * algorithm the content is compressed with before encryption (see {@link PayloadCompressor})
+	 */
+	private PayloadCompressor.Algorithm compression = PayloadCompressor.Algorithm.NONE;
+
 	/**
 	 * timestamp of the message generation
 	 */
@@ -129,6 +166,11 @@ public class Message implements XmlAble, Cloneable {
 
 	private Serializable sendingNodeId = null;
 
+	/**
+	 * priority of this message, not signed and only transported by the network layer
+	 */
+	private MessagePriority priority = null;
+
 	/**
 	 * constructor for the {@link XmlAble} facilities
 	 */
@@ -285,11 +327,17 @@ public class Message implements XmlAble, Cloneable {
 		timestampMs = new Date().getTime();
 		id = new Random().nextLong();
 
+		if (priority == null && (sender instanceof BotAgent || sender instanceof MonitoringAgent)) {
+			priority = MessagePriority.LOW;
+		}
+
 		if (!isTopic() && !(recipient instanceof AnonymousAgent)) {
 			encryptContent();
 		} else {
 			baDecryptedContent = getContentString().getBytes(StandardCharsets.UTF_8);
-			baEncryptedContent = baDecryptedContent;
+			PayloadCompressor.Payload payload = PayloadCompressor.getInstance().compress(baDecryptedContent);
+			compression = payload.getAlgorithm();
+			baEncryptedContent = payload.getData();
 		}
 
 		try {
@@ -329,6 +377,7 @@ public class Message implements XmlAble, Cloneable {
 		content = data;
 
 		responseToId = responseTo.getId();
+		priority = responseTo.priority;
 
 		finalizeConstructor();
 	}
@@ -376,6 +425,7 @@ public class Message implements XmlAble, Cloneable {
 		content = data;
 
 		responseToId = responseTo.getId();
+		priority = responseTo.priority;
 
 		finalizeConstructor();
 	}
@@ -441,12 +491,25 @@ public class Message implements XmlAble, Cloneable {
 		}
 
 		try {
-			SecretKey contentKey = CryptoTools.generateSymmetricKey();
-			baContentKey = CryptoTools.encryptAsymmetric(contentKey, recipient.getPublicKey());
-
 			String contentString = getContentString();
 			baDecryptedContent = contentString.getBytes(StandardCharsets.UTF_8);
-			baEncryptedContent = CryptoTools.encryptSymmetric(baDecryptedContent, contentKey);
+
+			// encrypted data does not compress, so compress first
+			PayloadCompressor.Payload payload = PayloadCompressor.getInstance().compress(baDecryptedContent);
+			compression = payload.getAlgorithm();
+
+			if (SessionKeyCache.getInstance().isEnabled()) {
+				SessionKeyCache.OutgoingSession session = SessionKeyCache.getInstance().getOutgoingSession(sender,
+						recipient);
+				baContentKey = session.getEncryptedKey();
+				baEncryptedContent = CryptoTools.encryptSymmetricAuthenticated(payload.getData(), session.getKey(),
+						session.nextIv());
+				sessionKeyEncryption = true;
+			} else {
+				SecretKey contentKey = CryptoTools.generateSymmetricKey();
+				baContentKey = CryptoTools.encryptAsymmetric(contentKey, recipient.getPublicKey());
+				baEncryptedContent = CryptoTools.encryptSymmetric(payload.getData(), contentKey);
+			}
 		} catch (SerializationException e) {
 			throw new EncodingFailedException("serialization problems with encryption", e);
 		} catch (CryptoException e) {
@@ -566,6 +629,32 @@ public class Message implements XmlAble, Cloneable {
 		return responseToId != null;
 	}
 
+	/**
+	 * get the priority of this message
+	 * 
+	 * Responses have the priority of their request. Without an explicit priority, responses are delivered with high
+	 * priority, since someone is waiting for them, all other messages with medium priority.
+	 * 
+	 * @return the priority of this message
+	 */
+	public MessagePriority getPriority() {
+		if (priority != null) {
+			return priority;
+		} else if (isResponse()) {
+			return MessagePriority.HIGH;
+		}
+		return MessagePriority.MEDIUM;
+	}
+
+	/**
+	 * set the priority of this message, used by the sender or the network layer of the receiving node
+	 * 
+	 * @param priority A message priority
+	 */
+	public void setPriority(MessagePriority priority) {
+		this.priority = priority;
+	}
+
 	/**
 	 * get the content of this message may be Serializable or XmlAble
 	 * 
@@ -644,11 +733,17 @@ public class Message implements XmlAble, Cloneable {
 
 		try {
 			if (!isTopic() && !(recipient instanceof AnonymousAgent)) {
-				SecretKey contentKey = recipient.decryptSymmetricKey(baContentKey);
-				baDecryptedContent = CryptoTools.decryptSymmetric(baEncryptedContent, contentKey);
+				if (sessionKeyEncryption) {
+					SecretKey contentKey = SessionKeyCache.getInstance().getIncomingKey(recipient, baContentKey);
+					baDecryptedContent = CryptoTools.decryptSymmetricAuthenticated(baEncryptedContent, contentKey);
+				} else {
+					SecretKey contentKey = recipient.decryptSymmetricKey(baContentKey);
+					baDecryptedContent = CryptoTools.decryptSymmetric(baEncryptedContent, contentKey);
+				}
 			} else { // topics are not encrypted
 				baDecryptedContent = baEncryptedContent;
 			}
+			baDecryptedContent = PayloadCompressor.getInstance().decompress(baDecryptedContent, compression);
 
 			DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
 			DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
@@ -836,13 +931,21 @@ public class Message implements XmlAble, Cloneable {
 		String encryption = "";
 		if (!isTopic()) {
 			receiver = "to=\"" + recipientId + "\"";
-			encryption = " encryption=\"" + CryptoTools.getSymmetricAlgorithm() + "\"";
+			if (sessionKeyEncryption) {
+				encryption = " encryption=\"" + CryptoTools.getAuthenticatedSymmetricAlgorithm() + "\"";
+			} else {
+				encryption = " encryption=\"" + CryptoTools.getSymmetricAlgorithm() + "\"";
+			}
 			contentKey = "\t<contentKey encryption=\"" + CryptoTools.getAsymmetricAlgorithm()
 					+ "\" encoding=\"base64\">" + base64ContentKey + "</contentKey>\n";
 		} else {
 			receiver = "topic=\"" + topicId + "\"";
 		}
 
+		if (compression != PayloadCompressor.Algorithm.NONE) {
+			encryption += " compression=\"" + compression.getName() + "\"";
+		}
+
 		String base64Signature = "";
 		if (baSignature != null) {
 			base64Signature = Base64.getEncoder().encodeToString(baSignature);
@@ -918,6 +1021,13 @@ public class Message implements XmlAble, Cloneable {
 			// recipient = AgentStorage.getAgent( Long.parseLong(root.getAttribute ( "to")));
 
 			baEncryptedContent = Base64.getDecoder().decode(content.getTextContent());
+			sessionKeyEncryption = CryptoTools.getAuthenticatedSymmetricAlgorithm()
+					.equals(content.getAttribute("encryption"));
+			try {
+				compression = PayloadCompressor.Algorithm.fromName(content.getAttribute("compression"));
+			} catch (SerializationException e) {
+				throw new MalformedXMLException("unsupported content compression", e);
+			}
 			baSignature = Base64.getDecoder().decode(signature.getTextContent());
 			if (contentKey != null) {
 				baContentKey = Base64.getDecoder().decode(contentKey.getTextContent());
@@ -937,6 +1047,183 @@ public class Message implements XmlAble, Cloneable {
 		}
 	}
 
+	/**
+	 * get a compact binary representation of this message
+	 *
+	 * The binary format contains the same information as {@link #toXmlString()}, but uses length prefixed fields
+	 * instead of XML elements and raw byte arrays instead of base64 encoded strings.
+	 *
+	 * @return binary representation of this message
+	 * @throws SerializationException If the sending node handle can not be serialized
+	 */
+	public byte[] toByteArray() throws SerializationException {
+		try {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream(baEncryptedContent.length + 512);
+			DataOutputStream out = new DataOutputStream(baos);
+
+			byte flags = 0;
+			if (responseToId != null) {
+				flags |= BINARY_FLAG_RESPONSE;
+			}
+			if (isTopic()) {
+				flags |= BINARY_FLAG_TOPIC;
+			} else if (recipientId != null) {
+				flags |= BINARY_FLAG_RECIPIENT;
+			}
+			if (baContentKey != null) {
+				flags |= BINARY_FLAG_CONTENT_KEY;
+			}
+			if (baSignature != null) {
+				flags |= BINARY_FLAG_SIGNATURE;
+			}
+			if (sessionKeyEncryption) {
+				flags |= BINARY_FLAG_SESSION_KEY;
+			}
+			if (sendingNodeId instanceof Long) {
+				flags |= BINARY_FLAG_SENDING_NODE_ID;
+			} else if (sendingNodeId instanceof NodeHandle) {
+				flags |= BINARY_FLAG_SENDING_NODE_HANDLE;
+			}
+
+			out.writeInt(BINARY_MAGIC);
+			if (compression != PayloadCompressor.Algorithm.NONE) {
+				out.writeByte(BINARY_VERSION_COMPRESSED);
+				out.writeByte(flags);
+				out.writeByte(compression.getId());
+			} else {
+				out.writeByte(BINARY_VERSION);
+				out.writeByte(flags);
+			}
+			out.writeLong(id);
+			out.writeLong(timestampMs);
+			out.writeLong(validMs);
+			out.writeUTF(senderId);
+			if (isTopic()) {
+				out.writeLong(topicId);
+			} else if (recipientId != null) {
+				out.writeUTF(recipientId);
+			}
+			if (responseToId != null) {
+				out.writeLong(responseToId);
+			}
+			if (sendingNodeId instanceof Long) {
+				out.writeLong((Long) sendingNodeId);
+			} else if (sendingNodeId instanceof NodeHandle) {
+				writeBinaryField(out, SerializeTools.serialize(sendingNodeId));
+			}
+			writeBinaryField(out, baEncryptedContent);
+			if (baContentKey != null) {
+				writeBinaryField(out, baContentKey);
+			}
+			if (baSignature != null) {
+				writeBinaryField(out, baSignature);
+			}
+
+			out.close();
+			return baos.toByteArray();
+		} catch (IOException e) {
+			throw new SerializationException("IO Exception!", e);
+		}
+	}
+
+	/**
+	 * set the state of this message from the given binary representation, see {@link #toByteArray()}
+	 *
+	 * @param data A binary message representation
+	 * @throws SerializationException If the given data is not a valid binary message representation
+	 */
+	public void setStateFromBytes(byte[] data) throws SerializationException {
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+
+			if (in.readInt() != BINARY_MAGIC) {
+				throw new SerializationException("not a binary las2peer message");
+			}
+			byte version = in.readByte();
+			if (version != BINARY_VERSION && version != BINARY_VERSION_COMPRESSED) {
+				throw new SerializationException("unsupported binary message version " + version);
+			}
+			byte flags = in.readByte();
+			if (version == BINARY_VERSION_COMPRESSED) {
+				compression = PayloadCompressor.Algorithm.fromId(in.readByte());
+			} else {
+				compression = PayloadCompressor.Algorithm.NONE;
+			}
+
+			id = in.readLong();
+			timestampMs = in.readLong();
+			validMs = in.readLong();
+			senderId = in.readUTF();
+			if ((flags & BINARY_FLAG_TOPIC) != 0) {
+				topicId = in.readLong();
+			} else if ((flags & BINARY_FLAG_RECIPIENT) != 0) {
+				recipientId = in.readUTF();
+			} else {
+				throw new SerializationException("recipient or topic missing!");
+			}
+			if ((flags & BINARY_FLAG_RESPONSE) != 0) {
+				responseToId = in.readLong();
+			}
+			if ((flags & BINARY_FLAG_SENDING_NODE_ID) != 0) {
+				sendingNodeId = in.readLong();
+			} else if ((flags & BINARY_FLAG_SENDING_NODE_HANDLE) != 0) {
+				sendingNodeId = SerializeTools.deserialize(readBinaryField(in));
+			}
+			baEncryptedContent = readBinaryField(in);
+			if ((flags & BINARY_FLAG_CONTENT_KEY) != 0) {
+				baContentKey = readBinaryField(in);
+			} else if (topicId == null) {
+				throw new SerializationException("content key missing!");
+			}
+			if ((flags & BINARY_FLAG_SIGNATURE) != 0) {
+				baSignature = readBinaryField(in);
+			}
+			sessionKeyEncryption = (flags & BINARY_FLAG_SESSION_KEY) != 0;
+		} catch (IOException e) {
+			throw new SerializationException("truncated or malformed binary message", e);
+		}
+	}
+
+	/**
+	 * write a length prefixed byte array
+	 *
+	 * @param out
+	 * @param field
+	 * @throws IOException
+	 */
+	private static void writeBinaryField(DataOutputStream out, byte[] field) throws IOException {
+		out.writeInt(field.length);
+		out.write(field);
+	}
+
+	/**
+	 * read a length prefixed byte array
+	 *
+	 * @param in
+	 * @return the field content
+	 * @throws IOException
+	 */
+	private static byte[] readBinaryField(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > in.available()) {
+			throw new IOException("invalid field length " + length);
+		}
+		byte[] result = new byte[length];
+		in.readFully(result);
+		return result;
+	}
+
+	/**
+	 * check if the given data starts like a binary message representation
+	 *
+	 * @param data Some message data
+	 * @return true, if the data seems to be a binary message created by {@link #toByteArray()}
+	 */
+	public static boolean isBinaryMessage(byte[] data) {
+		return data != null && data.length > 4 && ((data[0] & 0xFF) << 24 | (data[1] & 0xFF) << 16
+				| (data[2] & 0xFF) << 8 | (data[3] & 0xFF)) == BINARY_MAGIC;
+	}
+
 	/**
 	 * set the if of the node sending this message The NodeHandle-variant is for Pastry based networks.
 	 * 
@@ -1002,9 +1289,42 @@ public class Message implements XmlAble, Cloneable {
 		return result;
 	}
 
+	/**
+	 * factory: create a message from its binary representation
+	 *
+	 * @param data A binary message representation, see {@link #toByteArray()}
+	 * @return a message generated from the given data
+	 * @throws SerializationException If the given data is not a valid binary message representation
+	 */
+	public static Message createFromBytes(byte[] data) throws SerializationException {
+		Message result = new Message();
+		result.setStateFromBytes(data);
+		return result;
+	}
+
 	@Override
 	public Message clone() throws CloneNotSupportedException {
 		return (Message) super.clone();
 	}
 
+	/**
+	 * create a copy of this (topic) message for one of several local recipients
+	 * 
+	 * The copy shares the immutable payload and signature with this message, only the recipient and the state set by
+	 * opening the message are separate.
+	 * 
+	 * @param recipientId The id of the receiving agent
+	 * @return a copy of this message
+	 */
+	public Message copyForRecipient(String recipientId) {
+		try {
+			Message copy = (Message) super.clone();
+			copy.recipientId = recipientId;
+			return copy;
+		} catch (CloneNotSupportedException e) {
+			// Message is Cloneable
+			throw new IllegalStateException(e);
+		}
+	}
+
 }
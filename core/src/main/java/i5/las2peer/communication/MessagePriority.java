@@ -0,0 +1,28 @@
+package i5.las2peer.communication;
+
+/**
+ * Classifies las2peer traffic, so background traffic does not delay interactive calls.
+ * 
+ * The priority is a local hint of the sending node and is not part of the signed message. It is transported next to
+ * the message by the network layer and used for the network priority and the delivery order at the receiving node.
+ * Since any peer can set it, receiving nodes deliver only responses and service invocations with high priority.
+ *
+ */
+public enum MessagePriority {
+
+	/**
+	 * interactive traffic, like service invocations and their results
+	 */
+	HIGH,
+
+	/**
+	 * default traffic, like service discovery
+	 */
+	MEDIUM,
+
+	/**
+	 * background traffic, like monitoring and bot messages
+	 */
+	LOW;
+
+}
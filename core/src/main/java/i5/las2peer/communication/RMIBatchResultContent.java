@@ -0,0 +1,32 @@
+package i5.las2peer.communication;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * a message content for a {@link Message} containing the outcomes of a batch of remote invocation tasks
+ * 
+ * Each entry is either a {@link RMIResultContent} or a {@link RMIExceptionContent} and belongs to the task at the same
+ * position in the batch.
+ *
+ */
+public class RMIBatchResultContent implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final ArrayList<Serializable> contents = new ArrayList<>();
+
+	public void addResult(Serializable result) {
+		contents.add(new RMIResultContent(result));
+	}
+
+	public void addException(Throwable exception) {
+		contents.add(new RMIExceptionContent(exception));
+	}
+
+	public List<Serializable> getContents() {
+		return contents;
+	}
+
+}
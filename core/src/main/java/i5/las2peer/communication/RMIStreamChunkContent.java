@@ -0,0 +1,53 @@
+package i5.las2peer.communication;
+
+import java.io.Serializable;
+
+/**
+ * a message content carrying one chunk of a streamed invocation result
+ * 
+ * 
+ *
+ */
+public class RMIStreamChunkContent implements Serializable {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 5310275943856107268L;
+	private String streamId;
+	private long sequence;
+	private byte[] data;
+	private boolean last;
+
+	/**
+	 * create a chunk
+	 * 
+	 * @param streamId the id of the stream at the sending node
+	 * @param sequence the number of the chunk, starting with 0
+	 * @param data the chunk data
+	 * @param last true, if this is the last chunk of the stream
+	 */
+	public RMIStreamChunkContent(String streamId, long sequence, byte[] data, boolean last) {
+		this.streamId = streamId;
+		this.sequence = sequence;
+		this.data = data;
+		this.last = last;
+	}
+
+	public String getStreamId() {
+		return streamId;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public byte[] getData() {
+		return data;
+	}
+
+	public boolean isLast() {
+		return last;
+	}
+
+}
@@ -0,0 +1,46 @@
+package i5.las2peer.communication;
+
+import java.io.Serializable;
+
+/**
+ * a message content requesting the next chunk of a streamed invocation result or cancelling the stream
+ * 
+ * 
+ *
+ */
+public class RMIStreamChunkRequest implements Serializable {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = -2261487339950217364L;
+	private String streamId;
+	private long sequence;
+	private boolean cancel;
+
+	/**
+	 * request a chunk
+	 * 
+	 * @param streamId the id of the stream at the serving node
+	 * @param sequence the number of the requested chunk
+	 * @param cancel true, if the stream is not read any further and should be closed
+	 */
+	public RMIStreamChunkRequest(String streamId, long sequence, boolean cancel) {
+		this.streamId = streamId;
+		this.sequence = sequence;
+		this.cancel = cancel;
+	}
+
+	public String getStreamId() {
+		return streamId;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public boolean isCancel() {
+		return cancel;
+	}
+
+}
@@ -0,0 +1,41 @@
+package i5.las2peer.communication;
+
+import java.io.Serializable;
+
+/**
+ * a message content indicating a successful remote invocation, whose result is streamed in chunks
+ * 
+ * The first chunk is sent along, further chunks are requested with {@link RMIStreamChunkRequest} messages.
+ * 
+ * 
+ *
+ */
+public class RMIStreamContent implements Serializable {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 7034125808519344861L;
+	private long length;
+	private String contentType;
+	private RMIStreamChunkContent firstChunk;
+
+	public RMIStreamContent(long length, String contentType, RMIStreamChunkContent firstChunk) {
+		this.length = length;
+		this.contentType = contentType;
+		this.firstChunk = firstChunk;
+	}
+
+	public long getLength() {
+		return length;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public RMIStreamChunkContent getFirstChunk() {
+		return firstChunk;
+	}
+
+}
@@ -28,6 +28,11 @@ public class ServiceDiscoveryContent implements Serializable {
 	 */
 	private ServiceNameVersion service;
 
+	/**
+	 * CPU load of the node running the service, null if unknown
+	 */
+	private Double cpuLoad;
+
 	/**
 	 * creates a request
 	 * 
@@ -52,6 +57,18 @@ public class ServiceDiscoveryContent implements Serializable {
 		this.service = serviceNameVersion;
 	}
 
+	/**
+	 * creates a response with a load hint
+	 * 
+	 * @param agentId An agent identifier
+	 * @param serviceNameVersion A service name and version
+	 * @param cpuLoad The CPU load of the node running the service, between 0 and 1
+	 */
+	public ServiceDiscoveryContent(String agentId, ServiceNameVersion serviceNameVersion, double cpuLoad) {
+		this(agentId, serviceNameVersion);
+		this.cpuLoad = cpuLoad;
+	}
+
 	/**
 	 * check if its a request
 	 * 
@@ -79,6 +96,15 @@ public class ServiceDiscoveryContent implements Serializable {
 		return service;
 	}
 
+	/**
+	 * Gets the CPU load of the node running the service
+	 * 
+	 * @return Returns the CPU load between 0 and 1 or null, if the node did not report it
+	 */
+	public Double getCpuLoad() {
+		return cpuLoad;
+	}
+
 	/**
 	 * checks if the service is accepted by this request
 	 * 
@@ -0,0 +1,245 @@
+package i5.las2peer.communication;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.SecretKey;
+
+import i5.las2peer.api.security.AgentLockedException;
+import i5.las2peer.security.AgentImpl;
+import i5.las2peer.serialization.SerializationException;
+import i5.las2peer.tools.CryptoException;
+import i5.las2peer.tools.CryptoTools;
+
+/**
+ * Cache of symmetric session keys used to encrypt {@link Message} contents between a pair of agents.
+ *
+ * Instead of generating and asymmetrically encrypting a fresh content key for each message, a sender reuses one key
+ * per recipient for a bounded time and number of messages. Each message is encrypted with AES-GCM using a unique
+ * counter based IV. The asymmetrically encrypted session key is still attached to every message, so a recipient
+ * without a cached copy can always open it. Recipients cache decrypted session keys by the hash of the encrypted key,
+ * thus the expensive private key operation is only done once per session on both sides.
+ *
+ * Session keys are disabled by default, because nodes of older versions can not open session encrypted messages. Use
+ * the launcher option {@code --session-keys} once all nodes of a network support them.
+ *
+ */
+public class SessionKeyCache {
+
+	public static final long DEFAULT_MAX_AGE_MS = 10 * 60 * 1000; // 10 minutes
+	public static final long DEFAULT_MAX_MESSAGES = 100000;
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+	public static final boolean DEFAULT_ENABLED = false;
+
+	private static final SessionKeyCache instance = new SessionKeyCache();
+
+	private static final SecureRandom random = new SecureRandom();
+
+	private boolean enabled = DEFAULT_ENABLED;
+	private long maxAgeMs = DEFAULT_MAX_AGE_MS;
+	private long maxMessages = DEFAULT_MAX_MESSAGES;
+	private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+	/**
+	 * sessions used by local senders, mapped by sender and recipient id
+	 */
+	private final LinkedHashMap<String, OutgoingSession> outgoing = new LinkedHashMap<String, OutgoingSession>(16,
+			0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, OutgoingSession> eldest) {
+			return size() > maxEntries;
+		}
+	};
+
+	/**
+	 * session keys opened by local recipients, mapped by recipient id and hash of the encrypted key
+	 */
+	private final LinkedHashMap<String, IncomingSession> incoming = new LinkedHashMap<String, IncomingSession>(16,
+			0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, IncomingSession> eldest) {
+			return size() > maxEntries;
+		}
+	};
+
+	/**
+	 * get the (JVM wide) session key cache
+	 *
+	 * @return the session key cache instance
+	 */
+	public static SessionKeyCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * a session key established by a local sender
+	 */
+	public static class OutgoingSession {
+		private final SecretKey key;
+		private final byte[] encryptedKey;
+		private final long createdAt;
+		private final int ivPrefix;
+		private long counter = 0;
+
+		private OutgoingSession(SecretKey key, byte[] encryptedKey) {
+			this.key = key;
+			this.encryptedKey = encryptedKey;
+			this.createdAt = System.currentTimeMillis();
+			this.ivPrefix = random.nextInt();
+		}
+
+		/**
+		 * @return the symmetric session key
+		 */
+		public SecretKey getKey() {
+			return key;
+		}
+
+		/**
+		 * @return the session key encrypted with the public key of the recipient
+		 */
+		public byte[] getEncryptedKey() {
+			return encryptedKey;
+		}
+
+		/**
+		 * create a fresh initialization vector for the next message of this session
+		 *
+		 * @return a unique IV
+		 */
+		public synchronized byte[] nextIv() {
+			counter++;
+			return ByteBuffer.allocate(CryptoTools.getAuthenticatedIvLength()).putInt(ivPrefix).putLong(counter)
+					.array();
+		}
+
+		private synchronized boolean isExpired(long maxAgeMs, long maxMessages) {
+			return counter >= maxMessages || System.currentTimeMillis() - createdAt > maxAgeMs;
+		}
+	}
+
+	private static class IncomingSession {
+		private final SecretKey key;
+		private final long createdAt;
+
+		private IncomingSession(SecretKey key) {
+			this.key = key;
+			this.createdAt = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * get a session for messages from the given sender to the given recipient, a new session is established if there
+	 * is none or the current one has reached its maximum age or message count
+	 *
+	 * @param sender A sending agent
+	 * @param recipient A receiving agent
+	 * @return a session to encrypt a message with
+	 * @throws CryptoException If the encryption of a new session key fails
+	 * @throws SerializationException If the serialization of a new session key fails
+	 */
+	public OutgoingSession getOutgoingSession(AgentImpl sender, AgentImpl recipient)
+			throws CryptoException, SerializationException {
+		String mapKey = sender.getIdentifier() + "->" + recipient.getIdentifier();
+		synchronized (outgoing) {
+			OutgoingSession session = outgoing.get(mapKey);
+			if (session != null && !session.isExpired(maxAgeMs, maxMessages)) {
+				return session;
+			}
+		}
+		// do the asymmetric operation outside of the lock
+		SecretKey key = CryptoTools.generateSymmetricKey();
+		OutgoingSession session = new OutgoingSession(key, CryptoTools.encryptAsymmetric(key, recipient.getPublicKey()));
+		synchronized (outgoing) {
+			outgoing.put(mapKey, session);
+		}
+		return session;
+	}
+
+	/**
+	 * get the session key for a received message, the key is decrypted with the private key of the recipient only if
+	 * it is not known from a previous message
+	 *
+	 * @param recipient An (unlocked) receiving agent
+	 * @param encryptedKey The session key encrypted for the recipient
+	 * @return the decrypted session key
+	 * @throws AgentLockedException If the recipient is locked and the key is not cached
+	 * @throws SerializationException If the decrypted key can not be deserialized
+	 * @throws CryptoException If the decryption of the key fails
+	 */
+	public SecretKey getIncomingKey(AgentImpl recipient, byte[] encryptedKey)
+			throws AgentLockedException, SerializationException, CryptoException {
+		String mapKey = recipient.getIdentifier() + ":"
+				+ Base64.getEncoder().encodeToString(CryptoTools.getSecureHash(encryptedKey));
+		synchronized (incoming) {
+			IncomingSession session = incoming.get(mapKey);
+			// accept keys a little longer than the sender uses them, since messages may be delayed
+			if (session != null && System.currentTimeMillis() - session.createdAt <= 2 * maxAgeMs) {
+				return session.key;
+			}
+		}
+		SecretKey key = recipient.decryptSymmetricKey(encryptedKey);
+		synchronized (incoming) {
+			incoming.put(mapKey, new IncomingSession(key));
+		}
+		return key;
+	}
+
+	/**
+	 * drop all cached session keys
+	 */
+	public void clear() {
+		synchronized (outgoing) {
+			outgoing.clear();
+		}
+		synchronized (incoming) {
+			incoming.clear();
+		}
+	}
+
+	/**
+	 * @return true, if messages are encrypted with session keys
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * enable or disable session keys for new messages, enabling is only safe if no nodes of older versions, which do
+	 * not know session encrypted messages, are part of the network
+	 *
+	 * @param enabled If false, each message gets its own content key again
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @param maxAgeMs maximum age of an outgoing session before the key is rotated
+	 */
+	public void setMaxAgeMs(long maxAgeMs) {
+		this.maxAgeMs = maxAgeMs;
+	}
+
+	/**
+	 * @param maxMessages maximum number of messages encrypted with one session key before it is rotated
+	 */
+	public void setMaxMessages(long maxMessages) {
+		this.maxMessages = maxMessages;
+	}
+
+	/**
+	 * @param maxEntries maximum number of cached sessions per direction
+	 */
+	public void setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+}
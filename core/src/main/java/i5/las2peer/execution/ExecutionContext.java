@@ -7,7 +7,14 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.logging.Logger;
@@ -18,12 +25,15 @@ import i5.las2peer.api.Context;
 import i5.las2peer.api.Service;
 import i5.las2peer.api.execution.InternalServiceException;
 import i5.las2peer.api.execution.ServiceAccessDeniedException;
+import i5.las2peer.api.execution.ServiceCall;
+import i5.las2peer.api.execution.ServiceCallResult;
 import i5.las2peer.api.execution.ServiceInvocationException;
 import i5.las2peer.api.execution.ServiceInvocationFailedException;
 import i5.las2peer.api.execution.ServiceMethodNotFoundException;
 import i5.las2peer.api.execution.ServiceNotAuthorizedException;
 import i5.las2peer.api.execution.ServiceNotAvailableException;
 import i5.las2peer.api.execution.ServiceNotFoundException;
+import i5.las2peer.api.execution.StreamingResult;
 import i5.las2peer.api.logging.MonitoringEvent;
 import i5.las2peer.api.p2p.ServiceNameVersion;
 import i5.las2peer.api.persistency.Envelope;
@@ -155,30 +165,42 @@ public class ExecutionContext implements Context {
 			ServiceAccessDeniedException, ServiceNotAuthorizedException {
 		try {
 			Serializable rmiResult = callerContext.getLocalNode().invoke(agent, service, method, parameters);
-			if (rmiResult == null) {
-				return null;
-			}
-			ClassLoader localServiceLoader = serviceAgent.getServiceInstance().getClass().getClassLoader();
-			if (rmiResult.getClass().getClassLoader() != localServiceLoader) {
-				// mimic global invocation serialization/deserialization to avoid class
-				// cast/not-found exceptions
-				try {
-					ByteArrayOutputStream baos = new ByteArrayOutputStream();
-					new ObjectOutputStream(baos).writeObject(rmiResult);
-					baos.close();
-					ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray())) {
-						@Override
-						protected Class<?> resolveClass(ObjectStreamClass classDesc)
-								throws IOException, ClassNotFoundException {
-							return ClassFinder.resolveClass(classDesc.getName(), localServiceLoader);
-						}
-					};
-					rmiResult = (Serializable) ois.readObject();
-				} catch (IOException | ClassNotFoundException e) {
-					throw new ServiceInvocationFailedException("Re-serialization failed", e);
+			return toServiceClassLoader(rmiResult);
+		} catch (ServiceNotFoundException | ServiceNotAvailableException | InternalServiceException
+				| ServiceMethodNotFoundException | ServiceInvocationFailedException | ServiceAccessDeniedException
+				| ServiceNotAuthorizedException e) {
+			throw e;
+		} catch (ServiceInvocationException e) {
+			throw new ServiceInvocationFailedException("Service invocation failed.", e);
+		} catch (AgentLockedException e) {
+			throw new IllegalStateException("Agent should be unlocked, but it isn't.");
+		}
+	}
+
+	@Override
+	public List<ServiceCallResult> invokeBatch(String service, List<ServiceCall> calls)
+			throws ServiceNotFoundException, ServiceNotAvailableException, InternalServiceException,
+			ServiceMethodNotFoundException, ServiceInvocationFailedException, ServiceAccessDeniedException,
+			ServiceNotAuthorizedException {
+		return invokeBatch(ServiceNameVersion.fromString(service), calls);
+	}
+
+	@Override
+	public List<ServiceCallResult> invokeBatch(ServiceNameVersion service, List<ServiceCall> calls)
+			throws ServiceNotFoundException, ServiceNotAvailableException, InternalServiceException,
+			ServiceMethodNotFoundException, ServiceInvocationFailedException, ServiceAccessDeniedException,
+			ServiceNotAuthorizedException {
+		try {
+			List<ServiceCallResult> results = new ArrayList<>();
+			for (ServiceCallResult result : callerContext.getLocalNode().invokeBatch(callerContext.getMainAgent(),
+					service, calls)) {
+				if (result.isSuccessful()) {
+					results.add(new ServiceCallResult(toServiceClassLoader(result.getResult()), null));
+				} else {
+					results.add(result);
 				}
 			}
-			return rmiResult;
+			return results;
 		} catch (ServiceNotFoundException | ServiceNotAvailableException | InternalServiceException
 				| ServiceMethodNotFoundException | ServiceInvocationFailedException | ServiceAccessDeniedException
 				| ServiceNotAuthorizedException e) {
@@ -190,6 +212,78 @@ public class ExecutionContext implements Context {
 		}
 	}
 
+	@Override
+	public CompletableFuture<Serializable> invokeAsync(String service, String method, Serializable... parameters) {
+		return invokeAsync(ServiceNameVersion.fromString(service), method, parameters);
+	}
+
+	@Override
+	public CompletableFuture<Serializable> invokeAsync(ServiceNameVersion service, String method,
+			Serializable... parameters) {
+		return callerContext.getLocalNode()
+				.invokeAsync(callerContext.getMainAgent(), service, method, parameters).handle((rmiResult, e) -> {
+					try {
+						if (e == null) {
+							return toServiceClassLoader(rmiResult);
+						}
+						Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+						if (cause instanceof ServiceNotFoundException || cause instanceof ServiceNotAvailableException
+								|| cause instanceof InternalServiceException
+								|| cause instanceof ServiceMethodNotFoundException
+								|| cause instanceof ServiceInvocationFailedException
+								|| cause instanceof ServiceAccessDeniedException
+								|| cause instanceof ServiceNotAuthorizedException) {
+							throw new CompletionException(cause);
+						} else if (cause instanceof ServiceInvocationException) {
+							throw new ServiceInvocationFailedException("Service invocation failed.", cause);
+						} else if (cause instanceof AgentLockedException) {
+							throw new IllegalStateException("Agent should be unlocked, but it isn't.");
+						}
+						throw new CompletionException(cause);
+					} catch (ServiceInvocationFailedException ex) {
+						throw new CompletionException(ex);
+					}
+				});
+	}
+
+	/**
+	 * mimic global invocation serialization/deserialization to avoid class cast/not-found exceptions, if the result
+	 * was created by a service using another class loader
+	 * 
+	 * @param rmiResult An invocation result
+	 * @return the result with classes of the class loader of this service
+	 * @throws ServiceInvocationFailedException If the re-serialization fails
+	 */
+	private Serializable toServiceClassLoader(Serializable rmiResult) throws ServiceInvocationFailedException {
+		if (rmiResult == null) {
+			return null;
+		} else if (rmiResult instanceof StreamingResult) {
+			// platform class holding a live stream, must not be copied
+			return rmiResult;
+		}
+		ClassLoader localServiceLoader = serviceAgent.getServiceInstance().getClass().getClassLoader();
+		if (rmiResult.getClass().getClassLoader() != localServiceLoader) {
+			// mimic global invocation serialization/deserialization to avoid class
+			// cast/not-found exceptions
+			try {
+				ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				new ObjectOutputStream(baos).writeObject(rmiResult);
+				baos.close();
+				ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray())) {
+					@Override
+					protected Class<?> resolveClass(ObjectStreamClass classDesc)
+							throws IOException, ClassNotFoundException {
+						return ClassFinder.resolveClass(classDesc.getName(), localServiceLoader);
+					}
+				};
+				rmiResult = (Serializable) ois.readObject();
+			} catch (IOException | ClassNotFoundException e) {
+				throw new ServiceInvocationFailedException("Re-serialization failed", e);
+			}
+		}
+		return rmiResult;
+	}
+
 	@Override
 	public void monitorEvent(String message) {
 		monitorEvent(null, MonitoringEvent.SERVICE_MESSAGE, message);
@@ -359,7 +453,11 @@ public class ExecutionContext implements Context {
 		} catch (EnvelopeException e1) {
 			throw new EnvelopeOperationFailedException("Problems with the storage!", e1);
 		}
+		return openEnvelope(version, using);
+	}
 
+	private Envelope openEnvelope(EnvelopeVersion version, Agent using)
+			throws EnvelopeAccessDeniedException, EnvelopeOperationFailedException {
 		Envelope envelope;
 		try {
 			envelope = new EnvelopeImpl(version, node.getAgentContext((AgentImpl) using));
@@ -377,6 +475,44 @@ public class ExecutionContext implements Context {
 		return requestEnvelope(identifier, callerContext.getMainAgent());
 	}
 
+	@Override
+	public Map<String, CompletableFuture<Envelope>> requestEnvelopes(Collection<String> identifiers, Agent using) {
+		String prefix = serviceAgent.getServiceNameVersion().getName() + "$";
+		List<String> prefixed = new ArrayList<>();
+		for (String identifier : identifiers) {
+			prefixed.add(prefix + identifier);
+		}
+		Map<String, CompletableFuture<EnvelopeVersion>> versions = node.fetchEnvelopes(prefixed);
+		LinkedHashMap<String, CompletableFuture<Envelope>> result = new LinkedHashMap<>();
+		for (String identifier : identifiers) {
+			if (result.containsKey(identifier)) {
+				continue;
+			}
+			CompletableFuture<Envelope> envelope = new CompletableFuture<>();
+			versions.get(prefix + identifier).whenComplete((version, e) -> {
+				if (e instanceof EnvelopeNotFoundException) {
+					envelope.completeExceptionally(e);
+				} else if (e != null) {
+					envelope.completeExceptionally(
+							new EnvelopeOperationFailedException("Problems with the storage!", e));
+				} else {
+					try {
+						envelope.complete(openEnvelope(version, using));
+					} catch (EnvelopeAccessDeniedException | EnvelopeOperationFailedException e1) {
+						envelope.completeExceptionally(e1);
+					}
+				}
+			});
+			result.put(identifier, envelope);
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, CompletableFuture<Envelope>> requestEnvelopes(Collection<String> identifiers) {
+		return requestEnvelopes(identifiers, callerContext.getMainAgent());
+	}
+
 	@Override
 	public void storeEnvelope(Envelope env, Agent using)
 			throws EnvelopeAccessDeniedException, EnvelopeOperationFailedException {
@@ -0,0 +1,29 @@
+package i5.las2peer.execution;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * a bunch of invocation tasks for the same service, executed with a single message
+ */
+public class RMIBatchTask implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final ArrayList<RMITask> tasks;
+
+	/**
+	 * create a new batch of invocation tasks
+	 * 
+	 * @param tasks A list of tasks, all invoking the same service
+	 */
+	public RMIBatchTask(List<RMITask> tasks) {
+		this.tasks = new ArrayList<>(tasks);
+	}
+
+	public List<RMITask> getTasks() {
+		return tasks;
+	}
+
+}
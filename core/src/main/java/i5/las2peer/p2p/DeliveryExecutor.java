@@ -0,0 +1,447 @@
+package i5.las2peer.p2p;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+
+import i5.las2peer.communication.MessagePriority;
+import i5.las2peer.logging.L2pLogger;
+
+/**
+ * A bounded stage to hand over received messages from the network layer to a fixed pool of worker threads.
+ *
+ * Deliveries are queued per sender and the workers take them from the senders in a round robin manner, so a single
+ * sender flooding the node can not starve all others. If the queue is full or a sender has reached its share, the
+ * delivery is rejected right away. The submitting thread is usually the single network thread of the node, so it must
+ * never wait for the workers. Otherwise one saturated sender would stall the deliveries of all other nodes, or even
+ * deadlock nested calls, whose answers have to pass the very same thread.
+ *
+ * Urgent deliveries, like responses other threads are waiting for, are never rejected, because processing them is
+ * what frees the workers.
+ *
+ * Each {@link MessagePriority} has its own lane and the workers serve the lane with the highest priority first. To
+ * avoid starvation, each waiting lower lane counts the deliveries taken from higher lanes and is served once it has
+ * been passed over a number of times. Low priority deliveries may only fill half of the queue, so background traffic
+ * always leaves room for interactive calls.
+ *
+ */
+public class DeliveryExecutor {
+
+	private static final L2pLogger logger = L2pLogger.getInstance(DeliveryExecutor.class);
+
+	/**
+	 * number of deliveries from higher lanes after which a waiting lower lane is served
+	 */
+	private static final int STARVATION_LIMIT = 16;
+
+	/**
+	 * used as sender for deliveries without a known sender
+	 */
+	private static final Object UNKNOWN_SENDER = new Object();
+
+	private final String name;
+	private final int capacity;
+	private final int senderLimit;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+
+	/**
+	 * one lane per priority, ordered from high to low
+	 */
+	private final Lane[] lanes;
+	private int size = 0;
+	private boolean shutdown = false;
+
+	private final Thread[] workers;
+	private int activeWorkers = 0;
+
+	// statistics
+	private long submittedCount = 0;
+	private long takenCount = 0;
+	private long deliveredCount = 0;
+	private long rejectedCount = 0;
+	private long totalWaitNanos = 0;
+	private long maxWaitNanos = 0;
+	private int maxQueueDepth = 0;
+
+	private static class Lane {
+		/**
+		 * pending deliveries per sender
+		 */
+		private final HashMap<Object, ArrayDeque<Delivery>> senderQueues = new HashMap<>();
+		/**
+		 * senders with pending deliveries in the order they are served
+		 */
+		private final ArrayDeque<Object> readySenders = new ArrayDeque<>();
+		private int size = 0;
+		/**
+		 * number of deliveries taken from higher lanes while this lane was waiting
+		 */
+		private int passedOver = 0;
+		private long deliveredCount = 0;
+	}
+
+	private static class Delivery {
+		private final Runnable task;
+		private final Lane lane;
+		private final long enqueuedAt = System.nanoTime();
+
+		private Delivery(Runnable task, Lane lane) {
+			this.task = task;
+			this.lane = lane;
+		}
+	}
+
+	/**
+	 * create and start a delivery executor
+	 *
+	 * @param name A name used for the worker threads
+	 * @param workerCount Number of worker threads
+	 * @param capacity Maximum number of queued deliveries
+	 * @param senderLimit Maximum number of queued deliveries per sender
+	 */
+	public DeliveryExecutor(String name, int workerCount, int capacity, int senderLimit) {
+		if (workerCount < 1 || capacity < 1 || senderLimit < 1) {
+			throw new IllegalArgumentException("worker count, capacity and sender limit must be positive");
+		}
+		this.name = name;
+		this.capacity = capacity;
+		this.senderLimit = Math.min(senderLimit, capacity);
+		lanes = new Lane[MessagePriority.values().length];
+		for (int i = 0; i < lanes.length; i++) {
+			lanes[i] = new Lane();
+		}
+		workers = new Thread[workerCount];
+		for (int i = 0; i < workerCount; i++) {
+			workers[i] = new Thread(this::work, name + "-" + i);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+	}
+
+	/**
+	 * queue a delivery with medium priority for execution
+	 *
+	 * Never blocks the calling thread, if the queue or the share of the given sender is full, the delivery is rejected.
+	 *
+	 * @param sender An object identifying the sender of the delivery, used to share the workers fairly, may be null
+	 * @param task A task to run
+	 * @param urgent If true, the delivery is accepted even if the queue is full
+	 * @return true, if the delivery was queued, false if it was rejected due to saturation or shutdown
+	 */
+	public boolean submit(Object sender, Runnable task, boolean urgent) {
+		return submit(sender, task, urgent, MessagePriority.MEDIUM);
+	}
+
+	/**
+	 * queue a delivery for execution
+	 *
+	 * Never blocks the calling thread, if the queue or the share of the given sender is full, the delivery is rejected.
+	 *
+	 * @param sender An object identifying the sender of the delivery, used to share the workers fairly, may be null
+	 * @param task A task to run
+	 * @param urgent If true, the delivery is accepted even if the queue is full
+	 * @param priority The priority of the delivery
+	 * @return true, if the delivery was queued, false if it was rejected due to saturation or shutdown
+	 */
+	public boolean submit(Object sender, Runnable task, boolean urgent, MessagePriority priority) {
+		if (sender == null) {
+			sender = UNKNOWN_SENDER;
+		}
+		Lane lane = lanes[priority.ordinal()];
+		Delivery delivery = new Delivery(task, lane);
+		lock.lock();
+		try {
+			if (shutdown) {
+				rejectedCount++;
+				return false;
+			} else if (!urgent && isSaturated(sender, priority)) {
+				rejectedCount++;
+				logger.fine(name + " saturated, rejecting delivery from " + sender);
+				return false;
+			}
+			ArrayDeque<Delivery> queue = lane.senderQueues.get(sender);
+			if (queue == null) {
+				queue = new ArrayDeque<>();
+				lane.senderQueues.put(sender, queue);
+				lane.readySenders.add(sender);
+			}
+			queue.add(delivery);
+			lane.size++;
+			size++;
+			submittedCount++;
+			maxQueueDepth = Math.max(maxQueueDepth, size);
+			notEmpty.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean isSaturated(Object sender, MessagePriority priority) {
+		if (size >= capacity) {
+			return true;
+		} else if (priority == MessagePriority.LOW && size >= capacity / 2) {
+			// keep room for interactive traffic
+			return true;
+		}
+		ArrayDeque<Delivery> queue = lanes[priority.ordinal()].senderQueues.get(sender);
+		return queue != null && queue.size() >= senderLimit;
+	}
+
+	/**
+	 * select the lane to take the next delivery from, the lock has to be held and the queue must not be empty
+	 * 
+	 * @return the lane with the highest priority or a lower one, if it waited too long
+	 */
+	private Lane nextLane() {
+		Lane next = null;
+		// the lowest starving lane goes first, so it can not be overtaken by starving lanes above it
+		for (int i = lanes.length - 1; i > 0 && next == null; i--) {
+			if (lanes[i].size > 0 && lanes[i].passedOver >= STARVATION_LIMIT) {
+				next = lanes[i];
+			}
+		}
+		if (next == null) {
+			int first = 0;
+			while (lanes[first].size == 0) {
+				first++;
+			}
+			next = lanes[first];
+		}
+		next.passedOver = 0;
+		// every lane waiting below the served one ages
+		boolean below = false;
+		for (Lane lane : lanes) {
+			if (below && lane.size > 0) {
+				lane.passedOver++;
+			} else if (lane == next) {
+				below = true;
+			}
+		}
+		return next;
+	}
+
+	private Delivery take() throws InterruptedException {
+		lock.lock();
+		try {
+			while (size == 0) {
+				if (shutdown) {
+					return null;
+				}
+				notEmpty.await();
+			}
+			Lane lane = nextLane();
+			Object sender = lane.readySenders.poll();
+			ArrayDeque<Delivery> queue = lane.senderQueues.get(sender);
+			Delivery delivery = queue.poll();
+			if (queue.isEmpty()) {
+				lane.senderQueues.remove(sender);
+			} else {
+				// put the sender back at the end of the line
+				lane.readySenders.add(sender);
+			}
+			lane.size--;
+			size--;
+			takenCount++;
+			long wait = System.nanoTime() - delivery.enqueuedAt;
+			totalWaitNanos += wait;
+			maxWaitNanos = Math.max(maxWaitNanos, wait);
+			activeWorkers++;
+			return delivery;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void work() {
+		while (true) {
+			Delivery delivery;
+			try {
+				delivery = take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (delivery == null) {
+				return;
+			}
+			try {
+				delivery.task.run();
+			} catch (Throwable t) {
+				logger.log(Level.SEVERE, "Exception while delivering message", t);
+			} finally {
+				lock.lock();
+				try {
+					activeWorkers--;
+					deliveredCount++;
+					delivery.lane.deliveredCount++;
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+	}
+
+	/**
+	 * stop all workers, pending deliveries are dropped
+	 */
+	public void shutdown() {
+		lock.lock();
+		try {
+			shutdown = true;
+			for (Lane lane : lanes) {
+				lane.senderQueues.clear();
+				lane.readySenders.clear();
+				lane.size = 0;
+				lane.passedOver = 0;
+			}
+			size = 0;
+			notEmpty.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of currently queued deliveries
+	 */
+	public int getQueueDepth() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @param priority A delivery priority
+	 * @return the number of currently queued deliveries with the given priority
+	 */
+	public int getQueueDepth(MessagePriority priority) {
+		lock.lock();
+		try {
+			return lanes[priority.ordinal()].size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the highest number of queued deliveries since start
+	 */
+	public int getMaxQueueDepth() {
+		lock.lock();
+		try {
+			return maxQueueDepth;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the maximum number of queued deliveries
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the number of worker threads
+	 */
+	public int getWorkerCount() {
+		return workers.length;
+	}
+
+	/**
+	 * @return the number of workers currently running a delivery
+	 */
+	public int getActiveWorkers() {
+		lock.lock();
+		try {
+			return activeWorkers;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of accepted deliveries
+	 */
+	public long getSubmittedCount() {
+		lock.lock();
+		try {
+			return submittedCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of finished deliveries
+	 */
+	public long getDeliveredCount() {
+		lock.lock();
+		try {
+			return deliveredCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @param priority A delivery priority
+	 * @return the number of finished deliveries with the given priority
+	 */
+	public long getDeliveredCount(MessagePriority priority) {
+		lock.lock();
+		try {
+			return lanes[priority.ordinal()].deliveredCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of rejected deliveries
+	 */
+	public long getRejectedCount() {
+		lock.lock();
+		try {
+			return rejectedCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the average time in milliseconds a delivery was queued before a worker took it
+	 */
+	public double getAverageWaitTimeMs() {
+		lock.lock();
+		try {
+			if (takenCount == 0) {
+				return 0;
+			}
+			return totalWaitNanos / 1000000.0 / takenCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the maximum time in milliseconds a delivery was queued before a worker took it
+	 */
+	public double getMaxWaitTimeMs() {
+		lock.lock();
+		try {
+			return maxWaitNanos / 1000000.0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,67 @@
+package i5.las2peer.p2p;
+
+import java.util.Random;
+
+/**
+ * Determines the delay of messages sent through a {@link LocalTransport}.
+ *
+ * The random source is provided by the transport, so a seeded transport produces the same delays in every run.
+ *
+ */
+public interface LatencyModel {
+
+	/**
+	 * messages are delivered without delay
+	 */
+	public static final LatencyModel ZERO = random -> 0;
+
+	/**
+	 * get the delay of the next message
+	 *
+	 * @param random The random source of the transport
+	 * @return the delay in milliseconds
+	 */
+	public long nextDelay(Random random);
+
+	/**
+	 * create a model delaying all messages by the same time
+	 *
+	 * @param delayMs Delay in milliseconds
+	 * @return the latency model
+	 */
+	public static LatencyModel fixed(long delayMs) {
+		if (delayMs < 0) {
+			throw new IllegalArgumentException("delay must not be negative");
+		}
+		return random -> delayMs;
+	}
+
+	/**
+	 * create a model with uniformly distributed delays
+	 *
+	 * @param minMs Minimum delay in milliseconds
+	 * @param maxMs Maximum delay in milliseconds (inclusive)
+	 * @return the latency model
+	 */
+	public static LatencyModel uniform(long minMs, long maxMs) {
+		if (minMs < 0 || maxMs < minMs) {
+			throw new IllegalArgumentException("invalid delay range " + minMs + " - " + maxMs);
+		}
+		return random -> minMs + (long) (random.nextDouble() * (maxMs - minMs + 1));
+	}
+
+	/**
+	 * create a model with normally distributed delays, negative values are cut to zero
+	 *
+	 * @param meanMs Mean delay in milliseconds
+	 * @param stdDevMs Standard deviation in milliseconds
+	 * @return the latency model
+	 */
+	public static LatencyModel normal(double meanMs, double stdDevMs) {
+		if (stdDevMs < 0) {
+			throw new IllegalArgumentException("standard deviation must not be negative");
+		}
+		return random -> Math.max(0, Math.round(meanMs + random.nextGaussian() * stdDevMs));
+	}
+
+}
@@ -3,7 +3,9 @@ package i5.las2peer.p2p;
 import java.io.Serializable;
 import java.security.PublicKey;
 import java.util.Collection;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 import i5.las2peer.api.persistency.EnvelopeAlreadyExistsException;
 import i5.las2peer.api.persistency.EnvelopeException;
@@ -359,6 +361,11 @@ public class LocalNode extends Node {
 				exceptionHandler);
 	}
 
+	@Override
+	public CompletableFuture<Integer> storeEnvelopeAsync(EnvelopeVersion envelope, AgentImpl author) {
+		return localNodeManager.getStorage().storeEnvelopeAsync(envelope, author);
+	}
+
 	@Override
 	public EnvelopeVersion fetchEnvelope(String identifier, long timeoutMs)
 			throws EnvelopeNotFoundException, EnvelopeException {
@@ -371,6 +378,16 @@ public class LocalNode extends Node {
 		localNodeManager.getStorage().fetchEnvelopeAsync(identifier, envelopeHandler, exceptionHandler);
 	}
 
+	@Override
+	public CompletableFuture<EnvelopeVersion> fetchEnvelopeAsync(String identifier) {
+		return localNodeManager.getStorage().fetchEnvelopeAsync(identifier);
+	}
+
+	@Override
+	public Map<String, CompletableFuture<EnvelopeVersion>> fetchEnvelopes(Collection<String> identifiers) {
+		return localNodeManager.getStorage().fetchEnvelopes(identifiers);
+	}
+
 	@Override
 	public void removeEnvelope(String identifier) throws EnvelopeNotFoundException, EnvelopeException {
 		localNodeManager.getStorage().removeEnvelope(identifier);
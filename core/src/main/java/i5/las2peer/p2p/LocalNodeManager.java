@@ -2,7 +2,6 @@ package i5.las2peer.p2p;
 
 import java.util.HashSet;
 import java.util.Hashtable;
-import java.util.Random;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -11,11 +10,14 @@ import i5.las2peer.classLoaders.ClassManager;
 import i5.las2peer.classLoaders.libraries.FileSystemRepository;
 import i5.las2peer.classLoaders.policies.DefaultPolicy;
 import i5.las2peer.communication.Message;
+import i5.las2peer.logging.L2pLogger;
 import i5.las2peer.persistency.LocalStorage;
 import i5.las2peer.security.AgentImpl;
 
 public class LocalNodeManager {
 
+	private static final L2pLogger logger = L2pLogger.getInstance(LocalNodeManager.class);
+
 	public LocalNodeManager() {
 		startPendingTimer();
 	}
@@ -151,6 +153,8 @@ public class LocalNodeManager {
 		htKnownAgents = new Hashtable<>();
 		htLocalNodes = new Hashtable<>();
 
+		transport.shutdown();
+		transport = new LocalTransport();
 		iMessageMinWait = DEFAULT_MESSAGE_MIN_WAIT;
 		iMessageMaxWait = DEFAULT_MESSAGE_MAX_WAIT;
 		lPendingTimeout = DEFAULT_PENDING_TIMEOUT;
@@ -297,10 +301,12 @@ public class LocalNodeManager {
 		}
 	}
 
-	private static final int DEFAULT_MESSAGE_MIN_WAIT = 500;
+	private static final int DEFAULT_MESSAGE_MIN_WAIT = 0;
 	private int iMessageMinWait = DEFAULT_MESSAGE_MIN_WAIT;
-	private static final int DEFAULT_MESSAGE_MAX_WAIT = 550;
+	private static final int DEFAULT_MESSAGE_MAX_WAIT = 0;
 	private int iMessageMaxWait = DEFAULT_MESSAGE_MAX_WAIT;
+
+	private LocalTransport transport = new LocalTransport();
 	private static final long DEFAULT_PENDING_TIMEOUT = 20000; // 20 seconds
 	private long lPendingTimeout = DEFAULT_PENDING_TIMEOUT;
 
@@ -319,12 +325,34 @@ public class LocalNodeManager {
 		return iMessageMaxWait;
 	}
 
+	/**
+	 * set the minimum delay of messages, replaces the latency model of the transport by a uniform distribution
+	 * 
+	 * @param time Minimum delay in milliseconds
+	 */
 	public void setMinMessageWait(int time) {
 		iMessageMinWait = time;
+		transport.setLatencyModel(LatencyModel.uniform(iMessageMinWait, Math.max(iMessageMinWait, iMessageMaxWait)));
 	}
 
+	/**
+	 * set the maximum delay of messages, replaces the latency model of the transport by a uniform distribution
+	 * 
+	 * @param time Maximum delay in milliseconds
+	 */
 	public void setMaxMessageWait(int time) {
 		iMessageMaxWait = time;
+		transport.setLatencyModel(LatencyModel.uniform(Math.min(iMessageMinWait, iMessageMaxWait), iMessageMaxWait));
+	}
+
+	/**
+	 * get the in-memory network used to pass messages between the nodes of this manager, e.g. to configure latency,
+	 * message drops, partitions or a virtual clock
+	 * 
+	 * @return the transport
+	 */
+	public LocalTransport getTransport() {
+		return transport;
 	}
 
 	/**
@@ -345,7 +373,7 @@ public class LocalNodeManager {
 	}
 
 	/**
-	 * does the actual <i>sending</i> of a message in a separate thread with a configurable delay
+	 * does the actual <i>sending</i> of a message through the {@link LocalTransport} of this manager
 	 * 
 	 * @param nodeId A node id to send to
 	 * @param message A message to send
@@ -356,26 +384,21 @@ public class LocalNodeManager {
 		// since the recipient knows other versions of the involved agents
 		message.close();
 
-		new Thread(new Runnable() {
-			@Override
-			public void run() {
-				Random r = new Random();
-
-				int wait = iMessageMinWait + r.nextInt(iMessageMaxWait - iMessageMinWait + 1);
-				try {
-					Thread.sleep(wait);
-				} catch (InterruptedException e1) {
-				}
-
-				try {
-					getNode(nodeId).receiveMessage(message.clone());
-				} catch (Exception e) {
-					System.out.println("problems at node " + nodeId);
-					e.printStackTrace();
-					throw new RuntimeException(e);
-				}
+		Object sendingNodeId = message.getSendingNodeId();
+		transport.send(sendingNodeId instanceof Long ? (Long) sendingNodeId : null, nodeId, () -> {
+			LocalNode node = getNode(nodeId);
+			if (node == null) {
+				logger.fine("node " + nodeId + " is gone, dropping message " + message.getId());
+				return;
+			}
+			try {
+				node.receiveMessage(message.clone());
+			} catch (Exception e) {
+				System.out.println("problems at node " + nodeId);
+				e.printStackTrace();
+				throw new RuntimeException(e);
 			}
-		}).start();
+		});
 	}
 
 	public Object[] getAllNodes() {
@@ -0,0 +1,330 @@
+package i5.las2peer.p2p;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The in-memory network used by the {@link LocalNodeManager} to pass messages between local nodes.
+ *
+ * Each message is delayed according to a {@link LatencyModel}. Messages can be dropped randomly or because sender and
+ * recipient are in different partitions of the network.
+ *
+ * By default messages are delivered in real time by a thread pool. With a virtual clock messages are queued instead
+ * and delivered in the thread calling {@link #advanceClock(long)} or {@link #runUntilIdle()}, ordered by their due time
+ * and send order. Together with a fixed seed this replays the same message order in every run.
+ *
+ * The virtual clock only controls the message delivery. It suits exchanges, which are handled while the message is
+ * delivered, like mediators, topic listeners and answers sent by the receiving agent itself. Service invocations are
+ * executed in a thread of the receiving node and answer timeouts of the nodes still use real time, so invocations
+ * between local nodes need the real time mode.
+ *
+ */
+public class LocalTransport {
+
+	private static final long NO_SEED = Long.MIN_VALUE;
+
+	private LatencyModel latencyModel = LatencyModel.ZERO;
+	private Random random = new Random();
+	private double dropRate = 0;
+	private final Map<Long, Integer> partitions = new HashMap<>();
+
+	private boolean virtualClock = false;
+	private long virtualTime = 0;
+	private long sequence = 0;
+	private final PriorityQueue<ScheduledDelivery> queue = new PriorityQueue<>();
+
+	private final AtomicLong sentCount = new AtomicLong();
+	private final AtomicLong droppedCount = new AtomicLong();
+	private final AtomicLong deliveredCount = new AtomicLong();
+
+	private ScheduledExecutorService scheduler;
+	private ExecutorService deliveryExecutor;
+
+	private static class ScheduledDelivery implements Comparable<ScheduledDelivery> {
+		private final long dueTime;
+		private final long sequence;
+		private final Runnable delivery;
+
+		private ScheduledDelivery(long dueTime, long sequence, Runnable delivery) {
+			this.dueTime = dueTime;
+			this.sequence = sequence;
+			this.delivery = delivery;
+		}
+
+		@Override
+		public int compareTo(ScheduledDelivery o) {
+			if (dueTime != o.dueTime) {
+				return Long.compare(dueTime, o.dueTime);
+			}
+			return Long.compare(sequence, o.sequence);
+		}
+	}
+
+	/**
+	 * create a transport without latency, drops and partitions using real time
+	 */
+	public LocalTransport() {
+		this(LatencyModel.ZERO, NO_SEED);
+	}
+
+	/**
+	 * create a transport
+	 *
+	 * @param latencyModel The latency of all messages
+	 * @param seed Seed of the random source used for delays and drops
+	 */
+	public LocalTransport(LatencyModel latencyModel, long seed) {
+		this.latencyModel = latencyModel;
+		if (seed != NO_SEED) {
+			random = new Random(seed);
+		}
+	}
+
+	/**
+	 * send a message
+	 *
+	 * @param fromNodeId The sending node or null, if unknown
+	 * @param toNodeId The receiving node
+	 * @param delivery The actual delivery of the message at the receiving node
+	 */
+	public void send(Long fromNodeId, long toNodeId, Runnable delivery) {
+		sentCount.incrementAndGet();
+		long delay;
+		synchronized (this) {
+			if (isPartitioned(fromNodeId, toNodeId) || (dropRate > 0 && random.nextDouble() < dropRate)) {
+				droppedCount.incrementAndGet();
+				return;
+			}
+			delay = latencyModel.nextDelay(random);
+
+			if (virtualClock) {
+				queue.add(new ScheduledDelivery(virtualTime + delay, sequence++, delivery));
+				return;
+			}
+		}
+
+		if (delay <= 0) {
+			getDeliveryExecutor().execute(() -> deliver(delivery));
+		} else {
+			getScheduler().schedule(() -> getDeliveryExecutor().execute(() -> deliver(delivery)), delay,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void deliver(Runnable delivery) {
+		deliveredCount.incrementAndGet();
+		delivery.run();
+	}
+
+	private boolean isPartitioned(Long fromNodeId, long toNodeId) {
+		if (fromNodeId == null || partitions.isEmpty()) {
+			return false;
+		}
+		return !partitions.getOrDefault(fromNodeId, -1).equals(partitions.getOrDefault(toNodeId, -1));
+	}
+
+	/**
+	 * split the network, nodes can only reach nodes of their own group. All nodes not listed form another group.
+	 *
+	 * @param groups Groups of node ids
+	 */
+	@SafeVarargs
+	public final synchronized void partition(Collection<Long>... groups) {
+		partitions.clear();
+		for (int i = 0; i < groups.length; i++) {
+			for (Long nodeId : groups[i]) {
+				partitions.put(nodeId, i);
+			}
+		}
+	}
+
+	/**
+	 * remove all partitions
+	 */
+	public synchronized void heal() {
+		partitions.clear();
+	}
+
+	/**
+	 * deliver all queued messages due within the given time and advance the virtual clock
+	 *
+	 * @param ms Milliseconds to advance the clock
+	 * @return the number of delivered messages
+	 */
+	public int advanceClock(long ms) {
+		long target;
+		synchronized (this) {
+			checkVirtualClock();
+			target = virtualTime + ms;
+		}
+		int count = 0;
+		ScheduledDelivery next;
+		while ((next = pollDue(target)) != null) {
+			deliver(next.delivery);
+			count++;
+		}
+		synchronized (this) {
+			virtualTime = Math.max(virtualTime, target);
+		}
+		return count;
+	}
+
+	/**
+	 * deliver queued messages, including the ones sent meanwhile, until the queue is empty
+	 *
+	 * @return the number of delivered messages
+	 */
+	public int runUntilIdle() {
+		synchronized (this) {
+			checkVirtualClock();
+		}
+		int count = 0;
+		ScheduledDelivery next;
+		while ((next = pollDue(Long.MAX_VALUE)) != null) {
+			deliver(next.delivery);
+			count++;
+		}
+		return count;
+	}
+
+	private synchronized ScheduledDelivery pollDue(long target) {
+		ScheduledDelivery next = queue.peek();
+		if (next == null || next.dueTime > target) {
+			return null;
+		}
+		queue.poll();
+		virtualTime = Math.max(virtualTime, next.dueTime);
+		return next;
+	}
+
+	private void checkVirtualClock() {
+		if (!virtualClock) {
+			throw new IllegalStateException("transport does not use a virtual clock");
+		}
+	}
+
+	/**
+	 * switch between real time and a virtual clock, see the class description for what the virtual clock controls
+	 *
+	 * @param virtualClock true to queue messages until the virtual clock is advanced
+	 */
+	public synchronized void setVirtualClock(boolean virtualClock) {
+		if (!queue.isEmpty()) {
+			throw new IllegalStateException("there are " + queue.size() + " queued messages");
+		}
+		this.virtualClock = virtualClock;
+	}
+
+	public synchronized boolean isVirtualClock() {
+		return virtualClock;
+	}
+
+	/**
+	 * @return the current time of the virtual clock in milliseconds
+	 */
+	public synchronized long getVirtualTime() {
+		return virtualTime;
+	}
+
+	/**
+	 * @return the number of messages waiting for the virtual clock
+	 */
+	public synchronized int getQueuedCount() {
+		return queue.size();
+	}
+
+	public synchronized LatencyModel getLatencyModel() {
+		return latencyModel;
+	}
+
+	public synchronized void setLatencyModel(LatencyModel latencyModel) {
+		this.latencyModel = latencyModel;
+	}
+
+	/**
+	 * @param seed Seed of the random source used for delays and drops
+	 */
+	public synchronized void setSeed(long seed) {
+		random = new Random(seed);
+	}
+
+	public synchronized double getDropRate() {
+		return dropRate;
+	}
+
+	/**
+	 * @param dropRate Share of messages, which are silently dropped
+	 */
+	public synchronized void setDropRate(double dropRate) {
+		if (dropRate < 0 || dropRate > 1) {
+			throw new IllegalArgumentException("drop rate has to be between 0 and 1");
+		}
+		this.dropRate = dropRate;
+	}
+
+	public long getSentCount() {
+		return sentCount.get();
+	}
+
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	public long getDeliveredCount() {
+		return deliveredCount.get();
+	}
+
+	/**
+	 * stop the delivery threads, queued and delayed messages are discarded
+	 */
+	public synchronized void shutdown() {
+		queue.clear();
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+		if (deliveryExecutor != null) {
+			deliveryExecutor.shutdown();
+			deliveryExecutor = null;
+		}
+	}
+
+	private synchronized ScheduledExecutorService getScheduler() {
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory("las2peer-local-transport-timer"));
+		}
+		return scheduler;
+	}
+
+	private synchronized ExecutorService getDeliveryExecutor() {
+		if (deliveryExecutor == null) {
+			// receivers may block while waiting for answers, so deliveries must not wait for each other
+			deliveryExecutor = Executors.newCachedThreadPool(threadFactory("las2peer-local-transport"));
+		}
+		return deliveryExecutor;
+	}
+
+	private static ThreadFactory threadFactory(String name) {
+		return new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+}
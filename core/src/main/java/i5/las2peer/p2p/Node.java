@@ -5,26 +5,43 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.lang.management.ManagementFactory;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import com.sun.management.OperatingSystemMXBean;
 
 import i5.las2peer.api.Configurable;
 import i5.las2peer.api.execution.ServiceAccessDeniedException;
+import i5.las2peer.api.execution.ServiceCall;
+import i5.las2peer.api.execution.ServiceCallResult;
 import i5.las2peer.api.execution.ServiceInvocationException;
 import i5.las2peer.api.execution.ServiceInvocationFailedException;
 import i5.las2peer.api.execution.ServiceNotAvailableException;
 import i5.las2peer.api.execution.ServiceNotFoundException;
+import i5.las2peer.api.execution.StreamingResult;
 import i5.las2peer.api.logging.MonitoringEvent;
 import i5.las2peer.api.p2p.ServiceNameVersion;
 import i5.las2peer.api.persistency.EnvelopeAlreadyExistsException;
@@ -40,8 +57,14 @@ import i5.las2peer.classLoaders.libraries.Repository;
 import i5.las2peer.classLoaders.policies.DefaultPolicy;
 import i5.las2peer.communication.Message;
 import i5.las2peer.communication.MessageException;
+import i5.las2peer.communication.MessagePriority;
+import i5.las2peer.communication.RMIBatchResultContent;
 import i5.las2peer.communication.RMIExceptionContent;
 import i5.las2peer.communication.RMIResultContent;
+import i5.las2peer.communication.RMIStreamChunkContent;
+import i5.las2peer.communication.RMIStreamChunkRequest;
+import i5.las2peer.communication.RMIStreamContent;
+import i5.las2peer.execution.RMIBatchTask;
 import i5.las2peer.execution.RMITask;
 import i5.las2peer.logging.L2pLogger;
 import i5.las2peer.logging.NodeObserver;
@@ -66,6 +89,7 @@ import i5.las2peer.security.UserAgentImpl;
 import i5.las2peer.security.UserAgentManager;
 import i5.las2peer.serialization.SerializationException;
 import i5.las2peer.tools.CryptoException;
+import i5.las2peer.tools.TimingWheel;
 import rice.pastry.NodeHandle;
 import rice.pastry.PastryNode;
 import rice.pastry.socket.SocketNodeHandle;
@@ -145,6 +169,64 @@ public abstract class Node extends Configurable implements AgentStorage, NodeSto
 	 */
 	private int invocationRetryCount = DEFAULT_INVOCATION_RETRY_COUNT;
 
+	public static final int DEFAULT_INVOCATION_THREAD_COUNT = 64;
+	/**
+	 * maximum number of threads opening the answers of asynchronous invocations and result streams
+	 */
+	private int invocationThreadCount = DEFAULT_INVOCATION_THREAD_COUNT;
+
+	public static final int DEFAULT_INVOCATION_QUEUE_SIZE = 1000;
+	/**
+	 * maximum number of asynchronous invocation tasks waiting for a thread, further tasks are rejected
+	 */
+	private int invocationQueueSize = DEFAULT_INVOCATION_QUEUE_SIZE;
+
+	public static final int DEFAULT_DELIVERY_WORKER_COUNT = 32;
+	/**
+	 * number of threads handling received messages
+	 */
+	private int deliveryWorkerCount = DEFAULT_DELIVERY_WORKER_COUNT;
+
+	public static final int DEFAULT_DELIVERY_QUEUE_SIZE = 1000;
+	/**
+	 * maximum number of received messages waiting for a delivery thread
+	 */
+	private int deliveryQueueSize = DEFAULT_DELIVERY_QUEUE_SIZE;
+
+	public static final int DEFAULT_DELIVERY_SENDER_LIMIT = 100;
+	/**
+	 * maximum number of waiting messages received from a single node
+	 */
+	private int deliverySenderLimit = DEFAULT_DELIVERY_SENDER_LIMIT;
+
+	public static final int DEFAULT_RECENT_MESSAGE_CACHE_SIZE = RecentMessageCache.DEFAULT_MAX_ENTRIES;
+	/**
+	 * number of received message ids remembered to drop duplicates
+	 */
+	private int recentMessageCacheSize = DEFAULT_RECENT_MESSAGE_CACHE_SIZE;
+
+	/**
+	 * recently received messages, used to drop duplicates
+	 */
+	private RecentMessageCache recentMessages;
+
+	public static final int DEFAULT_RESULT_STREAM_CHUNK_SIZE = ResultStreamRegistry.DEFAULT_CHUNK_SIZE;
+	/**
+	 * maximum number of bytes of a streaming result sent in one message
+	 */
+	private int resultStreamChunkSize = DEFAULT_RESULT_STREAM_CHUNK_SIZE;
+
+	public static final int DEFAULT_RESULT_STREAM_IDLE_TIMEOUT = (int) ResultStreamRegistry.DEFAULT_IDLE_TIMEOUT_MS;
+	/**
+	 * time in milliseconds after which a streaming result is closed, if the caller does not request further chunks
+	 */
+	private int resultStreamIdleTimeout = DEFAULT_RESULT_STREAM_IDLE_TIMEOUT;
+
+	/**
+	 * streaming results of local services read by callers at other nodes
+	 */
+	private ResultStreamRegistry resultStreams;
+
 	/**
 	 * observers to be notified of all occurring events
 	 */
@@ -153,7 +235,7 @@ public abstract class Node extends Configurable implements AgentStorage, NodeSto
 	/**
 	 * contexts for local method invocation
 	 */
-	private Hashtable<String, AgentContext> htLocalExecutionContexts = new Hashtable<>();
+	private final ConcurrentHashMap<String, AgentContext> htLocalExecutionContexts = new ConcurrentHashMap<>();
 
 	/**
 	 * Timer to tidy up hashtables etc (Contexts)
@@ -173,20 +255,43 @@ public abstract class Node extends Configurable implements AgentStorage, NodeSto
 	/**
 	 * hashtable with all {@link i5.las2peer.security.MessageReceiver}s registered at this node
 	 */
-	private Hashtable<String, MessageReceiver> htRegisteredReceivers = new Hashtable<>();
+	private final ConcurrentHashMap<String, MessageReceiver> htRegisteredReceivers = new ConcurrentHashMap<>();
 
 	/**
 	 * map with all topics and their listeners
+	 * 
+	 * The listener maps are never modified, but replaced on (un)registration, so messages are delivered to a snapshot
+	 * of the listeners without locking.
 	 */
-	private HashMap<Long, TreeMap<String, MessageReceiver>> mapTopicListeners = new HashMap<>();
+	private final ConcurrentHashMap<Long, Map<String, MessageReceiver>> mapTopicListeners = new ConcurrentHashMap<>();
 	/**
-	 * other direction of {@link #mapTopicListeners}
+	 * other direction of {@link #mapTopicListeners}, guards changes of both maps
 	 */
-	private HashMap<String, TreeSet<Long>> mapListenerTopics = new HashMap<>();
+	private final HashMap<String, TreeSet<Long>> mapListenerTopics = new HashMap<>();
 
 	private ClassManager classManager = null;
 
-	private Hashtable<Long, MessageResultListener> htAnswerListeners = new Hashtable<>();
+	private final ConcurrentHashMap<Long, MessageResultListener> htAnswerListeners = new ConcurrentHashMap<>();
+
+	/**
+	 * pending timeouts of the registered answer listeners
+	 */
+	private final ConcurrentHashMap<Long, TimingWheel.Timeout> htAnswerTimeouts = new ConcurrentHashMap<>();
+
+	/**
+	 * one timer shared by all nodes to expire answer listeners
+	 */
+	private static final TimingWheel answerTimeoutWheel = new TimingWheel("las2peer-answer-timeouts");
+
+	/**
+	 * bounded thread pool for asynchronous invocations, threads are created on demand
+	 */
+	private ExecutorService invocationExecutor;
+
+	/**
+	 * unbounded thread pool for the blocking stages of asynchronous invocations, which may invoke further services
+	 */
+	private ExecutorService blockingInvocationExecutor;
 
 	private static final String DEFAULT_INFORMATION_FILE = "etc/nodeInfo.xml";
 	private String sInformationFileName = DEFAULT_INFORMATION_FILE;
@@ -269,6 +374,8 @@ public abstract class Node extends Configurable implements AgentStorage, NodeSto
 		}
 
 		nodeServiceCache = new NodeServiceCache(this, nodeServiceCacheLifetime, nodeServiceCacheResultCount);
+		recentMessages = new RecentMessageCache(recentMessageCacheSize, RecentMessageCache.DEFAULT_RETENTION_MS);
+		resultStreams = new ResultStreamRegistry(resultStreamChunkSize, resultStreamIdleTimeout);
 
 		userManager = new UserAgentManager(this);
 		aliasManager = new ServiceAliasManager(this);
@@ -577,12 +684,20 @@ public abstract class Node extends Configurable implements AgentStorage, NodeSto
 	public synchronized void shutDown() {
 		stopTidyUpTimer();
 
+		if (invocationExecutor != null) {
+			invocationExecutor.shutdownNow();
+			invocationExecutor = null;
+		}
+		if (blockingInvocationExecutor != null) {
+			blockingInvocationExecutor.shutdownNow();
+			blockingInvocationExecutor = null;
+		}
+
 		startTime = null;
+		resultStreams.clear();
 
-		// avoid ConcurrentModificationEception
-		String[] receivers = htRegisteredReceivers.keySet().toArray(new String[0]);
-		for (String id : receivers) {
-			htRegisteredReceivers.get(id).notifyUnregister();
+		for (MessageReceiver receiver : htRegisteredReceivers.values()) {
+			receiver.notifyUnregister();
 		}
 		observerNotice(MonitoringEvent.NODE_SHUTDOWN, this.getNodeId(), null);
 		for (NodeObserver observer : observers) {
@@ -596,7 +711,7 @@ public abstract class Node extends Configurable implements AgentStorage, NodeSto
 				break;
 			}
 		}
-		htRegisteredReceivers = new Hashtable<>();
+		htRegisteredReceivers.clear();
 	}
 
 	/**
@@ -683,20 +798,23 @@ public abstract class Node extends Configurable implements AgentStorage, NodeSto
 		unregisterReceiver(agentId);
 
 		// unregister from topics
-		if (mapListenerTopics.containsKey(agentId)) {
-			Long[] topics = mapListenerTopics.get(agentId).toArray(new Long[0]);
-			for (long topic : topics) {
-				unregisterReceiverFromTopic(receiver, topic);
-			}
+		Long[] topics;
+		synchronized (mapListenerTopics) {
+			TreeSet<Long> listenerTopics = mapListenerTopics.get(agentId);
+			topics = listenerTopics == null ? new Long[0] : listenerTopics.toArray(new Long[0]);
+		}
+		for (long topic : topics) {
+			unregisterReceiverFromTopic(receiver, topic);
 		}
 	}
 
 	private void unregisterReceiver(String agentId) throws AgentNotRegisteredException {
-		if (!htRegisteredReceivers.containsKey(agentId)) {
+		MessageReceiver receiver = htRegisteredReceivers.remove(agentId);
+		if (receiver == null) {
 			throw new AgentNotRegisteredException(agentId);
 		}
 		observerNotice(MonitoringEvent.AGENT_REMOVED, getNodeId(), agentId, "");
-		htRegisteredReceivers.remove(agentId).notifyUnregister();
+		receiver.notifyUnregister();
 	}
 
 	/**
@@ -712,17 +830,19 @@ public abstract class Node extends Configurable implements AgentStorage, NodeSto
 		}
 
 		synchronized (mapListenerTopics) {
-			synchronized (mapTopicListeners) {
-				if (mapListenerTopics.get(receiver.getResponsibleForAgentSafeId()) == null) {
-					mapListenerTopics.put(receiver.getResponsibleForAgentSafeId(), new TreeSet<>());
-				}
+			if (mapListenerTopics.get(receiver.getResponsibleForAgentSafeId()) == null) {
+				mapListenerTopics.put(receiver.getResponsibleForAgentSafeId(), new TreeSet<>());
+			}
 
-				if (mapListenerTopics.get(receiver.getResponsibleForAgentSafeId()).add(topic)) {
-					if (mapTopicListeners.get(topic) == null) {
-						mapTopicListeners.put(topic, new TreeMap<>());
-					}
-					mapTopicListeners.get(topic).put(receiver.getResponsibleForAgentSafeId(), receiver);
+			if (mapListenerTopics.get(receiver.getResponsibleForAgentSafeId()).add(topic)) {
+				// copy on write, messages are delivered to the old listeners meanwhile
+				TreeMap<String, MessageReceiver> listeners = new TreeMap<>();
+				Map<String, MessageReceiver> old = mapTopicListeners.get(topic);
+				if (old != null) {
+					listeners.putAll(old);
 				}
+				listeners.put(receiver.getResponsibleForAgentSafeId(), receiver);
+				mapTopicListeners.put(topic, Collections.unmodifiableMap(listeners));
 			}
 		}
 	}
@@ -740,21 +860,21 @@ public abstract class Node extends Configurable implements AgentStorage, NodeSto
 
 	private void unregisterReceiverFromTopic(String receiverId, long topic) {
 		synchronized (mapListenerTopics) {
-			synchronized (mapTopicListeners) {
-				if (!mapListenerTopics.containsKey(receiverId) || !mapListenerTopics.get(receiverId).contains(topic)) {
-					return;
-				}
-
-				mapListenerTopics.get(receiverId).remove(topic);
-				if (mapListenerTopics.get(receiverId).size() == 0) {
-					mapListenerTopics.remove(receiverId);
-				}
+			if (!mapListenerTopics.containsKey(receiverId) || !mapListenerTopics.get(receiverId).contains(topic)) {
+				return;
+			}
 
-				mapTopicListeners.get(topic).remove(receiverId);
-				if (mapTopicListeners.get(topic).size() == 0) {
-					mapTopicListeners.remove(topic);
-				}
+			mapListenerTopics.get(receiverId).remove(topic);
+			if (mapListenerTopics.get(receiverId).size() == 0) {
+				mapListenerTopics.remove(receiverId);
+			}
 
+			TreeMap<String, MessageReceiver> listeners = new TreeMap<>(mapTopicListeners.get(topic));
+			listeners.remove(receiverId);
+			if (listeners.size() == 0) {
+				mapTopicListeners.remove(topic);
+			} else {
+				mapTopicListeners.put(topic, Collections.unmodifiableMap(listeners));
 			}
 		}
 	}
@@ -789,6 +909,25 @@ public abstract class Node extends Configurable implements AgentStorage, NodeSto
 		return htRegisteredReceivers.get(agentId) != null;
 	}
 
+	/**
+	 * get the priority for delivering a received message
+	 * 
+	 * The priority is chosen by the sending node and not signed, so high priority is only trusted for responses and
+	 * for requests to a service agent running at this node, which are service invocations. Any other message is
+	 * delivered with medium priority at most, otherwise a peer could put all its traffic in front of everyone else's.
+	 * 
+	 * @param message A received message
+	 * @return the priority to deliver the message with
+	 */
+	public MessagePriority getDeliveryPriority(Message message) {
+		MessagePriority priority = message.getPriority();
+		if (priority == MessagePriority.HIGH && !message.isResponse() && (message.isTopic()
+				|| !(htRegisteredReceivers.get(message.getRecipientId()) instanceof ServiceAgentImpl))) {
+			return MessagePriority.MEDIUM;
+		}
+		return priority;
+	}
+
 	/**
 	 * Starts a new instance of the given service on this node. This creates, stores and registers a new service agent.
 	 * 
@@ -846,7 +985,7 @@ public abstract class Node extends Configurable implements AgentStorage, NodeSto
 	 * Sends a message, recipient and sender are stated in the message. Depending on the mode, either all nodes running
 	 * the given agent will be notified of this message, or only a random one.
 	 * 
-	 * NOTE: Pastry nodes will always use broadcast at the moment!
+	 * NOTE: Pastry nodes use broadcast for any-cast messages, unless a node running the recipient is known!
 	 * 
 	 * @param message the message to send
 	 * @param listener a listener for getting the result separately
@@ -892,6 +1031,27 @@ public abstract class Node extends Configurable implements AgentStorage, NodeSto
 			}
 		}
 
+		// look up the receivers first, so a rejected message is not remembered and may be delivered again
+		MessageReceiver recipient = null;
+		Map<String, MessageReceiver> map = null;
+		if (!message.isTopic()) {
+			recipient = htRegisteredReceivers.get(message.getRecipientId());
+			if (recipient == null) {
+				throw new AgentNotRegisteredException(message.getRecipientId());
+			}
+		} else {
+			// snapshot, which is not modified by (un)registrations during delivery
+			map = mapTopicListeners.get(message.getTopicId());
+			if (map == null) {
+				throw new MessageException("No receiver registered for this topic!");
+			}
+		}
+
+		if (!recentMessages.markSeen(message)) {
+			logger.fine("dropping duplicate message " + message.getId());
+			return;
+		}
+
 		// Since this field is not always available
 		if (message.getSendingNodeId() != null) {
 			observerNotice(MonitoringEvent.MESSAGE_RECEIVED, message.getSendingNodeId(), message.getSenderId(),
@@ -902,36 +1062,36 @@ public abstract class Node extends Configurable implements AgentStorage, NodeSto
 		}
 
 		if (!message.isTopic()) {
-			MessageReceiver receiver = htRegisteredReceivers.get(message.getRecipientId());
-
-			if (receiver == null) {
-				throw new AgentNotRegisteredException(message.getRecipientId());
+			boolean delivered = false;
+			try {
+				recipient.receiveMessage(message, getAgentContext(message.getSenderId()));
+				delivered = true;
+			} finally {
+				if (!delivered) {
+					recentMessages.forget(message);
+				}
 			}
-
-			receiver.receiveMessage(message, getAgentContext(message.getSenderId()));
 		} else {
-			TreeMap<String, MessageReceiver> map = mapTopicListeners.get(message.getTopicId());
-
-			if (map == null) {
-				throw new MessageException("No receiver registered for this topic!");
+			AgentContext senderContext;
+			try {
+				senderContext = getAgentContext(message.getSenderId());
+			} catch (Exception e) {
+				logger.log(Level.SEVERE, "Message receiver failed", e);
+				recentMessages.forget(message);
+				return;
 			}
-
-			synchronized (map) {
-				for (MessageReceiver receiver : map.values()) {
-					try {
-						Message msg = message;
-						if (map.size() > 1) {
-							msg = msg.clone();
-						}
-
+			for (MessageReceiver receiver : map.values()) {
+				try {
+					Message msg = message;
+					if (map.size() > 1) {
+						msg = message.copyForRecipient(receiver.getResponsibleForAgentSafeId());
+					} else {
 						msg.setRecipientId(receiver.getResponsibleForAgentSafeId());
-
-						receiver.receiveMessage(msg, getAgentContext(message.getSenderId()));
-					} catch (CloneNotSupportedException e) {
-						throw new MessageException("Cloning failed", e);
-					} catch (Exception e) {
-						logger.log(Level.SEVERE, "Message receiver failed", e);
 					}
+
+					receiver.receiveMessage(msg, senderContext);
+				} catch (Exception e) {
+					logger.log(Level.SEVERE, "Message receiver failed", e);
 				}
 			}
 		}
@@ -1333,10 +1493,13 @@ public abstract class Node extends Configurable implements AgentStorage, NodeSto
 				return invokeLocally(executing, instance.getServiceAgent(), method, parameters);
 			} else {
 				try {
-					return invokeGlobally(executing, instance.getServiceAgentId(), instance.getNodeId(), method,
-							parameters);
+					long start = System.currentTimeMillis();
+					Serializable result = invokeGlobally(executing, instance.getServiceAgentId(), instance.getNodeId(),
+							method, parameters);
+					nodeServiceCache.reportResponse(instance, System.currentTimeMillis() - start);
+					return result;
 				} catch (ServiceNotAvailableException e) {
-					nodeServiceCache.removeGlobalServiceInstance(instance);
+					nodeServiceCache.reportFailure(instance);
 					if (retry == 0) {
 						throw new ServiceNotAvailableException("Cannot reach service.", e);
 					}
@@ -1421,20 +1584,7 @@ public abstract class Node extends Configurable implements AgentStorage, NodeSto
 		}
 
 		try {
-			Serializable msg;
-			if (executing instanceof PassphraseAgentImpl) {
-				msg = new UnlockAgentCall(new RMITask(serviceAgent.getServiceNameVersion(), method, parameters),
-						((PassphraseAgentImpl) executing).getPassphrase());
-			} else {
-				msg = new RMITask(serviceAgent.getServiceNameVersion(), method, parameters);
-			}
-			Message rmiMessage = new Message(executing, serviceAgent, msg);
-
-			if (this instanceof LocalNode) {
-				rmiMessage.setSendingNodeId((Long) getNodeId());
-			} else {
-				rmiMessage.setSendingNodeId((NodeHandle) getNodeId());
-			}
+			Message rmiMessage = createRmiMessage(executing, serviceAgent, method, parameters);
 			Message resultMessage;
 
 			if (nodeId != null) {
@@ -1447,62 +1597,713 @@ public abstract class Node extends Configurable implements AgentStorage, NodeSto
 				resultMessage = sendMessageAndWaitForAnswer(rmiMessage);
 			}
 
-			ClassLoader msgClsLoader = null;
-			try {
-				ServiceAgentImpl localInst = getLocalServiceAgent(serviceAgent.getServiceNameVersion());
-				if (localInst != null) {
-					msgClsLoader = localInst.getServiceInstance().getClass().getClassLoader();
-				}
-			} catch (ServiceNotFoundException e) {
-				// ok, no local instance found
-			}
+			return processRmiResult(executing, serviceAgent, resultMessage);
+		} catch (InternalSecurityException e) {
+			throw new ServiceInvocationFailedException("Cannot encrypt or decrypt message!", e);
+		} catch (TimeoutException | InterruptedException e) {
+			// Do not log service class name (privacy..)
+			this.observerNotice(MonitoringEvent.RMI_FAILED, this.getNodeId(), executing, e.toString());
+			throw new ServiceNotAvailableException("Service does not respond", e);
+		} catch (EncodingFailedException e) {
+			// Do not log service class name (privacy..)
+			this.observerNotice(MonitoringEvent.RMI_FAILED, this.getNodeId(), executing, e.toString());
+			throw new ServiceInvocationException("message problems!", e);
+		} catch (SerializationException e) {
+			// Do not log service class name (privacy..)
+			this.observerNotice(MonitoringEvent.RMI_FAILED, this.getNodeId(), executing, e.toString());
+			throw new ServiceInvocationException("message problems!", e);
+		}
+	}
+
+	/**
+	 * invoke several methods of a service at once (choosing an appropriate version)
+	 * 
+	 * @param executing the executing agent
+	 * @param service service to be invoked
+	 * @param calls method calls in the order of execution
+	 * @return the outcomes of the calls in the same order
+	 * @throws ServiceInvocationException If the service can not be invoked at all
+	 * @throws AgentLockedException If the executing agent was locked
+	 */
+	public List<ServiceCallResult> invokeBatch(AgentImpl executing, ServiceNameVersion service,
+			List<ServiceCall> calls) throws ServiceInvocationException, AgentLockedException {
+		return invokeBatch(executing, service, calls, false, false);
+	}
+
+	/**
+	 * invoke several methods of a service at once
+	 * 
+	 * All calls are executed by the same service instance in the given order. A remote instance is invoked with a
+	 * single message, so encryption, signing and routing are done once per batch. A failing call does not abort the
+	 * batch, its exception is part of the returned outcomes.
+	 * 
+	 * @param executing the executing agent
+	 * @param service service to be invoked
+	 * @param calls method calls in the order of execution
+	 * @param exactVersion if true, an exact version match is required, otherwise, an appropriate version will be chosen
+	 * @param localOnly if true, only locally running services are executed
+	 * @return the outcomes of the calls in the same order
+	 * @throws ServiceInvocationException If the service can not be invoked at all
+	 * @throws AgentLockedException If the executing agent was locked
+	 */
+	public List<ServiceCallResult> invokeBatch(AgentImpl executing, ServiceNameVersion service,
+			List<ServiceCall> calls, boolean exactVersion, boolean localOnly)
+			throws ServiceInvocationException, AgentLockedException {
+
+		if (getStatus() != NodeStatus.RUNNING) {
+			throw new IllegalStateException("You can invoke methods only on a running node!");
+		}
+
+		if (executing.isLocked()) {
+			throw new AgentLockedException("The executing agent has to be unlocked to call a RMI");
+		}
+
+		if (calls.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		int retry = invocationRetryCount;
+		while (retry > 0) {
+			retry--;
+
+			NodeServiceCache.ServiceInstance instance;
 
 			try {
-				resultMessage.open(executing, this, msgClsLoader);
-			} catch (AgentException e) {
-				throw new ServiceInvocationException("Could not open received answer!", e);
+				instance = this.nodeServiceCache.getServiceAgentInstance(service, exactVersion, localOnly, executing);
+			} catch (AgentNotRegisteredException e) {
+				throw new ServiceNotFoundException(service.toString(), e);
 			}
-			Object resultContent = resultMessage.getContent();
-
-			if (resultContent instanceof RMIExceptionContent) {
-				Throwable thrown = ((RMIExceptionContent) resultContent).getException();
-				// Do not log service class name (privacy..)
-				this.observerNotice(MonitoringEvent.RMI_FAILED, this.getNodeId(), executing, thrown.toString());
-				if (thrown instanceof ServiceInvocationException) {
-					throw (ServiceInvocationException) thrown;
-				} else if ((thrown instanceof InvocationTargetException)
-						&& (thrown.getCause() instanceof InternalSecurityException)) {
-					// internal L2pSecurityException (like internal method access or unauthorizes object access)
-					throw new ServiceAccessDeniedException("Internal security exception!", thrown.getCause());
-				} else {
-					throw new ServiceInvocationException("remote exception at target node", thrown);
+
+			if (instance.local()) {
+				List<ServiceCallResult> results = new ArrayList<>();
+				for (ServiceCall call : calls) {
+					try {
+						results.add(new ServiceCallResult(invokeLocally(executing, instance.getServiceAgent(),
+								call.getMethod(), call.getParameters()), null));
+					} catch (ServiceInvocationException e) {
+						results.add(new ServiceCallResult(null, e));
+					}
+				}
+				return results;
+			} else {
+				try {
+					long start = System.currentTimeMillis();
+					List<ServiceCallResult> results = invokeGloballyBatch(executing, instance.getServiceAgentId(),
+							instance.getNodeId(), calls);
+					nodeServiceCache.reportResponse(instance, System.currentTimeMillis() - start);
+					return results;
+				} catch (ServiceNotAvailableException e) {
+					nodeServiceCache.reportFailure(instance);
+					if (retry == 0) {
+						throw new ServiceNotAvailableException("Cannot reach service.", e);
+					}
 				}
+			}
+		}
 
-			} else if (resultContent instanceof RMIResultContent) {
-				// Do not log service class name (privacy..)
-				this.observerNotice(MonitoringEvent.RMI_SUCCESSFUL, this.getNodeId(), executing, null);
-				return ((RMIResultContent) resultContent).getContent();
+		throw new IllegalStateException();
+	}
+
+	/**
+	 * invokes several methods of a service instance in the network with a single message
+	 * 
+	 * preferably, use {@link #invokeBatch(AgentImpl, ServiceNameVersion, List, boolean, boolean)}
+	 * 
+	 * @param executing the executing agent
+	 * @param serviceAgentId the id of the service agent
+	 * @param nodeId id of the node running the agent (may be null)
+	 * @param calls method calls in the order of execution
+	 * @return the outcomes of the calls in the same order
+	 * @throws ServiceInvocationException If the service can not be invoked at all
+	 * @throws AgentLockedException If the executing agent is locked
+	 */
+	public List<ServiceCallResult> invokeGloballyBatch(AgentImpl executing, String serviceAgentId, Object nodeId,
+			List<ServiceCall> calls) throws ServiceInvocationException, AgentLockedException {
+
+		if (getStatus() != NodeStatus.RUNNING) {
+			throw new IllegalStateException("You can invoke methods only on a running node!");
+		}
+
+		// Do not log service class name (privacy..)
+		this.observerNotice(MonitoringEvent.RMI_SENT, this.getNodeId(), executing, null);
+
+		if (executing.isLocked()) {
+			throw new AgentLockedException("The executing agent has to be unlocked to call a RMI");
+		}
+
+		ServiceAgentImpl serviceAgent;
+		try {
+			serviceAgent = (ServiceAgentImpl) getAgent(serviceAgentId);
+		} catch (AgentNotFoundException | ClassCastException e) {
+			throw new ServiceNotFoundException("This is not a service agent!", e);
+		} catch (AgentException e) {
+			throw new ServiceNotAvailableException("This service agent is not available!", e);
+		}
+
+		List<RMITask> tasks = new ArrayList<>();
+		for (ServiceCall call : calls) {
+			tasks.add(new RMITask(serviceAgent.getServiceNameVersion(), call.getMethod(), call.getParameters()));
+		}
+
+		try {
+			Message rmiMessage = createRmiMessage(executing, serviceAgent, new RMIBatchTask(tasks));
+			Message resultMessage;
+
+			if (nodeId != null) {
+				try {
+					resultMessage = sendMessageAndWaitForAnswer(rmiMessage, nodeId);
+				} catch (NodeNotFoundException nex) {
+					throw new ServiceNotAvailableException("Cannot reach node!", nex);
+				}
 			} else {
-				// Do not log service class name (privacy..)
-				this.observerNotice(MonitoringEvent.RMI_FAILED, this.getNodeId(), executing,
-						"Unknown RMI response type: " + resultContent.getClass().getCanonicalName());
-				throw new ServiceInvocationException(
-						"Unknown RMI response type: " + resultContent.getClass().getCanonicalName());
+				resultMessage = sendMessageAndWaitForAnswer(rmiMessage);
 			}
+
+			return processRmiBatchResult(executing, serviceAgent, resultMessage);
 		} catch (InternalSecurityException e) {
 			throw new ServiceInvocationFailedException("Cannot encrypt or decrypt message!", e);
 		} catch (TimeoutException | InterruptedException e) {
 			// Do not log service class name (privacy..)
 			this.observerNotice(MonitoringEvent.RMI_FAILED, this.getNodeId(), executing, e.toString());
 			throw new ServiceNotAvailableException("Service does not respond", e);
-		} catch (EncodingFailedException e) {
+		} catch (EncodingFailedException | SerializationException e) {
 			// Do not log service class name (privacy..)
 			this.observerNotice(MonitoringEvent.RMI_FAILED, this.getNodeId(), executing, e.toString());
 			throw new ServiceInvocationException("message problems!", e);
-		} catch (SerializationException e) {
+		}
+	}
+
+	/**
+	 * invoke a service in the network without blocking the calling thread (choosing an appropriate version)
+	 * 
+	 * @param executing the executing agent
+	 * @param service service to be invoked
+	 * @param method service method
+	 * @param parameters invocation parameters
+	 * @return a future for the invocation result, completed exceptionally with a {@link ServiceInvocationException}
+	 *         if the invocation fails
+	 */
+	public CompletableFuture<Serializable> invokeAsync(AgentImpl executing, ServiceNameVersion service, String method,
+			Serializable[] parameters) {
+		return invokeAsync(executing, service, method, parameters, false, false);
+	}
+
+	/**
+	 * invoke a service method without blocking the calling thread
+	 * 
+	 * Service discovery and local invocations are done by a thread pool of this node, remote invocations do not occupy
+	 * any thread while waiting for the answer. Services may invoke further services asynchronously from a local
+	 * invocation. The future is completed by a thread of this node, dependent actions
+	 * needing a las2peer context should be run with the executor of the context.
+	 * 
+	 * @param executing the executing agent
+	 * @param service service to be invoked
+	 * @param method service method
+	 * @param parameters invocation parameters
+	 * @param exactVersion if true, an exact version match is required, otherwise, an appropriate version will be chosen
+	 * @param localOnly if true, only locally running services are executed
+	 * @return a future for the invocation result, completed exceptionally with a {@link ServiceInvocationException}
+	 *         or {@link AgentLockedException} if the invocation fails
+	 */
+	public CompletableFuture<Serializable> invokeAsync(AgentImpl executing, ServiceNameVersion service, String method,
+			Serializable[] parameters, boolean exactVersion, boolean localOnly) {
+		if (getStatus() != NodeStatus.RUNNING) {
+			return CompletableFuture.failedFuture(
+					new IllegalStateException("You can invoke methods only on a running node!"));
+		}
+
+		if (executing.isLocked()) {
+			return CompletableFuture.failedFuture(
+					new AgentLockedException("The executing agent has to be unlocked to call a RMI"));
+		}
+
+		return invokeAsync(executing, service, method, parameters, exactVersion, localOnly, invocationRetryCount);
+	}
+
+	private CompletableFuture<Serializable> invokeAsync(AgentImpl executing, ServiceNameVersion service,
+			String method, Serializable[] parameters, boolean exactVersion, boolean localOnly, int retry) {
+		ExecutorService executor = getBlockingInvocationExecutor();
+		CompletableFuture<ServiceInstance> discovery;
+		try {
+			// the service discovery may need to ask the network
+			discovery = CompletableFuture.supplyAsync(() -> {
+				try {
+					return this.nodeServiceCache.getServiceAgentInstance(service, exactVersion, localOnly, executing);
+				} catch (AgentNotRegisteredException e) {
+					throw new CompletionException(new ServiceNotFoundException(service.toString(), e));
+				}
+			}, executor);
+		} catch (RejectedExecutionException e) {
+			return CompletableFuture
+					.failedFuture(new ServiceInvocationFailedException("Too many pending invocations!", e));
+		}
+		return mapRejection(discovery.thenComposeAsync(instance -> {
+			if (instance.local()) {
+				try {
+					return CompletableFuture
+							.completedFuture(invokeLocally(executing, instance.getServiceAgent(), method, parameters));
+				} catch (ServiceInvocationException | AgentLockedException e) {
+					return CompletableFuture.failedFuture(e);
+				}
+			}
+			long start = System.currentTimeMillis();
+			return invokeGloballyAsync(executing, instance.getServiceAgentId(), instance.getNodeId(), method,
+					parameters).handle((result, e) -> {
+						if (e == null) {
+							nodeServiceCache.reportResponse(instance, System.currentTimeMillis() - start);
+							return CompletableFuture.completedFuture(result);
+						}
+						Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+						if (!(cause instanceof ServiceNotAvailableException)) {
+							return CompletableFuture.<Serializable> failedFuture(cause);
+						}
+						nodeServiceCache.reportFailure(instance);
+						if (retry <= 1) {
+							return CompletableFuture.<Serializable> failedFuture(
+									new ServiceNotAvailableException("Cannot reach service.", cause));
+						}
+						return invokeAsync(executing, service, method, parameters, exactVersion, localOnly, retry - 1);
+					}).thenCompose(f -> f);
+		}, executor));
+	}
+
+	/**
+	 * invokes a service instance in the network without blocking the calling thread
+	 * 
+	 * preferably, use {@link #invokeAsync(AgentImpl, ServiceNameVersion, String, Serializable[], boolean, boolean)}
+	 * 
+	 * @param executing the executing agent
+	 * @param serviceAgentId the id of the service agent
+	 * @param nodeId id of the node running the agent (may be null)
+	 * @param method service method
+	 * @param parameters method parameters
+	 * @return a future for the invocation result, completed exceptionally with a {@link ServiceInvocationException}
+	 *         or {@link AgentLockedException} if the invocation fails
+	 */
+	public CompletableFuture<Serializable> invokeGloballyAsync(AgentImpl executing, String serviceAgentId,
+			Object nodeId, String method, Serializable[] parameters) {
+		if (getStatus() != NodeStatus.RUNNING) {
+			return CompletableFuture.failedFuture(
+					new IllegalStateException("You can invoke methods only on a running node!"));
+		}
+
+		// Do not log service class name (privacy..)
+		this.observerNotice(MonitoringEvent.RMI_SENT, this.getNodeId(), executing, null);
+
+		if (executing.isLocked()) {
+			return CompletableFuture.failedFuture(
+					new AgentLockedException("The executing agent has to be unlocked to call a RMI"));
+		}
+
+		ServiceAgentImpl serviceAgent;
+		Message rmiMessage;
+		try {
+			serviceAgent = (ServiceAgentImpl) getAgent(serviceAgentId);
+			rmiMessage = createRmiMessage(executing, serviceAgent, method, parameters);
+		} catch (AgentNotFoundException | ClassCastException e) {
+			return CompletableFuture.failedFuture(new ServiceNotFoundException("This is not a service agent!", e));
+		} catch (AgentLockedException e) {
+			return CompletableFuture.failedFuture(e);
+		} catch (AgentException e) {
+			return CompletableFuture
+					.failedFuture(new ServiceNotAvailableException("This service agent is not available!", e));
+		} catch (InternalSecurityException e) {
+			return CompletableFuture
+					.failedFuture(new ServiceInvocationFailedException("Cannot encrypt or decrypt message!", e));
+		} catch (EncodingFailedException | SerializationException e) {
 			// Do not log service class name (privacy..)
 			this.observerNotice(MonitoringEvent.RMI_FAILED, this.getNodeId(), executing, e.toString());
-			throw new ServiceInvocationException("message problems!", e);
+			return CompletableFuture.failedFuture(new ServiceInvocationException("message problems!", e));
+		}
+
+		CompletableFuture<Message> answer = new CompletableFuture<>();
+		MessageResultListener listener = new MessageResultListener(rmiMessage.getTimeoutTs() - new Date().getTime()) {
+			@Override
+			public void notifySuccess() {
+				answer.complete(getResults()[0]);
+			}
+
+			@Override
+			public void notifyException(Exception exception) {
+				answer.completeExceptionally(exception);
+			}
+
+			@Override
+			public void notifyTimeout() {
+				answer.completeExceptionally(new TimeoutException("No answer received!"));
+			}
+		};
+
+		if (nodeId != null) {
+			try {
+				sendMessage(rmiMessage, nodeId, listener);
+			} catch (NodeNotFoundException e) {
+				return CompletableFuture.failedFuture(new ServiceNotAvailableException("Cannot reach node!", e));
+			}
+		} else {
+			sendMessage(rmiMessage, listener);
+		}
+
+		// do not open the answer in the thread delivering it
+		return mapRejection(answer.handleAsync((resultMessage, e) -> {
+			try {
+				if (e != null) {
+					// Do not log service class name (privacy..)
+					this.observerNotice(MonitoringEvent.RMI_FAILED, this.getNodeId(), executing, e.toString());
+					throw new ServiceNotAvailableException("Service does not respond", e);
+				}
+				return processRmiResult(executing, serviceAgent, resultMessage);
+			} catch (InternalSecurityException ex) {
+				throw new CompletionException(
+						new ServiceInvocationFailedException("Cannot encrypt or decrypt message!", ex));
+			} catch (ServiceInvocationException ex) {
+				throw new CompletionException(ex);
+			}
+		}, getInvocationExecutor()));
+	}
+
+	/**
+	 * fail a future of an asynchronous invocation with a {@link ServiceInvocationFailedException}, if one of its
+	 * stages was rejected by a thread pool
+	 * 
+	 * @param future an invocation future
+	 * @return a future with the same result
+	 */
+	private static <T> CompletableFuture<T> mapRejection(CompletableFuture<T> future) {
+		return future.handle((result, e) -> {
+			if (e == null) {
+				return CompletableFuture.completedFuture(result);
+			}
+			Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+			if (cause instanceof RejectedExecutionException) {
+				cause = new ServiceInvocationFailedException("Too many pending invocations!", cause);
+			}
+			return CompletableFuture.<T> failedFuture(cause);
+		}).thenCompose(f -> f);
+	}
+
+	/**
+	 * get the thread pool opening the answers of asynchronous invocations and result chunks
+	 * 
+	 * The pool is bounded and must only run tasks, which do not block. If all threads are busy and the queue is full,
+	 * further tasks are rejected with a {@link RejectedExecutionException}.
+	 * 
+	 * @return an executor service
+	 */
+	protected synchronized ExecutorService getInvocationExecutor() {
+		if (invocationExecutor == null) {
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(invocationThreadCount, invocationThreadCount, 60,
+					TimeUnit.SECONDS, new LinkedBlockingQueue<>(invocationQueueSize),
+					createInvocationThreadFactory("las2peer-invocation-"), new ThreadPoolExecutor.AbortPolicy());
+			// idle threads are not kept
+			executor.allowCoreThreadTimeOut(true);
+			invocationExecutor = executor;
+		}
+		return invocationExecutor;
+	}
+
+	/**
+	 * get the thread pool running service discoveries and local invocations for asynchronous invocations
+	 * 
+	 * These tasks block while waiting for the network or for further invocations of the service, so the pool creates
+	 * a thread for each of them instead of queuing them behind each other.
+	 * 
+	 * @return an executor service
+	 */
+	protected synchronized ExecutorService getBlockingInvocationExecutor() {
+		if (blockingInvocationExecutor == null) {
+			blockingInvocationExecutor = Executors
+					.newCachedThreadPool(createInvocationThreadFactory("las2peer-invocation-blocking-"));
+		}
+		return blockingInvocationExecutor;
+	}
+
+	private static ThreadFactory createInvocationThreadFactory(String prefix) {
+		return new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, prefix + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * create the message for a remote method invocation
+	 * 
+	 * @param executing the executing agent
+	 * @param serviceAgent the service agent to invoke
+	 * @param method service method
+	 * @param parameters method parameters
+	 * @return a message containing the invocation task
+	 * @throws EncodingFailedException If the message content can not be encoded
+	 * @throws InternalSecurityException If the message can not be encrypted
+	 * @throws SerializationException If the message content can not be serialized
+	 * @throws AgentLockedException If the executing agent is locked
+	 */
+	private Message createRmiMessage(AgentImpl executing, ServiceAgentImpl serviceAgent, String method,
+			Serializable[] parameters)
+			throws EncodingFailedException, InternalSecurityException, SerializationException, AgentLockedException {
+		return createRmiMessage(executing, serviceAgent,
+				new RMITask(serviceAgent.getServiceNameVersion(), method, parameters));
+	}
+
+	/**
+	 * create the message for a remote invocation task
+	 * 
+	 * @param executing the executing agent
+	 * @param serviceAgent the service agent to invoke
+	 * @param task an {@link RMITask}, {@link RMIBatchTask} or {@link RMIStreamChunkRequest}
+	 * @return a message containing the invocation task
+	 * @throws EncodingFailedException If the message content can not be encoded
+	 * @throws InternalSecurityException If the message can not be encrypted
+	 * @throws SerializationException If the message content can not be serialized
+	 * @throws AgentLockedException If the executing agent is locked
+	 */
+	private Message createRmiMessage(AgentImpl executing, ServiceAgentImpl serviceAgent, Serializable task)
+			throws EncodingFailedException, InternalSecurityException, SerializationException, AgentLockedException {
+		Serializable msg;
+		if (executing instanceof PassphraseAgentImpl && !(task instanceof RMIStreamChunkRequest)) {
+			// chunks of a streaming result are read without an unlocked context
+			msg = new UnlockAgentCall(task, ((PassphraseAgentImpl) executing).getPassphrase());
+		} else {
+			msg = task;
+		}
+		Message rmiMessage = new Message(executing, serviceAgent, msg);
+		if (!(executing instanceof BotAgent)) {
+			// someone is waiting for the result, bots keep the low priority of background traffic
+			rmiMessage.setPriority(MessagePriority.HIGH);
+		}
+
+		if (this instanceof LocalNode) {
+			rmiMessage.setSendingNodeId((Long) getNodeId());
+		} else {
+			rmiMessage.setSendingNodeId((NodeHandle) getNodeId());
+		}
+		return rmiMessage;
+	}
+
+	/**
+	 * open the answer of a remote method invocation and extract its result
+	 * 
+	 * @param executing the executing agent
+	 * @param serviceAgent the invoked service agent
+	 * @param resultMessage the answer message
+	 * @return invocation result
+	 * @throws ServiceInvocationException If the invocation failed at the remote node or the answer can not be read
+	 * @throws InternalSecurityException If the answer can not be decrypted
+	 */
+	private Serializable processRmiResult(AgentImpl executing, ServiceAgentImpl serviceAgent, Message resultMessage)
+			throws ServiceInvocationException, InternalSecurityException {
+		Object resultContent = openRmiResult(executing, serviceAgent, resultMessage);
+
+		if (resultContent instanceof RMIExceptionContent) {
+			Throwable thrown = ((RMIExceptionContent) resultContent).getException();
+			// Do not log service class name (privacy..)
+			this.observerNotice(MonitoringEvent.RMI_FAILED, this.getNodeId(), executing, thrown.toString());
+			throw toServiceInvocationException(thrown);
+		} else if (resultContent instanceof RMIResultContent) {
+			// Do not log service class name (privacy..)
+			this.observerNotice(MonitoringEvent.RMI_SUCCESSFUL, this.getNodeId(), executing, null);
+			return ((RMIResultContent) resultContent).getContent();
+		} else if (resultContent instanceof RMIStreamContent) {
+			// Do not log service class name (privacy..)
+			this.observerNotice(MonitoringEvent.RMI_SUCCESSFUL, this.getNodeId(), executing, null);
+			RMIStreamContent stream = (RMIStreamContent) resultContent;
+			Object servingNodeId = resultMessage.getSendingNodeId();
+			String streamId = stream.getFirstChunk().getStreamId();
+			RemoteResultInputStream in = new RemoteResultInputStream(new RemoteResultInputStream.ChunkSource() {
+				@Override
+				public CompletableFuture<RMIStreamChunkContent> fetch(long sequence) {
+					return fetchResultChunk(executing, serviceAgent, servingNodeId,
+							new RMIStreamChunkRequest(streamId, sequence, false), true);
+				}
+
+				@Override
+				public void cancel(long sequence) {
+					fetchResultChunk(executing, serviceAgent, servingNodeId,
+							new RMIStreamChunkRequest(streamId, sequence, true), false);
+				}
+			}, stream.getFirstChunk());
+			return new StreamingResult(in, stream.getLength(), stream.getContentType());
+		} else {
+			// Do not log service class name (privacy..)
+			this.observerNotice(MonitoringEvent.RMI_FAILED, this.getNodeId(), executing,
+					"Unknown RMI response type: " + resultContent.getClass().getCanonicalName());
+			throw new ServiceInvocationException(
+					"Unknown RMI response type: " + resultContent.getClass().getCanonicalName());
+		}
+	}
+
+	/**
+	 * request a chunk of a streaming result from the node, which executed the invocation
+	 * 
+	 * A lost answer is requested once more, the serving node keeps the last sent chunk for this case.
+	 * 
+	 * @param executing the executing agent
+	 * @param serviceAgent the invoked service agent
+	 * @param nodeId the node serving the stream
+	 * @param request the chunk request
+	 * @param retry true, if the request is repeated after a timeout
+	 * @return a future completed with the chunk or an {@link IOException}, already completed with null for a
+	 *         cancellation
+	 */
+	private CompletableFuture<RMIStreamChunkContent> fetchResultChunk(AgentImpl executing,
+			ServiceAgentImpl serviceAgent, Object nodeId, RMIStreamChunkRequest request, boolean retry) {
+		CompletableFuture<RMIStreamChunkContent> result = new CompletableFuture<>();
+		try {
+			Message message = createRmiMessage(executing, serviceAgent, request);
+			if (request.isCancel()) {
+				sendMessage(message, nodeId, null);
+				result.complete(null);
+				return result;
+			}
+			sendMessage(message, nodeId,
+					new MessageResultListener(message.getTimeoutTs() - new Date().getTime()) {
+						@Override
+						public void notifySuccess() {
+							// do not open the answer in the thread delivering it
+							try {
+								getInvocationExecutor().execute(this::openResultChunk);
+							} catch (RejectedExecutionException e) {
+								result.completeExceptionally(new IOException("Too many pending invocations!", e));
+							}
+						}
+
+						private void openResultChunk() {
+							try {
+								Object content = openRmiResult(executing, serviceAgent, getResults()[0]);
+								if (content instanceof RMIStreamChunkContent) {
+									result.complete((RMIStreamChunkContent) content);
+								} else if (content instanceof RMIExceptionContent) {
+									result.completeExceptionally(new IOException("serving node failed",
+											((RMIExceptionContent) content).getException()));
+								} else {
+									result.completeExceptionally(new IOException(
+											"Unknown stream response type: " + content.getClass().getCanonicalName()));
+								}
+							} catch (ServiceInvocationException | InternalSecurityException e) {
+								result.completeExceptionally(new IOException("Could not open received chunk!", e));
+							}
+						}
+
+						@Override
+						public void notifyException(Exception exception) {
+							result.completeExceptionally(new IOException("Could not receive chunk!", exception));
+						}
+
+						@Override
+						public void notifyTimeout() {
+							if (retry && !result.isCancelled()) {
+								fetchResultChunk(executing, serviceAgent, nodeId, request, false)
+										.whenComplete((chunk, e) -> {
+											if (e != null) {
+												result.completeExceptionally(e);
+											} else {
+												result.complete(chunk);
+											}
+										});
+							} else {
+								result.completeExceptionally(new IOException("No chunk received!"));
+							}
+						}
+					});
+		} catch (EncodingFailedException | InternalSecurityException | SerializationException | AgentLockedException
+				| NodeNotFoundException e) {
+			result.completeExceptionally(new IOException("Could not request chunk!", e));
+		}
+		return result;
+	}
+
+	/**
+	 * open the answer of a batch invocation and extract the outcomes of the single calls
+	 * 
+	 * @param executing the executing agent
+	 * @param serviceAgent the invoked service agent
+	 * @param resultMessage the answer message
+	 * @return a list of call outcomes in the order of the batch
+	 * @throws ServiceInvocationException If the batch failed at the remote node or the answer can not be read
+	 * @throws InternalSecurityException If the answer can not be decrypted
+	 */
+	private List<ServiceCallResult> processRmiBatchResult(AgentImpl executing, ServiceAgentImpl serviceAgent,
+			Message resultMessage) throws ServiceInvocationException, InternalSecurityException {
+		Object resultContent = openRmiResult(executing, serviceAgent, resultMessage);
+
+		if (resultContent instanceof RMIExceptionContent) {
+			Throwable thrown = ((RMIExceptionContent) resultContent).getException();
+			// Do not log service class name (privacy..)
+			this.observerNotice(MonitoringEvent.RMI_FAILED, this.getNodeId(), executing, thrown.toString());
+			throw toServiceInvocationException(thrown);
+		} else if (resultContent instanceof RMIBatchResultContent) {
+			// Do not log service class name (privacy..)
+			this.observerNotice(MonitoringEvent.RMI_SUCCESSFUL, this.getNodeId(), executing, null);
+			List<ServiceCallResult> results = new ArrayList<>();
+			for (Serializable content : ((RMIBatchResultContent) resultContent).getContents()) {
+				if (content instanceof RMIResultContent) {
+					results.add(new ServiceCallResult(((RMIResultContent) content).getContent(), null));
+				} else {
+					results.add(new ServiceCallResult(null,
+							toServiceInvocationException(((RMIExceptionContent) content).getException())));
+				}
+			}
+			return results;
+		} else {
+			// Do not log service class name (privacy..)
+			this.observerNotice(MonitoringEvent.RMI_FAILED, this.getNodeId(), executing,
+					"Unknown RMI response type: " + resultContent.getClass().getCanonicalName());
+			throw new ServiceInvocationException(
+					"Unknown RMI response type: " + resultContent.getClass().getCanonicalName());
+		}
+	}
+
+	/**
+	 * open the answer of a remote invocation
+	 * 
+	 * @param executing the executing agent
+	 * @param serviceAgent the invoked service agent
+	 * @param resultMessage the answer message
+	 * @return the content of the answer
+	 * @throws ServiceInvocationException If the answer can not be read
+	 * @throws InternalSecurityException If the answer can not be decrypted
+	 */
+	private Object openRmiResult(AgentImpl executing, ServiceAgentImpl serviceAgent, Message resultMessage)
+			throws ServiceInvocationException, InternalSecurityException {
+		ClassLoader msgClsLoader = null;
+		try {
+			ServiceAgentImpl localInst = getLocalServiceAgent(serviceAgent.getServiceNameVersion());
+			if (localInst != null) {
+				msgClsLoader = localInst.getServiceInstance().getClass().getClassLoader();
+			}
+		} catch (ServiceNotFoundException e) {
+			// ok, no local instance found
+		}
+
+		try {
+			resultMessage.open(executing, this, msgClsLoader);
+		} catch (AgentException e) {
+			throw new ServiceInvocationException("Could not open received answer!", e);
+		}
+		return resultMessage.getContent();
+	}
+
+	/**
+	 * convert an exception thrown at the target node
+	 * 
+	 * @param thrown an exception from a {@link RMIExceptionContent}
+	 * @return the exception to throw at the caller
+	 */
+	private ServiceInvocationException toServiceInvocationException(Throwable thrown) {
+		if (thrown instanceof ServiceInvocationException) {
+			return (ServiceInvocationException) thrown;
+		} else if ((thrown instanceof InvocationTargetException)
+				&& (thrown.getCause() instanceof InternalSecurityException)) {
+			// internal L2pSecurityException (like internal method access or unauthorizes object access)
+			return new ServiceAccessDeniedException("Internal security exception!", thrown.getCause());
+		} else {
+			return new ServiceInvocationException("remote exception at target node", thrown);
 		}
 	}
 
@@ -1532,29 +2333,45 @@ public abstract class Node extends Configurable implements AgentStorage, NodeSto
 			return;
 		}
 		htAnswerListeners.put(messageId, listener);
-		// Thread to check whether a listener reaches timeout and needs to be removed from the table
-		new Thread() {
-		      public void run(){
-		    	  	long listenerId =  messageId;
-		    	  	long sleepTime = listener.getTimeoutTime();
-			        while(!htAnswerListeners.get(listenerId).checkTimeOut()) {			        	
-				        try {
-							Thread.sleep(sleepTime);		
-						} catch (InterruptedException e) {
-							// TODO Auto-generated catch block
-							System.out.println("Thread interupted because of "+e );
-							e.printStackTrace();
-						}
-				        if(htAnswerListeners.get(listenerId) == null) {
-							this.interrupt();
-							break;
-						}
-			        }
-			        if(!this.isInterrupted()) {
-			        	htAnswerListeners.remove(listenerId);
-			        }
-		        }
-		   }.start();
+		scheduleAnswerTimeout(messageId, listener, listener.getTimeoutTime());
+	}
+
+	/**
+	 * run a task after the given delay using the shared timer of all nodes, the task must not block
+	 * 
+	 * @param delayMs Time in milliseconds until the task runs
+	 * @param task A task to run
+	 * @return the timeout to cancel the task
+	 */
+	public TimingWheel.Timeout scheduleTimeout(long delayMs, Runnable task) {
+		return answerTimeoutWheel.schedule(delayMs, task);
+	}
+
+	/**
+	 * schedule the check whether a listener reached its timeout and needs to be removed from the table
+	 * 
+	 * @param messageId A message id the listener is registered for
+	 * @param listener An answer listener
+	 * @param delayMs Time until the check
+	 */
+	private void scheduleAnswerTimeout(long messageId, MessageResultListener listener, long delayMs) {
+		htAnswerTimeouts.put(messageId, answerTimeoutWheel.schedule(delayMs, new Runnable() {
+			@Override
+			public void run() {
+				if (htAnswerListeners.get(messageId) != listener) {
+					return;
+				}
+				if (listener.checkTimeOut() || listener.isFinished()) {
+					htAnswerListeners.remove(messageId);
+					htAnswerTimeouts.remove(messageId);
+				} else {
+					// still waiting, e.g. in the wait method of the listener, check again later
+					long remaining = listener.getTimeoutTime() - listener.getAgeMs();
+					scheduleAnswerTimeout(messageId, listener,
+							remaining > 0 ? remaining : listener.getTimeoutTime());
+				}
+			}
+		}));
 	}
 
 	/**
@@ -1581,6 +2398,10 @@ public abstract class Node extends Configurable implements AgentStorage, NodeSto
 		// Remove listener from list if no more messages are expected
 		if(listener.getNumberOfExpectedResults() == listener.getNumberOfResults()) {
 			htAnswerListeners.remove(answer.getResponseToId());
+			TimingWheel.Timeout timeout = htAnswerTimeouts.remove(answer.getResponseToId());
+			if (timeout != null) {
+				timeout.cancel();
+			}
 		}
 		return true;
 	}
@@ -1761,6 +2582,16 @@ public abstract class Node extends Configurable implements AgentStorage, NodeSto
 		this.cpuLoadThreshold = cpuLoadThreshold;
 	}
 
+	/**
+	 * create a delivery stage for received messages configured by the delivery settings of this node
+	 *
+	 * @param name A name for the worker threads
+	 * @return a new delivery executor
+	 */
+	public DeliveryExecutor createDeliveryExecutor(String name) {
+		return new DeliveryExecutor(name, deliveryWorkerCount, deliveryQueueSize, deliverySenderLimit);
+	}
+
 	/**
 	 * Gets the approximate RAM load of the JVM the Node is running on.
 	 * 
@@ -1806,19 +2637,30 @@ public abstract class Node extends Configurable implements AgentStorage, NodeSto
 	 * executed by the tidy up timer, currently it does:
 	 * 
 	 * Deleting old {@link AgentContext} objects from {@link #htLocalExecutionContexts}
+	 * 
+	 * Closing streaming results, which were not read for too long
 	 */
 	protected void runTidyUpTimer() {
-		synchronized (htLocalExecutionContexts) {
-			Iterator<AgentContext> itContext = htLocalExecutionContexts.values().iterator();
-			while (itContext.hasNext()) {
-				AgentContext context = itContext.next();
-				if (context.getLastUsageTimestamp() <= new Date().getTime() - agentContextLifetime * 1000) {
-					itContext.remove();
-				}
+		resultStreams.removeIdle();
+
+		Iterator<AgentContext> itContext = htLocalExecutionContexts.values().iterator();
+		while (itContext.hasNext()) {
+			AgentContext context = itContext.next();
+			if (context.getLastUsageTimestamp() <= new Date().getTime() - agentContextLifetime * 1000) {
+				itContext.remove();
 			}
 		}
 	}
 
+	/**
+	 * get the streaming results of local services, which are read by callers at other nodes
+	 * 
+	 * @return the registry of streaming results
+	 */
+	public ResultStreamRegistry getResultStreams() {
+		return resultStreams;
+	}
+
 	public Date getStartTime() {
 		return startTime;
 	}
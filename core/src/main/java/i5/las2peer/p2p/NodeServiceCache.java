@@ -1,14 +1,25 @@
 package i5.las2peer.p2p;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import i5.las2peer.api.p2p.ServiceNameVersion;
 import i5.las2peer.api.p2p.ServiceVersion;
 import i5.las2peer.communication.Message;
+import i5.las2peer.communication.MessagePriority;
 import i5.las2peer.communication.ServiceDiscoveryContent;
 import i5.las2peer.logging.L2pLogger;
 import i5.las2peer.persistency.EncodingFailedException;
@@ -19,20 +30,73 @@ import i5.las2peer.serialization.SerializationException;
 
 /**
  * Caches the knowledge about existing services
+ * 
+ * If a service version is available at several nodes, the load is spread between them. For each remote instance the
+ * cache keeps an exponentially weighted moving average of the observed invocation latency and the CPU load reported by
+ * its node with the service discovery. An invocation picks two random instances and uses the one with the lower load
+ * score (power of two choices), which avoids herding on a single instance with stale information. Instances, which
+ * failed, are suspended until they answer a discovery request again and are evicted for some time if they keep
+ * failing.
+ * 
+ * Discovery results older than the cache lifetime are still used for some time, while a single background discovery
+ * refreshes them. Concurrent lookups missing the same service share one discovery and a discovery without any answer
+ * is remembered for a short time, so lookups for unknown services do not flood the network.
+ * 
+ * Lookups are done on every invocation and thus do not lock. Services are stored in concurrent skip list maps sorted
+ * by version and the instances of a version in copy on write lists. Registrations and evictions are serialized by
+ * locking the respective service map. Expired instances are skipped by lookups and removed with the next
+ * registration, so lookups never wait for that lock.
  */
 public class NodeServiceCache {
 
+	public static final double DEFAULT_LATENCY_EWMA_WEIGHT = 0.3;
+	public static final double DEFAULT_CPU_LOAD_WEIGHT = 2;
+	public static final int DEFAULT_MAX_FAILURES = 3;
+	public static final long DEFAULT_EVICTION_TIME_MS = 60000; // 1 minute
+	public static final long DEFAULT_STALE_TIME_SECONDS = 300;
+	public static final long DEFAULT_NEGATIVE_CACHE_TIME_MS = 5000;
+
 	private final L2pLogger logger = L2pLogger.getInstance(NodeServiceCache.class);
 
 	private final Node runningAt;
 
-	private final Map<String, SortedMap<ServiceVersion, ServiceInstance>> localServices = new HashMap<>();
-	private final Map<String, SortedMap<ServiceVersion, SortedSet<ServiceInstance>>> globalServices = new HashMap<>();
+	// versions are sorted from the newest to the oldest one
+	private final ConcurrentMap<String, ConcurrentNavigableMap<ServiceVersion, ServiceInstance>> localServices =
+			new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, ConcurrentNavigableMap<ServiceVersion, List<ServiceInstance>>> globalServices =
+			new ConcurrentHashMap<>();
+
+	/**
+	 * instances, which kept failing, mapped to the time until they are ignored
+	 */
+	private final Map<String, Long> evictedInstances = new ConcurrentHashMap<>();
+
+	/**
+	 * expired instances found by lookups, which are removed with the next registration
+	 */
+	private final Queue<ServiceInstance> expiredInstances = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * running discoveries, mapped by requested service
+	 */
+	private final ConcurrentMap<String, CompletableFuture<Boolean>> pendingDiscoveries = new ConcurrentHashMap<>();
+
+	/**
+	 * discoveries without any answer, mapped to the time until they are not repeated
+	 */
+	private final Map<String, Long> negativeResults = new ConcurrentHashMap<>();
 
 	private long lifeTimeSeconds;
 	private int waitForResults;
 	private int timeoutMs = 2000;
 
+	private double latencyEwmaWeight = DEFAULT_LATENCY_EWMA_WEIGHT;
+	private double cpuLoadWeight = DEFAULT_CPU_LOAD_WEIGHT;
+	private int maxFailures = DEFAULT_MAX_FAILURES;
+	private long evictionTimeMs = DEFAULT_EVICTION_TIME_MS;
+	private long staleTimeSeconds = DEFAULT_STALE_TIME_SECONDS;
+	private long negativeCacheTimeMs = DEFAULT_NEGATIVE_CACHE_TIME_MS;
+
 	public NodeServiceCache(Node parent, long lifeTime, int resultCount) {
 		this.runningAt = parent;
 		this.lifeTimeSeconds = lifeTime;
@@ -67,11 +131,58 @@ public class NodeServiceCache {
 		this.timeoutMs = timeoutMs;
 	}
 
+	/**
+	 * @param weight Weight of a new latency sample in the moving average, between 0 and 1
+	 */
+	public void setLatencyEwmaWeight(double weight) {
+		this.latencyEwmaWeight = weight;
+	}
+
+	/**
+	 * @param weight Factor the CPU load of a node (between 0 and 1) increases the load score of its instances
+	 */
+	public void setCpuLoadWeight(double weight) {
+		this.cpuLoadWeight = weight;
+	}
+
+	/**
+	 * @param maxFailures Number of consecutive failures after which an instance is evicted
+	 */
+	public void setMaxFailures(int maxFailures) {
+		this.maxFailures = maxFailures;
+	}
+
+	/**
+	 * @param evictionTimeMs Time in milliseconds an evicted instance is ignored by the service discovery
+	 */
+	public void setEvictionTimeMs(long evictionTimeMs) {
+		this.evictionTimeMs = evictionTimeMs;
+	}
+
+	/**
+	 * @param staleTimeSeconds Time in seconds an outdated instance is still used while it is refreshed
+	 */
+	public void setStaleTimeSeconds(long staleTimeSeconds) {
+		this.staleTimeSeconds = staleTimeSeconds;
+	}
+
+	/**
+	 * @param negativeCacheTimeMs Time in milliseconds a discovery without answers is not repeated
+	 */
+	public void setNegativeCacheTimeMs(long negativeCacheTimeMs) {
+		this.negativeCacheTimeMs = negativeCacheTimeMs;
+	}
+
 	/**
 	 * clears the global cache (needed for units tests)
 	 */
 	public void clear() {
-		this.globalServices.clear();
+		synchronized (globalServices) {
+			this.globalServices.clear();
+			this.expiredInstances.clear();
+		}
+		this.evictedInstances.clear();
+		this.negativeResults.clear();
 	}
 
 	/**
@@ -93,61 +204,32 @@ public class NodeServiceCache {
 		ServiceInstance local = null, global = null;
 
 		// search locally
-		if (exact) {
-			synchronized (localServices) {
-				if (localServices.containsKey(service.getName())
-						&& localServices.get(service.getName()).containsKey(service.getVersion())) {
-					local = localServices.get(service.getName()).get(service.getVersion());
-				}
-			}
+		Map<ServiceVersion, ServiceInstance> localVersions = localServices.get(service.getName());
+		if (localVersions == null) {
+			// no local service with this name
+		} else if (exact) {
+			local = localVersions.get(service.getVersion());
 		} else {
-			synchronized (localServices) {
-				if (localServices.containsKey(service.getName())) {
-					for (Map.Entry<ServiceVersion, ServiceInstance> e : localServices.get(service.getName())
-							.entrySet()) {
-						if (e.getKey().fits(service.getVersion())) {
-							local = e.getValue();
-							break;
-						}
-					}
+			for (Map.Entry<ServiceVersion, ServiceInstance> e : localVersions.entrySet()) {
+				if (e.getKey().fits(service.getVersion())) {
+					local = e.getValue();
+					break;
 				}
 			}
 		}
 
 		// search globally
 		if (!localOnly && (local == null || runningAt.isBusy())) {
-			if (exact) {
-				ServiceInstance instance = getBestGlobalInstanceOfVersion(service.getName(), service.getVersion());
+			global = getBestGlobalInstance(service, exact);
 
-				if (instance == null) {
-					try {
-						update(service, true, acting);
-					} catch (Exception e) {
-						if (e instanceof TimeoutException) {
-							logger.log(Level.INFO, "Timeout while updating service cache. " + e.toString());
-						} else {
-							logger.log(Level.INFO, "Could not update service cache", e);
-						}
-						if (local == null) {
-							throw new AgentNotRegisteredException(
-									"Could not retrieve service information from the network.", e);
-						}
+			if (global == null) {
+				if (isNegativelyCached(service, exact)) {
+					if (local == null) {
+						throw new AgentNotRegisteredException("No agent for this service answered a recent discovery!");
 					}
-					instance = getBestGlobalInstanceOfVersion(service.getName(), service.getVersion());
-				}
-
-				if (instance != null) {
-					global = instance;
-				}
-			} else {
-				ServiceInstance instance = getBestGlobalInstanceFitsVersion(service.getName(), service.getVersion());
-				if (instance != null) {
-					global = instance;
-				}
-
-				if (instance == null) {
+				} else {
 					try {
-						update(service, false, acting);
+						discover(service, exact, acting);
 					} catch (Exception e) {
 						if (e instanceof TimeoutException) {
 							logger.log(Level.INFO, "Timeout while updating service cache. " + e.toString());
@@ -159,12 +241,11 @@ public class NodeServiceCache {
 									"Could not retrieve service information from the network.", e);
 						}
 					}
-					instance = getBestGlobalInstanceFitsVersion(service.getName(), service.getVersion());
-				}
-
-				if (instance != null) {
-					global = instance;
+					global = getBestGlobalInstance(service, exact);
 				}
+			} else if (global.outdated()) {
+				// serve the outdated instance, but refresh it for later invocations
+				refreshInBackground(service, exact, acting);
 			}
 		}
 
@@ -177,98 +258,185 @@ public class NodeServiceCache {
 		throw new AgentNotRegisteredException("Could not find any agent for this service on the network!");
 	}
 
+	private ServiceInstance getBestGlobalInstance(ServiceNameVersion service, boolean exact) {
+		if (exact) {
+			return getBestGlobalInstanceOfVersion(service.getName(), service.getVersion());
+		} else {
+			return getBestGlobalInstanceFitsVersion(service.getName(), service.getVersion());
+		}
+	}
+
 	private ServiceInstance getBestGlobalInstanceFitsVersion(String name, ServiceVersion version) {
-		synchronized (globalServices) {
-			ServiceInstance result = null;
-
-			if (globalServices.containsKey(name)) {
-				SortedMap<ServiceVersion, SortedSet<ServiceInstance>> versions = globalServices.get(name);
-				Iterator<Map.Entry<ServiceVersion, SortedSet<ServiceInstance>>> it_versions = versions.entrySet()
-						.iterator();
-
-				while (it_versions.hasNext()) {
-					Map.Entry<ServiceVersion, SortedSet<ServiceInstance>> e = it_versions.next();
-
-					if (e.getKey().fits(version)) {
-						Iterator<ServiceInstance> it_instances = e.getValue().iterator();
-						while (it_instances.hasNext()) {
-							ServiceInstance i = it_instances.next();
-							if (!i.outdated()) {
-								if (result == null) {
-									result = i;
-								}
-							} else {
-								it_instances.remove();
-							}
-						}
-						if (e.getValue().isEmpty()) {
-							it_versions.remove();
-						}
-					}
-				}
+		Map<ServiceVersion, List<ServiceInstance>> versions = globalServices.get(name);
+		if (versions == null) {
+			return null;
+		}
 
-				if (versions.isEmpty()) {
-					globalServices.remove(name);
+		for (Map.Entry<ServiceVersion, List<ServiceInstance>> e : versions.entrySet()) {
+			if (e.getKey().fits(version)) {
+				// prefer the newest version, which has an available instance
+				ServiceInstance selected = selectInstance(e.getValue());
+				if (selected != null) {
+					return selected;
 				}
 			}
-
-			return result;
 		}
+		return null;
 	}
 
 	private ServiceInstance getBestGlobalInstanceOfVersion(String name, ServiceVersion version) {
-		synchronized (globalServices) {
-			ServiceInstance result = null;
-
-			if (globalServices.containsKey(name) && globalServices.get(name).containsKey(version)) {
-				SortedSet<ServiceInstance> instances = globalServices.get(name).get(version);
-				Iterator<ServiceInstance> it_instances = instances.iterator();
-				while (it_instances.hasNext()) {
-					ServiceInstance i = it_instances.next();
-					if (!i.outdated()) {
-						if (result == null) {
-							result = i;
-						}
-					} else {
-						it_instances.remove();
-					}
-				}
+		Map<ServiceVersion, List<ServiceInstance>> versions = globalServices.get(name);
+		if (versions == null) {
+			return null;
+		}
 
-				if (instances.isEmpty()) {
-					globalServices.get(name).remove(version);
-				}
-				if (globalServices.get(name).isEmpty()) {
-					globalServices.remove(name);
+		List<ServiceInstance> instances = versions.get(version);
+		if (instances == null) {
+			return null;
+		}
+		return selectInstance(instances);
+	}
+
+	/**
+	 * removes expired instances and picks the less loaded one of two random available instances
+	 * 
+	 * @param instances Instances of one service version
+	 * @return an instance or null, if no instance is available
+	 */
+	private ServiceInstance selectInstance(List<ServiceInstance> instances) {
+		List<ServiceInstance> available = new ArrayList<>(instances.size());
+		for (ServiceInstance i : instances) {
+			if (i.expired()) {
+				// do not lock the cache in a lookup
+				if (!i.removalScheduled) {
+					i.removalScheduled = true;
+					expiredInstances.add(i);
 				}
+			} else if (!i.suspended) {
+				available.add(i);
 			}
+		}
+
+		if (available.isEmpty()) {
+			return null;
+		} else if (available.size() == 1) {
+			return available.get(0);
+		}
+
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int first = random.nextInt(available.size());
+		int second = random.nextInt(available.size() - 1);
+		if (second >= first) {
+			second++;
+		}
+		ServiceInstance a = available.get(first);
+		ServiceInstance b = available.get(second);
+		return a.getLoadScore() <= b.getLoadScore() ? a : b;
+	}
 
-			return result;
+	/**
+	 * record the latency of a successful invocation of a global service instance
+	 * 
+	 * @param instance The invoked instance
+	 * @param latencyMs Time in milliseconds until the answer was received
+	 */
+	public void reportResponse(ServiceInstance instance, long latencyMs) {
+		if (instance.isLocal) {
+			return;
+		}
+		synchronized (instance) {
+			if (instance.latencyEwmaMs < 0) {
+				instance.latencyEwmaMs = latencyMs;
+			} else {
+				instance.latencyEwmaMs = latencyEwmaWeight * latencyMs
+						+ (1 - latencyEwmaWeight) * instance.latencyEwmaMs;
+			}
+			instance.consecutiveFailures = 0;
+			instance.suspended = false;
+		}
+	}
+
+	/**
+	 * record a failed invocation of a global service instance
+	 * 
+	 * The instance is not used until it answers a service discovery again. After several consecutive failures, it is
+	 * removed from the cache and ignored by the service discovery for some time.
+	 * 
+	 * @param instance The instance, which is not available
+	 */
+	public void reportFailure(ServiceInstance instance) {
+		if (instance.isLocal) {
+			return;
+		}
+		int failures;
+		synchronized (instance) {
+			failures = ++instance.consecutiveFailures;
+			instance.suspended = true;
+		}
+		if (failures >= maxFailures) {
+			logger.info("Evicting service instance " + instance.serviceAgentId + " after " + failures + " failures");
+			evictedInstances.put(instance.getKey(), System.currentTimeMillis() + evictionTimeMs);
+			removeGlobalServiceInstance(instance);
 		}
 	}
 
 	/**
-	 * adds a global service instance
+	 * adds a global service instance or refreshes a known one
 	 * 
 	 * @param instance
 	 */
-	private void addGlobalServiceInstance(ServiceInstance instance) {
+	void addGlobalServiceInstance(ServiceInstance instance) {
 		synchronized (globalServices) {
-			SortedMap<ServiceVersion, SortedSet<ServiceInstance>> versions = globalServices
+			removeExpiredInstances();
+
+			Long evictedUntil = evictedInstances.get(instance.getKey());
+			if (evictedUntil != null) {
+				if (evictedUntil > System.currentTimeMillis()) {
+					return;
+				}
+				evictedInstances.remove(instance.getKey());
+			}
+
+			ConcurrentNavigableMap<ServiceVersion, List<ServiceInstance>> versions = globalServices
 					.get(instance.service.getName());
 
 			if (versions == null) {
-				versions = new TreeMap<>(Comparator.comparing((ServiceVersion s) -> s).reversed());
+				versions = new ConcurrentSkipListMap<>(Comparator.reverseOrder());
 				globalServices.put(instance.service.getName(), versions);
 			}
 
-			SortedSet<ServiceInstance> instances = versions.get(instance.service.getVersion());
+			List<ServiceInstance> instances = versions.get(instance.service.getVersion());
 			if (instances == null) {
-				instances = new TreeSet<>();
+				instances = new CopyOnWriteArrayList<>();
 				versions.put(instance.service.getVersion(), instances);
 			}
 
-			if (!instances.contains(instance)) {
+			int index = instances.indexOf(instance);
+			if (index < 0) {
 				instances.add(instance);
+			} else {
+				// the instance answered, keep its statistics but use the new load information
+				ServiceInstance known = instances.get(index);
+				synchronized (known) {
+					known.touch();
+					known.cpuLoad = instance.cpuLoad;
+					known.suspended = false;
+				}
+			}
+		}
+	}
+
+	/**
+	 * removes the expired instances found by lookups, which have not been refreshed in the meantime
+	 * 
+	 * must be called while holding the lock of the global services
+	 */
+	private void removeExpiredInstances() {
+		ServiceInstance expired;
+		while ((expired = expiredInstances.poll()) != null) {
+			expired.removalScheduled = false;
+			if (expired.expired()) {
+				removeGlobalServiceInstance(expired);
 			}
 		}
 	}
@@ -282,19 +450,114 @@ public class NodeServiceCache {
 	 */
 	public void removeGlobalServiceInstance(ServiceInstance instance) {
 		synchronized (globalServices) {
-			if (globalServices.containsKey(instance.service.getName())
-					&& globalServices.get(instance.service.getName()).containsKey(instance.service.getVersion())) {
-				globalServices.get(instance.service.getName()).get(instance.service.getVersion()).remove(instance);
+			Map<ServiceVersion, List<ServiceInstance>> versions = globalServices.get(instance.service.getName());
+			if (versions == null) {
+				return;
+			}
+			List<ServiceInstance> instances = versions.get(instance.service.getVersion());
+			if (instances == null) {
+				return;
+			}
 
-				if (globalServices.get(instance.service.getName()).get(instance.service.getVersion()).size() == 0) {
-					globalServices.get(instance.service.getName()).remove(instance.service.getVersion());
+			instances.remove(instance);
+			if (instances.isEmpty()) {
+				versions.remove(instance.service.getVersion());
+				if (versions.isEmpty()) {
+					globalServices.remove(instance.service.getName());
+				}
+			}
+		}
+	}
 
-					if (globalServices.get(instance.service.getName()).size() == 0) {
-						globalServices.remove(instance.service.getName());
-					}
+	private static String getDiscoveryKey(ServiceNameVersion service, boolean exact) {
+		return (exact ? "exact:" : "fits:") + service.toString();
+	}
+
+	private boolean isNegativelyCached(ServiceNameVersion service, boolean exact) {
+		String key = getDiscoveryKey(service, exact);
+		Long until = negativeResults.get(key);
+		if (until == null) {
+			return false;
+		} else if (until < System.currentTimeMillis()) {
+			negativeResults.remove(key, until);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * search for services in the network, concurrent searches for the same service share one discovery
+	 * 
+	 * @param service
+	 * @param exact
+	 * @param acting
+	 * @return true if instances have been found
+	 * @throws Exception If the discovery fails
+	 */
+	private boolean discover(ServiceNameVersion service, boolean exact, AgentImpl acting) throws Exception {
+		String key = getDiscoveryKey(service, exact);
+		CompletableFuture<Boolean> result = new CompletableFuture<>();
+		CompletableFuture<Boolean> pending = pendingDiscoveries.putIfAbsent(key, result);
+
+		if (pending != null) {
+			// another thread is already searching, wait for its result
+			try {
+				return pending.get();
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof Exception) {
+					throw (Exception) e.getCause();
 				}
+				throw e;
 			}
 		}
+
+		try {
+			boolean found = update(service, exact, acting);
+			if (!found) {
+				rememberNegativeResult(key);
+			}
+			result.complete(found);
+			return found;
+		} catch (TimeoutException e) {
+			// nobody answered
+			rememberNegativeResult(key);
+			result.completeExceptionally(e);
+			throw e;
+		} catch (Exception e) {
+			result.completeExceptionally(e);
+			throw e;
+		} finally {
+			pendingDiscoveries.remove(key, result);
+		}
+	}
+
+	private void rememberNegativeResult(String key) {
+		negativeResults.put(key, System.currentTimeMillis() + negativeCacheTimeMs);
+	}
+
+	/**
+	 * refresh the cached instances of a service in background, if no discovery is running for it
+	 * 
+	 * @param service
+	 * @param exact
+	 * @param acting
+	 */
+	private void refreshInBackground(ServiceNameVersion service, boolean exact, AgentImpl acting) {
+		if (pendingDiscoveries.containsKey(getDiscoveryKey(service, exact))) {
+			return;
+		}
+		try {
+			runningAt.getBlockingInvocationExecutor().execute(() -> {
+				try {
+					discover(service, exact, acting);
+				} catch (Exception e) {
+					logger.log(Level.FINE, "Could not refresh service cache", e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// the node is shutting down
+			logger.log(Level.FINE, "Skipped service cache refresh", e);
+		}
 	}
 
 	/**
@@ -316,11 +579,11 @@ public class NodeServiceCache {
 		Message m = new Message(acting, ServiceAgentImpl.serviceNameToTopicId(service.getName()),
 				new ServiceDiscoveryContent(service, exact), timeoutMs);
 		m.setSendingNodeId(runningAt.getNodeId());
+		m.setPriority(MessagePriority.MEDIUM);
 		Message[] results = runningAt.sendMessageAndCollectAnswers(m, waitForResults);
 
 		if (results.length > 0) {
 			boolean added = false;
-			long i = 1;
 			for (Message res : results) {
 				try {
 					res.open(acting, runningAt);
@@ -335,18 +598,16 @@ public class NodeServiceCache {
 					continue;
 				}
 
-				ServiceInstance instance = new ServiceInstance(
-						((ServiceDiscoveryContent) res.getContent()).getService(), res.getSenderId(),
+				ServiceDiscoveryContent content = (ServiceDiscoveryContent) res.getContent();
+				ServiceInstance instance = new ServiceInstance(content.getService(), res.getSenderId(),
 						res.getSendingNodeId());
-
-				// ok, should be replaced by a real measure in future...
-				instance.responseTimeMs = i;
+				if (content.getCpuLoad() != null) {
+					instance.cpuLoad = content.getCpuLoad();
+				}
 
 				addGlobalServiceInstance(instance);
 
 				added = true;
-
-				i++;
 			}
 
 			return added;
@@ -364,9 +625,9 @@ public class NodeServiceCache {
 		synchronized (localServices) {
 			ServiceNameVersion service = agent.getServiceNameVersion();
 
-			SortedMap<ServiceVersion, ServiceInstance> versions = localServices.get(service.getName());
+			ConcurrentNavigableMap<ServiceVersion, ServiceInstance> versions = localServices.get(service.getName());
 			if (versions == null) {
-				versions = new TreeMap<>(Comparator.comparing((ServiceVersion s) -> s).reversed());
+				versions = new ConcurrentSkipListMap<>(Comparator.reverseOrder());
 				localServices.put(service.getName(), versions);
 			}
 
@@ -420,38 +681,26 @@ public class NodeServiceCache {
 	 * @throws AgentNotRegisteredException If no agent is registered
 	 */
 	public ServiceAgentImpl getLocalService(ServiceNameVersion service) throws AgentNotRegisteredException {
-		synchronized (localServices) {
-			Map<ServiceVersion, ServiceInstance> versions = localServices.get(service.getName());
-			if (versions == null) {
-				throw new AgentNotRegisteredException("No local agent registered for this service!");
-			}
-			ServiceInstance instance = versions.get(service.getVersion());
-			if (instance == null) {
-				throw new AgentNotRegisteredException("No local agent registered for this service!");
-			}
-			return instance.getServiceAgent();
+		Map<ServiceVersion, ServiceInstance> versions = localServices.get(service.getName());
+		if (versions == null) {
+			throw new AgentNotRegisteredException("No local agent registered for this service!");
+		}
+		ServiceInstance instance = versions.get(service.getVersion());
+		if (instance == null) {
+			throw new AgentNotRegisteredException("No local agent registered for this service!");
 		}
+		return instance.getServiceAgent();
 	}
 
 	public List<String> getLocalServiceNames() {
-		ArrayList<String> result = new ArrayList<>();
-		synchronized (localServices) {
-			if (localServices != null) {
-				result = new ArrayList<>(localServices.keySet());
-			}
-		}
-		return result;
+		return new ArrayList<>(localServices.keySet());
 	}
 
 	public List<ServiceVersion> getLocalServiceVersions(String serviceName) {
 		ArrayList<ServiceVersion> result = new ArrayList<>();
-		synchronized (localServices) {
-			if (localServices != null) {
-				SortedMap<ServiceVersion, ServiceInstance> versions = localServices.get(serviceName);
-				if (versions != null) {
-					result.addAll(versions.keySet());
-				}
-			}
+		Map<ServiceVersion, ServiceInstance> versions = localServices.get(serviceName);
+		if (versions != null) {
+			result.addAll(versions.keySet());
 		}
 		return result;
 	}
@@ -469,8 +718,14 @@ public class NodeServiceCache {
 
 		String serviceAgentId;
 		Object nodeId;
-		long responseTimeMs;
-		private long lastSeen;
+		private volatile long lastSeen;
+
+		// load information, read without locking and updated synchronized on the instance
+		private volatile double latencyEwmaMs = -1;
+		private volatile double cpuLoad = 0;
+		private volatile int consecutiveFailures = 0;
+		private volatile boolean suspended = false;
+		private volatile boolean removalScheduled = false;
 
 		/**
 		 * create a local service instance
@@ -514,7 +769,16 @@ public class NodeServiceCache {
 			if (this.isLocal) {
 				return this.agent.equals(o.agent);
 			} else {
-				return this.serviceAgentId == o.serviceAgentId && this.nodeId == o.nodeId;
+				return Objects.equals(this.serviceAgentId, o.serviceAgentId) && Objects.equals(this.nodeId, o.nodeId);
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			if (this.isLocal) {
+				return this.agent.hashCode();
+			} else {
+				return Objects.hash(this.serviceAgentId, this.nodeId);
 			}
 		}
 
@@ -525,14 +789,44 @@ public class NodeServiceCache {
 				throw new NullPointerException();
 			}
 
-			if (this.responseTimeMs < other.responseTimeMs) {
-				return -1;
-			} else if (this.responseTimeMs == other.responseTimeMs) {
-				return 0;
-			} else {
-				// (this.responseTimeMs > other.responseTimeMs)
-				return 1;
-			}
+			return Double.compare(this.getLoadScore(), other.getLoadScore());
+		}
+
+		/**
+		 * the load score combines the average latency and the CPU load of the node, lower is better
+		 * 
+		 * Instances without a measured latency are preferred, so they are probed once.
+		 * 
+		 * @return the load score of this instance
+		 */
+		public double getLoadScore() {
+			double latency = latencyEwmaMs < 0 ? 0 : latencyEwmaMs;
+			return (latency + 1) * (1 + cpuLoadWeight * cpuLoad);
+		}
+
+		/**
+		 * @return the average latency in milliseconds or -1, if no invocation was measured yet
+		 */
+		public double getLatencyEwmaMs() {
+			return latencyEwmaMs;
+		}
+
+		/**
+		 * @return the CPU load reported by the node of this instance, between 0 and 1
+		 */
+		public double getCpuLoad() {
+			return cpuLoad;
+		}
+
+		/**
+		 * @return the number of failed invocations since the last successful one
+		 */
+		public int getConsecutiveFailures() {
+			return consecutiveFailures;
+		}
+
+		private String getKey() {
+			return serviceAgentId + "@" + nodeId;
 		}
 
 		public void touch() {
@@ -543,6 +837,13 @@ public class NodeServiceCache {
 			return (lastSeen + lifeTimeSeconds) < (System.currentTimeMillis() / 1000L);
 		}
 
+		/**
+		 * @return true, if this instance is outdated for longer than it may be used while it is refreshed
+		 */
+		public boolean expired() {
+			return (lastSeen + lifeTimeSeconds + staleTimeSeconds) < (System.currentTimeMillis() / 1000L);
+		}
+
 		public boolean local() {
 			return isLocal;
 		}
@@ -13,10 +13,14 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 import i5.las2peer.api.logging.MonitoringEvent;
@@ -41,6 +45,8 @@ import i5.las2peer.persistency.StorageCollisionHandler;
 import i5.las2peer.persistency.StorageEnvelopeHandler;
 import i5.las2peer.persistency.StorageExceptionHandler;
 import i5.las2peer.persistency.StorageStoreResultHandler;
+import i5.las2peer.persistency.helper.FetchEnvelopeHelper;
+import i5.las2peer.persistency.helper.StoreProcessHelper;
 import i5.las2peer.security.AgentContext;
 import i5.las2peer.security.AgentImpl;
 import i5.las2peer.security.AnonymousAgentImpl;
@@ -51,7 +57,10 @@ import i5.las2peer.serialization.MalformedXMLException;
 import i5.las2peer.serialization.SerializationException;
 import i5.las2peer.tools.CryptoException;
 import i5.las2peer.tools.SimpleTools;
+import i5.las2peer.tools.TimingWheel;
 import rice.environment.Environment;
+import rice.p2p.commonapi.DeliveryNotification;
+import rice.p2p.commonapi.MessageReceipt;
 import rice.p2p.commonapi.NodeHandle;
 import rice.pastry.PastryNode;
 import rice.pastry.socket.internet.InternetPastryNodeFactory;
@@ -85,6 +94,23 @@ public class PastryNodeImpl extends Node {
 	private static final int HASHED_FETCH_TIMEOUT = 300000;
 	private static final int HASHED_STORE_TIMEOUT = 300000;
 
+	/**
+	 * time in milliseconds a node has to claim an anycast message, before it is published to all instances of its
+	 * recipient
+	 */
+	public static final int DEFAULT_ANYCAST_CLAIM_TIMEOUT = 2000;
+	private int anycastClaimTimeout = DEFAULT_ANYCAST_CLAIM_TIMEOUT;
+
+	/**
+	 * anycast messages, which were not claimed yet, mapped to the timeout for their claim
+	 */
+	private final ConcurrentHashMap<Long, TimingWheel.Timeout> pendingAnycasts = new ConcurrentHashMap<>();
+
+	/**
+	 * number of anycast messages claimed by another node
+	 */
+	private final AtomicLong claimedAnycasts = new AtomicLong();
+
 	private final int pastryPort;
 	private final List<String> bootStrap;
 	private final STORAGE_MODE storageMode;
@@ -158,6 +184,15 @@ public class PastryNodeImpl extends Node {
 		return pastryNode;
 	}
 
+	/**
+	 * access to the shared storage of this node, e.g. to configure its caches
+	 * 
+	 * @return the shared storage or null, if the node is not running
+	 */
+	public SharedStorage getSharedStorage() {
+		return pastStorage;
+	}
+
 	/**
 	 * generate a collection of InetSocketAddresses from the given bootstrap string
 	 * 
@@ -367,10 +402,16 @@ public class PastryNodeImpl extends Node {
 			// destroy pending jobs first, because they miss the node the most
 			threadpool.shutdownNow();
 		}
+		if (application != null) {
+			application.shutdown();
+		}
 		if (pastryNode != null) {
 			pastryNode.destroy();
 			pastryNode = null;
 		}
+		if (pastStorage != null) {
+			pastStorage.close();
+		}
 		if (pastryEnvironment != null) {
 			pastryEnvironment.destroy();
 			pastryEnvironment = null;
@@ -410,7 +451,58 @@ public class PastryNodeImpl extends Node {
 
 	@Override
 	public void sendMessage(Message message, MessageResultListener listener, SendMode mode) {
-		// TODO: use mode?!?!
+		if (mode == SendMode.ANYCAST && !message.isTopic()) {
+			// a single instance of the recipient is enough, send it directly to a node known to run it
+			NodeHandle location = application.getAgentLocation(message.getRecipientId());
+			if (location != null) {
+				observerNotice(MonitoringEvent.MESSAGE_SENDING, pastryNode, message.getSenderId(), location,
+						message.getRecipientId(), "unicast to cached location");
+
+				registerAnswerListener(message.getId(), listener);
+
+				try {
+					if (message.getSendingNodeId() == null) {
+						message.setSendingNodeId(pastryNode.getLocalHandle());
+					}
+					boolean binary = application.isBinaryFormatSupported(location);
+					application.sendMessage(new MessageEnvelope(pastryNode.getLocalHandle(), message, binary, true),
+							location, new DeliveryNotification() {
+								@Override
+								public void sent(MessageReceipt receipt) {
+									// the receiving node publishes the message itself, if the agent is gone
+								}
+
+								@Override
+								public void sendFailed(MessageReceipt receipt, Exception reason) {
+									logger.log(Level.INFO, "Unicast of message " + message.getId()
+											+ " to cached location failed, publishing to agent topic", reason);
+									publishToAgentTopic(message);
+								}
+							});
+				} catch (MalformedXMLException | SerializationException e) {
+					logger.log(Level.WARNING, "Unicast to cached location failed, publishing to agent topic", e);
+					publishToAgentTopic(message);
+				}
+				return;
+			}
+
+			// let the first node running the recipient claim the message, publish it if nobody claims it in time
+			observerNotice(MonitoringEvent.MESSAGE_SENDING, pastryNode, message.getSenderId(), null,
+					message.getRecipientId(), "anycast");
+
+			registerAnswerListener(message.getId(), listener);
+
+			long messageId = message.getId();
+			pendingAnycasts.put(messageId, scheduleTimeout(anycastClaimTimeout, () -> {
+				if (pendingAnycasts.remove(messageId) != null) {
+					logger.info("anycast message " + messageId + " not claimed, publishing to agent topic");
+					application.sendMessage(message);
+				}
+			}));
+			application.anycastMessage(message);
+			return;
+		}
+
 		observerNotice(MonitoringEvent.MESSAGE_SENDING, pastryNode, message.getSenderId(), null,
 				message.getRecipientId(), "broadcasting");
 
@@ -419,6 +511,51 @@ public class PastryNodeImpl extends Node {
 		application.sendMessage(message);
 	}
 
+	/**
+	 * fall back to the agent topic after a message could not be sent to the cached location of its recipient
+	 * 
+	 * @param message A message, which was not delivered
+	 */
+	private void publishToAgentTopic(Message message) {
+		application.getAgentLocationCache().remove(message.getRecipientId());
+		application.sendMessage(message);
+	}
+
+	/**
+	 * called by the pastry application, if another node claimed an anycast message
+	 * 
+	 * @param messageId The id of the claimed message
+	 */
+	public void anycastClaimed(long messageId) {
+		TimingWheel.Timeout timeout = pendingAnycasts.remove(messageId);
+		if (timeout != null) {
+			timeout.cancel();
+			claimedAnycasts.incrementAndGet();
+		}
+	}
+
+	/**
+	 * @return the number of anycast messages, which are neither claimed nor published yet
+	 */
+	int getPendingAnycastCount() {
+		return pendingAnycasts.size();
+	}
+
+	/**
+	 * @return the number of anycast messages claimed by another node in time
+	 */
+	long getClaimedAnycastCount() {
+		return claimedAnycasts.get();
+	}
+
+	/**
+	 * @param anycastClaimTimeout Time in milliseconds a node has to claim an anycast message, before it is published
+	 *            to all instances of its recipient
+	 */
+	public void setAnycastClaimTimeout(int anycastClaimTimeout) {
+		this.anycastClaimTimeout = anycastClaimTimeout;
+	}
+
 	@Override
 	public void sendMessage(Message message, Object atNodeId, MessageResultListener listener)
 			throws NodeNotFoundException {
@@ -440,11 +577,18 @@ public class PastryNodeImpl extends Node {
 		registerAnswerListener(message.getId(), listener);
 
 		try {
-			application.sendMessage(new MessageEnvelope(pastryNode.getLocalHandle(), message), (NodeHandle) atNodeId);
+			// use the binary message format, if the receiving node announced to support it
+			boolean binary = application.isBinaryFormatSupported((NodeHandle) atNodeId);
+			application.sendMessage(new MessageEnvelope(pastryNode.getLocalHandle(), message, binary),
+					(NodeHandle) atNodeId);
 		} catch (MalformedXMLException e) {
 			logger.log(Level.SEVERE, "Can't read message XML", e);
 			observerNotice(MonitoringEvent.MESSAGE_FAILED, pastryNode, message.getSenderId(), atNodeId,
 					message.getRecipientId(), "XML exception!");
+		} catch (SerializationException e) {
+			logger.log(Level.SEVERE, "Can't encode binary message", e);
+			observerNotice(MonitoringEvent.MESSAGE_FAILED, pastryNode, message.getSenderId(), atNodeId,
+					message.getRecipientId(), "Serialization exception!");
 		}
 	}
 
@@ -710,6 +854,13 @@ public class PastryNodeImpl extends Node {
 		});
 	}
 
+	@Override
+	public CompletableFuture<Integer> storeEnvelopeAsync(EnvelopeVersion envelope, AgentImpl author) {
+		StoreProcessHelper resultHelper = new StoreProcessHelper();
+		storeEnvelopeAsync(envelope, author, resultHelper, resultHelper, resultHelper);
+		return resultHelper.getFuture();
+	}
+
 	@Override
 	public EnvelopeVersion fetchEnvelope(String identifier, long timeoutMs)
 			throws EnvelopeNotFoundException, EnvelopeException {
@@ -757,6 +908,41 @@ public class PastryNodeImpl extends Node {
 		});
 	}
 
+	@Override
+	public CompletableFuture<EnvelopeVersion> fetchEnvelopeAsync(String identifier) {
+		FetchEnvelopeHelper resultHelper = new FetchEnvelopeHelper();
+		fetchEnvelopeAsync(identifier, resultHelper, resultHelper);
+		return resultHelper.getFuture();
+	}
+
+	@Override
+	public Map<String, CompletableFuture<EnvelopeVersion>> fetchEnvelopes(Collection<String> identifiers) {
+		if (getStatus() != NodeStatus.RUNNING) {
+			throw new IllegalStateException("You can fetch artifacts only from running nodes!");
+		}
+		Map<String, CompletableFuture<EnvelopeVersion>> results = pastStorage.fetchEnvelopes(identifiers);
+		results.forEach((identifier, result) -> {
+			observerNotice(MonitoringEvent.ARTIFACT_FETCH_STARTED, pastryNode, identifier);
+			result.whenComplete((envelope, e) -> observerNotice(
+					e == null ? MonitoringEvent.ARTIFACT_RECEIVED : MonitoringEvent.ARTIFACT_FETCH_FAILED, pastryNode,
+					identifier));
+		});
+		return results;
+	}
+
+	/**
+	 * Looks up the latest version number of an envelope without fetching it.
+	 * 
+	 * @param identifier An unique identifier for the Envelope.
+	 * @return Returns a future that is completed with the latest version number.
+	 */
+	public CompletableFuture<Long> fetchLatestVersionAsync(String identifier) {
+		if (pastStorage == null) {
+			throw new IllegalStateException("Past storage not initialized!");
+		}
+		return pastStorage.fetchLatestVersionAsync(identifier);
+	}
+
 	@Override
 	public void removeEnvelope(String identifier) throws EnvelopeNotFoundException, EnvelopeException {
 		pastStorage.removeEnvelope(identifier);
@@ -767,6 +953,10 @@ public class PastryNodeImpl extends Node {
 		pastStorage.storeHashedContentAsync(content, resultHandler, exceptionHandler);
 	}
 
+	public CompletableFuture<Integer> storeHashedContentAsync(byte[] content) {
+		return pastStorage.storeHashedContentAsync(content);
+	}
+
 	public void storeHashedContent(byte[] content) throws EnvelopeException {
 		storeHashedContent(content, HASHED_STORE_TIMEOUT);
 	}
@@ -780,6 +970,10 @@ public class PastryNodeImpl extends Node {
 		pastStorage.fetchHashedContentAsync(hash, artifactHandler, exceptionHandler);
 	}
 
+	public CompletableFuture<byte[]> fetchHashedContentAsync(byte[] hash) {
+		return pastStorage.fetchHashedContentAsync(hash);
+	}
+
 	public byte[] fetchHashedContent(byte[] hash) throws EnvelopeException {
 		return fetchHashedContent(hash, HASHED_FETCH_TIMEOUT);
 	}
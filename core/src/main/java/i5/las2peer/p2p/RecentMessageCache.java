@@ -0,0 +1,106 @@
+package i5.las2peer.p2p;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import i5.las2peer.communication.Message;
+
+/**
+ * A bounded cache of recently received messages, used to drop messages, which are delivered more than once to a node.
+ *
+ * A message may reach a node twice, e.g. if it is published to an agent topic after an anycast was not claimed in
+ * time. Messages are identified by their id and their recipient or topic. The oldest entries are dropped if the cache
+ * is full or they are older than the retention time.
+ *
+ */
+public class RecentMessageCache {
+
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+	public static final long DEFAULT_RETENTION_MS = 5 * 60 * 1000; // 5 minutes
+
+	private final int maxEntries;
+	private final long retentionMs;
+
+	private final LinkedHashMap<String, Long> entries;
+
+	/**
+	 * create a cache with default size and retention time
+	 */
+	public RecentMessageCache() {
+		this(DEFAULT_MAX_ENTRIES, DEFAULT_RETENTION_MS);
+	}
+
+	/**
+	 * create a cache
+	 *
+	 * @param maxEntries Maximum number of remembered messages
+	 * @param retentionMs Time in milliseconds a message is remembered
+	 */
+	public RecentMessageCache(int maxEntries, long retentionMs) {
+		this.maxEntries = maxEntries;
+		this.retentionMs = retentionMs;
+		this.entries = new LinkedHashMap<String, Long>(16, 0.75f, false) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+				return size() > RecentMessageCache.this.maxEntries
+						|| eldest.getValue() < System.currentTimeMillis() - RecentMessageCache.this.retentionMs;
+			}
+		};
+	}
+
+	/**
+	 * remember the given message
+	 *
+	 * @param message A received message
+	 * @return true, if the message was not seen before
+	 */
+	public boolean markSeen(Message message) {
+		String key = getKey(message);
+		synchronized (entries) {
+			Long seen = entries.get(key);
+			if (seen != null && seen >= System.currentTimeMillis() - retentionMs) {
+				return false;
+			}
+			entries.put(key, System.currentTimeMillis());
+			return true;
+		}
+	}
+
+	/**
+	 * forget the given message, e. g. if it could not be delivered and may be received again
+	 *
+	 * @param message A received message
+	 */
+	public void forget(Message message) {
+		String key = getKey(message);
+		synchronized (entries) {
+			entries.remove(key);
+		}
+	}
+
+	private static String getKey(Message message) {
+		return message.getId() + "@"
+				+ (message.isTopic() ? "topic-" + message.getTopicId() : message.getRecipientId());
+	}
+
+	/**
+	 * @return the number of remembered messages
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * forget all messages
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+package i5.las2peer.p2p;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import i5.las2peer.communication.RMIStreamChunkContent;
+
+/**
+ * Reads a streaming result from the node, which executed the invocation.
+ *
+ * Chunks are requested one after another. The next chunk is requested as soon as the consumer starts reading the
+ * current one, so at most two chunks are held in memory and the serving node sends only as fast as the stream is
+ * consumed.
+ *
+ */
+class RemoteResultInputStream extends InputStream {
+
+	/**
+	 * the connection to the serving node
+	 */
+	interface ChunkSource {
+		/**
+		 * request a chunk of the stream
+		 *
+		 * @param sequence The number of the chunk
+		 * @return a future completed with the chunk or an {@link IOException}
+		 */
+		CompletableFuture<RMIStreamChunkContent> fetch(long sequence);
+
+		/**
+		 * tell the serving node, that the stream is not read any further and can be released
+		 *
+		 * @param sequence The number of the next unread chunk
+		 */
+		void cancel(long sequence);
+	}
+
+	private final ChunkSource source;
+
+	private byte[] current;
+	private int position;
+	private boolean currentIsLast;
+	private long nextSequence;
+	private CompletableFuture<RMIStreamChunkContent> pending;
+	private boolean closed = false;
+
+	/**
+	 * create a stream
+	 *
+	 * @param source The connection to the serving node
+	 * @param firstChunk The first chunk, which is sent along with the invocation result
+	 */
+	RemoteResultInputStream(ChunkSource source, RMIStreamChunkContent firstChunk) {
+		this.source = source;
+		setCurrent(firstChunk);
+	}
+
+	private void setCurrent(RMIStreamChunkContent chunk) {
+		current = chunk.getData();
+		position = 0;
+		currentIsLast = chunk.isLast();
+		nextSequence = chunk.getSequence() + 1;
+		if (!currentIsLast) {
+			// request the next chunk while the current one is consumed
+			pending = source.fetch(nextSequence);
+		} else {
+			pending = null;
+		}
+	}
+
+	/**
+	 * make sure, that there are unread bytes in the current chunk
+	 *
+	 * @return false, if the end of the stream is reached
+	 * @throws IOException If the next chunk can not be received
+	 */
+	private boolean fill() throws IOException {
+		if (closed) {
+			throw new IOException("stream closed");
+		}
+		while (position >= current.length) {
+			if (currentIsLast) {
+				return false;
+			}
+			RMIStreamChunkContent chunk;
+			try {
+				chunk = pending.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("interrupted while waiting for chunk " + nextSequence, e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw new IOException("could not receive chunk " + nextSequence, e.getCause());
+			}
+			if (chunk.getSequence() != nextSequence) {
+				throw new IOException("received chunk " + chunk.getSequence() + ", expected " + nextSequence);
+			}
+			setCurrent(chunk);
+		}
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!fill()) {
+			return -1;
+		}
+		return current[position++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!fill()) {
+			return -1;
+		}
+		int count = Math.min(len, current.length - position);
+		System.arraycopy(current, position, b, off, count);
+		position += count;
+		return count;
+	}
+
+	@Override
+	public int available() {
+		return closed ? 0 : current.length - position;
+	}
+
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (pending != null) {
+			pending.cancel(false);
+		}
+		if (!currentIsLast || nextSequence > 1) {
+			// the serving node keeps a finished stream for repeated requests until it is released
+			source.cancel(nextSequence);
+		}
+		current = new byte[0];
+	}
+
+}
@@ -0,0 +1,211 @@
+package i5.las2peer.p2p;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import i5.las2peer.api.execution.StreamingResult;
+import i5.las2peer.communication.RMIStreamChunkContent;
+import i5.las2peer.logging.L2pLogger;
+
+/**
+ * Holds the streaming results of local service invocations, which are read by callers at other nodes.
+ *
+ * The caller requests one chunk after another, so a stream is only read as fast as the caller consumes it. The last
+ * sent chunk is kept to answer a repeated request, e.g. if the answer got lost. The source of a stream is closed after
+ * its final chunk was read, but the stream and its final chunk are only removed if the caller cancels it or it was not
+ * read for longer than the idle timeout, so a lost final chunk can be requested again.
+ *
+ */
+public class ResultStreamRegistry {
+
+	public static final int DEFAULT_CHUNK_SIZE = 256 * 1024; // bytes
+	public static final long DEFAULT_IDLE_TIMEOUT_MS = 60 * 1000; // 1 minute
+
+	private static final L2pLogger logger = L2pLogger.getInstance(ResultStreamRegistry.class);
+
+	private final int chunkSize;
+	private final long idleTimeoutMs;
+
+	private final Map<String, OutgoingStream> streams = new ConcurrentHashMap<>();
+
+	private static class OutgoingStream {
+		private final String streamId;
+		private final String ownerId;
+		private final InputStream source;
+		private long nextSequence = 0;
+		private RMIStreamChunkContent lastChunk;
+		private volatile long lastAccess = System.currentTimeMillis();
+
+		private OutgoingStream(String streamId, String ownerId, InputStream source) {
+			this.streamId = streamId;
+			this.ownerId = ownerId;
+			this.source = source;
+		}
+
+		private void close() {
+			try {
+				source.close();
+			} catch (IOException e) {
+				logger.fine("closing result stream " + streamId + " failed: " + e);
+			}
+		}
+	}
+
+	/**
+	 * create a registry with default chunk size and idle timeout
+	 */
+	public ResultStreamRegistry() {
+		this(DEFAULT_CHUNK_SIZE, DEFAULT_IDLE_TIMEOUT_MS);
+	}
+
+	/**
+	 * create a registry
+	 *
+	 * @param chunkSize Maximum number of bytes sent in one chunk
+	 * @param idleTimeoutMs Time in milliseconds after which a stream is closed, if no chunk was requested
+	 */
+	public ResultStreamRegistry(int chunkSize, long idleTimeoutMs) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunk size must be positive");
+		}
+		this.chunkSize = chunkSize;
+		this.idleTimeoutMs = idleTimeoutMs;
+	}
+
+	/**
+	 * register a streaming result and read its first chunk
+	 *
+	 * @param result A result returned by a local service
+	 * @param ownerId The id of the agent, which is allowed to read the stream
+	 * @return the first chunk of the stream
+	 * @throws IOException If reading the stream fails
+	 */
+	public RMIStreamChunkContent register(StreamingResult result, String ownerId) throws IOException {
+		OutgoingStream stream = new OutgoingStream(UUID.randomUUID().toString(), ownerId, result.getInputStream());
+		streams.put(stream.streamId, stream);
+		RMIStreamChunkContent first = readChunk(stream, 0);
+		if (first.isLast()) {
+			// sent along with the invocation result, so it is never requested
+			remove(stream);
+		}
+		return first;
+	}
+
+	/**
+	 * read the next chunk of a stream
+	 *
+	 * @param streamId The id of the stream
+	 * @param requesterId The id of the requesting agent
+	 * @param sequence The number of the requested chunk
+	 * @return the requested chunk
+	 * @throws IOException If the stream is unknown, belongs to another agent, the chunk is out of order or reading
+	 *             fails
+	 */
+	public RMIStreamChunkContent readChunk(String streamId, String requesterId, long sequence) throws IOException {
+		return readChunk(getStream(streamId, requesterId), sequence);
+	}
+
+	private RMIStreamChunkContent readChunk(OutgoingStream stream, long sequence) throws IOException {
+		synchronized (stream) {
+			stream.lastAccess = System.currentTimeMillis();
+			if (stream.lastChunk != null && sequence == stream.lastChunk.getSequence()) {
+				// the answer to a former request got lost
+				return stream.lastChunk;
+			} else if (sequence != stream.nextSequence) {
+				throw new IOException("chunk " + sequence + " of stream " + stream.streamId + " requested, expected "
+						+ stream.nextSequence);
+			}
+
+			byte[] buffer = new byte[chunkSize];
+			int count;
+			try {
+				count = stream.source.readNBytes(buffer, 0, chunkSize);
+			} catch (IOException e) {
+				remove(stream);
+				throw e;
+			}
+			boolean last = count < chunkSize;
+			if (last) {
+				// keep the final chunk for repeated requests until the stream is cancelled or idle
+				stream.close();
+			} else {
+				stream.nextSequence++;
+			}
+			byte[] data = count < chunkSize ? Arrays.copyOf(buffer, count) : buffer;
+			stream.lastChunk = new RMIStreamChunkContent(stream.streamId, sequence, data, last);
+			return stream.lastChunk;
+		}
+	}
+
+	/**
+	 * close a stream before all chunks were read or release a finished stream
+	 *
+	 * @param streamId The id of the stream
+	 * @param requesterId The id of the requesting agent
+	 * @throws IOException If the stream is unknown or belongs to another agent
+	 */
+	public void cancel(String streamId, String requesterId) throws IOException {
+		remove(getStream(streamId, requesterId));
+	}
+
+	private OutgoingStream getStream(String streamId, String requesterId) throws IOException {
+		OutgoingStream stream = streams.get(streamId);
+		if (stream == null) {
+			throw new IOException("unknown or expired result stream " + streamId);
+		} else if (!stream.ownerId.equals(requesterId)) {
+			throw new IOException("result stream " + streamId + " belongs to another agent");
+		}
+		return stream;
+	}
+
+	private void remove(OutgoingStream stream) {
+		if (streams.remove(stream.streamId, stream)) {
+			stream.close();
+		}
+	}
+
+	/**
+	 * close all streams, which were not read for longer than the idle timeout
+	 */
+	public void removeIdle() {
+		long limit = System.currentTimeMillis() - idleTimeoutMs;
+		Iterator<OutgoingStream> it = streams.values().iterator();
+		while (it.hasNext()) {
+			OutgoingStream stream = it.next();
+			if (stream.lastAccess < limit) {
+				it.remove();
+				stream.close();
+				logger.fine("closed idle result stream " + stream.streamId);
+			}
+		}
+	}
+
+	/**
+	 * close all streams
+	 */
+	public void clear() {
+		Iterator<OutgoingStream> it = streams.values().iterator();
+		while (it.hasNext()) {
+			OutgoingStream stream = it.next();
+			it.remove();
+			stream.close();
+		}
+	}
+
+	/**
+	 * @return the number of open or finished streams, which were not removed yet
+	 */
+	public int size() {
+		return streams.size();
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+}
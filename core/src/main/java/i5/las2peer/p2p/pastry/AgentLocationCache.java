@@ -0,0 +1,129 @@
+package i5.las2peer.p2p.pastry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import rice.p2p.commonapi.NodeHandle;
+
+/**
+ * A cache of node handles known to run an agent, used to send messages for a single agent instance directly to a node
+ * instead of publishing them to the Scribe topic of the agent.
+ *
+ * Entries expire after a fixed time and handles of nodes, which are known to be dead, are never returned. The cache is
+ * only a hint, the sender has to fall back to the agent topic if there is no entry.
+ *
+ */
+public class AgentLocationCache {
+
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+	public static final long DEFAULT_ENTRY_LIFETIME_MS = 5 * 60 * 1000; // 5 minutes
+
+	private final int maxEntries;
+	private final long entryLifetimeMs;
+
+	private final LinkedHashMap<String, Entry> entries;
+
+	private static class Entry {
+		private final NodeHandle handle;
+		private final long createdAt;
+
+		private Entry(NodeHandle handle) {
+			this.handle = handle;
+			this.createdAt = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * create a cache with default size and entry lifetime
+	 */
+	public AgentLocationCache() {
+		this(DEFAULT_MAX_ENTRIES, DEFAULT_ENTRY_LIFETIME_MS);
+	}
+
+	/**
+	 * create a cache
+	 *
+	 * @param maxEntries Maximum number of cached agents
+	 * @param entryLifetimeMs Time in milliseconds an entry is used
+	 */
+	public AgentLocationCache(int maxEntries, long entryLifetimeMs) {
+		this.maxEntries = maxEntries;
+		this.entryLifetimeMs = entryLifetimeMs;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > AgentLocationCache.this.maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * remember a node running the given agent
+	 *
+	 * @param agentId An agent id
+	 * @param handle A handle of a node the agent is registered at
+	 */
+	public void put(String agentId, NodeHandle handle) {
+		if (agentId == null || handle == null) {
+			return;
+		}
+		synchronized (entries) {
+			entries.put(agentId, new Entry(handle));
+		}
+	}
+
+	/**
+	 * get a node known to run the given agent
+	 *
+	 * @param agentId An agent id
+	 * @return a handle of a living node or null, if no such node is known
+	 */
+	public NodeHandle get(String agentId) {
+		if (agentId == null) {
+			return null;
+		}
+		synchronized (entries) {
+			Entry entry = entries.get(agentId);
+			if (entry == null) {
+				return null;
+			}
+			if (System.currentTimeMillis() - entry.createdAt > entryLifetimeMs || !entry.handle.isAlive()) {
+				entries.remove(agentId);
+				return null;
+			}
+			return entry.handle;
+		}
+	}
+
+	/**
+	 * forget the location of the given agent
+	 *
+	 * @param agentId An agent id
+	 */
+	public void remove(String agentId) {
+		synchronized (entries) {
+			entries.remove(agentId);
+		}
+	}
+
+	/**
+	 * @return the number of cached agents
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * drop all entries
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+}
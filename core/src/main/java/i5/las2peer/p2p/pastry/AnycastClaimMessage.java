@@ -0,0 +1,65 @@
+package i5.las2peer.p2p.pastry;
+
+import rice.p2p.commonapi.Message;
+import rice.p2p.commonapi.NodeHandle;
+
+/**
+ * A message telling the sender of an anycast las2peer message, that the sending node of this claim handles it
+ * 
+ * The sender of the anycast does not publish the message to all instances of its recipient, as long as it got a claim.
+ * 
+ */
+public class AnycastClaimMessage implements Message {
+
+	private static final long serialVersionUID = -2390527766934157384L;
+
+	private final NodeHandle sender;
+	private final long messageId;
+	private final String recipientId;
+
+	/**
+	 * create a new claim
+	 * 
+	 * @param from A sending node handle
+	 * @param messageId id of the claimed las2peer message
+	 * @param recipientId id of the recipient agent of the claimed message
+	 */
+	public AnycastClaimMessage(NodeHandle from, long messageId, String recipientId) {
+		this.sender = from;
+		this.messageId = messageId;
+		this.recipientId = recipientId;
+	}
+
+	@Override
+	public int getPriority() {
+		return MEDIUM_HIGH_PRIORITY;
+	}
+
+	/**
+	 * get the node claiming the message
+	 * 
+	 * @return a node handle
+	 */
+	public NodeHandle getSendingNode() {
+		return sender;
+	}
+
+	/**
+	 * get the id of the claimed las2peer message
+	 * 
+	 * @return a message id
+	 */
+	public long getMessageId() {
+		return messageId;
+	}
+
+	/**
+	 * get the recipient of the claimed las2peer message, which is running at the claiming node
+	 * 
+	 * @return an agent id
+	 */
+	public String getRecipientId() {
+		return recipientId;
+	}
+
+}
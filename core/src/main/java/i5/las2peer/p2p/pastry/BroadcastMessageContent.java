@@ -1,6 +1,7 @@
 package i5.las2peer.p2p.pastry;
 
 import i5.las2peer.communication.Message;
+import i5.las2peer.communication.MessagePriority;
 import i5.las2peer.serialization.MalformedXMLException;
 import rice.p2p.commonapi.NodeHandle;
 
@@ -13,14 +14,28 @@ public class BroadcastMessageContent extends L2pScribeContent {
 	private static final long serialVersionUID = 5111771506510680578L;
 
 	private final String xmlMessageContent;
+	private final MessagePriority priority;
 	private final transient Message message;
 
 	public BroadcastMessageContent(NodeHandle fromNode, Message l2pMessage) {
 		super(fromNode);
 		xmlMessageContent = l2pMessage.toXmlString();
+		priority = l2pMessage.getPriority();
 		message = l2pMessage;
 	}
 
+	/**
+	 * get the priority of the contained message
+	 * 
+	 * @return the priority of the contained message, medium for contents without a priority
+	 */
+	public MessagePriority getPriority() {
+		if (priority == null) {
+			return MessagePriority.MEDIUM;
+		}
+		return priority;
+	}
+
 	/**
 	 * get the l2p message inside
 	 * 
@@ -1,12 +1,22 @@
 package i5.las2peer.p2p.pastry;
 
+import i5.las2peer.communication.MessagePriority;
 import i5.las2peer.serialization.MalformedXMLException;
+import i5.las2peer.serialization.SerializationException;
 import rice.p2p.commonapi.Message;
 import rice.p2p.commonapi.NodeHandle;
 
 /**
  * a simple envelope for sending las2peer messages through the pastry network
- * 
+ *
+ * A contained las2peer message is either transported as XML string or, if the receiving node is known to support it,
+ * in the compact binary format of {@link i5.las2peer.communication.Message#toByteArray()}. Each envelope states if
+ * its sending node is able to read the binary format, so nodes learn the capabilities of their peers from the
+ * messages they receive.
+ *
+ * The envelope carries the priority of the contained message, which is used as pastry message priority and for the
+ * delivery order at the receiving node.
+ *
  */
 public class MessageEnvelope implements Message {
 
@@ -14,32 +24,86 @@ public class MessageEnvelope implements Message {
 
 	private final NodeHandle sendingNode;
 	private final String content;
+	private final byte[] binaryContent;
+	private final boolean binaryFormatSupported;
+	private final boolean topicFallback;
+	private final MessagePriority priority;
+	private final transient i5.las2peer.communication.Message message;
 
 	/**
 	 * create a message envelope with simple string content
-	 * 
+	 *
 	 * @param sendingNode A sending node handle
 	 * @param content Arbitrary message content string
 	 */
 	public MessageEnvelope(NodeHandle sendingNode, String content) {
 		this.sendingNode = sendingNode;
 		this.content = content;
+		this.binaryContent = null;
+		this.binaryFormatSupported = true;
+		this.topicFallback = false;
+		this.priority = null;
+		this.message = null;
 	}
 
 	/**
 	 * generate an Pastry message envelope from a las2peer message
-	 * 
+	 *
 	 * @param sendingNode A sending node handle
 	 * @param content Another message to wrap
 	 */
 	public MessageEnvelope(NodeHandle sendingNode, i5.las2peer.communication.Message content) {
 		this.sendingNode = sendingNode;
 		this.content = content.toXmlString();
+		this.binaryContent = null;
+		this.binaryFormatSupported = true;
+		this.topicFallback = false;
+		this.priority = content.getPriority();
+		this.message = content;
+	}
+
+	/**
+	 * generate an Pastry message envelope from a las2peer message using the binary message format
+	 *
+	 * @param sendingNode A sending node handle
+	 * @param content Another message to wrap
+	 * @param binary If true, the message is encoded in binary format, otherwise as XML string
+	 * @throws SerializationException If the binary encoding of the message fails
+	 */
+	public MessageEnvelope(NodeHandle sendingNode, i5.las2peer.communication.Message content, boolean binary)
+			throws SerializationException {
+		this(sendingNode, content, binary, false);
+	}
+
+	/**
+	 * generate an Pastry message envelope from a las2peer message
+	 *
+	 * @param sendingNode A sending node handle
+	 * @param content Another message to wrap
+	 * @param binary If true, the message is encoded in binary format, otherwise as XML string
+	 * @param topicFallback If true, the receiving node publishes the message to the topic of its recipient, if the
+	 *            recipient is not registered there
+	 * @throws SerializationException If the binary encoding of the message fails
+	 */
+	public MessageEnvelope(NodeHandle sendingNode, i5.las2peer.communication.Message content, boolean binary,
+			boolean topicFallback) throws SerializationException {
+		this.sendingNode = sendingNode;
+		if (binary) {
+			this.content = null;
+			this.binaryContent = content.toByteArray();
+		} else {
+			this.content = content.toXmlString();
+			this.binaryContent = null;
+		}
+		this.binaryFormatSupported = true;
+		this.topicFallback = topicFallback;
+		this.priority = content.getPriority();
+		this.message = content;
 	}
 
 	/**
 	 * get a handle to the sending node
-	 * 
+	 *
 	 * @return handle to the sending (pastry) node
 	 */
 	public NodeHandle getSendingNode() {
@@ -48,26 +112,82 @@ public class MessageEnvelope implements Message {
 
 	/**
 	 * get the content string of this message
-	 * 
-	 * @return the contained data as String
+	 *
+	 * @return the contained data as String or null, if the message is encoded in binary format
 	 */
 	public String getContent() {
 		return content;
 	}
 
+	/**
+	 * check if the contained message is encoded in binary format
+	 *
+	 * @return true, if the contained message is encoded in binary format
+	 */
+	public boolean isBinary() {
+		return binaryContent != null;
+	}
+
+	/**
+	 * check if the sending node is able to read binary encoded messages
+	 *
+	 * @return true, if the sending node supports the binary message format
+	 */
+	public boolean isBinaryFormatSupported() {
+		return binaryFormatSupported;
+	}
+
+	/**
+	 * check if the contained message was sent to a cached location of its recipient and should be published to the
+	 * topic of the recipient, if the recipient is not found at the receiving node
+	 *
+	 * @return true, if the message may be forwarded to the recipient topic
+	 */
+	public boolean isTopicFallback() {
+		return topicFallback;
+	}
+
 	/**
 	 * get the contained las2peer message
-	 * 
+	 *
 	 * @return the contained las2peer message
-	 * @throws MalformedXMLException If the XML data string is malformed
+	 * @throws MalformedXMLException If the XML data string or binary data is malformed
 	 */
 	public i5.las2peer.communication.Message getContainedMessage() throws MalformedXMLException {
+		if (message != null) {
+			return message;
+		} else if (binaryContent != null) {
+			try {
+				return i5.las2peer.communication.Message.createFromBytes(binaryContent);
+			} catch (SerializationException e) {
+				throw new MalformedXMLException("binary message content is malformed", e);
+			}
+		}
 		return i5.las2peer.communication.Message.createFromXml(content);
 	}
 
+	/**
+	 * get the priority of the contained message
+	 *
+	 * @return the las2peer priority of the contained message, medium for envelopes without a priority
+	 */
+	public MessagePriority getMessagePriority() {
+		if (priority == null) {
+			return MessagePriority.MEDIUM;
+		}
+		return priority;
+	}
+
 	@Override
 	public int getPriority() {
-		return DEFAULT_PRIORITY;
+		switch (getMessagePriority()) {
+		case HIGH:
+			return MEDIUM_HIGH_PRIORITY;
+		case LOW:
+			return LOW_PRIORITY;
+		default:
+			return DEFAULT_PRIORITY;
+		}
 	}
 
 }
@@ -1,9 +1,12 @@
 package i5.las2peer.p2p.pastry;
 
 import java.util.Collection;
-import java.util.Date;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 
 import i5.las2peer.api.logging.MonitoringEvent;
@@ -11,6 +14,7 @@ import i5.las2peer.api.security.AgentException;
 import i5.las2peer.communication.MessageException;
 import i5.las2peer.logging.L2pLogger;
 import i5.las2peer.p2p.AgentNotRegisteredException;
+import i5.las2peer.p2p.DeliveryExecutor;
 import i5.las2peer.p2p.NodeException;
 import i5.las2peer.p2p.NodeInformation;
 import i5.las2peer.p2p.NodeNotFoundException;
@@ -19,8 +23,10 @@ import i5.las2peer.security.AgentImpl;
 import i5.las2peer.security.MessageReceiver;
 import i5.las2peer.serialization.MalformedXMLException;
 import i5.las2peer.tools.CryptoException;
+import i5.las2peer.tools.TimingWheel;
 import i5.las2peer.tools.WaiterThread;
 import rice.p2p.commonapi.Application;
+import rice.p2p.commonapi.DeliveryNotification;
 import rice.p2p.commonapi.Endpoint;
 import rice.p2p.commonapi.Id;
 import rice.p2p.commonapi.Message;
@@ -47,6 +53,10 @@ public class NodeApplication implements Application, ScribeMultiClient {
 	public static final String FREEPASTRY_APPLICATION_CODE = "i5.las2peer-node-application";
 	public static final String SCRIBE_APPLICATION_CODE = "i5.las2peer-agent-notification";
 
+	/**
+	 * @deprecated agent searches are finished as soon as enough answers arrived, there is no polling anymore
+	 */
+	@Deprecated
 	public static final int SEARCH_SLEEP_TIME = 2500; // 2,5s
 	public static final long SEARCH_TIMEOUT = 10000; // 10 seconds
 	private static final int RESPONSE_WAIT_TIMEOUT = 10000; // 10 seconds
@@ -63,10 +73,25 @@ public class NodeApplication implements Application, ScribeMultiClient {
 
 	private Hashtable<Long, Topic> htTopics = new Hashtable<>();
 
-	private Hashtable<Long, HashSet<NodeHandle>> htPendingAgentSearches = new Hashtable<>();
+	private Hashtable<Long, PendingAgentSearch> htPendingAgentSearches = new Hashtable<>();
 
 	private Hashtable<Long, WaiterThread<Message>> appMessageWaiters = new Hashtable<>();
 
+	/**
+	 * ids of all nodes, which announced that they are able to read binary encoded las2peer messages
+	 */
+	private Set<Id> binaryFormatNodes = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * bounded stage handing received messages over to the node
+	 */
+	private final DeliveryExecutor deliveryExecutor;
+
+	/**
+	 * nodes known to run an agent, used to send messages directly instead of publishing them to the agent topic
+	 */
+	private final AgentLocationCache agentLocations = new AgentLocationCache();
+
 	/**
 	 * create a pastry application for the given node
 	 * 
@@ -74,6 +99,7 @@ public class NodeApplication implements Application, ScribeMultiClient {
 	 */
 	public NodeApplication(PastryNodeImpl node) {
 		l2pNode = node;
+		deliveryExecutor = node.createDeliveryExecutor("las2peer-delivery");
 		endpoint = l2pNode.getPastryNode().buildEndpoint(this, FREEPASTRY_APPLICATION_CODE);
 
 		scribeClient = new ScribeImpl(l2pNode.getPastryNode(), SCRIBE_APPLICATION_CODE);
@@ -208,25 +234,43 @@ public class NodeApplication implements Application, ScribeMultiClient {
 		logger.info("\t<-- received message:" + pastMessage);
 
 		if (pastMessage instanceof MessageEnvelope) {
+			MessageEnvelope envelope = (MessageEnvelope) pastMessage;
+			if (envelope.isBinaryFormatSupported() && envelope.getSendingNode() != null) {
+				binaryFormatNodes.add(envelope.getSendingNode().getId());
+			}
 			try {
-				final i5.las2peer.communication.Message m = ((MessageEnvelope) pastMessage).getContainedMessage();
+				final i5.las2peer.communication.Message m = envelope.getContainedMessage();
+				m.setPriority(envelope.getMessagePriority());
 
 				// Is already done in Node-Classes
 //				l2pNode.observerNotice( Event.MESSAGE_RECEIVED, ((MessageEnvelope) pastMessage).getSendingNode(),
 //						m.getSender(), l2pNode.getPastryNode(), m.getRecipient(), "Got an envelope for a las2peer message!" );
 
-				// hmmmm, is the problem here??
-				new Thread(new Runnable() {
+				if (m.isResponse()) {
+					// the sender answered a request, so it is registered at the sending node
+					agentLocations.put(m.getSenderId(), envelope.getSendingNode());
+				}
+
+				Object sender = envelope.getSendingNode() != null ? envelope.getSendingNode().getId() : null;
+				submitDelivery(sender, m, new Runnable() {
 					@Override
 					public void run() {
 						try {
 							l2pNode.receiveMessage(m);
+						} catch (AgentNotRegisteredException e) {
+							if (envelope.isTopicFallback() && !m.isTopic()) {
+								// the sender used an outdated location of the recipient
+								logger.info("recipient " + m.getRecipientId() + " not registered here, publishing "
+										+ m.getId() + " to its topic");
+								sendMessage(m);
+							} else {
+								logger.log(Level.WARNING, "Exception while delivering message to the node", e);
+							}
 						} catch (Exception e) {
-							System.out.println("Exception while delivering message to the node: " + e);
-							e.printStackTrace();
+							logger.log(Level.WARNING, "Exception while delivering message to the node", e);
 						}
 					}
-				}).start();
+				});
 
 			} catch (Exception e) {
 				System.out.println("Exception while opening message!: " + e);
@@ -239,14 +283,19 @@ public class NodeApplication implements Application, ScribeMultiClient {
 					(String) null, "");
 
 			// just store the sending node handle
-			HashSet<NodeHandle> pendingCollection = htPendingAgentSearches
+			PendingAgentSearch pendingSearch = htPendingAgentSearches
 					.get(((SearchAnswerMessage) pastMessage).getRequestMessageId());
 
-			if (pendingCollection != null) {
-				pendingCollection.add(((SearchAnswerMessage) pastMessage).getSendingNode());
+			if (pendingSearch != null) {
+				pendingSearch.addAnswer(((SearchAnswerMessage) pastMessage).getSendingNode());
 			} else {
 				logger.warning("got a timed out response or response to a message not sent by me!");
 			}
+		} else if (pastMessage instanceof AnycastClaimMessage) {
+			// another node handles a message sent by anycast
+			AnycastClaimMessage claim = (AnycastClaimMessage) pastMessage;
+			agentLocations.put(claim.getRecipientId(), claim.getSendingNode());
+			l2pNode.anycastClaimed(claim.getMessageId());
 		} else if (pastMessage instanceof GetInfoMessage) {
 			// just send a response
 			GetInfoMessage gim = (GetInfoMessage) pastMessage;
@@ -323,11 +372,53 @@ public class NodeApplication implements Application, ScribeMultiClient {
 	 * @throws MalformedXMLException If the XML data string is malformed
 	 */
 	public void sendMessage(MessageEnvelope m, NodeHandle to) throws MalformedXMLException {
+		sendMessage(m, to, null);
+	}
+
+	/**
+	 * send a message to the given node handle and get notified, if it could not be sent to that node
+	 * 
+	 * @param m A message to send
+	 * @param to A target node handle
+	 * @param notification A notification called after the message was sent or sending failed, may be null
+	 * @throws MalformedXMLException If the XML data string is malformed
+	 */
+	public void sendMessage(MessageEnvelope m, NodeHandle to, DeliveryNotification notification)
+			throws MalformedXMLException {
 		l2pNode.observerNotice(MonitoringEvent.MESSAGE_SENDING, l2pNode.getPastryNode(),
 				m.getContainedMessage().getSender(), to, m.getContainedMessage().getRecipient(), "message: " + m);
 
 		logger.info("\t --> " + this + " sending (encapsulated) message directly to " + to);
-		endpoint.route(null, m, to);
+		endpoint.route(null, m, to, notification);
+	}
+
+	/**
+	 * check if the given node is known to read binary encoded las2peer messages
+	 * 
+	 * @param nh A node handle
+	 * @return true, if messages to the given node may be sent in binary format
+	 */
+	public boolean isBinaryFormatSupported(NodeHandle nh) {
+		return nh != null && binaryFormatNodes.contains(nh.getId());
+	}
+
+	/**
+	 * get a node known to run the given agent
+	 * 
+	 * @param agentId An agent id
+	 * @return a handle of a node running the agent or null, if no location is known
+	 */
+	public NodeHandle getAgentLocation(String agentId) {
+		return agentLocations.get(agentId);
+	}
+
+	/**
+	 * provides access to the agent location cache mostly for testing purposes
+	 * 
+	 * @return the agent location cache of this application
+	 */
+	public AgentLocationCache getAgentLocationCache() {
+		return agentLocations;
 	}
 
 	/**
@@ -352,13 +443,27 @@ public class NodeApplication implements Application, ScribeMultiClient {
 
 		if (!l2pMessage.isTopic()) {
 			scribeClient.publish(getAgentTopic(l2pMessage.getRecipientId()), content);
-			// scribeClient.anycast( getAgentTopic ( l2pMessage.getRecipientId() ), content );
 		} else {
 			scribeClient.publish(getTopic(l2pMessage.getTopicId()), content);
 		}
 
 	}
 
+	/**
+	 * send a {@link i5.las2peer.communication.Message} to a single running instance of its recipient agent
+	 * 
+	 * The first node running the recipient claims the message, see {@link #anycast(Topic, ScribeContent)}.
+	 * 
+	 * @param l2pMessage A message to send
+	 */
+	public void anycastMessage(i5.las2peer.communication.Message l2pMessage) {
+		BroadcastMessageContent content = new BroadcastMessageContent(getLocalHandle(), l2pMessage);
+
+		logger.fine(" --> anycasting Message " + l2pMessage.getId());
+
+		scribeClient.anycast(getAgentTopic(l2pMessage.getRecipientId()), content);
+	}
+
 	@Override
 	public void childAdded(Topic topic, NodeHandle nh) {
 		l2pNode.observerNotice(MonitoringEvent.PASTRY_NEW_TOPIC_CHILD, nh, topic.toString());
@@ -373,11 +478,40 @@ public class NodeApplication implements Application, ScribeMultiClient {
 		// System.out.println(ColoredOutput.colorize("child removed to topic at this node", ForegroundColor.Yellow));
 	}
 
+	/**
+	 * an agent search waiting for answers
+	 */
+	private static class PendingAgentSearch {
+		private final int expectedAnswers;
+		private final HashSet<NodeHandle> answers = new HashSet<>();
+		private final CompletableFuture<Collection<NodeHandle>> future = new CompletableFuture<>();
+
+		private PendingAgentSearch(int expectedAnswers) {
+			this.expectedAnswers = expectedAnswers;
+		}
+
+		private void addAnswer(NodeHandle handle) {
+			synchronized (answers) {
+				answers.add(handle);
+				if (answers.size() < expectedAnswers) {
+					return;
+				}
+			}
+			finish();
+		}
+
+		private void finish() {
+			synchronized (answers) {
+				future.complete(new HashSet<>(answers));
+			}
+		}
+	}
+
 	/**
 	 * look for an agent in the p2p net
 	 * 
-	 * This method broadcasts a search message for the given agent and collects all answers. It tries to wait for
-	 * <i>expectedAnswers</i> nodes to respond to the search.
+	 * This method broadcasts a search message for the given agent and collects all answers. It waits until
+	 * <i>expectedAnswers</i> nodes responded to the search.
 	 * 
 	 * However the search will be aborted after <i>SEARCH_TIMEOUT</i> milliseconds.
 	 * 
@@ -386,47 +520,62 @@ public class NodeApplication implements Application, ScribeMultiClient {
 	 * @return a collections of node handles where the requested agent is registered to
 	 */
 	public Collection<NodeHandle> searchAgent(String agentId, int expectedAnswers) {
+		try {
+			return searchAgentAsync(agentId, expectedAnswers).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return new HashSet<>();
+		} catch (ExecutionException e) {
+			logger.log(Level.WARNING, "agent search failed", e);
+			return new HashSet<>();
+		}
+	}
 
+	/**
+	 * look for an agent in the p2p net without blocking the calling thread
+	 * 
+	 * This method broadcasts a search message for the given agent. The returned future is completed as soon as
+	 * <i>expectedAnswers</i> nodes responded to the search or with all answers received so far after
+	 * <i>SEARCH_TIMEOUT</i> milliseconds.
+	 * 
+	 * @param agentId An agent id to search for
+	 * @param expectedAnswers Amount of expected answers
+	 * @return a future for the collection of node handles where the requested agent is registered to
+	 */
+	public CompletableFuture<Collection<NodeHandle>> searchAgentAsync(String agentId, int expectedAnswers) {
 		Topic agentTopic = getAgentTopic(agentId);
 
-		System.out.println("Topic info:");
-		System.out.println("root: " + scribeClient.isRoot(agentTopic));
-		System.out.println("parent: " + scribeClient.getParent(agentTopic));
-		// System.out.println( "children: " + scribeClient.getChildren(agentTopic).length );
-
-		for (NodeHandle nh : scribeClient.getChildrenOfTopic(getAgentTopic(agentId))) {
-			System.out.println("Child in search: " + nh);
-		}
-
 		l2pNode.observerNotice(MonitoringEvent.AGENT_SEARCH_STARTED, this.l2pNode.getNodeId(), agentId, null,
-				(String) null, "(" + expectedAnswers + ") - topic: " + getAgentTopic(agentId));
+				(String) null, "(" + expectedAnswers + ") - topic: " + agentTopic);
 
 		SearchAgentContent search = new SearchAgentContent(getLocalHandle(), agentId);
-		HashSet<NodeHandle> resultSet = new HashSet<>();
-		htPendingAgentSearches.put(search.getRandomId(), resultSet);
-
-		// publish a message to search the agent registers
-		scribeClient.publish(agentTopic, search);
-		// scribeClient.anycast( agentTopic,search );
+		PendingAgentSearch pending = new PendingAgentSearch(expectedAnswers);
+		htPendingAgentSearches.put(search.getRandomId(), pending);
 
-		long timeout = new Date().getTime() + SEARCH_TIMEOUT;
+		CompletableFuture<Collection<NodeHandle>> result = pending.future.whenComplete((resultSet, e) -> {
+			htPendingAgentSearches.remove(search.getRandomId());
 
-		// todo: use a waiterThread here
-		while (new Date().getTime() <= timeout && resultSet.size() < expectedAnswers) {
-			try {
-				System.out.println("\t\t waiting for agent-search (" + agentId + ") - "
-						+ (-new Date().getTime() + timeout) / 1000 + "s left");
-				Thread.sleep(SEARCH_SLEEP_TIME);
-			} catch (InterruptedException e) {
+			if (resultSet != null && !resultSet.isEmpty()) {
+				agentLocations.put(agentId, resultSet.iterator().next());
 			}
+
+			l2pNode.observerNotice(MonitoringEvent.AGENT_SEARCH_FINISHED, this.l2pNode.getNodeId(), agentId, null,
+					(String) null, "" + (resultSet != null ? resultSet.size() : 0));
+		});
+
+		if (expectedAnswers < 1) {
+			pending.finish();
+			return result;
 		}
 
-		htPendingAgentSearches.remove(search.getRandomId());
+		TimingWheel.Timeout timeout = l2pNode.scheduleTimeout(SEARCH_TIMEOUT, pending::finish);
+		pending.future.whenComplete((resultSet, e) -> timeout.cancel());
 
-		l2pNode.observerNotice(MonitoringEvent.AGENT_SEARCH_FINISHED, this.l2pNode.getNodeId(), agentId, null,
-				(String) null, "" + resultSet.size());
+		// publish a message to search the agent registers
+		scribeClient.publish(agentTopic, search);
+		// scribeClient.anycast( agentTopic,search );
 
-		return resultSet;
+		return result;
 	}
 
 	/**
@@ -474,27 +623,18 @@ public class NodeApplication implements Application, ScribeMultiClient {
 		} else if (content instanceof AgentJoinedContent) {
 			logger.info(
 					"\t\t<--- got notification about agent joining: " + ((AgentJoinedContent) content).getAgentId());
+			agentLocations.put(((AgentJoinedContent) content).getAgentId(), ((AgentJoinedContent) content).getOrigin());
 		} else if (content instanceof BroadcastMessageContent) {
 			final BroadcastMessageContent c = (BroadcastMessageContent) content;
 
-			// or is the storage problem here?
-			new Thread(new Runnable() {
-				@Override
-				public void run() {
-					try {
-						l2pNode.receiveMessage(c.getMessage());
-					} catch (MalformedXMLException e) {
-						logger.severe("unable to open BroadcastMessageContent!");
-					} catch (MessageException e) {
-						logger.log(Level.SEVERE, "MessageException while handling received message!", e);
-					} catch (AgentNotRegisteredException e) {
-						logger.severe("AgentNotKnown!?! - I shouldn't have gotten this message!");
-					} catch (AgentException e) {
-						logger.log(Level.SEVERE, "Got a message for an agent, but he failed!", e);
-					}
-				}
-
-			}).start();
+			final i5.las2peer.communication.Message m;
+			try {
+				m = c.getMessage();
+			} catch (MalformedXMLException e) {
+				logger.severe("unable to open BroadcastMessageContent!");
+				return;
+			}
+			deliverBroadcast(c, m);
 		} else {
 			l2pNode.observerNotice(MonitoringEvent.MESSAGE_RECEIVED_UNKNOWN, this.l2pNode.getNodeId(),
 					"got an unknown message of type " + content.getClass().getName());
@@ -502,6 +642,74 @@ public class NodeApplication implements Application, ScribeMultiClient {
 		}
 	}
 
+	/**
+	 * hand a message received via Scribe over to the delivery stage
+	 * 
+	 * @param c The received content
+	 * @param m The message contained in the content
+	 * @return true, if the message was accepted for delivery
+	 */
+	private boolean deliverBroadcast(BroadcastMessageContent c, final i5.las2peer.communication.Message m) {
+		m.setPriority(c.getPriority());
+
+		if (m.isResponse()) {
+			agentLocations.put(m.getSenderId(), c.getOrigin());
+		}
+
+		Object sender = c.getOrigin() != null ? c.getOrigin().getId() : null;
+		return submitDelivery(sender, m, new Runnable() {
+			@Override
+			public void run() {
+				try {
+					l2pNode.receiveMessage(m);
+				} catch (MessageException e) {
+					logger.log(Level.SEVERE, "MessageException while handling received message!", e);
+				} catch (AgentNotRegisteredException e) {
+					logger.severe("AgentNotKnown!?! - I shouldn't have gotten this message!");
+				} catch (AgentException e) {
+					logger.log(Level.SEVERE, "Got a message for an agent, but he failed!", e);
+				}
+			}
+
+		});
+	}
+
+	/**
+	 * hand a received message over to the delivery stage without blocking the network thread, responses are never
+	 * rejected by a saturated queue and the message priority decides the delivery order
+	 * 
+	 * See {@link i5.las2peer.p2p.Node#getDeliveryPriority(i5.las2peer.communication.Message)} for the priority.
+	 * 
+	 * @param sender An id of the sending node or null, if unknown
+	 * @param m The received message
+	 * @param delivery A task delivering the message to the node
+	 * @return true, if the message was accepted for delivery
+	 */
+	private boolean submitDelivery(Object sender, i5.las2peer.communication.Message m, Runnable delivery) {
+		if (!deliveryExecutor.submit(sender, delivery, m.isResponse(), l2pNode.getDeliveryPriority(m))) {
+			l2pNode.observerNotice(MonitoringEvent.MESSAGE_FAILED, l2pNode.getNodeId(), m.getSenderId(), null,
+					m.getRecipientId(), "delivery queue saturated, message " + m.getId() + " dropped");
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * get the delivery stage of this application, e.g. to monitor its queue depth and wait times
+	 * 
+	 * @return the delivery executor
+	 */
+	public DeliveryExecutor getDeliveryExecutor() {
+		return deliveryExecutor;
+	}
+
+	/**
+	 * stop the delivery of received messages
+	 */
+	public void shutdown() {
+		deliveryExecutor.shutdown();
+	}
+
 	@Override
 	public void subscribeFailed(Topic topic) {
 		logger.warning("topic '" + topic.getId() + "' subscription failed");
@@ -579,6 +787,29 @@ public class NodeApplication implements Application, ScribeMultiClient {
 
 	@Override
 	public boolean anycast(Topic topic, ScribeContent content) {
+		if (content instanceof BroadcastMessageContent) {
+			// claim the message, if its recipient is running here
+			BroadcastMessageContent c = (BroadcastMessageContent) content;
+			i5.las2peer.communication.Message m;
+			try {
+				m = c.getMessage();
+			} catch (MalformedXMLException e) {
+				logger.severe("unable to open BroadcastMessageContent!");
+				return false;
+			}
+			if (m.isTopic() || !l2pNode.hasLocalAgent(m.getRecipientId())) {
+				return false;
+			}
+			// claim it only after it was accepted for delivery, otherwise the origin has to keep its fallback
+			if (!deliverBroadcast(c, m)) {
+				return false;
+			}
+			if (c.getOrigin() != null) {
+				sendMessageDirectly(new AnycastClaimMessage(getLocalHandle(), m.getId(), m.getRecipientId()),
+						c.getOrigin());
+			}
+			return true;
+		}
 		try {
 			deliver(topic, content);
 			return true;
@@ -0,0 +1,191 @@
+package i5.las2peer.persistency;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded in-memory cache of recently fetched or stored envelopes.
+ *
+ * Only the latest known version of an identifier is kept. Entries expire after a time to live and the least recently
+ * used entries are evicted, if the estimated size of all entries exceeds the size limit.
+ *
+ * Requests for the latest version of a cached envelope are answered without asking the network. So a version stored
+ * by another node may be missed until the entry expires, that is why the cache is disabled by default.
+ *
+ */
+public class EnvelopeCache {
+
+	/**
+	 * estimated serialized size of an envelope besides its content, like identifier, author key and signature
+	 */
+	private static final int ENVELOPE_OVERHEAD = 2048;
+
+	/**
+	 * estimated serialized size of the encrypted content key of a single reader
+	 */
+	private static final int READER_OVERHEAD = 1024;
+
+	private static class Entry {
+		private final EnvelopeVersion envelope;
+		private final long size;
+		private final long expires;
+
+		private Entry(EnvelopeVersion envelope, long size, long expires) {
+			this.envelope = envelope;
+			this.size = size;
+			this.expires = expires;
+		}
+	}
+
+	private final long maxSize;
+	private volatile long timeToLive;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long size = 0;
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * create a new cache
+	 *
+	 * @param maxSize The maximum estimated size of all cached envelopes in bytes, 0 disables the cache
+	 * @param timeToLive The time in milliseconds an envelope is served from the cache, 0 disables the cache
+	 */
+	public EnvelopeCache(long maxSize, long timeToLive) {
+		this.maxSize = maxSize;
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * set the time an envelope is served from the cache, which is also the time a newer version stored by another
+	 * node may be missed
+	 *
+	 * @param timeToLive A time in milliseconds, 0 disables the cache
+	 */
+	public void setTimeToLive(long timeToLive) {
+		this.timeToLive = timeToLive;
+		if (timeToLive <= 0) {
+			clear();
+		}
+	}
+
+	public long getTimeToLive() {
+		return timeToLive;
+	}
+
+	/**
+	 * @return true if envelopes are cached at all
+	 */
+	public boolean isEnabled() {
+		return maxSize > 0 && timeToLive > 0;
+	}
+
+	/**
+	 * get the cached version of an envelope
+	 *
+	 * @param identifier An envelope identifier
+	 * @return the latest known version or null, if the identifier is not cached or the entry has expired
+	 */
+	public synchronized EnvelopeVersion get(String identifier) {
+		Entry entry = entries.get(identifier);
+		if (entry == null) {
+			misses++;
+			return null;
+		} else if (entry.expires <= System.currentTimeMillis()) {
+			remove(identifier);
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.envelope;
+	}
+
+	/**
+	 * put an envelope into the cache, unless a newer version is already cached
+	 *
+	 * @param envelope A fetched or stored envelope
+	 */
+	public void put(EnvelopeVersion envelope) {
+		if (!isEnabled()) {
+			return;
+		}
+		long envelopeSize = estimateSize(envelope);
+		if (envelopeSize > maxSize) {
+			return;
+		}
+		synchronized (this) {
+			Entry existing = entries.get(envelope.getIdentifier());
+			if (existing != null && existing.envelope.getVersion() > envelope.getVersion()) {
+				return;
+			}
+			remove(envelope.getIdentifier());
+			entries.put(envelope.getIdentifier(),
+					new Entry(envelope, envelopeSize, System.currentTimeMillis() + timeToLive));
+			size += envelopeSize;
+			// evict least recently used entries
+			Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+			while (size > maxSize && it.hasNext()) {
+				size -= it.next().getValue().size;
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * estimate the serialized size of an envelope without serializing it
+	 *
+	 * @param envelope An envelope
+	 * @return the estimated size in bytes
+	 */
+	static long estimateSize(EnvelopeVersion envelope) {
+		int readers = envelope.getReaderKeys() != null ? envelope.getReaderKeys().size() : 0;
+		return envelope.getRawContentLength() + ENVELOPE_OVERHEAD + (long) readers * READER_OVERHEAD;
+	}
+
+	/**
+	 * remove an envelope from the cache, e.g. because a newer version exists
+	 *
+	 * @param identifier An envelope identifier
+	 */
+	public synchronized void invalidate(String identifier) {
+		remove(identifier);
+	}
+
+	/**
+	 * remove all envelopes from the cache
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		size = 0;
+	}
+
+	private void remove(String identifier) {
+		Entry removed = entries.remove(identifier);
+		if (removed != null) {
+			size -= removed.size;
+		}
+	}
+
+	/**
+	 * @return the number of cached envelopes
+	 */
+	public synchronized int getCount() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the estimated size of all cached envelopes in bytes
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+}
@@ -33,6 +33,7 @@ import i5.las2peer.serialization.XmlAble;
 import i5.las2peer.serialization.XmlTools;
 import i5.las2peer.tools.CryptoException;
 import i5.las2peer.tools.CryptoTools;
+import i5.las2peer.tools.PayloadCompressor;
 
 public class EnvelopeVersion implements Serializable, XmlAble {
 
@@ -69,16 +70,20 @@ public class EnvelopeVersion implements Serializable, XmlAble {
 	private final HashMap<PublicKey, byte[]> readerKeys;
 	private final HashSet<String> readerGroupIds;
 	private final byte[] rawContent;
+	// null for envelopes serialized before compression was introduced
+	private final PayloadCompressor.Algorithm compression;
 
 	// just for the XML factory method
 	private EnvelopeVersion(String identifier, long version, PublicKey authorPubKey,
-			HashMap<PublicKey, byte[]> readerKeys, HashSet<String> readerGroupIds, byte[] rawContent) {
+			HashMap<PublicKey, byte[]> readerKeys, HashSet<String> readerGroupIds, byte[] rawContent,
+			PayloadCompressor.Algorithm compression) {
 		this.identifier = identifier;
 		this.version = version;
 		this.authorPubKey = authorPubKey;
 		this.readerKeys = readerKeys;
 		this.readerGroupIds = readerGroupIds;
 		this.rawContent = rawContent;
+		this.compression = compression;
 	}
 
 	/**
@@ -167,10 +172,13 @@ public class EnvelopeVersion implements Serializable, XmlAble {
 		this.authorPubKey = authorPubKey;
 		readerKeys = new HashMap<>();
 		readerGroupIds = new HashSet<>(readerGroups);
+		// compress before encryption, encrypted data does not compress
+		PayloadCompressor.Payload payload = PayloadCompressor.getInstance().compress(SerializeTools.serialize(content));
+		compression = payload.getAlgorithm();
 		if (readers != null && !readers.isEmpty()) {
 			// we have a non empty set of readers, lets encrypt!
 			SecretKey contentKey = CryptoTools.generateSymmetricKey();
-			rawContent = CryptoTools.encryptSymmetric(content, contentKey);
+			rawContent = CryptoTools.encryptSymmetric(payload.getData(), contentKey);
 			for (Object reader : readers) {
 				if (reader instanceof GroupAgentImpl) {
 					AgentImpl agent = (AgentImpl) reader;
@@ -202,7 +210,7 @@ public class EnvelopeVersion implements Serializable, XmlAble {
 			}
 		} else {
 			// unencrypted envelope
-			rawContent = SerializeTools.serialize(content);
+			rawContent = payload.getData();
 		}
 	}
 
@@ -238,6 +246,15 @@ public class EnvelopeVersion implements Serializable, XmlAble {
 		return identifier + "#" + version;
 	}
 
+	/**
+	 * Gets the algorithm the content of this envelope is compressed with.
+	 * 
+	 * @return Returns the compression algorithm or null, if the envelope was created before compression was introduced.
+	 */
+	public PayloadCompressor.Algorithm getCompression() {
+		return compression;
+	}
+
 	public boolean isEncrypted() {
 		return readerKeys != null && !readerKeys.isEmpty();
 	}
@@ -246,6 +263,31 @@ public class EnvelopeVersion implements Serializable, XmlAble {
 		return readerKeys;
 	}
 
+	/**
+	 * get this envelope with uncompressed content, e.g. to store it in content-defined chunks, which would all change
+	 * with any change of a compressed content
+	 *
+	 * @return this envelope, if it is not compressed, otherwise a copy with the uncompressed content
+	 * @throws IllegalStateException If the envelope is encrypted, so its content can not be decompressed
+	 * @throws SerializationException If the content can not be decompressed
+	 */
+	EnvelopeVersion withoutCompression() throws SerializationException {
+		if (compression == PayloadCompressor.Algorithm.NONE) {
+			return this;
+		} else if (isEncrypted()) {
+			throw new IllegalStateException("The content of an encrypted envelope can not be decompressed");
+		}
+		return new EnvelopeVersion(identifier, version, authorPubKey, readerKeys, readerGroupIds,
+				PayloadCompressor.getInstance().decompress(rawContent, compression), PayloadCompressor.Algorithm.NONE);
+	}
+
+	/**
+	 * @return the length of the stored, possibly compressed and encrypted, content in bytes
+	 */
+	int getRawContentLength() {
+		return rawContent.length;
+	}
+
 	public Set<String> getReaderGroupIds() {
 		// return shallow copy to avoid manipulation
 		return new HashSet<>(readerGroupIds);
@@ -261,7 +303,8 @@ public class EnvelopeVersion implements Serializable, XmlAble {
 			} catch (IllegalStateException e) {
 				logger.log(Level.FINER, "Could not get service class loader using default. " + e.toString());
 			}
-			return SerializeTools.deserialize(rawContent, clsLoader);
+			return SerializeTools.deserialize(PayloadCompressor.getInstance().decompress(rawContent, compression),
+					clsLoader);
 		}
 	}
 
@@ -312,7 +355,8 @@ public class EnvelopeVersion implements Serializable, XmlAble {
 		} catch (IllegalStateException e) {
 			logger.log(Level.FINER, "Could not get service class loader using default. " + e.toString());
 		}
-		return SerializeTools.deserialize(decrypted, clsLoader);
+		return SerializeTools.deserialize(PayloadCompressor.getInstance().decompress(decrypted, compression),
+				clsLoader);
 	}
 
 	/**
@@ -328,8 +372,12 @@ public class EnvelopeVersion implements Serializable, XmlAble {
 		} catch (CryptoException e) {
 			throw new SerializationException("Could not convert author public key to String", e);
 		}
-		result.append("\t<las2peer:content encoding=\"Base64\">").append(Base64.getEncoder().encodeToString(rawContent))
-				.append("</las2peer:content>\n");
+		String compressionAttribute = "";
+		if (compression != null && compression != PayloadCompressor.Algorithm.NONE) {
+			compressionAttribute = " compression=\"" + compression.getName() + "\"";
+		}
+		result.append("\t<las2peer:content encoding=\"Base64\"" + compressionAttribute + ">")
+				.append(Base64.getEncoder().encodeToString(rawContent)).append("</las2peer:content>\n");
 		result.append(
 				"\t<las2peer:keys encoding=\"base64\" encryption=\"" + CryptoTools.getAsymmetricAlgorithm() + "\">\n");
 		for (Entry<PublicKey, byte[]> readerKey : readerKeys.entrySet()) {
@@ -384,6 +432,12 @@ public class EnvelopeVersion implements Serializable, XmlAble {
 			throw new MalformedXMLException("base 64 encoding of the content expected");
 		}
 		byte[] rawContent = Base64.getDecoder().decode(content.getTextContent());
+		PayloadCompressor.Algorithm compression;
+		try {
+			compression = PayloadCompressor.Algorithm.fromName(content.getAttribute("compression"));
+		} catch (SerializationException e) {
+			throw new MalformedXMLException("unsupported content compression", e);
+		}
 		// read reader keys from XML
 		Element keys = XmlTools.getSingularElement(rootElement, "las2peer:keys");
 		if (!keys.getAttribute("encoding").equalsIgnoreCase("base64")) {
@@ -436,7 +490,8 @@ public class EnvelopeVersion implements Serializable, XmlAble {
 			String groupId = group.getAttribute("id");
 			readerGroupIds.add(groupId);
 		}
-		return new EnvelopeVersion(identifier, version, authorPubKey, readerKeys, readerGroupIds, rawContent);
+		return new EnvelopeVersion(identifier, version, authorPubKey, readerKeys, readerGroupIds, rawContent,
+				compression);
 	}
 
 	/**
@@ -3,6 +3,8 @@ package i5.las2peer.persistency;
 import java.io.Serializable;
 import java.security.PublicKey;
 import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import i5.las2peer.api.persistency.EnvelopeAlreadyExistsException;
 import i5.las2peer.api.persistency.EnvelopeException;
@@ -149,6 +151,17 @@ public interface L2pStorageInterface {
 	public void storeEnvelopeAsync(EnvelopeVersion Envelope, AgentImpl author, StorageStoreResultHandler resultHandler,
 			StorageCollisionHandler collisionHandler, StorageExceptionHandler exceptionHandler);
 
+	/**
+	 * Stores the given Envelope in the network. The content is signed with the key from the given author. Collisions
+	 * are not merged, but complete the returned future with an {@link EnvelopeAlreadyExistsException}.
+	 * 
+	 * @param envelope The Envelope to store in the network.
+	 * @param author The author that is used to sign the content.
+	 * @return Returns a future that is completed with the number of successful store operations, if the operation
+	 *         terminates, or with the exception that canceled the operation.
+	 */
+	public CompletableFuture<Integer> storeEnvelopeAsync(EnvelopeVersion envelope, AgentImpl author);
+
 	/**
 	 * Fetches the latest version for the given identifier from the network.
 	 * 
@@ -171,6 +184,25 @@ public interface L2pStorageInterface {
 	public void fetchEnvelopeAsync(String identifier, StorageEnvelopeHandler envelopeHandler,
 			StorageExceptionHandler exceptionHandler);
 
+	/**
+	 * Fetches the latest version for the given identifier from the network.
+	 * 
+	 * @param identifier An unique identifier for the Envelope.
+	 * @return Returns a future that is completed with the fetched Envelope or with an exception, e.g. an
+	 *         {@link EnvelopeNotFoundException}.
+	 */
+	public CompletableFuture<EnvelopeVersion> fetchEnvelopeAsync(String identifier);
+
+	/**
+	 * Fetches the latest versions for the given identifiers from the network. The lookups run in parallel and each
+	 * future is completed as soon as its Envelope is fetched, independent of the other identifiers.
+	 * 
+	 * @param identifiers The unique identifiers of the Envelopes.
+	 * @return Returns a map in iteration order of the given identifiers with a future for each identifier. The future
+	 *         is completed with the fetched Envelope or with an exception, e.g. an {@link EnvelopeNotFoundException}.
+	 */
+	public Map<String, CompletableFuture<EnvelopeVersion>> fetchEnvelopes(Collection<String> identifiers);
+
 	/**
 	 * Removes the envelope with the given identifier from the network.
 	 * 
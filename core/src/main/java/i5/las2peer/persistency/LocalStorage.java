@@ -5,12 +5,17 @@ import java.security.PublicKey;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 import i5.las2peer.api.persistency.EnvelopeAlreadyExistsException;
 import i5.las2peer.api.persistency.EnvelopeException;
 import i5.las2peer.api.persistency.EnvelopeNotFoundException;
+import i5.las2peer.persistency.helper.FetchEnvelopeHelper;
+import i5.las2peer.persistency.helper.StoreProcessHelper;
 import i5.las2peer.security.AgentImpl;
 import i5.las2peer.serialization.SerializationException;
 import i5.las2peer.tools.CryptoException;
@@ -113,6 +118,13 @@ public class LocalStorage implements L2pStorageInterface {
 		}
 	}
 
+	@Override
+	public CompletableFuture<Integer> storeEnvelopeAsync(EnvelopeVersion envelope, AgentImpl author) {
+		StoreProcessHelper resultHelper = new StoreProcessHelper();
+		storeEnvelopeAsync(envelope, author, resultHelper, resultHelper, resultHelper);
+		return resultHelper.getFuture();
+	}
+
 	@Override
 	public EnvelopeVersion fetchEnvelope(String identifier, long timeoutMs) throws EnvelopeException {
 		EnvelopeVersion inStorage = storedEnvelopes.get(identifier);
@@ -138,6 +150,22 @@ public class LocalStorage implements L2pStorageInterface {
 		}
 	}
 
+	@Override
+	public CompletableFuture<EnvelopeVersion> fetchEnvelopeAsync(String identifier) {
+		FetchEnvelopeHelper resultHelper = new FetchEnvelopeHelper();
+		fetchEnvelopeAsync(identifier, resultHelper, resultHelper);
+		return resultHelper.getFuture();
+	}
+
+	@Override
+	public Map<String, CompletableFuture<EnvelopeVersion>> fetchEnvelopes(Collection<String> identifiers) {
+		LinkedHashMap<String, CompletableFuture<EnvelopeVersion>> results = new LinkedHashMap<>();
+		for (String identifier : identifiers) {
+			results.computeIfAbsent(identifier, this::fetchEnvelopeAsync);
+		}
+		return results;
+	}
+
 	@Override
 	public void removeEnvelope(String identifier) throws EnvelopeException {
 		EnvelopeVersion inStorage = storedEnvelopes.remove(identifier);
@@ -1,6 +1,9 @@
 package i5.las2peer.persistency;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class MetadataEnvelope implements Serializable {
 
@@ -9,11 +12,28 @@ public class MetadataEnvelope implements Serializable {
 	private final String envelopeIdentifier;
 	private final long envelopeVersion;
 	private final int numOfEnvelopeParts;
+	// null for envelopes stored in numbered parts, missing in metadata written by older versions
+	private final ArrayList<byte[]> chunkHashes;
 
 	public MetadataEnvelope(String envelopeIdentifier, long envelopeVersion, int numOfEnvelopeParts) {
 		this.envelopeIdentifier = envelopeIdentifier;
 		this.envelopeVersion = envelopeVersion;
 		this.numOfEnvelopeParts = numOfEnvelopeParts;
+		this.chunkHashes = null;
+	}
+
+	/**
+	 * Creates the metadata for an envelope stored in content-addressed chunks.
+	 * 
+	 * @param envelopeIdentifier The identifier of the envelope.
+	 * @param envelopeVersion The version of the envelope.
+	 * @param chunkHashes The secure hashes of all chunks in order.
+	 */
+	public MetadataEnvelope(String envelopeIdentifier, long envelopeVersion, List<byte[]> chunkHashes) {
+		this.envelopeIdentifier = envelopeIdentifier;
+		this.envelopeVersion = envelopeVersion;
+		this.numOfEnvelopeParts = chunkHashes.size();
+		this.chunkHashes = new ArrayList<>(chunkHashes);
 	}
 
 	public String getEnvelopeIdentifier() {
@@ -28,6 +48,20 @@ public class MetadataEnvelope implements Serializable {
 		return numOfEnvelopeParts;
 	}
 
+	/**
+	 * @return true if the envelope is stored in content-addressed chunks instead of numbered parts
+	 */
+	public boolean isChunked() {
+		return chunkHashes != null;
+	}
+
+	/**
+	 * @return the secure hashes of all chunks in order or null, if the envelope is not chunked
+	 */
+	public List<byte[]> getChunkHashes() {
+		return chunkHashes == null ? null : Collections.unmodifiableList(chunkHashes);
+	}
+
 	@Override
 	public String toString() {
 		return MetadataArtifact.getMetadataIdentifier(envelopeIdentifier, envelopeVersion);
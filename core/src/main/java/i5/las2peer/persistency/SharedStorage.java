@@ -1,35 +1,49 @@
 package i5.las2peer.persistency;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.security.PublicKey;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Random;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.logging.Level;
 
 import i5.las2peer.api.Configurable;
 import i5.las2peer.api.persistency.EnvelopeAlreadyExistsException;
 import i5.las2peer.api.persistency.EnvelopeException;
 import i5.las2peer.api.persistency.EnvelopeNotFoundException;
 import i5.las2peer.logging.L2pLogger;
-import i5.las2peer.persistency.helper.ArtifactPartComparator;
+import i5.las2peer.persistency.helper.ChunkCache;
 import i5.las2peer.persistency.helper.FetchEnvelopeHelper;
 import i5.las2peer.persistency.helper.FetchHashedHelper;
 import i5.las2peer.persistency.helper.LatestArtifactVersionFinder;
 import i5.las2peer.persistency.helper.MergeCounter;
-import i5.las2peer.persistency.helper.MultiArtifactHandler;
-import i5.las2peer.persistency.helper.MultiStoreResult;
+import i5.las2peer.persistency.helper.PartsInputStream;
+import i5.las2peer.persistency.helper.PartsOutputStream;
 import i5.las2peer.persistency.helper.StoreProcessHelper;
+import i5.las2peer.persistency.pastry.LogStructuredStorage;
 import i5.las2peer.persistency.pastry.PastFetchContinuation;
 import i5.las2peer.persistency.pastry.PastInsertContinuation;
 import i5.las2peer.persistency.pastry.PastLookupContinuation;
@@ -37,6 +51,7 @@ import i5.las2peer.security.AgentImpl;
 import i5.las2peer.serialization.SerializationException;
 import i5.las2peer.serialization.SerializeTools;
 import i5.las2peer.tools.CryptoException;
+import i5.las2peer.tools.CryptoTools;
 import rice.p2p.commonapi.Id;
 import rice.p2p.commonapi.IdFactory;
 import rice.p2p.commonapi.Node;
@@ -54,11 +69,13 @@ import rice.persistence.StorageManagerImpl;
 public class SharedStorage extends Configurable implements L2pStorageInterface {
 
 	/**
-	 * Storage mode for the pastry node &ndash; either use only memory or the file system for stored artifacts.
+	 * Storage mode for the pastry node &ndash; either use only memory, one file per artifact or an append-only log on
+	 * the file system for stored artifacts.
 	 */
 	public enum STORAGE_MODE {
 		FILESYSTEM,
 		MEMORY,
+		LOG_STRUCTURED,
 	}
 
 	private static final L2pLogger logger = L2pLogger.getInstance(SharedStorage.class);
@@ -75,21 +92,62 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 	public static final long DEFAULT_MAXIMUM_STORAGE_SIZE = 1000 * 1024 * 1024; // 1 GB
 	private long maximumStorageSize = DEFAULT_MAXIMUM_STORAGE_SIZE;
 
-	public static final long DEFAULT_ASYNC_INSERT_OPERATION_TIMEOUT = 5 * 60 * 1000 * 1000; // ms => 5 min
+	public static final long DEFAULT_LOG_SEGMENT_SIZE = 64 * 1024 * 1024; // 64 MB
+	private long logSegmentSize = DEFAULT_LOG_SEGMENT_SIZE;
+
+	public static final double DEFAULT_LOG_COMPACTION_THRESHOLD = 0.5;
+	private double logCompactionThreshold = DEFAULT_LOG_COMPACTION_THRESHOLD;
+
+	public static final long DEFAULT_LOG_MAINTENANCE_INTERVAL = 60 * 1000; // ms => 1 min
+	private long logMaintenanceInterval = DEFAULT_LOG_MAINTENANCE_INTERVAL;
+
+	public static final long DEFAULT_ASYNC_INSERT_OPERATION_TIMEOUT = 5 * 60 * 1000; // ms => 5 min
 	private long asyncInsertOperationTimeout = DEFAULT_ASYNC_INSERT_OPERATION_TIMEOUT;
 
+	public static final long DEFAULT_ENVELOPE_CACHE_SIZE = 16 * 1024 * 1024; // 16 MB
+	private long envelopeCacheSize = DEFAULT_ENVELOPE_CACHE_SIZE;
+
+	// disabled, since a cached envelope hides newer versions stored by other nodes until it expires
+	public static final long DEFAULT_ENVELOPE_CACHE_TTL = 0; // ms
+	private long envelopeCacheTtl = DEFAULT_ENVELOPE_CACHE_TTL;
+
+	public static final int DEFAULT_PART_FETCH_PARALLELISM = 4;
+	private int partFetchParallelism = DEFAULT_PART_FETCH_PARALLELISM;
+
+	public static final long DEFAULT_PART_FETCH_TIMEOUT = 60 * 1000; // ms => 1 min
+	private long partFetchTimeout = DEFAULT_PART_FETCH_TIMEOUT;
+
+	public static final int DEFAULT_PART_INSERT_PARALLELISM = 4;
+	private int partInsertParallelism = DEFAULT_PART_INSERT_PARALLELISM;
+
+	public static final long DEFAULT_PART_INSERT_TIMEOUT = 60 * 1000; // ms => 1 min
+	private long partInsertTimeout = DEFAULT_PART_INSERT_TIMEOUT;
+
+	public static final int DEFAULT_BATCH_FETCH_PARALLELISM = 16;
+	private int batchFetchParallelism = DEFAULT_BATCH_FETCH_PARALLELISM;
+
+	public static final boolean DEFAULT_CONTENT_DEFINED_CHUNKING = false;
+	private boolean contentDefinedChunking = DEFAULT_CONTENT_DEFINED_CHUNKING;
+
+	public static final long DEFAULT_CHUNK_CACHE_SIZE = 32 * 1024 * 1024; // 32 MB
+	private long chunkCacheSize = DEFAULT_CHUNK_CACHE_SIZE;
+
 	private final PastImpl pastStorage;
 	private final PastryIdFactory artifactIdFactory;
 	private final ExecutorService threadpool;
 	private final ConcurrentHashMap<String, Long> versionCache;
+	private final EnvelopeCache envelopeCache;
+	private final ChunkCache chunkCache;
+	private final AtomicLong insertedChunks = new AtomicLong();
 
 	public SharedStorage(Node node, STORAGE_MODE storageMode, ExecutorService threadpool, String storageDir)
 			throws EnvelopeException {
+		setFieldValues();
 		IdFactory pastIdFactory = new PastryIdFactory(node.getEnvironment());
 		Storage storage;
 		if (storageMode == STORAGE_MODE.MEMORY) {
 			storage = new MemoryStorage(pastIdFactory);
-		} else if (storageMode == STORAGE_MODE.FILESYSTEM) {
+		} else if (storageMode == STORAGE_MODE.FILESYSTEM || storageMode == STORAGE_MODE.LOG_STRUCTURED) {
 			if (storageDir != null) {
 				storageRootDir = storageDir;
 			}
@@ -99,8 +157,15 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 			try {
 				logger.info("loading storage...");
 				long start = System.currentTimeMillis();
-				storage = new PersistentStorage(pastIdFactory, storageRootDir + "node_" + node.getId().toStringFull(),
-						maximumStorageSize, node.getEnvironment());
+				if (storageMode == STORAGE_MODE.LOG_STRUCTURED) {
+					storage = new LogStructuredStorage(pastIdFactory,
+							storageRootDir + "log_node_" + node.getId().toStringFull(), maximumStorageSize,
+							logSegmentSize, logCompactionThreshold, logMaintenanceInterval);
+				} else {
+					storage = new PersistentStorage(pastIdFactory,
+							storageRootDir + "node_" + node.getId().toStringFull(), maximumStorageSize,
+							node.getEnvironment());
+				}
 				long timediff = System.currentTimeMillis() - start;
 				logger.info("storage ready, loading took " + timediff + "ms");
 			} catch (IOException e) {
@@ -116,6 +181,41 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 		artifactIdFactory = new PastryIdFactory(node.getEnvironment());
 		this.threadpool = threadpool;
 		versionCache = new ConcurrentHashMap<>();
+		envelopeCache = new EnvelopeCache(envelopeCacheSize, envelopeCacheTtl);
+		chunkCache = new ChunkCache(chunkCacheSize);
+	}
+
+	/**
+	 * Sets if envelopes are stored in content-addressed chunks. Chunks that did not change since a previous version
+	 * are not uploaded again. Both formats can be read regardless of this setting.
+	 * 
+	 * Chunked envelopes are stored without payload compression. Encrypted envelopes are always stored in parts, since
+	 * their content is encrypted with a new key for each version.
+	 * 
+	 * @param contentDefinedChunking true to store envelopes in content-defined chunks
+	 */
+	public void setContentDefinedChunking(boolean contentDefinedChunking) {
+		this.contentDefinedChunking = contentDefinedChunking;
+	}
+
+	public boolean isContentDefinedChunking() {
+		return contentDefinedChunking;
+	}
+
+	/**
+	 * @return the number of chunks this storage has inserted into the network, skipped chunks are not counted
+	 */
+	long getInsertedChunkCount() {
+		return insertedChunks.get();
+	}
+
+	/**
+	 * get the cache of recently fetched and stored envelopes, which is disabled unless a time to live is set
+	 * 
+	 * @return the envelope cache of this storage
+	 */
+	public EnvelopeCache getEnvelopeCache() {
+		return envelopeCache;
 	}
 
 	public long getLocalSize() {
@@ -127,7 +227,7 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 		if (storage instanceof MemoryStorage) {
 			// return max ram size
 			return Runtime.getRuntime().maxMemory();
-		} else if (storage instanceof PersistentStorage) {
+		} else if (storage instanceof PersistentStorage || storage instanceof LogStructuredStorage) {
 			return maximumStorageSize;
 		} else {
 			logger.severe("Unknown storage type. Could not determine storage size");
@@ -135,26 +235,64 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 		}
 	}
 
+	/**
+	 * Closes the local storage. A log-structured storage persists its index, so the next startup is fast.
+	 */
+	public void close() {
+		Storage storage = pastStorage.getStorageManager().getStorage();
+		if (storage instanceof LogStructuredStorage) {
+			try {
+				((LogStructuredStorage) storage).close();
+			} catch (IOException e) {
+				logger.log(Level.WARNING, "Could not close log-structured storage", e);
+			}
+		}
+	}
+
+	private void cacheEnvelope(EnvelopeVersion envelope) {
+		// agents may have changed in the network and are always fetched
+		if (!envelope.getIdentifier().startsWith(EnvelopeVersion.getAgentIdentifier(""))) {
+			envelopeCache.put(envelope);
+		}
+	}
+
 	private void lookupHandles(Id id, StorageLookupHandler lookupHandler, StorageExceptionHandler exceptionHandler) {
 		pastStorage.lookupHandles(id, numOfReplicas + 1,
 				new PastLookupContinuation(threadpool, lookupHandler, exceptionHandler));
 	}
 
-	private void waitForStoreResult(StoreProcessHelper resultHelper, long timeoutMs) throws EnvelopeException {
-		long startWait = System.currentTimeMillis();
-		while (System.currentTimeMillis() - startWait < timeoutMs) {
-			try {
-				if (resultHelper.getResult() >= 0) {
-					return;
-				}
-				Thread.sleep(1);
-			} catch (EnvelopeException e) {
-				throw e;
-			} catch (Exception e) {
-				throw new EnvelopeException(e);
+	/**
+	 * waits for the result of an asynchronous storage operation
+	 * 
+	 * @param future The future of the operation
+	 * @param timeoutMs A timeout after that an {@link EnvelopeException} is thrown.
+	 * @param timeoutMessage The message of the exception thrown on timeout
+	 * @return Returns the result of the operation.
+	 * @throws EnvelopeException If the operation failed or timed out.
+	 */
+	private static <T> T waitForResult(CompletableFuture<T> future, long timeoutMs, String timeoutMessage)
+			throws EnvelopeException {
+		try {
+			return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			throw new EnvelopeException(timeoutMessage);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new EnvelopeException("Storage operation interrupted", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof EnvelopeException) {
+				throw (EnvelopeException) cause;
 			}
+			throw new EnvelopeException(cause);
+		}
+	}
+
+	private static Throwable unwrap(Throwable e) {
+		if (e instanceof CompletionException && e.getCause() != null) {
+			return e.getCause();
 		}
-		throw new EnvelopeException("store operation timed out");
+		return e;
 	}
 
 	@Override
@@ -204,15 +342,22 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 		if (timeoutMs < 0) {
 			throw new IllegalArgumentException("Timeout must be greater or equal to zero");
 		}
+		waitForResult(storeEnvelopeAsync(envelope, author), timeoutMs, "store operation timed out");
+	}
+
+	@Override
+	public CompletableFuture<Integer> storeEnvelopeAsync(EnvelopeVersion envelope, AgentImpl author) {
 		StoreProcessHelper resultHelper = new StoreProcessHelper();
 		storeEnvelopeAsync(envelope, author, resultHelper, resultHelper, resultHelper);
-		waitForStoreResult(resultHelper, timeoutMs);
+		return resultHelper.getFuture();
 	}
 
 	@Override
 	public void storeEnvelopeAsync(EnvelopeVersion envelope, AgentImpl author, StorageStoreResultHandler resultHandler,
 			StorageCollisionHandler collisionHandler, StorageExceptionHandler exceptionHandler) {
 		logger.info("Storing envelope " + envelope + " ...");
+		// the cached version is outdated as soon as this store succeeds
+		envelopeCache.invalidate(envelope.getIdentifier());
 		// insert envelope into DHT
 		final MergeCounter mergeCounter = new MergeCounter();
 		storeEnvelopeAsync(envelope, author, resultHandler, collisionHandler, exceptionHandler, mergeCounter);
@@ -249,6 +394,8 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 			ArrayList<PastContentHandle> metadataHandles, StorageStoreResultHandler resultHandler,
 			StorageCollisionHandler collisionHandler, StorageExceptionHandler exceptionHandler,
 			MergeCounter mergeCounter) {
+		// a newer version exists in the network
+		envelopeCache.invalidate(envelope.getIdentifier());
 		if (collisionHandler != null) {
 			fetchWithMetadata(metadataHandles, new StorageEnvelopeHandler() {
 				@Override
@@ -293,74 +440,183 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 		}
 		// XXX only accept envelope if the content has changed?
 		logger.fine("Inserting parted envelope into network DHT");
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		try {
-			ObjectOutputStream oos = new ObjectOutputStream(baos);
-			oos.writeObject(envelope);
-			baos.close();
-		} catch (IOException e) {
+		final String identifier = envelope.getIdentifier();
+		List<CompletableFuture<Integer>> partResults = new ArrayList<>();
+		Semaphore partsInFlight = new Semaphore(partInsertParallelism);
+		// encrypted contents change completely with every version, so chunking them saves nothing
+		final boolean chunked = contentDefinedChunking && !envelope.isEncrypted();
+		List<byte[]> chunkHashes = new ArrayList<>();
+		// inserts of the distinct chunks of this envelope, a repeated chunk is inserted only once
+		Map<String, CompletableFuture<Integer>> chunkInserts = new HashMap<>();
+		// parts are inserted while the envelope is serialized, only the parts in flight are held in memory
+		PartsOutputStream partsStream;
+		if (chunked) {
+			partsStream = PartsOutputStream.contentDefined(NetworkArtifact.MAX_SIZE,
+					(part, chunk) -> insertChunk(part, chunk, chunkHashes, chunkInserts, partsInFlight, partResults));
+		} else {
+			partsStream = new PartsOutputStream(NetworkArtifact.MAX_SIZE,
+					(part, rawPart) -> insertPart(envelope, part, rawPart, author, partsInFlight, partResults));
+		}
+		try (ObjectOutputStream oos = new ObjectOutputStream(partsStream)) {
+			// a compressed content would change all chunks after the first change
+			oos.writeObject(chunked ? envelope.withoutCompression() : envelope);
+		} catch (SerializationException e) {
 			if (exceptionHandler != null) {
 				exceptionHandler.onException(e);
 			}
-			// cancel insert operation
 			return;
-		}
-		byte[] serialized = baos.toByteArray();
-		int size = serialized.length;
-		int parts = size / NetworkArtifact.MAX_SIZE;
-		if (parts * NetworkArtifact.MAX_SIZE < size) {
-			parts++; // this happens if max size is not a divider of size
-		}
-		int partsize = size / parts + 1;
-		logger.fine("Given object is serialized " + size + " bytes heavy, split into " + parts + " parts each "
-				+ partsize + " bytes in size");
-		MultiStoreResult multiResult = new MultiStoreResult(parts);
-		final String identifier = envelope.getIdentifier();
-		try {
-			int offset = 0;
-			for (int part = 0; part < parts; part++) {
-				byte[] rawPart = Arrays.copyOfRange(serialized, offset, offset + partsize);
-				NetworkArtifact toStore = new EnvelopeArtifact(artifactIdFactory, identifier, part, rawPart, author);
-				logger.fine("Storing part " + part + " for envelope " + envelope + " with id "
-						+ toStore.getId().toStringFull());
-				pastStorage.insert(toStore, new PastInsertContinuation(threadpool, multiResult, multiResult, toStore));
-				offset += partsize;
-			}
-		} catch (Exception e) {
+		} catch (IOException e) {
 			if (exceptionHandler != null) {
-				exceptionHandler.onException(e);
+				// report the failed part insert instead of the aborted serialization
+				exceptionHandler.onException(e.getCause() instanceof EnvelopeException ? (Exception) e.getCause() : e);
 			}
+			// cancel insert operation
 			return;
 		}
-		// wait for all part inserts
-		long insertStart = System.currentTimeMillis();
-		while (!multiResult.isDone()) {
-			if (System.currentTimeMillis() - insertStart >= asyncInsertOperationTimeout) {
-				// this point means the network layer did not receive positive or negative feedback
-				if (exceptionHandler != null) {
-					exceptionHandler.onException(new EnvelopeException("Network communication timeout"));
+		final int numOfParts = partsStream.getPartCount();
+		logger.fine("Given object is serialized " + partsStream.getSize() + " bytes heavy, split into " + numOfParts
+				+ (chunked ? " chunks, " + partResults.size() + " of them new" : " parts"));
+		final MetadataEnvelope metadataEnvelope = chunked ? new MetadataEnvelope(identifier, version, chunkHashes)
+				: new MetadataEnvelope(identifier, version, numOfParts);
+		// wait for the remaining part inserts, if one part fails, we're busted
+		CompletableFuture<Void> allParts = CompletableFuture.allOf(partResults.toArray(new CompletableFuture<?>[0]));
+		for (CompletableFuture<Integer> partResult : partResults) {
+			partResult.whenComplete((successfulOperations, e) -> {
+				if (e != null) {
+					allParts.completeExceptionally(e);
+				}
+			});
+		}
+		allParts.orTimeout(asyncInsertOperationTimeout, TimeUnit.MILLISECONDS).whenComplete((nothing, e) -> {
+			if (e != null) {
+				Throwable cause = unwrap(e);
+				if (cause instanceof TimeoutException) {
+					// this point means the network layer did not receive positive or negative feedback
+					cause = new EnvelopeException("Network communication timeout");
 				}
-				return;
-			}
-			try {
-				Thread.sleep(1);
-			} catch (InterruptedException e) {
 				if (exceptionHandler != null) {
-					exceptionHandler.onException(e);
+					exceptionHandler.onException(
+							cause instanceof Exception ? (Exception) cause : new EnvelopeException(cause));
 				}
 				return;
 			}
+			int minSuccessfulOperations = partResults.isEmpty() ? numOfReplicas : Integer.MAX_VALUE;
+			for (CompletableFuture<Integer> partResult : partResults) {
+				minSuccessfulOperations = Math.min(minSuccessfulOperations, partResult.join());
+			}
+			insertMetadata(envelope, metadataEnvelope, author, minSuccessfulOperations, resultHandler,
+					exceptionHandler);
+		});
+	}
+
+	private CompletableFuture<Integer> beginPartInsert(int part, Semaphore partsInFlight,
+			List<CompletableFuture<Integer>> partResults) throws IOException {
+		try {
+			// wait until a part insert is completed, this parks the serializing thread of the cached storage pool,
+			// but never a thread the completion depends on, and only as long as a single part may take
+			if (!partsInFlight.tryAcquire(partInsertTimeout, TimeUnit.MILLISECONDS)) {
+				throw new IOException(new EnvelopeException("Network communication timeout"));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while inserting part " + part);
 		}
-		Exception exception = multiResult.getException();
-		if (exception != null) {
-			if (exceptionHandler != null) {
-				exceptionHandler.onException(exception);
+		for (CompletableFuture<Integer> previous : partResults) {
+			if (previous.isCompletedExceptionally()) {
+				partsInFlight.release();
+				// stop serializing, the envelope can't be completed anymore
+				throw new IOException(new EnvelopeException("Artifact part insert failed!"));
 			}
+		}
+		CompletableFuture<Integer> partResult = new CompletableFuture<>();
+		partResult.whenComplete((successfulOperations, e) -> partsInFlight.release());
+		partResults.add(partResult);
+		return partResult;
+	}
+
+	private void insertPart(EnvelopeVersion envelope, int part, byte[] rawPart, AgentImpl author,
+			Semaphore partsInFlight, List<CompletableFuture<Integer>> partResults) throws IOException {
+		CompletableFuture<Integer> partResult = beginPartInsert(part, partsInFlight, partResults);
+		try {
+			NetworkArtifact toStore = new EnvelopeArtifact(artifactIdFactory, envelope.getIdentifier(), part, rawPart,
+					author);
+			logger.fine("Storing part " + part + " for envelope " + envelope + " with id "
+					+ toStore.getId().toStringFull());
+			pastStorage.insert(toStore, new PastInsertContinuation(threadpool, (stored, successfulOperations) -> {
+				if (successfulOperations < 1) {
+					partResult.completeExceptionally(new EnvelopeException("Artifact part insert failed!"));
+				} else {
+					partResult.complete(successfulOperations);
+				}
+			}, partResult::completeExceptionally, toStore));
+		} catch (Exception e) {
+			partResult.completeExceptionally(e);
+			throw new IOException(new EnvelopeException("Could not create part " + part, e));
+		}
+	}
+
+	private void insertChunk(int part, byte[] chunk, List<byte[]> chunkHashes,
+			Map<String, CompletableFuture<Integer>> chunkInserts, Semaphore partsInFlight,
+			List<CompletableFuture<Integer>> partResults) throws IOException {
+		byte[] hash;
+		try {
+			hash = CryptoTools.getSecureHash(chunk);
+		} catch (CryptoException e) {
+			throw new IOException(new EnvelopeException("Could not hash chunk " + part, e));
+		}
+		chunkHashes.add(hash);
+		if (chunkCache.contains(hash)) {
+			// unchanged since a version this node has stored or fetched
+			logger.fine("Chunk " + part + " already known, skipping insert");
+			return;
+		}
+		String hashKey = Base64.getEncoder().encodeToString(hash);
+		if (chunkInserts.containsKey(hashKey)) {
+			// repeated within this envelope, the metadata is only inserted after all chunk inserts completed
+			logger.fine("Chunk " + part + " repeats an earlier chunk, skipping insert");
 			return;
 		}
+		CompletableFuture<Integer> partResult = beginPartInsert(part, partsInFlight, partResults);
+		chunkInserts.put(hashKey, partResult);
+		try {
+			HashedArtifact toStore = new HashedArtifact(artifactIdFactory, chunk);
+			lookupHandles(toStore.getId(), new StorageLookupHandler() {
+				@Override
+				public void onLookup(ArrayList<PastContentHandle> handles) {
+					if (handles.size() > 0) {
+						// stored in the network by someone else
+						logger.fine("Chunk " + part + " already in network, skipping insert");
+						chunkCache.put(hash, chunk);
+						partResult.complete(handles.size());
+						return;
+					}
+					logger.fine("Storing chunk " + part + " with id " + toStore.getId().toStringFull());
+					pastStorage.insert(toStore,
+							new PastInsertContinuation(threadpool, (stored, successfulOperations) -> {
+								if (successfulOperations < 1) {
+									partResult.completeExceptionally(
+											new EnvelopeException("Artifact part insert failed!"));
+								} else {
+									chunkCache.put(hash, chunk);
+									insertedChunks.incrementAndGet();
+									partResult.complete(successfulOperations);
+								}
+							}, partResult::completeExceptionally, toStore));
+				}
+			}, partResult::completeExceptionally);
+		} catch (CryptoException e) {
+			partResult.completeExceptionally(e);
+			throw new IOException(new EnvelopeException("Could not create chunk " + part, e));
+		}
+	}
+
+	private void insertMetadata(EnvelopeVersion envelope, MetadataEnvelope metadataEnvelope, AgentImpl author,
+			int minSuccessfulOperations, StorageStoreResultHandler resultHandler,
+			StorageExceptionHandler exceptionHandler) {
+		final String identifier = envelope.getIdentifier();
+		final long version = envelope.getVersion();
 		// all parts done? insert MetadataEnvelope to complete insert operation
 		try {
-			MetadataEnvelope metadataEnvelope = new MetadataEnvelope(identifier, version, parts);
 			NetworkArtifact metadataArtifact = new MetadataArtifact(artifactIdFactory, identifier, version,
 					SerializeTools.serialize(metadataEnvelope), author);
 			logger.fine("Storing metadata for envelope " + metadataEnvelope.toString() + " with id "
@@ -368,15 +624,12 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 			pastStorage.insert(metadataArtifact,
 					new PastInsertContinuation(threadpool, new StorageStoreResultHandler() {
 						@Override
-						public void onResult(Serializable envelope, int successfulOperations) {
-							// all done - call actual user defined result handlers
-							Exception e = multiResult.getException();
-							if (e != null) {
-								if (exceptionHandler != null) {
-									exceptionHandler.onException(e);
-								}
-							} else if (resultHandler != null) {
-								resultHandler.onResult(envelope, multiResult.getMinSuccessfulOperations());
+						public void onResult(Serializable metadata, int successfulOperations) {
+							// all done - remember the stored version and call actual user defined result handlers
+							versionCache.put(identifier, version);
+							cacheEnvelope(envelope);
+							if (resultHandler != null) {
+								resultHandler.onResult(metadata, minSuccessfulOperations);
 							}
 						}
 					}, exceptionHandler, metadataArtifact));
@@ -384,7 +637,6 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 			if (exceptionHandler != null) {
 				exceptionHandler.onException(e);
 			}
-			return;
 		}
 	}
 
@@ -399,23 +651,18 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 		if (timeoutMs < 0) {
 			throw new IllegalArgumentException("Timeout must be greater or equal to zero");
 		}
+		return waitForResult(fetchEnvelopeAsync(identifier, version), timeoutMs, "Fetch operation time out");
+	}
+
+	@Override
+	public CompletableFuture<EnvelopeVersion> fetchEnvelopeAsync(String identifier) {
+		return fetchEnvelopeAsync(identifier, EnvelopeVersion.LATEST_VERSION);
+	}
+
+	public CompletableFuture<EnvelopeVersion> fetchEnvelopeAsync(String identifier, long version) {
 		FetchEnvelopeHelper resultHelper = new FetchEnvelopeHelper();
 		fetchEnvelopeAsync(identifier, version, resultHelper, resultHelper);
-		long startWait = System.currentTimeMillis();
-		while (System.currentTimeMillis() - startWait < timeoutMs) {
-			try {
-				EnvelopeVersion result = resultHelper.getResult();
-				if (result != null) {
-					return result;
-				}
-				Thread.sleep(1);
-			} catch (EnvelopeException e) {
-				throw e;
-			} catch (Exception e) {
-				throw new EnvelopeException(e);
-			}
-		}
-		throw new EnvelopeException("Fetch operation time out");
+		return resultHelper.getFuture();
 	}
 
 	@Override
@@ -424,6 +671,58 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 		fetchEnvelopeAsync(identifier, EnvelopeVersion.LATEST_VERSION, envelopeHandler, exceptionHandler);
 	}
 
+	@Override
+	public Map<String, CompletableFuture<EnvelopeVersion>> fetchEnvelopes(Collection<String> identifiers) {
+		LinkedHashMap<String, CompletableFuture<EnvelopeVersion>> results = new LinkedHashMap<>();
+		for (String identifier : identifiers) {
+			results.putIfAbsent(identifier, new CompletableFuture<>());
+		}
+		// a limited number of fetches is in flight, so a large batch does not flood the network with lookups
+		Iterator<Map.Entry<String, CompletableFuture<EnvelopeVersion>>> pending = new ArrayList<>(results.entrySet())
+				.iterator();
+		for (int i = 0; i < batchFetchParallelism; i++) {
+			fetchNext(pending);
+		}
+		return results;
+	}
+
+	private void fetchNext(Iterator<Map.Entry<String, CompletableFuture<EnvelopeVersion>>> pending) {
+		while (true) {
+			Map.Entry<String, CompletableFuture<EnvelopeVersion>> next;
+			synchronized (pending) {
+				if (!pending.hasNext()) {
+					return;
+				}
+				next = pending.next();
+			}
+			CompletableFuture<EnvelopeVersion> result = next.getValue();
+			CompletableFuture<EnvelopeVersion> fetch;
+			try {
+				fetch = fetchEnvelopeAsync(next.getKey());
+			} catch (Exception e) {
+				result.completeExceptionally(e);
+				continue;
+			}
+			if (!fetch.isDone()) {
+				fetch.whenComplete((envelope, e) -> {
+					complete(result, envelope, e);
+					fetchNext(pending);
+				});
+				return;
+			}
+			// served from cache, continue without growing the stack
+			fetch.whenComplete((envelope, e) -> complete(result, envelope, e));
+		}
+	}
+
+	private static <T> void complete(CompletableFuture<T> future, T value, Throwable e) {
+		if (e != null) {
+			future.completeExceptionally(unwrap(e));
+		} else {
+			future.complete(value);
+		}
+	}
+
 	public void fetchEnvelopeAsync(String identifier, long version, StorageEnvelopeHandler envelopeHandler,
 			StorageExceptionHandler exceptionHandler) {
 		if (envelopeHandler == null) {
@@ -433,6 +732,12 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 			}
 			return;
 		}
+		EnvelopeVersion cached = envelopeCache.get(identifier);
+		if (cached != null && (version == EnvelopeVersion.LATEST_VERSION || version == cached.getVersion())) {
+			logger.fine("Serving " + cached + " from envelope cache");
+			envelopeHandler.onEnvelopeReceived(cached);
+			return;
+		}
 		// get handles for first part of the desired version
 		if (version == EnvelopeVersion.LATEST_VERSION) {
 			// retrieve the latest version from the network
@@ -451,6 +756,7 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 								// this handler-in-the-middle updates the version cache,
 								// before returning the result to the actual envelope handler
 								versionCache.put(result.getIdentifier(), result.getVersion());
+								cacheEnvelope(result);
 								envelopeHandler.onEnvelopeReceived(result);
 							}
 						}, exceptionHandler);
@@ -485,6 +791,47 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 		}
 	}
 
+	/**
+	 * Looks up the latest version number for the given identifier. Only metadata handles are requested from the
+	 * network, no envelope is fetched. If the envelope cache holds an older version it is invalidated, so callers that
+	 * need a fresh envelope can probe the version before fetching.
+	 * 
+	 * @param identifier An unique identifier for the Envelope.
+	 * @return Returns a future that is completed with the latest version number or with an
+	 *         {@link EnvelopeNotFoundException}.
+	 */
+	public CompletableFuture<Long> fetchLatestVersionAsync(String identifier) {
+		Long startVersion = versionCache.get(identifier);
+		if (startVersion == null) {
+			startVersion = EnvelopeVersion.START_VERSION;
+		}
+		CompletableFuture<ArrayList<PastContentHandle>> lookup = new CompletableFuture<>();
+		LatestArtifactVersionFinder finder = new LatestArtifactVersionFinder(identifier, startVersion,
+				lookup::complete, artifactIdFactory, pastStorage, numOfReplicas + 1, threadpool);
+		threadpool.execute(finder);
+		return lookup.thenApply(metadataHandles -> {
+			if (metadataHandles.isEmpty()) {
+				throw new CompletionException(
+						new EnvelopeNotFoundException("no version found for identifier '" + identifier + "'"));
+			}
+			long latestVersion = finder.getLatestVersion();
+			versionCache.put(identifier, latestVersion);
+			EnvelopeVersion cached = envelopeCache.get(identifier);
+			if (cached != null && cached.getVersion() < latestVersion) {
+				envelopeCache.invalidate(identifier);
+			}
+			return latestVersion;
+		});
+	}
+
+	public long fetchLatestVersion(String identifier, long timeoutMs)
+			throws EnvelopeNotFoundException, EnvelopeException {
+		if (timeoutMs < 0) {
+			throw new IllegalArgumentException("Timeout must be greater or equal to zero");
+		}
+		return waitForResult(fetchLatestVersionAsync(identifier), timeoutMs, "Version lookup time out");
+	}
+
 	private void fetchWithMetadata(ArrayList<PastContentHandle> metadataHandles, StorageEnvelopeHandler envelopeHandler,
 			StorageExceptionHandler exceptionHandler) {
 		fetchFromHandles(metadataHandles, new StorageArtifactHandler() {
@@ -492,34 +839,17 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 			public void onReceive(AbstractArtifact artifact) {
 				try {
 					Serializable received = SerializeTools.deserialize(artifact.getContent());
-					if (received instanceof MetadataEnvelope) {
-						MetadataEnvelope metadata = (MetadataEnvelope) received;
-						// metadata received query all actual data parts
-						int size = metadata.getEnvelopeNumOfParts();
-						MultiArtifactHandler artifactHandler = new MultiArtifactHandler(size,
-								new StoragePartsHandler() {
-									@Override
-									public void onPartsReceived(ArrayList<NetworkArtifact> parts) {
-										try {
-											EnvelopeVersion result = buildFromParts(artifactIdFactory, metadata, parts);
-											envelopeHandler.onEnvelopeReceived(result);
-										} catch (IllegalArgumentException | EnvelopeException e) {
-											if (exceptionHandler != null) {
-												exceptionHandler.onException(e);
-											}
-										}
-									}
-								}, exceptionHandler);
-						for (int partIndex = 0; partIndex < size; partIndex++) {
-							fetchPart(metadata.getEnvelopeIdentifier(), partIndex, metadata.getEnvelopeVersion(),
-									artifactHandler);
-						}
+					if (received instanceof MetadataEnvelope && artifact instanceof NetworkArtifact) {
+						// metadata received read all actual data parts
+						EnvelopeVersion result = readFromParts((MetadataEnvelope) received,
+								(NetworkArtifact) artifact);
+						envelopeHandler.onEnvelopeReceived(result);
 					} else if (exceptionHandler != null) {
 						exceptionHandler.onException(
 								new EnvelopeException("expected " + MetadataEnvelope.class.getCanonicalName()
 										+ " but got " + received.getClass().getCanonicalName() + " instead"));
 					}
-				} catch (SerializationException | VerificationFailedException e) {
+				} catch (SerializationException | VerificationFailedException | EnvelopeException e) {
 					if (exceptionHandler != null) {
 						exceptionHandler.onException(e);
 					}
@@ -528,7 +858,58 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 		}, exceptionHandler);
 	}
 
-	private void fetchPart(String identifier, int part, long version, MultiArtifactHandler artifactHandler) {
+	private EnvelopeVersion readFromParts(MetadataEnvelope metadata, NetworkArtifact metadataArtifact)
+			throws EnvelopeException {
+		final String identifier = metadata.getEnvelopeIdentifier();
+		final long version = metadata.getEnvelopeVersion();
+		final int parts = metadata.getEnvelopeNumOfParts();
+		if (identifier == null) {
+			throw new EnvelopeException("Artifact identifier must not be null");
+		} else if (version < EnvelopeVersion.START_VERSION) {
+			throw new EnvelopeException(
+					"Artifact version (" + version + ") must be bigger than " + EnvelopeVersion.START_VERSION);
+		} else if (parts < 1) {
+			throw new EnvelopeException("Number of parts given is to low " + parts);
+		}
+		logger.fine("Reading envelope '" + identifier + "' from " + parts + " parts");
+		// parts are deserialized while they arrive, only the parts in flight are held in memory
+		IntFunction<CompletableFuture<byte[]>> partFetcher;
+		if (metadata.isChunked()) {
+			List<byte[]> chunkHashes = metadata.getChunkHashes();
+			partFetcher = partIndex -> fetchChunk(chunkHashes.get(partIndex));
+		} else {
+			partFetcher = partIndex -> fetchPart(identifier, partIndex, metadataArtifact);
+		}
+		try (PartsInputStream partsStream = new PartsInputStream(parts, partFetcher, partFetchParallelism,
+				partFetchTimeout); ObjectInputStream ois = new ObjectInputStream(partsStream)) {
+			Object obj = ois.readObject();
+			if (!(obj instanceof EnvelopeVersion)) {
+				throw new EnvelopeException("expected class " + EnvelopeVersion.class.getCanonicalName() + " but got "
+						+ obj.getClass().getCanonicalName() + " instead");
+			}
+			EnvelopeVersion result = (EnvelopeVersion) obj;
+			if (!identifier.equals(result.getIdentifier()) || version != result.getVersion()) {
+				throw new EnvelopeException("Envelope " + result + " does not match its metadata " + metadata);
+			}
+			if (!metadataArtifact.getAuthorPublicKey().equals(result.getAuthorPublicKey())) {
+				throw new EnvelopeException("Network artifacts and envelope have different authors");
+			}
+			return result;
+		} catch (VerificationFailedException e) {
+			throw new EnvelopeException("Could not retrieve author public key from network artifact.");
+		} catch (IOException e) {
+			if (e.getCause() instanceof EnvelopeException) {
+				// e.g. a part was not found
+				throw (EnvelopeException) e.getCause();
+			}
+			throw new EnvelopeException("Building envelope from parts failed!", e);
+		} catch (ClassNotFoundException | ClassCastException | IllegalArgumentException e) {
+			throw new EnvelopeException("Building envelope from parts failed!", e);
+		}
+	}
+
+	private CompletableFuture<byte[]> fetchPart(String identifier, int part, NetworkArtifact metadataArtifact) {
+		CompletableFuture<byte[]> result = new CompletableFuture<>();
 		Id checkId = EnvelopeArtifact.buildId(artifactIdFactory, identifier, part);
 		logger.fine("Fetching part (" + part + ") of envelope '" + identifier + "' with id " + checkId.toStringFull()
 				+ " ...");
@@ -537,122 +918,123 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 			public void onLookup(ArrayList<PastContentHandle> handles) {
 				logger.fine("Got " + handles.size() + " past handles for part (" + part + ") of '" + identifier + "'");
 				if (handles.size() < 1) {
-					artifactHandler.onException(new EnvelopeNotFoundException("Part (" + part + ") of '" + identifier
+					result.completeExceptionally(new EnvelopeNotFoundException("Part (" + part + ") of '" + identifier
 							+ "' with id (" + checkId.toStringFull() + ") not found in shared storage!"));
 				} else {
-					fetchFromHandles(handles, artifactHandler, artifactHandler);
+					fetchPartFromHandles(shuffle(handles), part, metadataArtifact, result);
 				}
 			}
-		}, artifactHandler);
+		}, result::completeExceptionally);
+		return result;
 	}
 
-	private void fetchFromHandles(ArrayList<PastContentHandle> handles, StorageArtifactHandler artifactHandler,
-			StorageExceptionHandler exceptionHandler) {
-		if (handles.isEmpty()) {
-			throw new IllegalArgumentException("No handles to fetch given");
+	private CompletableFuture<byte[]> fetchChunk(byte[] hash) {
+		byte[] cached = chunkCache.get(hash);
+		if (cached != null) {
+			return CompletableFuture.completedFuture(cached);
 		}
-		// XXX pick the best fitting handle depending on nodeid (web-of-trust) or distance
-		PastContentHandle bestHandle = handles.get(new Random().nextInt(handles.size()));
-		// query fetch command
-		pastStorage.fetch(bestHandle, new PastFetchContinuation(threadpool, artifactHandler, exceptionHandler));
-	}
-
-	private static EnvelopeVersion buildFromParts(PastryIdFactory artifactIdFactory, MetadataEnvelope metadata,
-			ArrayList<NetworkArtifact> artifacts) throws IllegalArgumentException, EnvelopeException {
-		if (artifacts == null || artifacts.isEmpty()) {
-			throw new EnvelopeException("No parts to build from");
-		}
-		// order parts
-		Collections.sort(artifacts, ArtifactPartComparator.INSTANCE);
+		CompletableFuture<byte[]> result = new CompletableFuture<>();
 		try {
-			String envelopeIdentifier = null;
-			long envelopeVersion = EnvelopeVersion.NULL_VERSION;
-			int lastPartIndex = -1;
-			int numberOfParts = 0;
-			PublicKey authorPubKey = null;
-			// concat raw byte arrays
-			ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			for (NetworkArtifact artifact : artifacts) {
-				logger.fine("concating content of " + artifact.toString() + " with " + metadata.getEnvelopeNumOfParts()
-						+ " parts");
-				// check identifier
-				String artifactIdentifier = metadata.getEnvelopeIdentifier();
-				if (artifactIdentifier == null) {
-					throw new EnvelopeException("Artifact identifier must not be null");
-				} else if (envelopeIdentifier == null) {
-					envelopeIdentifier = artifactIdentifier;
-				} else if (!artifactIdentifier.equals(metadata.getEnvelopeIdentifier())) {
-					throw new EnvelopeException("Aritfact identifier (" + artifactIdentifier
-							+ ") did not match envelope identifier (" + envelopeIdentifier + ")");
-				}
-				// check version
-				long artifactVersion = metadata.getEnvelopeVersion();
-				if (artifactVersion < EnvelopeVersion.START_VERSION) {
-					throw new EnvelopeException("Artifact version (" + artifactVersion + ") must be bigger than "
-							+ EnvelopeVersion.START_VERSION);
-				} else if (envelopeVersion == EnvelopeVersion.NULL_VERSION) {
-					envelopeVersion = artifactVersion;
-				} else if (envelopeVersion != artifactVersion) {
-					throw new EnvelopeException("Not matching versions for artifact (" + artifactVersion
-							+ ") and envelope (" + envelopeVersion + ")");
-				}
-				// check part index
-				int partIndex = artifact.getPartIndex();
-				if (partIndex > lastPartIndex + 1) {
-					throw new EnvelopeException("Artifacts not sorted or missing part! Got " + partIndex
-							+ " instead of " + (lastPartIndex + 1));
-				}
-				lastPartIndex++;
-				// check number of parts
-				int parts = metadata.getEnvelopeNumOfParts();
-				if (parts < 1) {
-					throw new EnvelopeException("Number of parts given is to low " + parts);
-				} else if (numberOfParts == 0) {
-					numberOfParts = parts;
-				} else if (numberOfParts != parts) {
-					throw new EnvelopeException("Number of parts from artifact (" + numberOfParts
-							+ ") did not match with envelope parts number (" + parts + ")");
-				}
-				// check author public key
-				try {
-					PublicKey artifactAuthorPubKey = artifact.getAuthorPublicKey();
-					if (authorPubKey == null) {
-						authorPubKey = artifactAuthorPubKey;
-					} else if (!authorPubKey.equals(artifactAuthorPubKey)) {
-						throw new EnvelopeException("Parts auhtor public keys do not match");
+			Id checkId = HashedArtifact.buildIdFromHash(artifactIdFactory, hash);
+			lookupHandles(checkId, new StorageLookupHandler() {
+				@Override
+				public void onLookup(ArrayList<PastContentHandle> handles) {
+					if (handles.size() < 1) {
+						result.completeExceptionally(new EnvelopeNotFoundException(
+								"Chunk with id (" + checkId.toStringFull() + ") not found in shared storage!"));
+					} else {
+						fetchVerifiedFromHandles(shuffle(handles), artifact -> {
+							byte[] content = artifact.getContent();
+							if (!(artifact instanceof HashedArtifact)
+									|| !Arrays.equals(hash, CryptoTools.getSecureHash(content))) {
+								throw new EnvelopeException("Chunk content does not match its hash");
+							}
+							chunkCache.put(hash, content);
+							return content;
+						}, result);
 					}
-				} catch (VerificationFailedException e) {
-					throw new EnvelopeException("Could not retrieve author public key from network artifact.");
 				}
+			}, result::completeExceptionally);
+		} catch (CryptoException e) {
+			result.completeExceptionally(e);
+		}
+		return result;
+	}
+
+	private void fetchPartFromHandles(Iterator<PastContentHandle> handles, int part, NetworkArtifact metadataArtifact,
+			CompletableFuture<byte[]> result) {
+		fetchVerifiedFromHandles(handles, artifact -> {
+			if (!(artifact instanceof NetworkArtifact) || ((NetworkArtifact) artifact).getPartIndex() != part) {
+				throw new EnvelopeException("Expected part (" + part + ") but got " + artifact);
+			} else if (!((NetworkArtifact) artifact).hasSameAuthor(metadataArtifact)) {
+				throw new EnvelopeException("Parts author public keys do not match");
+			}
+			return artifact.getContent();
+		}, result);
+	}
+
+	/**
+	 * checks a fetched artifact and extracts its content
+	 */
+	private interface ArtifactVerifier {
+		byte[] verify(AbstractArtifact artifact)
+				throws EnvelopeException, VerificationFailedException, CryptoException;
+	}
+
+	private void fetchVerifiedFromHandles(Iterator<PastContentHandle> handles, ArtifactVerifier verifier,
+			CompletableFuture<byte[]> result) {
+		if (result.isDone()) {
+			// canceled in the meantime
+			return;
+		}
+		fetchFromHandles(handles, new StorageArtifactHandler() {
+			@Override
+			public void onReceive(AbstractArtifact artifact) {
+				// a broken or manipulated replica is skipped like an unreachable one
 				try {
-					byte[] rawContent = artifact.getContent();
-					if (rawContent != null) {
-						// add content to buffer
-						baos.write(rawContent);
+					result.complete(verifier.verify(artifact));
+				} catch (EnvelopeException | VerificationFailedException | CryptoException e) {
+					if (handles.hasNext()) {
+						logger.fine("Invalid replica of " + artifact + ", trying next one: " + e);
+						fetchVerifiedFromHandles(handles, verifier, result);
+					} else {
+						result.completeExceptionally(e);
 					}
-				} catch (VerificationFailedException e) {
-					throw new EnvelopeException("Could not retrieve content from part", e);
 				}
 			}
-			byte[] bytes = baos.toByteArray();
-			// deserialize object
-			ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-			ObjectInputStream ois = new ObjectInputStream(bais);
-			Object obj = ois.readObject();
-			EnvelopeVersion result;
-			if (obj instanceof EnvelopeVersion) {
-				result = (EnvelopeVersion) obj;
-			} else {
-				throw new EnvelopeException("expected class " + EnvelopeVersion.class.getCanonicalName() + " but got "
-						+ obj.getClass().getCanonicalName() + " instead");
-			}
-			if (authorPubKey == null || !authorPubKey.equals(result.getAuthorPublicKey())) {
-				throw new EnvelopeException("Network artifacts and envelope have different authors");
-			}
-			return result;
-		} catch (IOException | ClassNotFoundException | ClassCastException | IllegalArgumentException e) {
-			throw new EnvelopeException("Building envelope from parts failed!", e);
+		}, result::completeExceptionally);
+	}
+
+	private void fetchFromHandles(ArrayList<PastContentHandle> handles, StorageArtifactHandler artifactHandler,
+			StorageExceptionHandler exceptionHandler) {
+		if (handles.isEmpty()) {
+			throw new IllegalArgumentException("No handles to fetch given");
 		}
+		fetchFromHandles(shuffle(handles), artifactHandler, exceptionHandler);
+	}
+
+	private void fetchFromHandles(Iterator<PastContentHandle> handles, StorageArtifactHandler artifactHandler,
+			StorageExceptionHandler exceptionHandler) {
+		// XXX pick the best fitting handle depending on nodeid (web-of-trust) or distance
+		PastContentHandle handle = handles.next();
+		// query fetch command, on failure try the next replica
+		pastStorage.fetch(handle, new PastFetchContinuation(threadpool, artifactHandler, new StorageExceptionHandler() {
+			@Override
+			public void onException(Exception e) {
+				if (handles.hasNext()) {
+					logger.fine("Fetch from replica failed, trying next one: " + e);
+					fetchFromHandles(handles, artifactHandler, exceptionHandler);
+				} else if (exceptionHandler != null) {
+					exceptionHandler.onException(e);
+				}
+			}
+		}));
+	}
+
+	private static Iterator<PastContentHandle> shuffle(ArrayList<PastContentHandle> handles) {
+		ArrayList<PastContentHandle> candidates = new ArrayList<>(handles);
+		Collections.shuffle(candidates);
+		return candidates.iterator();
 	}
 
 	@Override
@@ -679,9 +1061,13 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 		if (timeoutMs < 0) {
 			throw new IllegalArgumentException("Timeout must be greater or equal to zero");
 		}
+		waitForResult(storeHashedContentAsync(content), timeoutMs, "store operation timed out");
+	}
+
+	public CompletableFuture<Integer> storeHashedContentAsync(byte[] content) {
 		StoreProcessHelper resultHelper = new StoreProcessHelper();
 		storeHashedContentAsync(content, resultHelper, resultHelper);
-		waitForStoreResult(resultHelper, timeoutMs);
+		return resultHelper.getFuture();
 	}
 
 	public void fetchHashedContentAsync(byte[] hash, StorageArtifactHandler artifactHandler,
@@ -699,10 +1085,7 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 				@Override
 				public void onLookup(ArrayList<PastContentHandle> handles) {
 					if (handles.size() > 0) {
-						// XXX pick the best fitting handle depending on nodeid (web-of-trust) or distance
-						PastContentHandle bestHandle = handles.get(new Random().nextInt(handles.size()));
-						pastStorage.fetch(bestHandle,
-								new PastFetchContinuation(threadpool, artifactHandler, exceptionHandler));
+						fetchFromHandles(handles, artifactHandler, exceptionHandler);
 					} else {
 						// not found
 						if (exceptionHandler != null) {
@@ -726,23 +1109,19 @@ public class SharedStorage extends Configurable implements L2pStorageInterface {
 		if (timeoutMs < 0) {
 			throw new IllegalArgumentException("Timeout must be greater or equal to zero");
 		}
+		return waitForResult(fetchHashedContentAsync(hash), timeoutMs, "Fetch operation time out");
+	}
+
+	public CompletableFuture<byte[]> fetchHashedContentAsync(byte[] hash) {
 		FetchHashedHelper resultHelper = new FetchHashedHelper();
 		fetchHashedContentAsync(hash, resultHelper, resultHelper);
-		long startWait = System.currentTimeMillis();
-		while (System.currentTimeMillis() - startWait < timeoutMs) {
+		return resultHelper.getFuture().thenApply(artifact -> {
 			try {
-				HashedArtifact result = resultHelper.getResult();
-				if (result != null) {
-					return result.getContent();
-				}
-				Thread.sleep(1);
-			} catch (EnvelopeException e) {
-				throw e;
-			} catch (Exception e) {
-				throw new EnvelopeException(e);
+				return artifact.getContent();
+			} catch (VerificationFailedException e) {
+				throw new CompletionException(e);
 			}
-		}
-		throw new EnvelopeException("Fetch operation time out");
+		});
 	}
 
 }
@@ -0,0 +1,98 @@
+package i5.las2peer.persistency.helper;
+
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class caches content-addressed chunks of envelopes by their secure hash. A chunk in this cache is known to be
+ * stored in the network, because it was fetched from or inserted into the network. The least recently used chunks are
+ * evicted, if the size of all chunks exceeds the limit.
+ */
+public class ChunkCache {
+
+	private final long maxSize;
+	private final LinkedHashMap<String, byte[]> chunks = new LinkedHashMap<>(16, 0.75f, true);
+	private long size = 0;
+
+	/**
+	 * @param maxSize The maximum size of all cached chunks in bytes, 0 disables the cache.
+	 */
+	public ChunkCache(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	private static String key(byte[] hash) {
+		return Base64.getEncoder().encodeToString(hash);
+	}
+
+	/**
+	 * Gets a cached chunk.
+	 *
+	 * @param hash The secure hash of the chunk.
+	 * @return Returns the content of the chunk or {@code null} if it is not cached.
+	 */
+	public synchronized byte[] get(byte[] hash) {
+		return chunks.get(key(hash));
+	}
+
+	/**
+	 * Checks if a chunk is cached and therefore known to be stored in the network.
+	 *
+	 * @param hash The secure hash of the chunk.
+	 * @return Returns {@code true} if the chunk is cached.
+	 */
+	public synchronized boolean contains(byte[] hash) {
+		return chunks.containsKey(key(hash));
+	}
+
+	/**
+	 * Adds a chunk to the cache.
+	 *
+	 * @param hash The secure hash of the chunk.
+	 * @param content The content of the chunk.
+	 */
+	public synchronized void put(byte[] hash, byte[] content) {
+		if (content.length > maxSize) {
+			return;
+		}
+		byte[] previous = chunks.put(key(hash), content);
+		if (previous != null) {
+			size -= previous.length;
+		}
+		size += content.length;
+		Iterator<Map.Entry<String, byte[]>> it = chunks.entrySet().iterator();
+		while (size > maxSize && it.hasNext()) {
+			size -= it.next().getValue().length;
+			it.remove();
+		}
+	}
+
+	/**
+	 * Removes all chunks from the cache.
+	 */
+	public synchronized void clear() {
+		chunks.clear();
+		size = 0;
+	}
+
+	/**
+	 * Gets the number of cached chunks.
+	 *
+	 * @return Returns the number of chunks.
+	 */
+	public synchronized int getCount() {
+		return chunks.size();
+	}
+
+	/**
+	 * Gets the size of all cached chunks.
+	 *
+	 * @return Returns the size in bytes.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+}
@@ -1,37 +1,30 @@
 package i5.las2peer.persistency.helper;
 
+import java.util.concurrent.CompletableFuture;
+
 import i5.las2peer.persistency.EnvelopeVersion;
 import i5.las2peer.persistency.StorageEnvelopeHandler;
 import i5.las2peer.persistency.StorageExceptionHandler;
 
 public class FetchEnvelopeHelper implements StorageEnvelopeHandler, StorageExceptionHandler {
 
-	private Exception exception;
-	private EnvelopeVersion result;
+	private final CompletableFuture<EnvelopeVersion> future = new CompletableFuture<>();
 
 	@Override
 	public void onEnvelopeReceived(EnvelopeVersion result) {
-		synchronized (this) {
-			this.result = result;
-		}
+		future.complete(result);
 	}
 
 	@Override
 	public void onException(Exception e) {
-		synchronized (this) {
-			if (exception == null) {
-				exception = e;
-			}
-		}
+		future.completeExceptionally(e);
 	}
 
-	public EnvelopeVersion getResult() throws Exception {
-		synchronized (this) {
-			if (exception != null) {
-				throw exception;
-			}
-			return result;
-		}
+	/**
+	 * @return the future completed with the fetched envelope or the first exception
+	 */
+	public CompletableFuture<EnvelopeVersion> getFuture() {
+		return future;
 	}
 
 }
@@ -1,5 +1,7 @@
 package i5.las2peer.persistency.helper;
 
+import java.util.concurrent.CompletableFuture;
+
 import i5.las2peer.persistency.AbstractArtifact;
 import i5.las2peer.persistency.HashedArtifact;
 import i5.las2peer.persistency.StorageArtifactHandler;
@@ -7,34 +9,25 @@ import i5.las2peer.persistency.StorageExceptionHandler;
 
 public class FetchHashedHelper implements StorageArtifactHandler, StorageExceptionHandler {
 
-	private Exception exception;
-	private HashedArtifact result;
+	private final CompletableFuture<HashedArtifact> future = new CompletableFuture<>();
 
 	@Override
 	public void onReceive(AbstractArtifact result) {
 		if (result instanceof HashedArtifact) {
-			synchronized (this) {
-				this.result = (HashedArtifact) result;
-			}
+			future.complete((HashedArtifact) result);
 		}
 	}
 
 	@Override
 	public void onException(Exception e) {
-		synchronized (this) {
-			if (exception == null) {
-				exception = e;
-			}
-		}
+		future.completeExceptionally(e);
 	}
 
-	public HashedArtifact getResult() throws Exception {
-		synchronized (this) {
-			if (exception != null) {
-				throw exception;
-			}
-			return result;
-		}
+	/**
+	 * @return the future completed with the fetched artifact or the first exception
+	 */
+	public CompletableFuture<HashedArtifact> getFuture() {
+		return future;
 	}
 
 }
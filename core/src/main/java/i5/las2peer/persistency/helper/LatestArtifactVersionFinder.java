@@ -94,6 +94,16 @@ public class LatestArtifactVersionFinder implements Runnable, StorageLookupHandl
 		}
 	}
 
+	/**
+	 * Gets the latest version found by this search. Only valid after the lookup handler was called with a non-empty
+	 * list of handles.
+	 *
+	 * @return Returns the latest version number.
+	 */
+	public long getLatestVersion() {
+		return latestVersion;
+	}
+
 	@Override
 	public void onException(Exception e) {
 		logger.info("Lookup exception (" + e.toString() + ") occurred assuimng zero handles");
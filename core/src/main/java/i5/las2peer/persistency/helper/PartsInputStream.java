@@ -0,0 +1,139 @@
+package i5.las2peer.persistency.helper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntFunction;
+
+/**
+ * This class reads the contents of a parted artifact in index order. At most the given number of parts is fetched in
+ * parallel and each part is released as soon as it has been read, so only the parts in flight are held in memory.
+ * This allows to deserialize a large envelope while its parts are still being fetched.
+ */
+public class PartsInputStream extends InputStream {
+
+	private final int numberOfParts;
+	private final IntFunction<CompletableFuture<byte[]>> partFetcher;
+	private final int parallelism;
+	private final long partTimeoutMs;
+	private final ArrayDeque<CompletableFuture<byte[]>> inFlight;
+	private int nextToFetch;
+	private int partsRead;
+	private byte[] current;
+	private int position;
+
+	/**
+	 * Starts fetching the first parts.
+	 *
+	 * @param numberOfParts The number of parts to read.
+	 * @param partFetcher A function that starts fetching the content of the part with the given index.
+	 * @param parallelism The maximum number of parts fetched at the same time.
+	 * @param partTimeoutMs The time to wait for a single part, before reading fails.
+	 */
+	public PartsInputStream(int numberOfParts, IntFunction<CompletableFuture<byte[]>> partFetcher, int parallelism,
+			long partTimeoutMs) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least one");
+		}
+		this.numberOfParts = numberOfParts;
+		this.partFetcher = partFetcher;
+		this.parallelism = parallelism;
+		this.partTimeoutMs = partTimeoutMs;
+		inFlight = new ArrayDeque<>(parallelism);
+		nextToFetch = 0;
+		partsRead = 0;
+		fillWindow();
+	}
+
+	private void fillWindow() {
+		while (inFlight.size() < parallelism && nextToFetch < numberOfParts) {
+			inFlight.add(partFetcher.apply(nextToFetch));
+			nextToFetch++;
+		}
+	}
+
+	private boolean nextPart() throws IOException {
+		CompletableFuture<byte[]> next = inFlight.poll();
+		if (next == null) {
+			current = null;
+			return false;
+		}
+		// release the previous part before waiting for the next one
+		current = null;
+		try {
+			byte[] content = next.get(partTimeoutMs, TimeUnit.MILLISECONDS);
+			current = content != null ? content : new byte[0];
+			position = 0;
+			partsRead++;
+			// the received part left the window, start the next fetch
+			fillWindow();
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for part " + partsRead);
+		} catch (TimeoutException e) {
+			throw new IOException("Timeout while waiting for part " + partsRead);
+		} catch (ExecutionException e) {
+			throw new IOException("Fetching part " + partsRead + " failed", e.getCause());
+		}
+	}
+
+	@Override
+	public int read() throws IOException {
+		while (current == null || position >= current.length) {
+			if (!nextPart()) {
+				return -1;
+			}
+		}
+		return current[position++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		while (current == null || position >= current.length) {
+			if (!nextPart()) {
+				return -1;
+			}
+		}
+		int count = Math.min(len, current.length - position);
+		System.arraycopy(current, position, b, off, count);
+		position += count;
+		return count;
+	}
+
+	@Override
+	public int available() {
+		return current == null ? 0 : current.length - position;
+	}
+
+	/**
+	 * Gets the number of parts read so far.
+	 *
+	 * @return Returns the number of completely or partially read parts.
+	 */
+	public int getPartsRead() {
+		return partsRead;
+	}
+
+	/**
+	 * Cancels all fetches still in flight.
+	 */
+	@Override
+	public void close() {
+		for (CompletableFuture<byte[]> future : inFlight) {
+			future.cancel(false);
+		}
+		inFlight.clear();
+		nextToFetch = numberOfParts;
+		current = null;
+	}
+
+}
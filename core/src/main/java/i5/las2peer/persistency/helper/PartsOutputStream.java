@@ -0,0 +1,201 @@
+package i5.las2peer.persistency.helper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class splits the written data into parts of a fixed size. Each part is handed to the {@link PartHandler} as
+ * soon as it is full, the last part may be smaller. This allows to store a large envelope while it is serialized,
+ * without holding the serialized envelope in memory.
+ *
+ * Created with {@link #contentDefined}, part boundaries are chosen by a rolling hash of the data instead. Inserting or
+ * removing some bytes then only changes the parts around the modification, while all other parts stay the same and
+ * can be deduplicated by their content hash.
+ */
+public class PartsOutputStream extends OutputStream {
+
+	/**
+	 * Receives the parts of a {@link PartsOutputStream}. The handler may block to limit the number of parts in flight.
+	 */
+	public interface PartHandler {
+
+		/**
+		 * Called with each filled part in index order.
+		 *
+		 * @param partIndex The index of the part starting with zero.
+		 * @param content The content of the part.
+		 * @throws IOException If the part can not be handled. The exception is passed to the writer.
+		 */
+		public void onPart(int partIndex, byte[] content) throws IOException;
+
+	}
+
+	public static final int DEFAULT_MIN_CHUNK_SIZE = 64 * 1024; // 64 KB
+	public static final int DEFAULT_CHUNK_BOUNDARY_BITS = 17; // => 128 KB on average above the minimum
+
+	private static final long[] GEAR = new long[256];
+
+	static {
+		// fixed seed, all nodes must choose the same boundaries
+		Random random = new Random(0x6c617332L);
+		for (int i = 0; i < GEAR.length; i++) {
+			GEAR[i] = random.nextLong();
+		}
+	}
+
+	private final int partSize;
+	private final int minPartSize;
+	private final long boundaryMask;
+	private final PartHandler partHandler;
+	private long hash;
+	private byte[] buffer;
+	private int position;
+	private int partCount;
+	private long size;
+	private boolean closed;
+	private boolean failed;
+
+	/**
+	 * @param partSize The size of each part except the last one.
+	 * @param partHandler The handler that gets the filled parts.
+	 */
+	public PartsOutputStream(int partSize, PartHandler partHandler) {
+		this(partSize, partSize, 0, partHandler);
+	}
+
+	private PartsOutputStream(int minPartSize, int maxPartSize, long boundaryMask, PartHandler partHandler) {
+		if (minPartSize < 1 || maxPartSize < minPartSize) {
+			throw new IllegalArgumentException("Part size must be at least one byte");
+		}
+		this.partSize = maxPartSize;
+		this.minPartSize = minPartSize;
+		this.boundaryMask = boundaryMask;
+		this.partHandler = partHandler;
+		hash = 0;
+		position = 0;
+		partCount = 0;
+		size = 0;
+		closed = false;
+		failed = false;
+	}
+
+	/**
+	 * Creates a stream that chooses part boundaries based on the content using a gear rolling hash.
+	 *
+	 * @param maxPartSize The maximum size of a part.
+	 * @param partHandler The handler that gets the filled parts.
+	 * @return Returns the content-defined parts stream.
+	 */
+	public static PartsOutputStream contentDefined(int maxPartSize, PartHandler partHandler) {
+		return contentDefined(Math.min(DEFAULT_MIN_CHUNK_SIZE, maxPartSize), maxPartSize,
+				DEFAULT_CHUNK_BOUNDARY_BITS, partHandler);
+	}
+
+	/**
+	 * Creates a stream that chooses part boundaries based on the content using a gear rolling hash.
+	 *
+	 * @param minPartSize The minimum size of a part, except the last one.
+	 * @param maxPartSize The maximum size of a part.
+	 * @param boundaryBits A boundary is set with a probability of 2^-boundaryBits after each byte.
+	 * @param partHandler The handler that gets the filled parts.
+	 * @return Returns the content-defined parts stream.
+	 */
+	public static PartsOutputStream contentDefined(int minPartSize, int maxPartSize, int boundaryBits,
+			PartHandler partHandler) {
+		if (boundaryBits < 1 || boundaryBits > 62) {
+			throw new IllegalArgumentException("Boundary bits must be between 1 and 62");
+		}
+		// use the high bits, they depend on the last 64 bytes
+		return new PartsOutputStream(minPartSize, maxPartSize, -1L << (64 - boundaryBits), partHandler);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (failed) {
+			// discard, e.g. the fatal exception an ObjectOutputStream writes after a failure
+			return;
+		} else if (closed) {
+			throw new IOException("Stream closed");
+		}
+		while (len > 0) {
+			if (buffer == null) {
+				// allocate lazily, the handler keeps the previous buffer
+				buffer = new byte[partSize];
+			}
+			int count = Math.min(len, partSize - position);
+			boolean boundary = position + count == partSize;
+			if (boundaryMask != 0) {
+				// look for a content-defined boundary
+				for (int i = 0; i < count; i++) {
+					hash = (hash << 1) + GEAR[b[off + i] & 0xff];
+					if (position + i + 1 >= minPartSize && (hash & boundaryMask) == 0) {
+						count = i + 1;
+						boundary = true;
+						break;
+					}
+				}
+			}
+			System.arraycopy(b, off, buffer, position, count);
+			position += count;
+			off += count;
+			len -= count;
+			size += count;
+			if (boundary) {
+				emit(position == partSize ? buffer : Arrays.copyOf(buffer, position));
+			}
+		}
+	}
+
+	private void emit(byte[] content) throws IOException {
+		buffer = null;
+		position = 0;
+		hash = 0;
+		try {
+			partHandler.onPart(partCount++, content);
+		} catch (IOException e) {
+			// the parts are incomplete anyway, don't hand out further parts
+			failed = true;
+			throw e;
+		}
+	}
+
+	/**
+	 * Hands the last, possibly smaller part to the handler.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (position > 0 && !failed) {
+			emit(Arrays.copyOf(buffer, position));
+		}
+	}
+
+	/**
+	 * Gets the number of parts handed to the handler so far.
+	 *
+	 * @return Returns the number of parts. After closing the stream this is the total number of parts.
+	 */
+	public int getPartCount() {
+		return partCount;
+	}
+
+	/**
+	 * Gets the number of bytes written.
+	 *
+	 * @return Returns the total number of bytes written to this stream.
+	 */
+	public long getSize() {
+		return size;
+	}
+
+}
@@ -4,6 +4,7 @@ import java.io.Serializable;
 import java.security.PublicKey;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import i5.las2peer.api.persistency.EnvelopeAlreadyExistsException;
 import i5.las2peer.persistency.EnvelopeVersion;
@@ -12,28 +13,27 @@ import i5.las2peer.persistency.StorageCollisionHandler;
 import i5.las2peer.persistency.StorageExceptionHandler;
 import i5.las2peer.persistency.StorageStoreResultHandler;
 
+/**
+ * Completes a future with the number of successful operations of a store process. Collisions are not merged, but
+ * complete the future with an {@link EnvelopeAlreadyExistsException}.
+ */
 public class StoreProcessHelper implements StorageStoreResultHandler, StorageCollisionHandler, StorageExceptionHandler {
 
-	private Exception exception;
-	private int successfulOperations = -1;
+	private final CompletableFuture<Integer> future = new CompletableFuture<>();
 
 	@Override
 	public void onResult(Serializable serializable, int successfulOperations) {
-		synchronized (this) {
-			this.successfulOperations = successfulOperations;
-		}
+		future.complete(successfulOperations);
 	}
 
 	@Override
 	public Serializable onCollision(EnvelopeVersion toStore, EnvelopeVersion inNetwork, long numberOfCollisions)
 			throws StopMergingException {
-		synchronized (this) {
-			exception = new EnvelopeAlreadyExistsException("Envelope '" + toStore.getIdentifier() + "' with version ("
-					+ toStore.getVersion()
-					+ ") already exists in network! Use a collision handler or fetch latest version before storing.");
-			// stop merging process
-			throw new StopMergingException();
-		}
+		future.completeExceptionally(new EnvelopeAlreadyExistsException("Envelope '" + toStore.getIdentifier()
+				+ "' with version (" + toStore.getVersion()
+				+ ") already exists in network! Use a collision handler or fetch latest version before storing."));
+		// stop merging process
+		throw new StopMergingException();
 	}
 
 	@Override
@@ -50,20 +50,14 @@ public class StoreProcessHelper implements StorageStoreResultHandler, StorageCol
 
 	@Override
 	public void onException(Exception e) {
-		synchronized (this) {
-			if (exception == null) {
-				exception = e;
-			}
-		}
+		future.completeExceptionally(e);
 	}
 
-	public int getResult() throws Exception {
-		synchronized (this) {
-			if (exception != null) {
-				throw exception;
-			}
-			return successfulOperations;
-		}
+	/**
+	 * @return the future completed with the number of successful operations or the first exception
+	 */
+	public CompletableFuture<Integer> getFuture() {
+		return future;
 	}
 
 }
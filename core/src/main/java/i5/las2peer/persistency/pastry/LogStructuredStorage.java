@@ -0,0 +1,953 @@
+package i5.las2peer.persistency.pastry;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import i5.las2peer.logging.L2pLogger;
+import i5.las2peer.serialization.SerializationException;
+import i5.las2peer.serialization.SerializeTools;
+import rice.Continuation;
+import rice.p2p.commonapi.Id;
+import rice.p2p.commonapi.IdFactory;
+import rice.p2p.commonapi.IdRange;
+import rice.p2p.commonapi.IdSet;
+import rice.persistence.Storage;
+
+/**
+ * This class is a persistent storage for Past, that appends all objects to a log of segment files instead of writing
+ * one file per object. The location of each object is kept in an in-memory index, which is persisted as checkpoint.
+ * On startup the memory-mapped checkpoint is loaded and only the log written after it is replayed, so the startup
+ * time does not depend on the number of stored objects.
+ *
+ * Segments with mostly overwritten or deleted objects are compacted in the background by copying their live objects
+ * to the end of the log. The maximum size limits the live objects only, so the segment files can use up to about
+ * maximumSize / compactionThreshold plus one segment of disk space before they are compacted.
+ */
+@SuppressWarnings("rawtypes")
+public class LogStructuredStorage implements Storage {
+
+	private static final L2pLogger logger = L2pLogger.getInstance(LogStructuredStorage.class);
+
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final String INDEX_FILE = "index.dat";
+	private static final long INDEX_MAGIC = 0x4c32504c4f474958L; // L2PLOGIX
+	private static final int INDEX_FORMAT = 1;
+
+	private static final byte RECORD_STORE = 1;
+	private static final byte RECORD_DELETE = 2;
+	private static final int RECORD_HEADER_SIZE = 8; // body length and checksum
+
+	/**
+	 * a segment file of the log
+	 */
+	private static class Segment {
+		private final int number;
+		private final File file;
+		private final FileChannel channel;
+		private long size;
+		private long liveBytes;
+
+		private Segment(int number, File file) throws IOException {
+			this.number = number;
+			this.file = file;
+			channel = new RandomAccessFile(file, "rw").getChannel();
+			size = channel.size();
+			liveBytes = 0;
+		}
+	}
+
+	/**
+	 * the location of the latest record of a stored object
+	 */
+	private static class Entry {
+		private final int segment;
+		private final long offset;
+		private final int length;
+		private final int objectSize;
+		private final Serializable metadata;
+
+		private Entry(int segment, long offset, int length, int objectSize, Serializable metadata) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+			this.objectSize = objectSize;
+			this.metadata = metadata;
+		}
+	}
+
+	/**
+	 * a decoded log record
+	 */
+	private static class Record {
+		private byte[] raw;
+		private byte type;
+		private byte[] id;
+		private byte[] metadata;
+		private int objectOffset;
+
+		private byte[] getObject() {
+			byte[] object = new byte[raw.length - objectOffset];
+			System.arraycopy(raw, objectOffset, object, 0, object.length);
+			return object;
+		}
+	}
+
+	private final IdFactory factory;
+	private final File directory;
+	private final long maximumSize;
+	private final long segmentSize;
+	private final double compactionThreshold;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+	private final HashMap<Id, Entry> index = new HashMap<>();
+	private final ScheduledExecutorService maintenance;
+	private IdSet idSet;
+	private Segment active;
+	private long totalSize;
+	private volatile boolean dirty;
+	private boolean closed;
+
+	/**
+	 * Opens the storage in the given directory. The directory is created if it does not exist.
+	 *
+	 * @param factory The factory used to restore ids.
+	 * @param directory The directory containing the log.
+	 * @param maximumSize The maximum total size of all stored objects in bytes. Overwritten and deleted objects are
+	 *            not counted until their segment is compacted.
+	 * @param segmentSize The size after which a new segment file is started in bytes.
+	 * @param compactionThreshold Segments with a smaller share of live data are compacted, e. g. 0.5
+	 * @param maintenanceInterval The interval for compaction and checkpoints in milliseconds.
+	 * @throws IOException If the log can not be opened.
+	 */
+	public LogStructuredStorage(IdFactory factory, String directory, long maximumSize, long segmentSize,
+			double compactionThreshold, long maintenanceInterval) throws IOException {
+		this.factory = factory;
+		this.directory = new File(directory);
+		this.maximumSize = maximumSize;
+		this.segmentSize = segmentSize;
+		this.compactionThreshold = compactionThreshold;
+		idSet = factory.buildIdSet();
+		totalSize = 0;
+		dirty = false;
+		closed = false;
+		this.directory.mkdirs();
+		if (!this.directory.isDirectory()) {
+			throw new IOException("Could not create storage directory " + directory);
+		}
+		File[] files = this.directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				String name = file.getName();
+				if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+					try {
+						int number = Integer.parseInt(
+								name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+						segments.put(number, new Segment(number, file));
+					} catch (NumberFormatException e) {
+						logger.warning("Ignoring unknown file " + file + " in storage directory");
+					}
+				}
+			}
+		}
+		if (segments.isEmpty()) {
+			openSegment(0);
+		}
+		long[] replayStart = loadIndex();
+		if (replayStart == null) {
+			logger.info("No valid index found, replaying the whole log");
+			clearIndex();
+			replayStart = new long[] { segments.firstKey(), 0 };
+		}
+		for (Segment segment : segments.tailMap((int) replayStart[0]).values()) {
+			replay(segment, segment.number == replayStart[0] ? replayStart[1] : 0);
+		}
+		active = segments.lastEntry().getValue();
+		maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "log-storage-maintenance");
+			thread.setDaemon(true);
+			return thread;
+		});
+		maintenance.scheduleWithFixedDelay(this::maintain, maintenanceInterval, maintenanceInterval,
+				TimeUnit.MILLISECONDS);
+	}
+
+	private Segment openSegment(int number) throws IOException {
+		Segment segment = new Segment(number, new File(directory, SEGMENT_PREFIX + number + SEGMENT_SUFFIX));
+		segments.put(number, segment);
+		return segment;
+	}
+
+	private void clearIndex() {
+		index.clear();
+		idSet = factory.buildIdSet();
+		totalSize = 0;
+		for (Segment segment : segments.values()) {
+			segment.liveBytes = 0;
+		}
+	}
+
+	// index
+
+	/**
+	 * Loads the persisted index.
+	 *
+	 * @return the segment number and position to replay the log from or null, if there is no valid index
+	 */
+	private long[] loadIndex() {
+		File indexFile = new File(directory, INDEX_FILE);
+		if (!indexFile.exists()) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.capacity() < Long.BYTES) {
+				throw new IOException("Index file truncated");
+			}
+			CRC32 crc = new CRC32();
+			ByteBuffer content = buffer.duplicate();
+			content.limit(buffer.capacity() - Long.BYTES);
+			crc.update(content);
+			if (buffer.getLong(buffer.capacity() - Long.BYTES) != crc.getValue()) {
+				throw new IOException("Index checksum mismatch");
+			}
+			if (buffer.getLong() != INDEX_MAGIC || buffer.getInt() != INDEX_FORMAT) {
+				throw new IOException("Unknown index format");
+			}
+			int checkpointSegment = buffer.getInt();
+			long checkpointPosition = buffer.getLong();
+			Segment replaySegment = segments.get(checkpointSegment);
+			if (replaySegment == null || replaySegment.size < checkpointPosition) {
+				throw new IOException("Index is newer than the log");
+			}
+			int count = buffer.getInt();
+			for (int i = 0; i < count; i++) {
+				byte[] id = new byte[buffer.getShort()];
+				buffer.get(id);
+				int segmentNumber = buffer.getInt();
+				long offset = buffer.getLong();
+				int length = buffer.getInt();
+				int objectSize = buffer.getInt();
+				byte[] metadata = readBytes(buffer);
+				Segment segment = segments.get(segmentNumber);
+				if (segment == null || segment.size < offset + length) {
+					throw new IOException("Index references missing log data");
+				}
+				put(factory.buildId(id), new Entry(segmentNumber, offset, length, objectSize, deserialize(metadata)));
+			}
+			logger.info("Loaded index with " + count + " entries");
+			return new long[] { checkpointSegment, checkpointPosition };
+		} catch (IOException | SerializationException | RuntimeException e) {
+			logger.log(Level.WARNING, "Could not load index " + indexFile, e);
+			return null;
+		}
+	}
+
+	private static byte[] readBytes(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Persists the index, so only the log written after this call is replayed on startup.
+	 *
+	 * Storage operations are only blocked while the index is copied, the segments are synced and the index is
+	 * written without holding the lock.
+	 *
+	 * @throws IOException If writing the index fails.
+	 */
+	public synchronized void checkpoint() throws IOException {
+		File indexFile = new File(directory, INDEX_FILE);
+		File tmpFile = new File(directory, INDEX_FILE + ".tmp");
+		List<Segment> snapshotSegments;
+		int replaySegment;
+		long replayPosition;
+		Map<Id, Entry> snapshot;
+		lock.readLock().lock();
+		try {
+			if (closed) {
+				return;
+			}
+			snapshotSegments = new ArrayList<>(segments.values());
+			replaySegment = active.number;
+			replayPosition = active.size;
+			// entries are immutable, so a shallow copy is enough
+			snapshot = new HashMap<>(index);
+			dirty = false;
+		} finally {
+			lock.readLock().unlock();
+		}
+		// segments are only removed after a later checkpoint, which waits for this one
+		boolean written = false;
+		try {
+			// the index must not reference data that is lost on a crash
+			for (Segment segment : snapshotSegments) {
+				segment.channel.force(false);
+			}
+			try (FileOutputStream fos = new FileOutputStream(tmpFile)) {
+				BufferedOutputStream bos = new BufferedOutputStream(fos);
+				CheckedOutputStream cos = new CheckedOutputStream(bos, new CRC32());
+				DataOutputStream out = new DataOutputStream(cos);
+				out.writeLong(INDEX_MAGIC);
+				out.writeInt(INDEX_FORMAT);
+				out.writeInt(replaySegment);
+				out.writeLong(replayPosition);
+				out.writeInt(snapshot.size());
+				for (Map.Entry<Id, Entry> mapEntry : snapshot.entrySet()) {
+					Entry entry = mapEntry.getValue();
+					byte[] id = mapEntry.getKey().toByteArray();
+					out.writeShort(id.length);
+					out.write(id);
+					out.writeInt(entry.segment);
+					out.writeLong(entry.offset);
+					out.writeInt(entry.length);
+					out.writeInt(entry.objectSize);
+					byte[] metadata = serialize(entry.metadata);
+					if (metadata == null) {
+						out.writeInt(-1);
+					} else {
+						out.writeInt(metadata.length);
+						out.write(metadata);
+					}
+				}
+				out.flush();
+				// the checksum itself is not part of the checksum
+				new DataOutputStream(bos).writeLong(cos.getChecksum().getValue());
+				bos.flush();
+				fos.getFD().sync();
+			} catch (SerializationException e) {
+				throw new IOException("Could not serialize metadata", e);
+			}
+			Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			written = true;
+		} finally {
+			if (!written) {
+				// the next maintenance has to try again
+				dirty = true;
+			}
+		}
+	}
+
+	private void put(Id id, Entry entry) {
+		remove(id);
+		index.put(id, entry);
+		idSet.addId(id);
+		segments.get(entry.segment).liveBytes += entry.length;
+		totalSize += entry.objectSize;
+		dirty = true;
+	}
+
+	private Entry remove(Id id) {
+		Entry previous = index.remove(id);
+		if (previous != null) {
+			idSet.removeId(id);
+			Segment segment = segments.get(previous.segment);
+			if (segment != null) {
+				segment.liveBytes -= previous.length;
+			}
+			totalSize -= previous.objectSize;
+			dirty = true;
+		}
+		return previous;
+	}
+
+	// log
+
+	private static byte[] encodeRecord(byte type, byte[] id, byte[] metadata, byte[] object) {
+		int bodyLength = 1 + Short.BYTES + id.length + Integer.BYTES + (metadata != null ? metadata.length : 0)
+				+ (object != null ? object.length : 0);
+		ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + bodyLength);
+		buffer.putInt(bodyLength);
+		buffer.putInt(0); // checksum placeholder
+		buffer.put(type);
+		buffer.putShort((short) id.length);
+		buffer.put(id);
+		if (metadata == null) {
+			buffer.putInt(-1);
+		} else {
+			buffer.putInt(metadata.length);
+			buffer.put(metadata);
+		}
+		if (object != null) {
+			buffer.put(object);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), RECORD_HEADER_SIZE, bodyLength);
+		buffer.putInt(Integer.BYTES, (int) crc.getValue());
+		return buffer.array();
+	}
+
+	/**
+	 * Reads the record at the given position.
+	 *
+	 * @return the record or null, if the log ends or the record is incomplete or corrupted
+	 */
+	private static Record readRecord(Segment segment, long position) throws IOException {
+		if (segment.size - position < RECORD_HEADER_SIZE) {
+			return null;
+		}
+		ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+		readFully(segment.channel, header, position);
+		int bodyLength = header.getInt(0);
+		if (bodyLength <= 0 || bodyLength > segment.size - position - RECORD_HEADER_SIZE) {
+			return null;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + bodyLength);
+		readFully(segment.channel, buffer, position);
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), RECORD_HEADER_SIZE, bodyLength);
+		if (buffer.getInt(Integer.BYTES) != (int) crc.getValue()) {
+			return null;
+		}
+		try {
+			Record record = new Record();
+			record.raw = buffer.array();
+			buffer.position(RECORD_HEADER_SIZE);
+			record.type = buffer.get();
+			record.id = new byte[buffer.getShort()];
+			buffer.get(record.id);
+			record.metadata = readBytes(buffer);
+			record.objectOffset = buffer.position();
+			return record;
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of segment");
+			}
+		}
+	}
+
+	/**
+	 * Appends a record to the active segment.
+	 *
+	 * @return the offset of the record in the active segment
+	 */
+	private long append(byte[] record) throws IOException {
+		if (active.size > 0 && active.size + record.length > segmentSize) {
+			active = openSegment(active.number + 1);
+		}
+		long offset = active.size;
+		ByteBuffer buffer = ByteBuffer.wrap(record);
+		while (buffer.hasRemaining()) {
+			active.channel.write(buffer, offset + buffer.position());
+		}
+		active.size += record.length;
+		return offset;
+	}
+
+	private void replay(Segment segment, long position) throws IOException {
+		while (position < segment.size) {
+			Record record = readRecord(segment, position);
+			if (record == null) {
+				// an interrupted write, the log ends here
+				logger.warning("Truncating " + segment.file + " at corrupted record at " + position);
+				segment.channel.truncate(position);
+				segment.size = position;
+				break;
+			}
+			Id id = factory.buildId(record.id);
+			if (record.type == RECORD_STORE) {
+				try {
+					put(id, new Entry(segment.number, position, record.raw.length, record.raw.length
+							- record.objectOffset, deserialize(record.metadata)));
+				} catch (SerializationException e) {
+					throw new IOException("Could not restore metadata of " + id, e);
+				}
+			} else if (record.type == RECORD_DELETE) {
+				remove(id);
+			}
+			position += record.raw.length;
+		}
+	}
+
+	private Record readEntry(Entry entry) throws IOException {
+		Record record = readRecord(segments.get(entry.segment), entry.offset);
+		if (record == null || record.raw.length != entry.length) {
+			throw new IOException("Corrupted record in segment " + entry.segment + " at " + entry.offset);
+		}
+		return record;
+	}
+
+	private void checkOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Storage closed");
+		}
+	}
+
+	// compaction
+
+	private void maintain() {
+		try {
+			compact();
+			if (dirty) {
+				checkpoint();
+			}
+		} catch (Exception e) {
+			logger.log(Level.WARNING, "Storage maintenance failed", e);
+		}
+	}
+
+	/**
+	 * Compacts all segments with a share of live data below the compaction threshold.
+	 *
+	 * @return the number of removed segments
+	 * @throws IOException If compaction fails.
+	 */
+	public int compact() throws IOException {
+		List<Segment> candidates = new ArrayList<>();
+		lock.readLock().lock();
+		try {
+			for (Segment segment : segments.values()) {
+				if (segment != active && !closed && segment.liveBytes < segment.size * compactionThreshold) {
+					candidates.add(segment);
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		int compacted = 0;
+		for (Segment segment : candidates) {
+			if (compactSegment(segment)) {
+				compacted++;
+			}
+		}
+		return compacted;
+	}
+
+	private boolean compactSegment(Segment segment) throws IOException {
+		long position = 0;
+		int copied = 0;
+		while (true) {
+			// lock each record, so storage operations are not blocked for the whole segment
+			lock.writeLock().lock();
+			try {
+				if (closed || segments.get(segment.number) != segment) {
+					return false;
+				} else if (position >= segment.size) {
+					break;
+				}
+				Record record = readRecord(segment, position);
+				if (record == null) {
+					logger.warning("Corrupted record in " + segment.file + " at " + position + ", skipping compaction");
+					return false;
+				}
+				Id id = factory.buildId(record.id);
+				Entry entry = index.get(id);
+				if (record.type == RECORD_STORE && entry != null && entry.segment == segment.number
+						&& entry.offset == position) {
+					// still live, move it to the end of the log
+					long offset = append(record.raw);
+					put(id, new Entry(active.number, offset, entry.length, entry.objectSize, entry.metadata));
+					copied++;
+				} else if (record.type == RECORD_DELETE && entry == null && segments.firstKey() < segment.number) {
+					// older segments may still contain the deleted object
+					append(record.raw);
+				}
+				position += record.raw.length;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+		// the index must not reference the segment anymore, before it is deleted
+		checkpoint();
+		lock.writeLock().lock();
+		try {
+			if (segments.remove(segment.number, segment)) {
+				segment.channel.close();
+				Files.deleteIfExists(segment.file.toPath());
+				logger.fine("Compacted " + segment.file + ", moved " + copied + " objects");
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+		return true;
+	}
+
+	/**
+	 * Stops the background maintenance, persists the index and closes all segments.
+	 *
+	 * @throws IOException If the index can not be persisted.
+	 */
+	public void close() throws IOException {
+		maintenance.shutdown();
+		try {
+			maintenance.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			checkpoint();
+		} finally {
+			closeSegments();
+		}
+	}
+
+	/**
+	 * Closes the segment files without writing a checkpoint, as if the process was killed. Only used by tests.
+	 *
+	 * @throws IOException If a segment file can not be closed.
+	 */
+	void abandon() throws IOException {
+		maintenance.shutdownNow();
+		closeSegments();
+	}
+
+	private void closeSegments() throws IOException {
+		lock.writeLock().lock();
+		try {
+			if (!closed) {
+				closed = true;
+				for (Segment segment : segments.values()) {
+					segment.channel.close();
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// serialization
+
+	private static byte[] serialize(Serializable serializable) throws SerializationException {
+		return serializable == null ? null : SerializeTools.serialize(serializable);
+	}
+
+	private static Serializable deserialize(byte[] bytes) throws SerializationException {
+		return bytes == null ? null : SerializeTools.deserialize(bytes);
+	}
+
+	// Storage
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void store(Id id, Serializable metadata, Serializable obj, Continuation c) {
+		Boolean result;
+		try {
+			byte[] object = SerializeTools.serialize(obj);
+			byte[] record = encodeRecord(RECORD_STORE, id.toByteArray(), serialize(metadata), object);
+			lock.writeLock().lock();
+			try {
+				checkOpen();
+				Entry previous = index.get(id);
+				if (totalSize - (previous != null ? previous.objectSize : 0) + object.length > maximumSize) {
+					result = Boolean.FALSE;
+				} else {
+					long offset = append(record);
+					put(id, new Entry(active.number, offset, record.length, object.length, metadata));
+					result = Boolean.TRUE;
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+		} catch (IOException | SerializationException e) {
+			c.receiveException(e);
+			return;
+		}
+		c.receiveResult(result);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void unstore(Id id, Continuation c) {
+		Boolean result;
+		try {
+			lock.writeLock().lock();
+			try {
+				checkOpen();
+				if (index.containsKey(id)) {
+					append(encodeRecord(RECORD_DELETE, id.toByteArray(), null, null));
+					remove(id);
+					result = Boolean.TRUE;
+				} else {
+					result = Boolean.FALSE;
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+		} catch (IOException e) {
+			c.receiveException(e);
+			return;
+		}
+		c.receiveResult(result);
+	}
+
+	@Override
+	public boolean exists(Id id) {
+		lock.readLock().lock();
+		try {
+			return index.containsKey(id);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void getObject(Id id, Continuation c) {
+		Serializable result = null;
+		try {
+			byte[] object = null;
+			lock.readLock().lock();
+			try {
+				checkOpen();
+				Entry entry = index.get(id);
+				if (entry != null) {
+					object = readEntry(entry).getObject();
+				}
+			} finally {
+				lock.readLock().unlock();
+			}
+			if (object != null) {
+				result = SerializeTools.deserialize(object);
+			}
+		} catch (IOException | SerializationException e) {
+			c.receiveException(e);
+			return;
+		}
+		c.receiveResult(result);
+	}
+
+	@Override
+	public Serializable getMetadata(Id id) {
+		lock.readLock().lock();
+		try {
+			Entry entry = index.get(id);
+			return entry != null ? entry.metadata : null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void setMetadata(Id id, Serializable metadata, Continuation command) {
+		Boolean result;
+		try {
+			byte[] serializedMetadata = serialize(metadata);
+			lock.writeLock().lock();
+			try {
+				checkOpen();
+				Entry entry = index.get(id);
+				if (entry == null) {
+					result = Boolean.FALSE;
+				} else {
+					// rewrite the record, so the log stays the only source of truth
+					byte[] record = encodeRecord(RECORD_STORE, id.toByteArray(), serializedMetadata,
+							readEntry(entry).getObject());
+					long offset = append(record);
+					put(id, new Entry(active.number, offset, record.length, entry.objectSize, metadata));
+					result = Boolean.TRUE;
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+		} catch (IOException | SerializationException e) {
+			command.receiveException(e);
+			return;
+		}
+		command.receiveResult(result);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void rename(Id oldId, Id newId, Continuation c) {
+		Boolean result;
+		try {
+			lock.writeLock().lock();
+			try {
+				checkOpen();
+				Entry entry = index.get(oldId);
+				if (entry == null) {
+					result = Boolean.FALSE;
+				} else {
+					byte[] record = encodeRecord(RECORD_STORE, newId.toByteArray(), serialize(entry.metadata),
+							readEntry(entry).getObject());
+					long offset = append(record);
+					put(newId, new Entry(active.number, offset, record.length, entry.objectSize, entry.metadata));
+					append(encodeRecord(RECORD_DELETE, oldId.toByteArray(), null, null));
+					remove(oldId);
+					result = Boolean.TRUE;
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+		} catch (IOException | SerializationException e) {
+			c.receiveException(e);
+			return;
+		}
+		c.receiveResult(result);
+	}
+
+	@Override
+	public IdSet scan(IdRange range) {
+		lock.readLock().lock();
+		try {
+			return idSet.subSet(range);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public IdSet scan() {
+		lock.readLock().lock();
+		try {
+			IdSet result = factory.buildIdSet();
+			for (Id id : index.keySet()) {
+				result.addId(id);
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public SortedMap<Id, Serializable> scanMetadata(IdRange range) {
+		lock.readLock().lock();
+		try {
+			TreeMap<Id, Serializable> result = new TreeMap<>();
+			Iterator<?> it = idSet.subSet(range).getIterator();
+			while (it.hasNext()) {
+				Id id = (Id) it.next();
+				result.put(id, index.get(id).metadata);
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public SortedMap<Id, Serializable> scanMetadata() {
+		lock.readLock().lock();
+		try {
+			TreeMap<Id, Serializable> result = new TreeMap<>();
+			for (Map.Entry<Id, Entry> entry : index.entrySet()) {
+				result.put(entry.getKey(), entry.getValue().metadata);
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public SortedMap<Id, Serializable> scanMetadataValuesHead(Object value) {
+		lock.readLock().lock();
+		try {
+			TreeMap<Id, Serializable> result = new TreeMap<>();
+			for (Map.Entry<Id, Entry> entry : index.entrySet()) {
+				Serializable metadata = entry.getValue().metadata;
+				if (metadata != null && ((Comparable<Object>) metadata).compareTo(value) <= 0) {
+					result.put(entry.getKey(), metadata);
+				}
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public SortedMap<Id, Serializable> scanMetadataValuesNull() {
+		lock.readLock().lock();
+		try {
+			TreeMap<Id, Serializable> result = new TreeMap<>();
+			for (Map.Entry<Id, Entry> entry : index.entrySet()) {
+				if (entry.getValue().metadata == null) {
+					result.put(entry.getKey(), null);
+				}
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public int getSize() {
+		lock.readLock().lock();
+		try {
+			return index.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public long getTotalSize() {
+		lock.readLock().lock();
+		try {
+			return totalSize;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Erases all data stored in this storage.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public void flush(Continuation c) {
+		try {
+			lock.writeLock().lock();
+			try {
+				checkOpen();
+				Files.deleteIfExists(new File(directory, INDEX_FILE).toPath());
+				for (Segment segment : segments.values()) {
+					segment.channel.close();
+					Files.deleteIfExists(segment.file.toPath());
+				}
+				segments.clear();
+				clearIndex();
+				active = openSegment(0);
+			} finally {
+				lock.writeLock().unlock();
+			}
+		} catch (IOException e) {
+			c.receiveException(e);
+			return;
+		}
+		c.receiveResult(Boolean.TRUE);
+	}
+
+}
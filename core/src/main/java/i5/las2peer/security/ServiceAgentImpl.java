@@ -1,5 +1,6 @@
 package i5.las2peer.security;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -18,6 +19,7 @@ import i5.las2peer.api.execution.InternalServiceException;
 import i5.las2peer.api.execution.ServiceInvocationException;
 import i5.las2peer.api.execution.ServiceInvocationFailedException;
 import i5.las2peer.api.execution.ServiceMethodNotFoundException;
+import i5.las2peer.api.execution.StreamingResult;
 import i5.las2peer.api.logging.MonitoringEvent;
 import i5.las2peer.api.p2p.ServiceNameVersion;
 import i5.las2peer.api.security.AgentAccessDeniedException;
@@ -30,10 +32,15 @@ import i5.las2peer.classLoaders.LibraryNotFoundException;
 import i5.las2peer.communication.ListMethodsContent;
 import i5.las2peer.communication.Message;
 import i5.las2peer.communication.MessageException;
+import i5.las2peer.communication.RMIBatchResultContent;
 import i5.las2peer.communication.RMIExceptionContent;
 import i5.las2peer.communication.RMIResultContent;
+import i5.las2peer.communication.RMIStreamChunkContent;
+import i5.las2peer.communication.RMIStreamChunkRequest;
+import i5.las2peer.communication.RMIStreamContent;
 import i5.las2peer.communication.ServiceDiscoveryContent;
 import i5.las2peer.execution.ExecutionContext;
+import i5.las2peer.execution.RMIBatchTask;
 import i5.las2peer.execution.RMITask;
 import i5.las2peer.execution.ServiceHelper;
 import i5.las2peer.logging.L2pLogger;
@@ -140,7 +147,12 @@ public class ServiceAgentImpl extends PassphraseAgentImpl implements ServiceAgen
 				Message response;
 
 				try {
-					response = new Message(m, new RMIResultContent(handle(task, c)));
+					Serializable result = handle(task, c);
+					if (result instanceof StreamingResult) {
+						response = new Message(m, openResultStream((StreamingResult) result, m.getSenderId()));
+					} else {
+						response = new Message(m, new RMIResultContent(result));
+					}
 					getRunningAtNode().observerNotice(MonitoringEvent.SERVICE_INVOCATION_FINISHED, m.getSendingNodeId(),
 							m.getSender(), getRunningAtNode().getNodeId(), this,
 							this.getServiceNameVersion() + "/" + task.getMethodName());
@@ -150,6 +162,59 @@ public class ServiceAgentImpl extends PassphraseAgentImpl implements ServiceAgen
 							m.getSender(), getRunningAtNode().getNodeId(), this, "Exception: " + e);
 				}
 
+				response.setSendingNodeId(getRunningAtNode().getNodeId());
+				getRunningAtNode().sendResponse(response, m.getSendingNodeId());
+			} else if (content instanceof RMIBatchTask) {
+				RMIBatchResultContent results = new RMIBatchResultContent();
+				for (RMITask task : ((RMIBatchTask) content).getTasks()) {
+					getRunningAtNode().observerNotice(MonitoringEvent.SERVICE_INVOCATION, m.getSendingNodeId(),
+							m.getSender(), getRunningAtNode().getNodeId(), this,
+							this.getServiceNameVersion() + "/" + task.getMethodName());
+					try {
+						Serializable result = handle(task, c);
+						if (result instanceof StreamingResult) {
+							try {
+								((StreamingResult) result).getInputStream().close();
+							} catch (IOException e) {
+								// the result is dropped anyway
+							}
+							throw new ServiceInvocationFailedException(
+									"Streaming results can not be part of a batch invocation");
+						}
+						results.addResult(result);
+						getRunningAtNode().observerNotice(MonitoringEvent.SERVICE_INVOCATION_FINISHED,
+								m.getSendingNodeId(), m.getSender(), getRunningAtNode().getNodeId(), this,
+								this.getServiceNameVersion() + "/" + task.getMethodName());
+					} catch (ServiceInvocationException e) {
+						results.addException(e);
+						getRunningAtNode().observerNotice(MonitoringEvent.SERVICE_INVOCATION_FAILED,
+								m.getSendingNodeId(), m.getSender(), getRunningAtNode().getNodeId(), this,
+								"Exception: " + e);
+					}
+				}
+
+				Message response = new Message(m, results);
+				response.setSendingNodeId(getRunningAtNode().getNodeId());
+				getRunningAtNode().sendResponse(response, m.getSendingNodeId());
+			} else if (content instanceof RMIStreamChunkRequest) {
+				RMIStreamChunkRequest request = (RMIStreamChunkRequest) content;
+				if (request.isCancel()) {
+					try {
+						getRunningAtNode().getResultStreams().cancel(request.getStreamId(), m.getSenderId());
+					} catch (IOException e) {
+						// stream already closed
+					}
+					return;
+				}
+
+				Message response;
+				try {
+					RMIStreamChunkContent chunk = getRunningAtNode().getResultStreams()
+							.readChunk(request.getStreamId(), m.getSenderId(), request.getSequence());
+					response = new Message(m, chunk);
+				} catch (IOException e) {
+					response = new Message(m, new RMIExceptionContent(e));
+				}
 				response.setSendingNodeId(getRunningAtNode().getNodeId());
 				getRunningAtNode().sendResponse(response, m.getSendingNodeId());
 			} else if (content instanceof ListMethodsContent) {
@@ -179,7 +244,7 @@ public class ServiceAgentImpl extends PassphraseAgentImpl implements ServiceAgen
 				// only answer if requirements are met
 				if (((ServiceDiscoveryContent) content).accepts(this.getServiceNameVersion())) {
 					ServiceDiscoveryContent result = new ServiceDiscoveryContent(this.getIdentifier(),
-							this.getServiceNameVersion());
+							this.getServiceNameVersion(), getRunningAtNode().getNodeCpuLoad());
 
 					Message response = new Message(m, result);
 					response.setSendingNodeId(getRunningAtNode().getNodeId());
@@ -211,6 +276,24 @@ public class ServiceAgentImpl extends PassphraseAgentImpl implements ServiceAgen
 
 	}
 
+	/**
+	 * register a streaming result to be read in chunks by the caller
+	 * 
+	 * @param result a streaming result returned by the service
+	 * @param ownerId the id of the calling agent
+	 * @return the message content with the first chunk of the result
+	 * @throws ServiceInvocationFailedException if the result can not be read
+	 */
+	private RMIStreamContent openResultStream(StreamingResult result, String ownerId)
+			throws ServiceInvocationFailedException {
+		try {
+			RMIStreamChunkContent firstChunk = getRunningAtNode().getResultStreams().register(result, ownerId);
+			return new RMIStreamContent(result.getLength(), result.getContentType(), firstChunk);
+		} catch (IOException e) {
+			throw new ServiceInvocationFailedException("Reading the streaming result failed", e);
+		}
+	}
+
 	@Override
 	public void notifyUnregister() {
 		Node runningAt = getRunningAtNode();
@@ -5,6 +5,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.Serializable;
+import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.KeyFactory;
 import java.security.KeyPair;
@@ -29,7 +30,9 @@ import javax.crypto.KeyGenerator;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
+import javax.crypto.ShortBufferException;
 import javax.crypto.interfaces.PBEKey;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
 
@@ -61,6 +64,10 @@ public class CryptoTools {
 	private static final String DEFAULT_RANDOM_METHOD = "SHA1PRNG";
 	private static String randomMethod = DEFAULT_RANDOM_METHOD;
 
+	private static final String AUTHENTICATED_SYMMETRIC_ALGORITHM = "AES/GCM/NoPadding";
+	private static final int AUTHENTICATED_IV_LENGTH = 12;
+	private static final int AUTHENTICATED_TAG_LENGTH = 128;
+
 	private static final String DEFAULT_KEY_FACTORY_NAME = "PBKDF2WithHmacSHA1";
 	private static String keyFactoryName = DEFAULT_KEY_FACTORY_NAME;
 
@@ -443,6 +450,93 @@ public class CryptoTools {
 		}
 	}
 
+	/**
+	 * get the algorithm used for authenticated symmetric encryption with reused keys
+	 * 
+	 * @return the name of the authenticated symmetric encryption algorithm
+	 */
+	public static String getAuthenticatedSymmetricAlgorithm() {
+		return AUTHENTICATED_SYMMETRIC_ALGORITHM;
+	}
+
+	/**
+	 * get the length of the initialization vector for authenticated symmetric encryption
+	 * 
+	 * @return IV length in bytes
+	 */
+	public static int getAuthenticatedIvLength() {
+		return AUTHENTICATED_IV_LENGTH;
+	}
+
+	/**
+	 * encrypt the given data symmetrically and authenticated (AES-GCM) with the given key and initialization vector
+	 * 
+	 * The IV is prepended to the result. An IV must never be used twice with the same key!
+	 * 
+	 * @param baPlainData The data that is encrypted.
+	 * @param symmetricKey The key that is used to encrypt the given data.
+	 * @param iv A unique initialization vector of {@link #getAuthenticatedIvLength()} bytes
+	 * @return IV followed by the encrypted content as byte array
+	 * @throws CryptoException If an issue occurs with encryption.
+	 */
+	public static byte[] encryptSymmetricAuthenticated(byte[] baPlainData, SecretKey symmetricKey, byte[] iv)
+			throws CryptoException {
+		if (iv == null || iv.length != AUTHENTICATED_IV_LENGTH) {
+			throw new CryptoException("IV of " + AUTHENTICATED_IV_LENGTH + " bytes expected");
+		}
+		try {
+			Cipher c = Cipher.getInstance(AUTHENTICATED_SYMMETRIC_ALGORITHM);
+			c.init(Cipher.ENCRYPT_MODE, symmetricKey, new GCMParameterSpec(AUTHENTICATED_TAG_LENGTH, iv));
+
+			byte[] result = new byte[iv.length + c.getOutputSize(baPlainData.length)];
+			System.arraycopy(iv, 0, result, 0, iv.length);
+			c.doFinal(baPlainData, 0, baPlainData.length, result, iv.length);
+			return result;
+		} catch (InvalidKeyException | InvalidAlgorithmParameterException e) {
+			throw new CryptoException("key problems", e);
+		} catch (NoSuchAlgorithmException e) {
+			throw new CryptoException("algorithm problems", e);
+		} catch (NoSuchPaddingException e) {
+			throw new CryptoException("padding problems", e);
+		} catch (IllegalBlockSizeException e) {
+			throw new CryptoException("blocksize problems", e);
+		} catch (BadPaddingException e) {
+			throw new CryptoException("padding problems", e);
+		} catch (ShortBufferException e) {
+			throw new CryptoException("buffer problems", e);
+		}
+	}
+
+	/**
+	 * decrypt and verify data encrypted by {@link #encryptSymmetricAuthenticated(byte[], SecretKey, byte[])}
+	 * 
+	 * @param baCipherData IV followed by the encrypted data
+	 * @param key The key that is used to decrypt the given data.
+	 * @return decrypted content as byte array
+	 * @throws CryptoException If an issue occurs with decryption or the data has been tampered with.
+	 */
+	public static byte[] decryptSymmetricAuthenticated(byte[] baCipherData, SecretKey key) throws CryptoException {
+		if (baCipherData == null || baCipherData.length < AUTHENTICATED_IV_LENGTH) {
+			throw new CryptoException("cipher data too short");
+		}
+		try {
+			Cipher c = Cipher.getInstance(AUTHENTICATED_SYMMETRIC_ALGORITHM);
+			c.init(Cipher.DECRYPT_MODE, key,
+					new GCMParameterSpec(AUTHENTICATED_TAG_LENGTH, baCipherData, 0, AUTHENTICATED_IV_LENGTH));
+			return c.doFinal(baCipherData, AUTHENTICATED_IV_LENGTH, baCipherData.length - AUTHENTICATED_IV_LENGTH);
+		} catch (InvalidKeyException | InvalidAlgorithmParameterException e) {
+			throw new CryptoException("Key problems!", e);
+		} catch (NoSuchAlgorithmException e) {
+			throw new CryptoException("algorithm problems!", e);
+		} catch (NoSuchPaddingException e) {
+			throw new CryptoException("padding problems!", e);
+		} catch (IllegalBlockSizeException e) {
+			throw new CryptoException("block size problems!", e);
+		} catch (BadPaddingException e) {
+			throw new CryptoException("authentication failed!", e);
+		}
+	}
+
 	/**
 	 * encrypt the given object after serialization with the givne key
 	 * 
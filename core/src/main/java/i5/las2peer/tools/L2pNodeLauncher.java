@@ -46,6 +46,7 @@ import i5.las2peer.classLoaders.policies.DefaultPolicy;
 import i5.las2peer.classLoaders.policies.RestrictivePolicy;
 import i5.las2peer.communication.ListMethodsContent;
 import i5.las2peer.communication.Message;
+import i5.las2peer.communication.SessionKeyCache;
 import i5.las2peer.connectors.Connector;
 import i5.las2peer.connectors.ConnectorException;
 import i5.las2peer.logging.L2pLogger;
@@ -955,6 +956,12 @@ public class L2pNodeLauncher {
 		if (launcherConfiguration.isSandbox()) {
 			L2pSecurityManager.enableSandbox(); // ENABLE SANDBOXING!!!
 		}
+		if (launcherConfiguration.getSessionKeys() != null) {
+			SessionKeyCache.getInstance().setEnabled(launcherConfiguration.getSessionKeys());
+		}
+		if (launcherConfiguration.getCompressPayloads() != null) {
+			PayloadCompressor.getInstance().setEnabled(launcherConfiguration.getCompressPayloads());
+		}
 		// check configuration
 		String logDir = launcherConfiguration.getLogDir();
 		if (logDir != null) {
@@ -1099,6 +1106,14 @@ public class L2pNodeLauncher {
 				+ L2pNodeLauncherConfiguration.ARG_SHORT_STORAGE_DIRECTORY
 				+ " DIRECTORY\tsets Pastry's storage directory. Default: " + SharedStorage.DEFAULT_STORAGE_ROOT_DIR
 				+ "\n");
+		System.out.println("  " + L2pNodeLauncherConfiguration.ARG_SESSION_KEYS + "|"
+				+ L2pNodeLauncherConfiguration.ARG_SHORT_SESSION_KEYS
+				+ "\t\t\tencrypts messages with cached AES-GCM session keys.\n"
+				+ "\t\t\t\t\tOnly use this if all nodes in the network support session key messages.\n");
+		System.out.println("  " + L2pNodeLauncherConfiguration.ARG_COMPRESS_PAYLOADS + "|"
+				+ L2pNodeLauncherConfiguration.ARG_SHORT_COMPRESS_PAYLOADS
+				+ "\t\tcompresses large message and envelope payloads before encryption.\n"
+				+ "\t\t\t\t\tOnly use this if all nodes in the network support compressed payloads.\n");
 		System.out.println("  " + L2pNodeLauncherConfiguration.ARG_ETHEREUM_MNEMONIC
 				+ " \"QUOTED STRING\"\tsets Node operator's Ethereum BIP39 mnemonic for Service Registry.\n"
 				+ "\t\t\t\t\tThis is used along with the password to derive the public/private key pair.");
@@ -0,0 +1,327 @@
+package i5.las2peer.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import i5.las2peer.logging.L2pLogger;
+import i5.las2peer.serialization.SerializationException;
+
+/**
+ * Compresses message and envelope payloads before they are encrypted.
+ *
+ * Encrypted data can not be compressed anymore, so large contents are compressed right after serialization. Payloads
+ * below a size threshold are left as they are, as well as payloads, which do not get smaller by at least a minimum
+ * share (for example already compressed files). The used algorithm is stored next to the payload, thus the receiver
+ * does not depend on the local configuration.
+ *
+ * Compression is disabled by default, because nodes of older versions can not read compressed payloads. Use the
+ * launcher option {@code --compress-payloads} once all nodes of a network support it.
+ *
+ */
+public class PayloadCompressor {
+
+	public static final boolean DEFAULT_ENABLED = false;
+	public static final int DEFAULT_THRESHOLD = 4096; // bytes
+	public static final double DEFAULT_MIN_SAVING = 0.1;
+	public static final Algorithm DEFAULT_ALGORITHM = Algorithm.DEFLATE;
+	public static final int DEFAULT_MAX_INFLATED_SIZE = 256 * 1024 * 1024; // 256 MB
+
+	private static final L2pLogger logger = L2pLogger.getInstance(PayloadCompressor.class);
+
+	private static final PayloadCompressor instance = new PayloadCompressor();
+
+	private boolean enabled = DEFAULT_ENABLED;
+	private int threshold = DEFAULT_THRESHOLD;
+	private double minSaving = DEFAULT_MIN_SAVING;
+	private Algorithm algorithm = DEFAULT_ALGORITHM;
+	private int maxInflatedSize = DEFAULT_MAX_INFLATED_SIZE;
+
+	private final AtomicLong compressedCount = new AtomicLong();
+	private final AtomicLong skippedCount = new AtomicLong();
+	private final AtomicLong compressedBytesIn = new AtomicLong();
+	private final AtomicLong compressedBytesOut = new AtomicLong();
+
+	/**
+	 * supported compression algorithms
+	 */
+	public enum Algorithm {
+		/**
+		 * payload is not compressed
+		 */
+		NONE((byte) 0, "none", Deflater.NO_COMPRESSION),
+		/**
+		 * deflate with the default compression level
+		 */
+		DEFLATE((byte) 1, "deflate", Deflater.DEFAULT_COMPRESSION),
+		/**
+		 * deflate with the fastest compression level, trades ratio for speed
+		 */
+		DEFLATE_FAST((byte) 2, "deflate-fast", Deflater.BEST_SPEED);
+
+		private final byte id;
+		private final String name;
+		private final int level;
+
+		private Algorithm(byte id, String name, int level) {
+			this.id = id;
+			this.name = name;
+			this.level = level;
+		}
+
+		/**
+		 * @return the id used in binary representations
+		 */
+		public byte getId() {
+			return id;
+		}
+
+		/**
+		 * @return the name used in XML representations
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * get an algorithm by its binary id
+		 *
+		 * @param id An algorithm id
+		 * @return the algorithm
+		 * @throws SerializationException If the id is unknown
+		 */
+		public static Algorithm fromId(byte id) throws SerializationException {
+			for (Algorithm a : values()) {
+				if (a.id == id) {
+					return a;
+				}
+			}
+			throw new SerializationException("unknown compression algorithm " + id);
+		}
+
+		/**
+		 * get an algorithm by its name
+		 *
+		 * @param name An algorithm name, empty or null for no compression
+		 * @return the algorithm
+		 * @throws SerializationException If the name is unknown
+		 */
+		public static Algorithm fromName(String name) throws SerializationException {
+			if (name == null || name.isEmpty()) {
+				return NONE;
+			}
+			for (Algorithm a : values()) {
+				if (a.name.equals(name)) {
+					return a;
+				}
+			}
+			throw new SerializationException("unknown compression algorithm " + name);
+		}
+	}
+
+	/**
+	 * a payload together with the algorithm it is compressed with
+	 */
+	public static class Payload {
+		private final Algorithm algorithm;
+		private final byte[] data;
+
+		private Payload(Algorithm algorithm, byte[] data) {
+			this.algorithm = algorithm;
+			this.data = data;
+		}
+
+		/**
+		 * @return the algorithm used for the data
+		 */
+		public Algorithm getAlgorithm() {
+			return algorithm;
+		}
+
+		/**
+		 * @return the (possibly compressed) data
+		 */
+		public byte[] getData() {
+			return data;
+		}
+	}
+
+	/**
+	 * get the (JVM wide) payload compressor
+	 *
+	 * @return the compressor instance
+	 */
+	public static PayloadCompressor getInstance() {
+		return instance;
+	}
+
+	/**
+	 * compress the given payload, if it is large enough and compression pays off
+	 *
+	 * @param data A serialized payload
+	 * @return the compressed payload or the given payload with {@link Algorithm#NONE}
+	 */
+	public Payload compress(byte[] data) {
+		Algorithm algorithm = this.algorithm;
+		if (!enabled || algorithm == Algorithm.NONE || data.length < threshold) {
+			return new Payload(Algorithm.NONE, data);
+		}
+
+		Deflater deflater = new Deflater(algorithm.level);
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+			// give up as soon as the output exceeds the size worth storing
+			int limit = (int) (data.length * (1 - minSaving));
+			ByteArrayOutputStream baos = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+			byte[] buffer = new byte[8192];
+			while (!deflater.finished()) {
+				int count = deflater.deflate(buffer);
+				baos.write(buffer, 0, count);
+				if (baos.size() > limit) {
+					skippedCount.incrementAndGet();
+					return new Payload(Algorithm.NONE, data);
+				}
+			}
+			byte[] compressed = baos.toByteArray();
+			compressedCount.incrementAndGet();
+			compressedBytesIn.addAndGet(data.length);
+			compressedBytesOut.addAndGet(compressed.length);
+			logger.finer("compressed payload of " + data.length + " bytes to " + compressed.length + " bytes using "
+					+ algorithm.getName());
+			return new Payload(algorithm, compressed);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * restore a payload created by {@link #compress(byte[])}
+	 *
+	 * @param data A payload
+	 * @param algorithm The algorithm the payload is compressed with
+	 * @return the uncompressed payload
+	 * @throws SerializationException If the payload is corrupted or exceeds the maximum size
+	 */
+	public byte[] decompress(byte[] data, Algorithm algorithm) throws SerializationException {
+		if (algorithm == null || algorithm == Algorithm.NONE) {
+			return data;
+		}
+
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(data);
+			ByteArrayOutputStream baos = new ByteArrayOutputStream(data.length * 4);
+			byte[] buffer = new byte[8192];
+			while (!inflater.finished()) {
+				int count = inflater.inflate(buffer);
+				if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new SerializationException("truncated compressed payload");
+				}
+				baos.write(buffer, 0, count);
+				if (baos.size() > maxInflatedSize) {
+					throw new SerializationException("compressed payload exceeds " + maxInflatedSize + " bytes");
+				}
+			}
+			return baos.toByteArray();
+		} catch (DataFormatException e) {
+			throw new SerializationException("corrupted compressed payload", e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @param enabled If true, new payloads are compressed, which only nodes of newer versions can read
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * @param threshold Minimum payload size in bytes to try compression
+	 */
+	public void setThreshold(int threshold) {
+		this.threshold = threshold;
+	}
+
+	public double getMinSaving() {
+		return minSaving;
+	}
+
+	/**
+	 * @param minSaving Share of the size a compressed payload has to save at least, otherwise it is sent uncompressed
+	 */
+	public void setMinSaving(double minSaving) {
+		this.minSaving = minSaving;
+	}
+
+	public Algorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	public void setAlgorithm(Algorithm algorithm) {
+		this.algorithm = algorithm;
+	}
+
+	public int getMaxInflatedSize() {
+		return maxInflatedSize;
+	}
+
+	/**
+	 * @param maxInflatedSize Maximum size in bytes of a decompressed payload
+	 */
+	public void setMaxInflatedSize(int maxInflatedSize) {
+		this.maxInflatedSize = maxInflatedSize;
+	}
+
+	/**
+	 * @return the number of compressed payloads
+	 */
+	public long getCompressedCount() {
+		return compressedCount.get();
+	}
+
+	/**
+	 * @return the number of payloads, which were tried, but did not compress well enough
+	 */
+	public long getSkippedCount() {
+		return skippedCount.get();
+	}
+
+	/**
+	 * @return the total size in bytes of all compressed payloads before compression
+	 */
+	public long getCompressedBytesIn() {
+		return compressedBytesIn.get();
+	}
+
+	/**
+	 * @return the total size in bytes of all compressed payloads after compression
+	 */
+	public long getCompressedBytesOut() {
+		return compressedBytesOut.get();
+	}
+
+	/**
+	 * @return the ratio of compressed to uncompressed size over all compressed payloads, 1 if nothing was compressed
+	 */
+	public double getCompressionRatio() {
+		long in = compressedBytesIn.get();
+		if (in == 0) {
+			return 1;
+		}
+		return (double) compressedBytesOut.get() / in;
+	}
+
+}
@@ -0,0 +1,283 @@
+package i5.las2peer.tools;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import i5.las2peer.logging.L2pLogger;
+
+/**
+ * A hierarchical timing wheel to run a large number of timeout tasks with a single thread.
+ *
+ * Time is divided into ticks. The lowest wheel has one slot per tick, each higher wheel has one slot per revolution of
+ * the wheel below. A timeout is put into the lowest wheel covering its deadline and moved down to lower wheels as the
+ * time advances. Scheduling and cancelling a timeout are constant time operations and the wheel only needs one thread
+ * regardless of the number of pending timeouts. The precision of a timeout is one tick.
+ *
+ * Tasks are run by the wheel thread and should be short.
+ *
+ */
+public class TimingWheel {
+
+	public static final long DEFAULT_TICK_MS = 50;
+	private static final int WHEEL_BITS = 6;
+	private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+	private static final int LEVELS = 4; // 50ms ticks cover more than 9 days
+
+	private static final L2pLogger logger = L2pLogger.getInstance(TimingWheel.class);
+
+	private final long tickNanos;
+	private final long startNanos;
+	private final Bucket[][] wheels = new Bucket[LEVELS][WHEEL_SIZE];
+	private long currentTick = 0;
+	private int size = 0;
+	private volatile boolean stopped = false;
+	private final Thread thread;
+
+	/**
+	 * a scheduled task
+	 */
+	public class Timeout {
+		private final long deadlineTick;
+		private final Runnable task;
+		private Bucket bucket;
+		private Timeout prev;
+		private Timeout next;
+		private boolean expired = false;
+		private boolean cancelled = false;
+
+		private Timeout(long deadlineTick, Runnable task) {
+			this.deadlineTick = deadlineTick;
+			this.task = task;
+		}
+
+		/**
+		 * cancel this timeout, the task will not be run if it has not been run already
+		 *
+		 * @return true, if the timeout was pending and is cancelled now
+		 */
+		public boolean cancel() {
+			synchronized (TimingWheel.this) {
+				if (expired || cancelled || stopped) {
+					return false;
+				}
+				cancelled = true;
+				if (bucket != null) {
+					bucket.remove(this);
+					size--;
+				}
+				return true;
+			}
+		}
+
+		/**
+		 * @return true, if the task has been run or is about to be run
+		 */
+		public boolean isExpired() {
+			synchronized (TimingWheel.this) {
+				return expired;
+			}
+		}
+
+		/**
+		 * @return true, if this timeout was cancelled
+		 */
+		public boolean isCancelled() {
+			synchronized (TimingWheel.this) {
+				return cancelled;
+			}
+		}
+	}
+
+	/**
+	 * a doubly linked list of timeouts
+	 */
+	private class Bucket {
+		private Timeout head;
+
+		private void add(Timeout timeout) {
+			timeout.bucket = this;
+			timeout.prev = null;
+			timeout.next = head;
+			if (head != null) {
+				head.prev = timeout;
+			}
+			head = timeout;
+		}
+
+		private void remove(Timeout timeout) {
+			if (timeout.prev != null) {
+				timeout.prev.next = timeout.next;
+			} else {
+				head = timeout.next;
+			}
+			if (timeout.next != null) {
+				timeout.next.prev = timeout.prev;
+			}
+			timeout.bucket = null;
+			timeout.prev = null;
+			timeout.next = null;
+		}
+
+		private Timeout clear() {
+			Timeout first = head;
+			head = null;
+			return first;
+		}
+	}
+
+	/**
+	 * create and start a timing wheel with the default tick duration
+	 *
+	 * @param name A name for the wheel thread
+	 */
+	public TimingWheel(String name) {
+		this(name, DEFAULT_TICK_MS);
+	}
+
+	/**
+	 * create and start a timing wheel
+	 *
+	 * @param name A name for the wheel thread
+	 * @param tickMs Duration of one tick in milliseconds
+	 */
+	public TimingWheel(String name, long tickMs) {
+		if (tickMs < 1) {
+			throw new IllegalArgumentException("tick duration must be positive");
+		}
+		for (Bucket[] wheel : wheels) {
+			for (int i = 0; i < WHEEL_SIZE; i++) {
+				wheel[i] = new Bucket();
+			}
+		}
+		tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+		startNanos = System.nanoTime();
+		thread = new Thread(this::run, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * schedule a task
+	 *
+	 * @param delayMs Time in milliseconds until the task should be run
+	 * @param task A task to run
+	 * @return a handle to cancel the timeout
+	 */
+	public Timeout schedule(long delayMs, Runnable task) {
+		long elapsedTicks = (System.nanoTime() - startNanos) / tickNanos;
+		long delayTicks = (TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMs)) + tickNanos - 1) / tickNanos;
+		Timeout timeout = new Timeout(elapsedTicks + delayTicks, task);
+		synchronized (this) {
+			if (stopped) {
+				timeout.cancelled = true;
+				return timeout;
+			}
+			insert(timeout, currentTick + 1);
+			size++;
+		}
+		return timeout;
+	}
+
+	/**
+	 * @return the number of pending timeouts
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * stop the wheel thread, pending timeouts are dropped
+	 */
+	public void stop() {
+		synchronized (this) {
+			stopped = true;
+			for (Bucket[] wheel : wheels) {
+				for (Bucket bucket : wheel) {
+					bucket.clear();
+				}
+			}
+			size = 0;
+		}
+		thread.interrupt();
+	}
+
+	private void insert(Timeout timeout, long earliestTick) {
+		long deadline = Math.max(timeout.deadlineTick, earliestTick);
+		long delta = deadline - currentTick;
+		for (int level = 0; level < LEVELS; level++) {
+			if (delta < 1L << ((level + 1) * WHEEL_BITS)) {
+				wheels[level][(int) ((deadline >>> (level * WHEEL_BITS)) & WHEEL_MASK)].add(timeout);
+				return;
+			}
+		}
+		// beyond the range of the highest wheel, park it in the furthest slot and insert it again from there
+		int top = LEVELS - 1;
+		long parked = currentTick + (1L << (LEVELS * WHEEL_BITS)) - 1;
+		wheels[top][(int) ((parked >>> (top * WHEEL_BITS)) & WHEEL_MASK)].add(timeout);
+	}
+
+	/**
+	 * advance the wheel by one tick
+	 *
+	 * @param expired A list to collect expired timeouts
+	 */
+	private void tick(ArrayList<Timeout> expired) {
+		currentTick++;
+		// move timeouts from higher wheels down, starting with the highest so they can be moved down further
+		for (int level = LEVELS - 1; level > 0; level--) {
+			if ((currentTick & ((1L << (level * WHEEL_BITS)) - 1)) == 0) {
+				Timeout t = wheels[level][(int) ((currentTick >>> (level * WHEEL_BITS)) & WHEEL_MASK)].clear();
+				while (t != null) {
+					Timeout next = t.next;
+					// the lowest slot of the current tick is expired below
+					insert(t, currentTick);
+					t = next;
+				}
+			}
+		}
+		Timeout t = wheels[0][(int) (currentTick & WHEEL_MASK)].clear();
+		while (t != null) {
+			Timeout next = t.next;
+			t.bucket = null;
+			t.prev = null;
+			t.next = null;
+			t.expired = true;
+			size--;
+			expired.add(t);
+			t = next;
+		}
+	}
+
+	private void run() {
+		ArrayList<Timeout> expired = new ArrayList<>();
+		while (!stopped) {
+			long nextTickAt;
+			synchronized (this) {
+				long targetTick = (System.nanoTime() - startNanos) / tickNanos;
+				while (currentTick < targetTick) {
+					tick(expired);
+				}
+				nextTickAt = startNanos + (currentTick + 1) * tickNanos;
+			}
+			for (Timeout t : expired) {
+				try {
+					t.task.run();
+				} catch (Throwable e) {
+					logger.log(Level.SEVERE, "Exception in timeout task", e);
+				}
+			}
+			expired.clear();
+			long sleepNanos = nextTickAt - System.nanoTime();
+			if (sleepNanos > 0) {
+				try {
+					TimeUnit.NANOSECONDS.sleep(sleepNanos);
+				} catch (InterruptedException e) {
+					// stopped
+				}
+			}
+		}
+	}
+
+}
@@ -69,6 +69,12 @@ public class L2pNodeLauncherConfiguration {
 	public static final String ARG_SANDBOX = "--sandbox";
 	public static final String ARG_SHORT_SANDBOX = "-sb";
 
+	public static final String ARG_SESSION_KEYS = "--session-keys";
+	public static final String ARG_SHORT_SESSION_KEYS = "-sk";
+
+	public static final String ARG_COMPRESS_PAYLOADS = "--compress-payloads";
+	public static final String ARG_SHORT_COMPRESS_PAYLOADS = "-z";
+
 	public static final String ARG_ETHEREUM_MNEMONIC = "--ethereum-mnemonic";
 
 	public static final String ARG_ETHEREUM_PASSWORD = "--ethereum-password";
@@ -95,6 +101,8 @@ public class L2pNodeLauncherConfiguration {
 	private Long nodeIdSeed;
 	private final List<String> commands = new LinkedList<>();
 	private boolean sandbox;
+	private Boolean sessionKeys;
+	private Boolean compressPayloads;
 	private String ethereumMnemonic;
 	private String ethereumPassword;
 
@@ -196,6 +204,11 @@ public class L2pNodeLauncherConfiguration {
 				setDebugMode(true);
 			} else if (arg.equalsIgnoreCase(ARG_SHORT_SANDBOX) || arg.equalsIgnoreCase(ARG_SANDBOX)) {
 				setSandbox(true);
+			} else if (arg.equalsIgnoreCase(ARG_SHORT_SESSION_KEYS) || arg.equalsIgnoreCase(ARG_SESSION_KEYS)) {
+				setSessionKeys(true);
+			} else if (arg.equalsIgnoreCase(ARG_SHORT_COMPRESS_PAYLOADS)
+					|| arg.equalsIgnoreCase(ARG_COMPRESS_PAYLOADS)) {
+				setCompressPayloads(true);
 			} else if (arg.equalsIgnoreCase(ARG_SHORT_BIND_ADDRESS) || arg.equalsIgnoreCase(ARG_BIND_ADDRESS)) {
 				if (itArg.hasNext() == false) {
 					throw new IllegalArgumentException(
@@ -352,6 +365,14 @@ public class L2pNodeLauncherConfiguration {
 		if (strUseMonitoringObserver != null) {
 			setUseMonitoringObserver(Boolean.valueOf(strUseMonitoringObserver));
 		}
+		String strSessionKeys = conf.get("sessionKeys");
+		if (strSessionKeys != null) {
+			setSessionKeys(Boolean.valueOf(strSessionKeys));
+		}
+		String strCompressPayloads = conf.get("compressPayloads");
+		if (strCompressPayloads != null) {
+			setCompressPayloads(Boolean.valueOf(strCompressPayloads));
+		}
 		String strLogDir = conf.get("logDir");
 		if (strLogDir != null) {
 			setLogDir(strLogDir);
@@ -394,6 +415,8 @@ public class L2pNodeLauncherConfiguration {
 			conf.put("storageMode", getStorageMode());
 			conf.put("storageDirectory", getStorageDirectory());
 			conf.put("useMonitoringObserver", useMonitoringObserver());
+			conf.put("sessionKeys", getSessionKeys());
+			conf.put("compressPayloads", getCompressPayloads());
 			conf.put("logDir", getLogDir());
 			conf.put("serviceDirectories", getServiceDirectories());
 			conf.put("nodeIdSeed", getNodeIdSeed());
@@ -452,6 +475,22 @@ public class L2pNodeLauncherConfiguration {
 		this.sandbox = sandbox;
 	}
 
+	public Boolean getSessionKeys() {
+		return sessionKeys;
+	}
+
+	public void setSessionKeys(Boolean sessionKeys) {
+		this.sessionKeys = sessionKeys;
+	}
+
+	public Boolean getCompressPayloads() {
+		return compressPayloads;
+	}
+
+	public void setCompressPayloads(Boolean compressPayloads) {
+		this.compressPayloads = compressPayloads;
+	}
+
 	public InetAddress getBindAddress() {
 		return bindAddress;
 	}
@@ -1,8 +1,10 @@
 package i5.las2peer.api;
 
+import java.io.ByteArrayInputStream;
 import java.util.Hashtable;
 
 import i5.las2peer.api.execution.ServiceAccessDeniedException;
+import i5.las2peer.api.execution.StreamingResult;
 
 /**
  * A simple service for testing (R)MI and service start.
@@ -74,6 +76,19 @@ public class TestService extends Service {
 		return input;
 	}
 
+	public String getNestedEcho(String input) throws Exception {
+		// blocks a thread of the invoking node until the nested invocation is done
+		return (String) Context.get().invokeAsync("i5.las2peer.api.TestService@0.1", "getEcho", input).get();
+	}
+
+		public StreamingResult getStream(Integer length) {
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++) {
+			data[i] = (byte) i;
+		}
+		return new StreamingResult(new ByteArrayInputStream(data), length, "application/octet-stream");
+	}
+
 	public String accessForbidden() throws ServiceAccessDeniedException {
 		throw new ServiceAccessDeniedException();
 	}
@@ -9,6 +9,8 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Date;
 
 import org.junit.Assert;
@@ -20,7 +22,9 @@ import i5.las2peer.security.BasicAgentStorage;
 import i5.las2peer.security.InternalSecurityException;
 import i5.las2peer.security.ServiceAgentImpl;
 import i5.las2peer.security.UserAgentImpl;
+import i5.las2peer.serialization.SerializationException;
 import i5.las2peer.testing.MockAgentFactory;
+import i5.las2peer.tools.PayloadCompressor;
 
 public class MessageTest {
 
@@ -335,6 +339,178 @@ public class MessageTest {
 		}
 	}
 
+	@Test
+	public void testBinaryFormat() {
+		try {
+			UserAgentImpl a = UserAgentImpl.createUserAgent("passa");
+			UserAgentImpl b = UserAgentImpl.createUserAgent("passb");
+
+			BasicAgentStorage storage = new BasicAgentStorage();
+			storage.registerAgents(a, b);
+
+			a.unlock("passa");
+			b.unlock("passb");
+
+			String content = "some content";
+			Message m = new Message(a, b, content);
+			m.setSendingNodeId(new Long(100));
+
+			byte[] binary = m.toByteArray();
+			assertTrue(Message.isBinaryMessage(binary));
+			assertTrue(binary.length < m.toXmlString().getBytes(StandardCharsets.UTF_8).length);
+
+			Message andBack = Message.createFromBytes(binary);
+			assertEquals(m.getId(), andBack.getId());
+			assertEquals(m.getSenderId(), andBack.getSenderId());
+			assertEquals(m.getRecipientId(), andBack.getRecipientId());
+			assertEquals(m.getTimestamp(), andBack.getTimestamp());
+			assertEquals(m.getValidMs(), andBack.getValidMs());
+			assertEquals(new Long(100), andBack.getSendingNodeId());
+
+			andBack.open(b, storage);
+			assertEquals(content, andBack.getContent());
+
+			// response and topic messages
+			Message response = new Message(andBack, "a response");
+			Message responseBack = Message.createFromBytes(response.toByteArray());
+			assertEquals(m.getId(), responseBack.getResponseToId().longValue());
+			responseBack.open(a, storage);
+			assertEquals("a response", responseBack.getContent());
+
+			Message topic = new Message(a, 123L, "topic content");
+			Message topicBack = Message.createFromBytes(topic.toByteArray());
+			assertTrue(topicBack.isTopic());
+			assertNull(topicBack.getRecipientId());
+			topicBack.open(b, storage);
+			assertEquals("topic content", topicBack.getContent());
+
+			// truncated data
+			try {
+				Message.createFromBytes(Arrays.copyOf(binary, binary.length - 10));
+				fail("SerializationException expected");
+			} catch (SerializationException e) {
+				// intended
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testCompressedContent() {
+		try {
+			UserAgentImpl a = UserAgentImpl.createUserAgent("passa");
+			UserAgentImpl b = UserAgentImpl.createUserAgent("passb");
+
+			BasicAgentStorage storage = new BasicAgentStorage();
+			storage.registerAgents(a, b);
+
+			a.unlock("passa");
+			b.unlock("passb");
+
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 5000; i++) {
+				sb.append("{\"id\": ").append(i).append(", \"name\": \"some json document\"},");
+			}
+			String content = sb.toString();
+
+			// compression is disabled by default for compatibility with older nodes
+			assertFalse(new Message(a, b, content).toXmlString().contains("compression"));
+
+			PayloadCompressor.getInstance().setEnabled(true);
+			Message m = new Message(a, b, content);
+			byte[] binary = m.toByteArray();
+			assertTrue(binary.length < content.length() / 4);
+			assertTrue(m.toXmlString().contains("compression=\"deflate\""));
+
+			Message andBack = Message.createFromBytes(binary);
+			andBack.open(b, storage);
+			assertEquals(content, andBack.getContent());
+
+			andBack = Message.createFromXml(m.toXmlString());
+			andBack.open(b, storage);
+			assertEquals(content, andBack.getContent());
+
+			Message topic = new Message(a, 123L, content);
+			Message topicBack = Message.createFromBytes(topic.toByteArray());
+			topicBack.open(b, storage);
+			assertEquals(content, topicBack.getContent());
+
+			// small contents are not compressed
+			Message small = new Message(a, b, "some content");
+			assertFalse(small.toXmlString().contains("compression"));
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		} finally {
+			PayloadCompressor.getInstance().setEnabled(PayloadCompressor.DEFAULT_ENABLED);
+		}
+	}
+
+	@Test
+	public void testCopyForRecipient() {
+		try {
+			UserAgentImpl a = UserAgentImpl.createUserAgent("passa");
+			UserAgentImpl b = UserAgentImpl.createUserAgent("passb");
+
+			BasicAgentStorage storage = new BasicAgentStorage();
+			storage.registerAgents(a, b);
+
+			a.unlock("passa");
+			b.unlock("passb");
+
+			Message topic = Message.createFromBytes(new Message(a, 123L, "a topic content").toByteArray());
+
+			Message copyA = topic.copyForRecipient(a.getIdentifier());
+			Message copyB = topic.copyForRecipient(b.getIdentifier());
+			assertNull(topic.getRecipientId());
+			assertEquals(a.getIdentifier(), copyA.getRecipientId());
+			assertEquals(b.getIdentifier(), copyB.getRecipientId());
+
+			// each copy is opened by its own recipient
+			copyA.open(a, storage);
+			copyB.open(b, storage);
+			assertEquals("a topic content", copyA.getContent());
+			assertEquals("a topic content", copyB.getContent());
+			assertFalse(topic.isOpen());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testPriority() {
+		try {
+			UserAgentImpl a = UserAgentImpl.createUserAgent("passa");
+			UserAgentImpl b = UserAgentImpl.createUserAgent("passb");
+
+			BasicAgentStorage storage = new BasicAgentStorage();
+			storage.registerAgents(a, b);
+
+			a.unlock("passa");
+			b.unlock("passb");
+
+			Message m = new Message(a, b, "a request");
+			assertEquals(MessagePriority.MEDIUM, m.getPriority());
+
+			// the priority is not part of the message itself
+			m.setPriority(MessagePriority.LOW);
+			Message received = Message.createFromBytes(m.toByteArray());
+			assertEquals(MessagePriority.MEDIUM, received.getPriority());
+
+			// responses have the priority of their request or high priority
+			received.open(b, storage);
+			assertEquals(MessagePriority.HIGH, new Message(received, "an answer").getPriority());
+			received.setPriority(MessagePriority.LOW);
+			assertEquals(MessagePriority.LOW, new Message(received, "an answer").getPriority());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
 	@Test
 	public void testPrintMessage() {
 		try {
@@ -0,0 +1,115 @@
+package i5.las2peer.communication;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import i5.las2peer.security.BasicAgentStorage;
+import i5.las2peer.security.UserAgentImpl;
+
+public class SessionKeyCacheTest {
+
+	@Before
+	public void enable() {
+		SessionKeyCache.getInstance().setEnabled(true);
+	}
+
+	@After
+	public void reset() {
+		SessionKeyCache.getInstance().clear();
+		SessionKeyCache.getInstance().setEnabled(SessionKeyCache.DEFAULT_ENABLED);
+		SessionKeyCache.getInstance().setMaxMessages(SessionKeyCache.DEFAULT_MAX_MESSAGES);
+		SessionKeyCache.getInstance().setMaxAgeMs(SessionKeyCache.DEFAULT_MAX_AGE_MS);
+	}
+
+	@Test
+	public void testSessionReuse() {
+		try {
+			UserAgentImpl a = UserAgentImpl.createUserAgent("passa");
+			UserAgentImpl b = UserAgentImpl.createUserAgent("passb");
+			a.unlock("passa");
+			b.unlock("passb");
+
+			SessionKeyCache cache = SessionKeyCache.getInstance();
+			SessionKeyCache.OutgoingSession first = cache.getOutgoingSession(a, b);
+			SessionKeyCache.OutgoingSession second = cache.getOutgoingSession(a, b);
+			assertSame(first, second);
+			assertFalse(Arrays.equals(first.nextIv(), first.nextIv()));
+
+			// other direction uses its own session
+			assertNotSame(first, cache.getOutgoingSession(b, a));
+
+			// recipient gets the same key
+			assertEquals(first.getKey(), cache.getIncomingKey(b, first.getEncryptedKey()));
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testRotation() {
+		try {
+			UserAgentImpl a = UserAgentImpl.createUserAgent("passa");
+			UserAgentImpl b = UserAgentImpl.createUserAgent("passb");
+			a.unlock("passa");
+
+			SessionKeyCache cache = SessionKeyCache.getInstance();
+			cache.setMaxMessages(2);
+			SessionKeyCache.OutgoingSession session = cache.getOutgoingSession(a, b);
+			session.nextIv();
+			assertSame(session, cache.getOutgoingSession(a, b));
+			session.nextIv();
+			assertNotSame(session, cache.getOutgoingSession(a, b));
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testMessages() {
+		try {
+			UserAgentImpl a = UserAgentImpl.createUserAgent("passa");
+			UserAgentImpl b = UserAgentImpl.createUserAgent("passb");
+
+			BasicAgentStorage storage = new BasicAgentStorage();
+			storage.registerAgents(a, b);
+
+			a.unlock("passa");
+			b.unlock("passb");
+
+			Message first = new Message(a, b, "first");
+			Message second = new Message(a, b, "second");
+
+			Message firstBack = Message.createFromXml(first.toXmlString());
+			Message secondBack = Message.createFromBytes(second.toByteArray());
+			assertArrayEquals(first.toByteArray(), firstBack.toByteArray());
+
+			firstBack.open(b, storage);
+			secondBack.open(b, storage);
+			assertEquals("first", firstBack.getContent());
+			assertEquals("second", secondBack.getContent());
+
+			// messages without session keys are still readable
+			SessionKeyCache.getInstance().setEnabled(false);
+			Message third = new Message(a, b, "third");
+			Message thirdBack = Message.createFromXml(third.toXmlString());
+			thirdBack.open(b, storage);
+			assertEquals("third", thirdBack.getContent());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+}
@@ -7,8 +7,14 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -138,6 +144,100 @@ public class ExecutionContextTest {
 		}
 	}
 
+	@Test
+	public void testAsyncInvocation() {
+		try {
+			CompletableFuture<Serializable> caller = context
+					.invokeAsync(ServiceNameVersion.fromString("i5.las2peer.api.TestService@0.1"), "getCaller");
+			CompletableFuture<Serializable> echo = context.invokeAsync("i5.las2peer.api.TestService@0.1", "getEcho",
+					"test");
+			assertEquals(context.getMainAgent().getIdentifier(), caller.get(10, TimeUnit.SECONDS));
+			assertEquals("test", echo.get(10, TimeUnit.SECONDS));
+
+			try {
+				context.invokeAsync("i5.las2peer.api.TestService@0.2", "getCaller").get(10, TimeUnit.SECONDS);
+				fail("ServiceNotFoundException expected");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof ServiceNotFoundException);
+			}
+
+			try {
+				context.invokeAsync("i5.las2peer.api.TestService@0.1", "doesNotExist").get(10, TimeUnit.SECONDS);
+				fail("ServiceMethodNotFoundException expected");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof ServiceMethodNotFoundException);
+			}
+
+			try {
+				context.invokeAsync("i5.las2peer.api.TestService@0.1", "exception").get(10, TimeUnit.SECONDS);
+				fail("InternalServiceException expected");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof InternalServiceException);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+
+	@Test
+	public void testNestedAsyncInvocation() {
+		try {
+			// more invocations than threads opening answers, each waiting for a further invocation
+			List<CompletableFuture<Serializable>> results = new ArrayList<>();
+			for (int i = 0; i < 2 * Node.DEFAULT_INVOCATION_THREAD_COUNT; i++) {
+				results.add(context.invokeAsync("i5.las2peer.api.TestService@0.1", "getNestedEcho", "test" + i));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				assertEquals("test" + i, results.get(i).get(30, TimeUnit.SECONDS));
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+
+	@Test
+	public void testRequestEnvelopes() {
+		try {
+			Envelope first = context.createEnvelope("first");
+			first.setContent("first content");
+			context.storeEnvelope(first);
+			Envelope second = context.createEnvelope("second");
+			second.setContent("second content");
+			context.storeEnvelope(second);
+
+			Map<String, CompletableFuture<Envelope>> envelopes = context
+					.requestEnvelopes(Arrays.asList("first", "missing", "second", "first"));
+			// one future for each distinct identifier, in request order
+			assertEquals(Arrays.asList("first", "missing", "second"), new ArrayList<>(envelopes.keySet()));
+			assertEquals("first content", envelopes.get("first").get(10, TimeUnit.SECONDS).getContent());
+			assertEquals("second content", envelopes.get("second").get(10, TimeUnit.SECONDS).getContent());
+			try {
+				envelopes.get("missing").get(10, TimeUnit.SECONDS);
+				fail("EnvelopeNotFoundException expected");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof EnvelopeNotFoundException);
+			}
+
+			// each envelope is opened on its own
+			second = context.requestEnvelope("second");
+			second.addReader(eve);
+			context.storeEnvelope(second);
+			envelopes = context.requestEnvelopes(Arrays.asList("first", "second"), eve);
+			try {
+				envelopes.get("first").get(10, TimeUnit.SECONDS);
+				fail("EnvelopeAccessDeniedException expected");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof EnvelopeAccessDeniedException);
+			}
+			assertEquals("second content", envelopes.get("second").get(10, TimeUnit.SECONDS).getContent());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+
 	@Test
 	public void testEnvelope()
 			throws EnvelopeOperationFailedException, EnvelopeAccessDeniedException, EnvelopeNotFoundException {
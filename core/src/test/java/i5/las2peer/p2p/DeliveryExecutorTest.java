@@ -0,0 +1,273 @@
+package i5.las2peer.p2p;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import i5.las2peer.communication.MessagePriority;
+
+public class DeliveryExecutorTest {
+
+	@Test
+	public void testFairness() throws InterruptedException {
+		DeliveryExecutor executor = new DeliveryExecutor("test-delivery", 1, 100, 100);
+		try {
+			CountDownLatch blocker = new CountDownLatch(1);
+			CountDownLatch done = new CountDownLatch(7);
+			List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+			// occupy the single worker, so all following deliveries are queued
+			executor.submit("block", () -> {
+				try {
+					blocker.await();
+				} catch (InterruptedException e) {
+				}
+			}, false);
+			Thread.sleep(100);
+
+			for (int i = 0; i < 5; i++) {
+				String name = "a" + i;
+				executor.submit("a", () -> {
+					order.add(name);
+					done.countDown();
+				}, false);
+			}
+			for (int i = 0; i < 2; i++) {
+				String name = "b" + i;
+				executor.submit("b", () -> {
+					order.add(name);
+					done.countDown();
+				}, false);
+			}
+			assertEquals(7, executor.getQueueDepth());
+
+			blocker.countDown();
+			assertTrue(done.await(5, TimeUnit.SECONDS));
+			// sender b is not starved by the many deliveries of sender a
+			assertEquals("a0", order.get(0));
+			assertEquals("b0", order.get(1));
+			assertEquals("a1", order.get(2));
+			assertEquals("b1", order.get(3));
+			assertEquals("a2", order.get(4));
+			assertEquals(0, executor.getQueueDepth());
+			assertEquals(8, executor.getSubmittedCount());
+			assertTrue(executor.getMaxWaitTimeMs() >= 0);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testSaturation() throws Exception {
+		DeliveryExecutor executor = new DeliveryExecutor("test-delivery", 1, 2, 2);
+		try {
+			CountDownLatch blocker = new CountDownLatch(1);
+			Runnable blocking = () -> {
+				try {
+					blocker.await();
+				} catch (InterruptedException e) {
+				}
+			};
+
+			assertTrue(executor.submit("a", blocking, false));
+			Thread.sleep(100);
+			assertTrue(executor.submit("a", blocking, false));
+			assertTrue(executor.submit("b", blocking, false));
+
+			// queue is full, the submitting thread is not blocked but rejected right away
+			FutureTask<Boolean> rejected = new FutureTask<>(() -> executor.submit("c", blocking, false));
+			new Thread(rejected).start();
+			assertFalse(rejected.get(5, TimeUnit.SECONDS));
+			assertEquals(1, executor.getRejectedCount());
+
+			// urgent deliveries pass anyway
+			assertTrue(executor.submit("c", blocking, true));
+			assertEquals(3, executor.getQueueDepth());
+
+			blocker.countDown();
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testUnknownSender() throws InterruptedException {
+		DeliveryExecutor executor = new DeliveryExecutor("test-delivery", 1, 10, 2);
+		try {
+			CountDownLatch done = new CountDownLatch(2);
+			assertTrue(executor.submit(null, done::countDown, false));
+			assertTrue(executor.submit(null, done::countDown, false, MessagePriority.LOW));
+			assertTrue(done.await(5, TimeUnit.SECONDS));
+			assertEquals(0, executor.getRejectedCount());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testSenderLimit() throws InterruptedException {
+		DeliveryExecutor executor = new DeliveryExecutor("test-delivery", 1, 10, 1);
+		try {
+			CountDownLatch blocker = new CountDownLatch(1);
+			Runnable blocking = () -> {
+				try {
+					blocker.await();
+				} catch (InterruptedException e) {
+				}
+			};
+
+			assertTrue(executor.submit("a", blocking, false));
+			Thread.sleep(100);
+			assertTrue(executor.submit("a", blocking, false));
+			// the share of sender a is used up, but others are still accepted
+			assertFalse(executor.submit("a", blocking, false));
+			assertTrue(executor.submit("b", blocking, false));
+
+			blocker.countDown();
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testPriorityLanes() throws InterruptedException {
+		DeliveryExecutor executor = new DeliveryExecutor("test-delivery", 1, 8, 8);
+		try {
+			CountDownLatch blocker = new CountDownLatch(1);
+			CountDownLatch done = new CountDownLatch(4);
+			List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+			// occupy the single worker, so all following deliveries are queued
+			executor.submit("block", () -> {
+				try {
+					blocker.await();
+				} catch (InterruptedException e) {
+				}
+			}, false);
+			Thread.sleep(100);
+
+			for (int i = 0; i < 2; i++) {
+				String name = "low" + i;
+				assertTrue(executor.submit("a", () -> {
+					order.add(name);
+					done.countDown();
+				}, false, MessagePriority.LOW));
+			}
+			assertTrue(executor.submit("a", () -> {
+				order.add("medium");
+				done.countDown();
+			}, false, MessagePriority.MEDIUM));
+			assertTrue(executor.submit("b", () -> {
+				order.add("high");
+				done.countDown();
+			}, false, MessagePriority.HIGH));
+			assertEquals(2, executor.getQueueDepth(MessagePriority.LOW));
+			assertEquals(1, executor.getQueueDepth(MessagePriority.HIGH));
+
+			// low priority deliveries may only fill half of the queue, others may use the rest
+			assertFalse(executor.submit("c", () -> {
+			}, false, MessagePriority.LOW));
+			assertEquals(1, executor.getRejectedCount());
+			assertTrue(executor.submit("c", () -> {
+				order.add("medium2");
+			}, false, MessagePriority.MEDIUM));
+
+			blocker.countDown();
+			assertTrue(done.await(5, TimeUnit.SECONDS));
+			assertEquals("high", order.get(0));
+			assertEquals("medium", order.get(1));
+			assertEquals("medium2", order.get(2));
+			assertEquals("low0", order.get(3));
+			assertEquals(1, executor.getDeliveredCount(MessagePriority.HIGH));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testNoStarvation() throws InterruptedException {
+		DeliveryExecutor executor = new DeliveryExecutor("test-delivery", 1, 100, 100);
+		try {
+			CountDownLatch blocker = new CountDownLatch(1);
+			CountDownLatch done = new CountDownLatch(41);
+			List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+			executor.submit("block", () -> {
+				try {
+					blocker.await();
+				} catch (InterruptedException e) {
+				}
+			}, false);
+			Thread.sleep(100);
+
+			executor.submit("a", () -> {
+				order.add("low");
+				done.countDown();
+			}, false, MessagePriority.LOW);
+			for (int i = 0; i < 40; i++) {
+				executor.submit("b", () -> {
+					order.add("high");
+					done.countDown();
+				}, false, MessagePriority.HIGH);
+			}
+
+			blocker.countDown();
+			assertTrue(done.await(5, TimeUnit.SECONDS));
+			// the low priority delivery is served before all high priority deliveries are done
+			assertTrue(order.indexOf("low") > 0);
+			assertTrue(order.indexOf("low") < 40);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testNoStarvationAllLanes() throws InterruptedException {
+		DeliveryExecutor executor = new DeliveryExecutor("test-delivery", 1, 300, 100);
+		try {
+			CountDownLatch blocker = new CountDownLatch(1);
+			CountDownLatch done = new CountDownLatch(120);
+			List<MessagePriority> order = Collections.synchronizedList(new ArrayList<>());
+
+			executor.submit("block", () -> {
+				try {
+					blocker.await();
+				} catch (InterruptedException e) {
+				}
+			}, false);
+			Thread.sleep(100);
+
+			// all three lanes are saturated
+			for (MessagePriority priority : MessagePriority.values()) {
+				for (int i = 0; i < 40; i++) {
+					assertTrue(executor.submit(priority, () -> {
+						order.add(priority);
+						done.countDown();
+					}, false, priority));
+				}
+			}
+
+			blocker.countDown();
+			assertTrue(done.await(5, TimeUnit.SECONDS));
+			// the lowest lane is served while both higher lanes are still busy
+			int firstLow = order.indexOf(MessagePriority.LOW);
+			assertTrue(firstLow > 0);
+			assertTrue(firstLow < order.lastIndexOf(MessagePriority.HIGH));
+			assertTrue(order.indexOf(MessagePriority.MEDIUM) < order.lastIndexOf(MessagePriority.HIGH));
+			// and served repeatedly, not only once
+			assertTrue(order.subList(0, 80).stream().filter(p -> p == MessagePriority.LOW).count() >= 2);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
@@ -1,16 +1,24 @@
 package i5.las2peer.p2p;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import i5.las2peer.api.execution.ServiceCall;
+import i5.las2peer.api.execution.ServiceCallResult;
 import i5.las2peer.api.execution.ServiceInvocationException;
+import i5.las2peer.api.execution.ServiceMethodNotFoundException;
 import i5.las2peer.api.execution.ServiceNotFoundException;
+import i5.las2peer.api.execution.StreamingResult;
 import i5.las2peer.api.p2p.ServiceNameVersion;
 import i5.las2peer.classLoaders.ServiceClassLoader;
 import i5.las2peer.execution.ExecutionContext;
@@ -78,6 +86,82 @@ public class LocalNodeInvocationTest {
 		}
 	}
 
+	@Test
+	public void testStreamingInvocation() {
+		try {
+			LocalNode serviceNode = manager.newNode();
+			UserAgentImpl eve = MockAgentFactory.getEve();
+
+			eve.unlock("evespass");
+			serviceNode.storeAgent(eve);
+			serviceNode.launch();
+
+			ServiceAgentImpl testServiceAgent = serviceNode
+					.startService(ServiceNameVersion.fromString("i5.las2peer.api.TestService@1.0"), "a pass");
+
+			// several chunks, the last one only partially filled
+			int length = 2 * ResultStreamRegistry.DEFAULT_CHUNK_SIZE + 1000;
+			LocalNode callerNode = manager.launchNode();
+			Object result = callerNode.invokeGlobally(eve, testServiceAgent.getIdentifier(),
+					testServiceAgent.getRunningAtNode().getNodeId(), "getStream", new Serializable[] { length });
+
+			assertTrue(result instanceof StreamingResult);
+			StreamingResult stream = (StreamingResult) result;
+			assertEquals(length, stream.getLength());
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			assertEquals(length, stream.transferTo(out));
+			byte[] data = out.toByteArray();
+			for (int i = 0; i < length; i++) {
+				assertEquals((byte) i, data[i]);
+			}
+
+			// the reader releases the finished stream at the serving node
+			long start = System.currentTimeMillis();
+			while (serviceNode.getResultStreams().size() > 0) {
+				assertTrue(System.currentTimeMillis() - start < 5000);
+				Thread.sleep(100);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testGlobalBatchInvocation() {
+		try {
+			LocalNode serviceNode = manager.newNode();
+			UserAgentImpl eve = MockAgentFactory.getEve();
+
+			eve.unlock("evespass");
+			serviceNode.storeAgent(eve);
+			serviceNode.launch();
+
+			ServiceAgentImpl testServiceAgent = serviceNode
+					.startService(ServiceNameVersion.fromString("i5.las2peer.api.TestService@1.0"), "a pass");
+
+			LocalNode callerNode = manager.launchNode();
+			List<ServiceCallResult> results = callerNode.invokeGloballyBatch(eve, testServiceAgent.getIdentifier(),
+					testServiceAgent.getRunningAtNode().getNodeId(),
+					Arrays.asList(new ServiceCall("inc", new Integer(12)), new ServiceCall("doesNotExist"),
+							new ServiceCall("getEcho", "test")));
+
+			assertEquals(3, results.size());
+			assertEquals(14, results.get(0).getResult());
+			assertFalse(results.get(1).isSuccessful());
+			assertTrue(results.get(1).getException() instanceof ServiceMethodNotFoundException);
+			assertEquals("test", results.get(2).getResult());
+
+			results = callerNode.invokeBatch(eve, ServiceNameVersion.fromString("i5.las2peer.api.TestService@1.0"),
+					Arrays.asList(new ServiceCall("getInt"), new ServiceCall("inc", new Integer(1))));
+			assertEquals(10, results.get(0).getResult());
+			assertEquals(3, results.get(1).getResult());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
 	@Test
 	public void testSubinvocation() {
 		try {
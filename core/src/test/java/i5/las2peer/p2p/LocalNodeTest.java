@@ -7,7 +7,12 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -17,7 +22,9 @@ import i5.las2peer.api.security.AgentException;
 import i5.las2peer.api.security.AgentLockedException;
 import i5.las2peer.api.security.AgentNotFoundException;
 import i5.las2peer.communication.Message;
+import i5.las2peer.communication.MessagePriority;
 import i5.las2peer.communication.PingPongContent;
+import i5.las2peer.execution.RMITask;
 import i5.las2peer.p2p.Node.SendMode;
 import i5.las2peer.security.AnonymousAgentImpl;
 import i5.las2peer.security.Mediator;
@@ -524,6 +531,67 @@ public class LocalNodeTest {
 		}
 	}
 
+	@Test
+	public void testDeliveryPriority() {
+		try {
+			LocalNode testee = new LocalNodeManager().launchNode();
+
+			UserAgentImpl adam = MockAgentFactory.getAdam();
+			adam.unlock("adamspass");
+			UserAgentImpl eve = MockAgentFactory.getEve();
+			eve.unlock("evespass");
+			testee.registerReceiver(eve);
+			ServiceAgentImpl testService = testee
+					.startService(ServiceNameVersion.fromString("i5.las2peer.api.TestService@1.0"), "a passphrase");
+
+			Message invocation = new Message(adam, testService,
+					new RMITask(testService.getServiceNameVersion(), "inc", new Serializable[] { 10 }));
+			invocation.setPriority(MessagePriority.HIGH);
+			Message other = new Message(adam, eve, new PingPongContent());
+			other.setPriority(MessagePriority.HIGH);
+			// only invocations of local services keep the high priority chosen by the sender
+			assertEquals(MessagePriority.HIGH, testee.getDeliveryPriority(invocation));
+			assertEquals(MessagePriority.MEDIUM, testee.getDeliveryPriority(other));
+
+			DeliveryExecutor executor = new DeliveryExecutor("test-delivery", 1, 100, 100);
+			try {
+				CountDownLatch blocker = new CountDownLatch(1);
+				CountDownLatch done = new CountDownLatch(6);
+				List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+				// occupy the single worker, so all following deliveries are queued
+				executor.submit("block", () -> {
+					try {
+						blocker.await();
+					} catch (InterruptedException e) {
+					}
+				}, false);
+				Thread.sleep(100);
+
+				for (int i = 0; i < 5; i++) {
+					assertTrue(executor.submit("a", () -> {
+						order.add("other");
+						done.countDown();
+					}, false, testee.getDeliveryPriority(other)));
+				}
+				assertTrue(executor.submit("b", () -> {
+					order.add("invocation");
+					done.countDown();
+				}, false, testee.getDeliveryPriority(invocation)));
+
+				blocker.countDown();
+				assertTrue(done.await(5, TimeUnit.SECONDS));
+				// the invocation overtakes the queued medium priority traffic
+				assertEquals("invocation", order.get(0));
+			} finally {
+				executor.shutdown();
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
 	@Test
 	public void testSimpleInvocation() {
 		try {
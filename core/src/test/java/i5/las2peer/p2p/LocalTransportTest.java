@@ -0,0 +1,158 @@
+package i5.las2peer.p2p;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import i5.las2peer.communication.Message;
+import i5.las2peer.communication.PingPongContent;
+import i5.las2peer.security.UserAgentImpl;
+import i5.las2peer.testing.MockAgentFactory;
+
+public class LocalTransportTest {
+
+	private static List<Integer> replay(long seed) {
+		LocalTransport transport = new LocalTransport(LatencyModel.uniform(0, 100), seed);
+		transport.setVirtualClock(true);
+		transport.setDropRate(0.2);
+		List<Integer> received = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			final int n = i;
+			transport.send(1L, 2L, () -> received.add(n));
+		}
+		transport.runUntilIdle();
+		return received;
+	}
+
+	@Test
+	public void testVirtualClock() {
+		try {
+			LocalTransport transport = new LocalTransport(LatencyModel.fixed(100), 1);
+			transport.setVirtualClock(true);
+			List<String> received = new ArrayList<>();
+
+			transport.send(1L, 2L, () -> received.add("a"));
+			transport.advanceClock(50);
+			transport.send(1L, 2L, () -> received.add("b"));
+			assertEquals(0, transport.advanceClock(49));
+			assertEquals(2, transport.getQueuedCount());
+
+			assertEquals(1, transport.advanceClock(1));
+			assertEquals(Arrays.asList("a"), received);
+			assertEquals(100, transport.getVirtualTime());
+
+			// messages sent during delivery are queued, too
+			transport.send(2L, 1L, () -> transport.send(1L, 2L, () -> received.add("d")));
+			assertEquals(3, transport.runUntilIdle());
+			assertEquals(Arrays.asList("a", "b", "d"), received);
+			assertEquals(300, transport.getVirtualTime());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testDeterministicReplay() {
+		try {
+			List<Integer> first = replay(42);
+			assertEquals(first, replay(42));
+			// some messages are dropped and the delays reorder the others
+			assertTrue(first.size() < 50);
+			List<Integer> sorted = new ArrayList<>(first);
+			Collections.sort(sorted);
+			assertTrue(!first.equals(sorted));
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testPartition() {
+		try {
+			LocalTransport transport = new LocalTransport();
+			transport.setVirtualClock(true);
+			List<String> received = new ArrayList<>();
+
+			transport.partition(Arrays.asList(1L, 2L), Arrays.asList(3L));
+			transport.send(1L, 2L, () -> received.add("1->2"));
+			transport.send(1L, 3L, () -> received.add("1->3"));
+			transport.send(4L, 3L, () -> received.add("4->3"));
+			transport.send(null, 3L, () -> received.add("?->3"));
+			transport.runUntilIdle();
+			assertEquals(Arrays.asList("1->2", "?->3"), received);
+			assertEquals(2, transport.getDroppedCount());
+
+			transport.heal();
+			transport.send(1L, 3L, () -> received.add("1->3"));
+			transport.runUntilIdle();
+			assertEquals(Arrays.asList("1->2", "?->3", "1->3"), received);
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testLocalNodes() {
+		try {
+			UserAgentImpl adam = MockAgentFactory.getAdam();
+			adam.unlock("adamspass");
+			UserAgentImpl eve = MockAgentFactory.getEve();
+			eve.unlock("evespass");
+
+			LocalNodeManager manager = new LocalNodeManager();
+			LocalNode sender = manager.launchAgent(adam);
+			manager.launchAgent(eve);
+			LocalTransport transport = manager.getTransport();
+			transport.setLatencyModel(LatencyModel.fixed(100));
+			transport.setVirtualClock(true);
+
+			// eve answers the ping while it is delivered, so the exchange follows the virtual clock
+			MessageResultListener listener = new MessageResultListener(60000);
+			sender.sendMessage(new Message(adam, eve, new PingPongContent()), listener);
+			assertEquals(1, transport.getQueuedCount());
+			assertEquals(1, transport.advanceClock(100));
+			assertFalse(listener.isFinished());
+			assertEquals(1, transport.getQueuedCount());
+			assertEquals(1, transport.advanceClock(100));
+			assertTrue(listener.isSuccess());
+			assertEquals(200, transport.getVirtualTime());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testRealTime() {
+		LocalTransport transport = new LocalTransport(LatencyModel.fixed(50), 1);
+		try {
+			CountDownLatch latch = new CountDownLatch(20);
+			long start = System.currentTimeMillis();
+			for (int i = 0; i < 20; i++) {
+				transport.send(1L, 2L, latch::countDown);
+			}
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+			assertTrue(System.currentTimeMillis() - start >= 50);
+			assertEquals(20, transport.getDeliveredCount());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		} finally {
+			transport.shutdown();
+		}
+	}
+
+}
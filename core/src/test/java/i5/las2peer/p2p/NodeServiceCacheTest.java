@@ -1,10 +1,14 @@
 package i5.las2peer.p2p;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -206,4 +210,188 @@ public class NodeServiceCacheTest {
 		}
 	}
 
+	@Test
+	public void testLoadAwareSelection() {
+		try {
+			ServiceNameVersion service = ServiceNameVersion.fromString("i5.las2peer.api.TestService@2.2");
+
+			LocalNodeManager manager = new LocalNodeManager();
+			Node invokingNode = manager.launchNode();
+			Node node1 = manager.launchNode();
+			Node node2 = manager.launchNode();
+			ServiceAgentImpl agent1 = node1.startService(service, "a pass");
+			ServiceAgentImpl agent2 = node2.startService(service, "a pass");
+
+			UserAgentImpl userAgent = MockAgentFactory.getAdam();
+			userAgent.unlock("adamspass");
+			invokingNode.storeAgent(userAgent);
+			invokingNode.registerReceiver(userAgent);
+
+			NodeServiceCache cache = invokingNode.getNodeServiceCache();
+			cache.setTimeoutMs(10000);
+			cache.setWaitForResults(2);
+
+			// without measurements both instances are used
+			ServiceInstance instance1 = null, instance2 = null;
+			for (int i = 0; i < 100 && (instance1 == null || instance2 == null); i++) {
+				ServiceInstance instance = cache.getServiceAgentInstance(service, true, false, userAgent);
+				if (instance.getServiceAgentId().equals(agent1.getIdentifier())) {
+					instance1 = instance;
+				} else {
+					instance2 = instance;
+				}
+			}
+			assertNotNull(instance1);
+			assertNotNull(instance2);
+			assertEquals(agent2.getIdentifier(), instance2.getServiceAgentId());
+
+			// the faster instance is preferred
+			cache.reportResponse(instance1, 1000);
+			cache.reportResponse(instance2, 10);
+			for (int i = 0; i < 20; i++) {
+				assertSame(instance2, cache.getServiceAgentInstance(service, true, false, userAgent));
+			}
+
+			// a failed instance is not used
+			cache.reportFailure(instance2);
+			assertEquals(1, instance2.getConsecutiveFailures());
+			assertSame(instance1, cache.getServiceAgentInstance(service, true, false, userAgent));
+
+			// an instance failing repeatedly is evicted, the other one is rediscovered
+			for (int i = 0; i < NodeServiceCache.DEFAULT_MAX_FAILURES; i++) {
+				cache.reportFailure(instance1);
+			}
+			for (int i = 0; i < 5; i++) {
+				assertEquals(agent2.getIdentifier(),
+						cache.getServiceAgentInstance(service, true, false, userAgent).getServiceAgentId());
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testStaleAndNegativeCaching() {
+		try {
+			ServiceNameVersion service = ServiceNameVersion.fromString("i5.las2peer.api.TestService@2.2");
+			ServiceNameVersion unknown = ServiceNameVersion.fromString("i5.las2peer.api.UnknownService@1.0");
+
+			LocalNodeManager manager = new LocalNodeManager();
+			Node invokingNode = manager.launchNode();
+			Node serviceNode = manager.launchNode();
+			ServiceAgentImpl agent = serviceNode.startService(service, "a pass");
+
+			UserAgentImpl userAgent = MockAgentFactory.getAdam();
+			userAgent.unlock("adamspass");
+			invokingNode.storeAgent(userAgent);
+			invokingNode.registerReceiver(userAgent);
+
+			NodeServiceCache cache = invokingNode.getNodeServiceCache();
+			cache.setTimeoutMs(2000);
+			cache.setWaitForResults(1);
+			cache.setLifeTimeSeconds(0);
+
+			ServiceInstance instance = cache.getServiceAgentInstance(service, true, false, userAgent);
+			assertEquals(agent.getIdentifier(), instance.getServiceAgentId());
+
+			// an outdated instance is still served, while it is refreshed in background
+			Thread.sleep(1100);
+			assertTrue(instance.outdated());
+			assertSame(instance, cache.getServiceAgentInstance(service, true, false, userAgent));
+
+			// a discovery without answers is not repeated for some time
+			try {
+				cache.getServiceAgentInstance(unknown, true, false, userAgent);
+				fail("AgentNotRegisteredException expected");
+			} catch (AgentNotRegisteredException e) {
+				// expected
+			}
+			long start = System.currentTimeMillis();
+			try {
+				cache.getServiceAgentInstance(unknown, true, false, userAgent);
+				fail("AgentNotRegisteredException expected");
+			} catch (AgentNotRegisteredException e) {
+				// expected
+			}
+			assertTrue(System.currentTimeMillis() - start < 1000);
+
+			// the negative result is forgotten with the cache
+			cache.clear();
+			start = System.currentTimeMillis();
+			try {
+				cache.getServiceAgentInstance(unknown, true, false, userAgent);
+				fail("AgentNotRegisteredException expected");
+			} catch (AgentNotRegisteredException e) {
+				// expected
+			}
+			assertTrue(System.currentTimeMillis() - start >= 1000);
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testConcurrentLookups() {
+		try {
+			Node node = new LocalNodeManager().launchNode();
+			NodeServiceCache cache = new NodeServiceCache(node, 0, 0);
+
+			ServiceNameVersion stable = ServiceNameVersion.fromString("test.service@1.0");
+			ServiceAgentImpl stableAgent = ServiceAgentImpl.createServiceAgent(stable, "test");
+			cache.registerLocalService(stableAgent);
+
+			ServiceAgentImpl[] agents = new ServiceAgentImpl[10];
+			for (int i = 0; i < agents.length; i++) {
+				agents[i] = ServiceAgentImpl.createServiceAgent(ServiceNameVersion.fromString("test.service@2." + i),
+						"test");
+			}
+
+			// lookups do not fail while other versions are registered and unregistered
+			AtomicBoolean running = new AtomicBoolean(true);
+			AtomicReference<Throwable> error = new AtomicReference<>();
+			Thread[] readers = new Thread[4];
+			for (int t = 0; t < readers.length; t++) {
+				readers[t] = new Thread(() -> {
+					try {
+						while (running.get()) {
+							assertSame(stableAgent, cache.getServiceAgentInstance(stable, true, true, null)
+									.getServiceAgent());
+							assertEquals(stable.getName(), cache
+									.getServiceAgentInstance(ServiceNameVersion.fromString(stable.getName()), false,
+											true, null)
+									.getService().getName());
+							cache.getLocalServiceVersions(stable.getName());
+						}
+					} catch (Throwable e) {
+						error.compareAndSet(null, e);
+					}
+				});
+				readers[t].start();
+			}
+
+			for (int round = 0; round < 200; round++) {
+				for (ServiceAgentImpl agent : agents) {
+					cache.registerLocalService(agent);
+				}
+				for (ServiceAgentImpl agent : agents) {
+					cache.unregisterLocalService(agent);
+				}
+			}
+			running.set(false);
+			for (Thread reader : readers) {
+				reader.join();
+			}
+
+			if (error.get() != null) {
+				throw new AssertionError(error.get());
+			}
+			assertEquals(1, cache.getLocalServiceVersions(stable.getName()).size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
 }
@@ -1,11 +1,20 @@
 package i5.las2peer.p2p;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import i5.las2peer.communication.Message;
+import i5.las2peer.p2p.pastry.NodeApplication;
+import i5.las2peer.security.Mediator;
+import i5.las2peer.security.UserAgentImpl;
+import i5.las2peer.testing.MockAgentFactory;
 import i5.las2peer.testing.TestSuite;
+import rice.p2p.commonapi.NodeHandle;
 
 public class PastryNodeImplTest {
 
@@ -66,4 +75,119 @@ public class PastryNodeImplTest {
 
 	}
 
+	@Test
+	public void testSearchAgent() {
+		ArrayList<PastryNodeImpl> nodes = null;
+		try {
+			nodes = TestSuite.launchNetwork(2);
+			UserAgentImpl eve = MockAgentFactory.getEve();
+			eve.unlock("evespass");
+			nodes.get(1).registerReceiver(eve);
+
+			// the search finishes as soon as the answer arrived, long before the search timeout
+			long start = System.currentTimeMillis();
+			Collection<NodeHandle> result = nodes.get(0).getApplication().searchAgentAsync(eve.getIdentifier(), 1)
+					.get(NodeApplication.SEARCH_TIMEOUT, TimeUnit.MILLISECONDS);
+			Assert.assertEquals(1, result.size());
+			Assert.assertEquals(nodes.get(1).getPastryNode().getLocalHandle(), result.iterator().next());
+			Assert.assertTrue(System.currentTimeMillis() - start < 2000);
+
+			// unknown agents result in an empty collection, but only after the timeout
+			start = System.currentTimeMillis();
+			CompletableFuture<Collection<NodeHandle>> unknown = nodes.get(0).getApplication()
+					.searchAgentAsync("unknown", 1);
+			Thread.sleep(NodeApplication.SEARCH_TIMEOUT / 2);
+			Assert.assertFalse(unknown.isDone());
+			Assert.assertTrue(unknown.get(NodeApplication.SEARCH_TIMEOUT, TimeUnit.MILLISECONDS).isEmpty());
+			Assert.assertTrue(System.currentTimeMillis() - start >= NodeApplication.SEARCH_TIMEOUT);
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		} finally {
+			if (nodes != null) {
+				for (PastryNodeImpl node : nodes) {
+					node.shutDown();
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testAnycastClaim() {
+		ArrayList<PastryNodeImpl> nodes = null;
+		try {
+			nodes = TestSuite.launchNetwork(2);
+			UserAgentImpl adam = MockAgentFactory.getAdam();
+			adam.unlock("adamspass");
+			nodes.get(0).storeAgent(adam);
+			UserAgentImpl eve = MockAgentFactory.getEve();
+			eve.unlock("evespass");
+			Mediator mediator = nodes.get(1).createMediatorForAgent(eve);
+
+			// let the subscription of node 1 settle, then forget its announced location, so the message is not sent
+			// there directly
+			Thread.sleep(1000);
+			nodes.get(0).getApplication().getAgentLocationCache().remove(eve.getIdentifier());
+
+			// the claim arrives long before the timeout, so the message is not published
+			nodes.get(0).setAnycastClaimTimeout(60000);
+			nodes.get(0).sendMessage(new Message(adam, eve, "anycast"), null);
+			long start = System.currentTimeMillis();
+			while (!mediator.hasMessages() || nodes.get(0).getPendingAnycastCount() > 0) {
+				Assert.assertTrue("anycast not claimed", System.currentTimeMillis() - start < 10000);
+				Thread.sleep(100);
+			}
+			Assert.assertEquals(1, nodes.get(0).getClaimedAnycastCount());
+			Assert.assertEquals("anycast", mediator.getNextMessage().getContent());
+			Assert.assertFalse(mediator.hasMessages());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		} finally {
+			if (nodes != null) {
+				for (PastryNodeImpl node : nodes) {
+					node.shutDown();
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testAnycastClaimTimeout() {
+		ArrayList<PastryNodeImpl> nodes = null;
+		try {
+			nodes = TestSuite.launchNetwork(2);
+			UserAgentImpl adam = MockAgentFactory.getAdam();
+			adam.unlock("adamspass");
+			nodes.get(0).storeAgent(adam);
+			UserAgentImpl eve = MockAgentFactory.getEve();
+			eve.unlock("evespass");
+
+			// nobody runs the recipient yet, so nobody claims the message
+			nodes.get(0).setAnycastClaimTimeout(3000);
+			nodes.get(0).sendMessage(new Message(adam, eve, "anycast"), null);
+			Thread.sleep(500);
+			Assert.assertEquals(1, nodes.get(0).getPendingAnycastCount());
+
+			// after the timeout the message is published to the agent topic and reaches the recipient started meanwhile
+			Mediator mediator = nodes.get(1).createMediatorForAgent(eve);
+			long start = System.currentTimeMillis();
+			while (!mediator.hasMessages()) {
+				Assert.assertTrue("anycast not published", System.currentTimeMillis() - start < 10000);
+				Thread.sleep(100);
+			}
+			Assert.assertEquals(0, nodes.get(0).getPendingAnycastCount());
+			Assert.assertEquals("anycast", mediator.getNextMessage().getContent());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		} finally {
+			if (nodes != null) {
+				for (PastryNodeImpl node : nodes) {
+					node.shutDown();
+				}
+			}
+		}
+	}
+
 }
@@ -0,0 +1,66 @@
+package i5.las2peer.p2p;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import i5.las2peer.communication.Message;
+import i5.las2peer.security.UserAgentImpl;
+import i5.las2peer.testing.MockAgentFactory;
+
+public class RecentMessageCacheTest {
+
+	@Test
+	public void testDuplicates() {
+		try {
+			UserAgentImpl adam = MockAgentFactory.getAdam();
+			adam.unlock("adamspass");
+			UserAgentImpl eve = MockAgentFactory.getEve();
+
+			RecentMessageCache cache = new RecentMessageCache(2, 60000);
+			Message m1 = new Message(adam, eve, "first");
+			Message m2 = new Message(adam, eve, "second");
+			Message topic = new Message(adam, 1L, "topic");
+
+			assertTrue(cache.markSeen(m1));
+			assertFalse(cache.markSeen(m1));
+			// a deserialized copy is a duplicate, too
+			assertFalse(cache.markSeen(Message.createFromBytes(m1.toByteArray())));
+
+			// the oldest message is dropped
+			assertTrue(cache.markSeen(m2));
+			assertTrue(cache.markSeen(topic));
+			assertEquals(2, cache.size());
+			assertTrue(cache.markSeen(m1));
+
+			// a forgotten message, e. g. one that could not be delivered, is accepted again
+			cache.forget(m1);
+			assertTrue(cache.markSeen(m1));
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testRetention() {
+		try {
+			UserAgentImpl adam = MockAgentFactory.getAdam();
+			adam.unlock("adamspass");
+			UserAgentImpl eve = MockAgentFactory.getEve();
+
+			RecentMessageCache cache = new RecentMessageCache(10, 100);
+			Message m = new Message(adam, eve, "a message");
+			assertTrue(cache.markSeen(m));
+			Thread.sleep(200);
+			assertTrue(cache.markSeen(m));
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+}
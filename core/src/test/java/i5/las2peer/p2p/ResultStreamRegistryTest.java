@@ -0,0 +1,194 @@
+package i5.las2peer.p2p;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import i5.las2peer.api.execution.StreamingResult;
+import i5.las2peer.communication.RMIStreamChunkContent;
+
+public class ResultStreamRegistryTest {
+
+	private static byte[] testData(int length) {
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++) {
+			data[i] = (byte) i;
+		}
+		return data;
+	}
+
+	private static InputStream connect(ResultStreamRegistry registry, String requesterId,
+			RMIStreamChunkContent firstChunk) {
+		return new RemoteResultInputStream(new RemoteResultInputStream.ChunkSource() {
+			@Override
+			public CompletableFuture<RMIStreamChunkContent> fetch(long sequence) {
+				CompletableFuture<RMIStreamChunkContent> result = new CompletableFuture<>();
+				try {
+					result.complete(registry.readChunk(firstChunk.getStreamId(), requesterId, sequence));
+				} catch (IOException e) {
+					result.completeExceptionally(e);
+				}
+				return result;
+			}
+
+			@Override
+			public void cancel(long sequence) {
+				try {
+					registry.cancel(firstChunk.getStreamId(), requesterId);
+				} catch (IOException e) {
+					// already closed
+				}
+			}
+		}, firstChunk);
+	}
+
+	@Test
+	public void testChunkedTransfer() {
+		try {
+			ResultStreamRegistry registry = new ResultStreamRegistry(100, 60000);
+			byte[] data = testData(1050);
+
+			RMIStreamChunkContent first = registry.register(new StreamingResult(new ByteArrayInputStream(data)),
+					"caller");
+			assertEquals(0, first.getSequence());
+			assertEquals(100, first.getData().length);
+			assertFalse(first.isLast());
+			assertEquals(1, registry.size());
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			InputStream in = connect(registry, "caller", first);
+			long count = in.transferTo(out);
+			assertEquals(data.length, count);
+			assertArrayEquals(data, out.toByteArray());
+			// the final chunk is kept for a repeated request, until the reader releases the stream
+			assertEquals(1, registry.size());
+			RMIStreamChunkContent last = registry.readChunk(first.getStreamId(), "caller", 10);
+			assertTrue(last.isLast());
+			assertEquals(50, last.getData().length);
+			in.close();
+			assertEquals(0, registry.size());
+
+			// a result read to its end is released, too
+			first = registry.register(new StreamingResult(new ByteArrayInputStream(data)), "caller");
+			new StreamingResult(connect(registry, "caller", first)).transferTo(new ByteArrayOutputStream());
+			assertEquals(0, registry.size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testSmallResult() {
+		try {
+			ResultStreamRegistry registry = new ResultStreamRegistry(100, 60000);
+			byte[] data = testData(42);
+
+			RMIStreamChunkContent first = registry.register(new StreamingResult(new ByteArrayInputStream(data)),
+					"caller");
+			assertTrue(first.isLast());
+			assertArrayEquals(data, first.getData());
+			assertEquals(0, registry.size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testAccessAndOrder() {
+		try {
+			ResultStreamRegistry registry = new ResultStreamRegistry(10, 60000);
+			RMIStreamChunkContent first = registry
+					.register(new StreamingResult(new ByteArrayInputStream(testData(100))), "caller");
+			String streamId = first.getStreamId();
+
+			try {
+				registry.readChunk(streamId, "someone else", 1);
+				Assert.fail("IOException expected");
+			} catch (IOException e) {
+				// expected
+			}
+			try {
+				registry.readChunk(streamId, "caller", 5);
+				Assert.fail("IOException expected");
+			} catch (IOException e) {
+				// expected
+			}
+
+			// a repeated request is answered with the same chunk
+			RMIStreamChunkContent second = registry.readChunk(streamId, "caller", 1);
+			assertArrayEquals(second.getData(), registry.readChunk(streamId, "caller", 1).getData());
+			assertEquals(2, registry.readChunk(streamId, "caller", 2).getSequence());
+
+			registry.cancel(streamId, "caller");
+			assertEquals(0, registry.size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testLostFinalChunk() {
+		try {
+			ResultStreamRegistry registry = new ResultStreamRegistry(10, 100);
+			RMIStreamChunkContent first = registry
+					.register(new StreamingResult(new ByteArrayInputStream(testData(15))), "caller");
+			String streamId = first.getStreamId();
+
+			RMIStreamChunkContent last = registry.readChunk(streamId, "caller", 1);
+			assertTrue(last.isLast());
+			// the answer got lost, so the final chunk is requested again
+			assertArrayEquals(last.getData(), registry.readChunk(streamId, "caller", 1).getData());
+			try {
+				registry.readChunk(streamId, "caller", 2);
+				Assert.fail("IOException expected");
+			} catch (IOException e) {
+				// expected
+			}
+
+			// finished streams are removed after the idle timeout
+			assertEquals(1, registry.size());
+			Thread.sleep(200);
+			registry.removeIdle();
+			assertEquals(0, registry.size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testCloseAndIdle() {
+		try {
+			ResultStreamRegistry registry = new ResultStreamRegistry(10, 100);
+			RMIStreamChunkContent first = registry
+					.register(new StreamingResult(new ByteArrayInputStream(testData(100))), "caller");
+			InputStream in = connect(registry, "caller", first);
+			assertEquals(0, in.read());
+			in.close();
+			assertEquals(0, registry.size());
+
+			registry.register(new StreamingResult(new ByteArrayInputStream(testData(100))), "caller");
+			assertEquals(1, registry.size());
+			Thread.sleep(200);
+			registry.removeIdle();
+			assertEquals(0, registry.size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+}
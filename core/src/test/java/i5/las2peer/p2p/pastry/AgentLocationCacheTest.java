@@ -0,0 +1,62 @@
+package i5.las2peer.p2p.pastry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+
+import rice.p2p.commonapi.NodeHandle;
+
+public class AgentLocationCacheTest {
+
+	private static NodeHandle handle(boolean alive) {
+		NodeHandle handle = mock(NodeHandle.class);
+		when(handle.isAlive()).thenReturn(alive);
+		return handle;
+	}
+
+	@Test
+	public void testCache() {
+		NodeHandle handle = handle(true);
+
+		AgentLocationCache cache = new AgentLocationCache(2, 60000);
+		assertNull(cache.get("a"));
+		cache.put("a", handle);
+		assertSame(handle, cache.get("a"));
+
+		// least recently used entry is dropped
+		cache.put("b", handle);
+		cache.get("a");
+		cache.put("c", handle);
+		assertEquals(2, cache.size());
+		assertNull(cache.get("b"));
+		assertSame(handle, cache.get("a"));
+
+		cache.remove("a");
+		assertNull(cache.get("a"));
+	}
+
+	@Test
+	public void testExpiration() throws InterruptedException {
+		NodeHandle handle = handle(true);
+
+		AgentLocationCache cache = new AgentLocationCache(10, 100);
+		cache.put("a", handle);
+		assertSame(handle, cache.get("a"));
+		Thread.sleep(200);
+		assertNull(cache.get("a"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testDeadNode() {
+		AgentLocationCache cache = new AgentLocationCache(10, 60000);
+		cache.put("a", handle(false));
+		assertNull(cache.get("a"));
+		assertEquals(0, cache.size());
+	}
+
+}
@@ -1,6 +1,8 @@
 package i5.las2peer.p2p.pastry;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -58,4 +60,37 @@ public class MessageEnvelopeTest {
 		}
 	}
 
+	@Test
+	public void testBinaryMessage() {
+		try {
+			UserAgentImpl adam = UserAgentImpl.createUserAgent("passa");
+			UserAgentImpl eve = UserAgentImpl.createUserAgent("passb");
+
+			BasicAgentStorage storage = new BasicAgentStorage();
+			storage.registerAgents(adam, eve);
+
+			adam.unlock("passa");
+			eve.unlock("passb");
+
+			String data = "some data to test";
+
+			Message m = new Message(adam, eve, data);
+
+			MessageEnvelope testee = new MessageEnvelope(null, m, true);
+			assertTrue(testee.isBinary());
+			assertNull(testee.getContent());
+
+			byte[] serialized = SerializeTools.serialize(testee);
+			MessageEnvelope andBack = (MessageEnvelope) SerializeTools.deserialize(serialized);
+			assertTrue(andBack.isBinaryFormatSupported());
+
+			Message contained = andBack.getContainedMessage();
+			contained.open(eve, storage);
+			assertEquals(data, contained.getContent());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
 }
@@ -0,0 +1,95 @@
+package i5.las2peer.persistency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import i5.las2peer.security.AgentImpl;
+import i5.las2peer.testing.MockAgentFactory;
+
+public class EnvelopeCacheTest {
+
+	@Test
+	public void testVersions() {
+		try {
+			PublicKey key = MockAgentFactory.getAdam().getPublicKey();
+			EnvelopeVersion v1 = new EnvelopeVersion("test", key, "first", new ArrayList<AgentImpl>());
+			EnvelopeVersion v2 = new EnvelopeVersion(v1, "second");
+			EnvelopeCache cache = new EnvelopeCache(1024 * 1024, 60000);
+
+			assertNull(cache.get("test"));
+			cache.put(v2);
+			assertSame(v2, cache.get("test"));
+			// older versions never replace newer ones
+			cache.put(v1);
+			assertSame(v2, cache.get("test"));
+			assertEquals(1, cache.getCount());
+			assertEquals(EnvelopeCache.estimateSize(v2), cache.getSize());
+			assertEquals(2, cache.getHits());
+			assertEquals(1, cache.getMisses());
+
+			cache.invalidate("test");
+			assertNull(cache.get("test"));
+			assertEquals(0, cache.getSize());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testLimits() {
+		try {
+			PublicKey key = MockAgentFactory.getAdam().getPublicKey();
+			EnvelopeVersion a = new EnvelopeVersion("a", key, "content", new ArrayList<AgentImpl>());
+			EnvelopeVersion b = new EnvelopeVersion("b", key, "content", new ArrayList<AgentImpl>());
+			EnvelopeVersion c = new EnvelopeVersion("c", key, "content", new ArrayList<AgentImpl>());
+			long size = EnvelopeCache.estimateSize(a);
+
+			// room for two envelopes, the least recently used one is evicted
+			EnvelopeCache cache = new EnvelopeCache(2 * size + 1, 60000);
+			cache.put(a);
+			cache.put(b);
+			cache.get("a");
+			cache.put(c);
+			assertSame(a, cache.get("a"));
+			assertNull(cache.get("b"));
+			assertSame(c, cache.get("c"));
+			assertEquals(2 * size, cache.getSize());
+
+			// entries expire
+			EnvelopeCache expiring = new EnvelopeCache(2 * size, 50);
+			expiring.put(a);
+			assertSame(a, expiring.get("a"));
+			Thread.sleep(100);
+			assertNull(expiring.get("a"));
+			assertEquals(0, expiring.getCount());
+
+			EnvelopeCache disabled = new EnvelopeCache(0, 60000);
+			disabled.put(a);
+			assertNull(disabled.get("a"));
+
+			// disabling the cache drops all entries
+			cache.setTimeToLive(0);
+			assertEquals(0, cache.getCount());
+			cache.put(a);
+			assertNull(cache.get("a"));
+
+			// envelopes larger than the whole cache are not cached
+			EnvelopeVersion large = new EnvelopeVersion("large", key, new byte[4096], new ArrayList<AgentImpl>());
+			EnvelopeCache small = new EnvelopeCache(4096, 60000);
+			small.put(large);
+			assertEquals(0, small.getCount());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+}
@@ -0,0 +1,98 @@
+package i5.las2peer.persistency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import i5.las2peer.p2p.LocalNode;
+import i5.las2peer.p2p.LocalNodeManager;
+import i5.las2peer.security.AgentContext;
+import i5.las2peer.security.AgentImpl;
+import i5.las2peer.security.UserAgentImpl;
+import i5.las2peer.serialization.SerializeTools;
+import i5.las2peer.testing.MockAgentFactory;
+import i5.las2peer.tools.PayloadCompressor;
+
+public class EnvelopeVersionCompressionTest {
+
+	private LocalNode node;
+
+	@Before
+	public void setup() {
+		PayloadCompressor.getInstance().setEnabled(true);
+		node = new LocalNodeManager().launchNode();
+	}
+
+	@After
+	public void reset() {
+		PayloadCompressor.getInstance().setEnabled(PayloadCompressor.DEFAULT_ENABLED);
+		node.shutDown();
+	}
+
+	private static String largeContent() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			sb.append("{\"id\": ").append(i).append(", \"name\": \"some json document\"},");
+		}
+		return sb.toString();
+	}
+
+	@Test
+	public void testUnencrypted() throws Exception {
+		String content = largeContent();
+		EnvelopeVersion version = new EnvelopeVersion("test", MockAgentFactory.getAdam().getPublicKey(), content,
+				new ArrayList<AgentImpl>());
+		assertFalse(version.isEncrypted());
+		assertEquals(PayloadCompressor.Algorithm.DEFLATE, version.getCompression());
+		assertTrue(version.toXmlString().length() < content.length() / 4);
+		assertEquals(content, version.getContent());
+
+		EnvelopeVersion fromXml = EnvelopeVersion.createFromXml(version.toXmlString());
+		assertEquals(PayloadCompressor.Algorithm.DEFLATE, fromXml.getCompression());
+		assertEquals(content, fromXml.getContent());
+
+		EnvelopeVersion fromBytes = (EnvelopeVersion) SerializeTools.deserialize(SerializeTools.serialize(version));
+		assertEquals(content, fromBytes.getContent());
+
+		// envelopes without compression are still readable
+		PayloadCompressor.getInstance().setEnabled(false);
+		EnvelopeVersion plain = new EnvelopeVersion(version, content);
+		assertEquals(PayloadCompressor.Algorithm.NONE, plain.getCompression());
+		assertFalse(plain.toXmlString().contains("compression"));
+		assertEquals(content, EnvelopeVersion.createFromXml(plain.toXmlString()).getContent());
+	}
+
+	@Test
+	public void testEncrypted() throws Exception {
+		UserAgentImpl owner = MockAgentFactory.getAdam();
+		owner.unlock("adamspass");
+		node.storeAgent(owner);
+		AgentContext context = node.getAgentContext(owner);
+
+		Collection<AgentImpl> readers = new ArrayList<>();
+		readers.add(owner);
+
+		String content = largeContent();
+		EnvelopeVersion version = new EnvelopeVersion("test", owner.getPublicKey(), content, readers);
+		assertTrue(version.isEncrypted());
+		assertEquals(PayloadCompressor.Algorithm.DEFLATE, version.getCompression());
+		// compressed before encryption, otherwise the content would not get smaller
+		assertTrue(version.toXmlString().length() < content.length() / 4);
+		assertEquals(content, version.getContent(context));
+
+		EnvelopeVersion fromXml = EnvelopeVersion.createFromXml(version.toXmlString());
+		assertEquals(PayloadCompressor.Algorithm.DEFLATE, fromXml.getCompression());
+		assertEquals(content, fromXml.getContent(context));
+
+		EnvelopeVersion fromBytes = (EnvelopeVersion) SerializeTools.deserialize(SerializeTools.serialize(version));
+		assertEquals(content, fromBytes.getContent(context));
+	}
+
+}
@@ -1,6 +1,12 @@
 package i5.las2peer.persistency;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -8,11 +14,14 @@ import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import i5.las2peer.api.persistency.EnvelopeAlreadyExistsException;
+import i5.las2peer.api.persistency.EnvelopeNotFoundException;
 import i5.las2peer.p2p.PastryNodeImpl;
 import i5.las2peer.persistency.SharedStorage.STORAGE_MODE;
 import i5.las2peer.security.UserAgentImpl;
 import i5.las2peer.testing.MockAgentFactory;
 import i5.las2peer.testing.TestSuite;
+import i5.las2peer.tools.PayloadCompressor;
 
 public class PersistenceTest {
 
@@ -64,6 +73,183 @@ public class PersistenceTest {
 		}
 	}
 
+	@Test
+	public void testLogStructuredPersistence() {
+		try {
+			stopNetwork();
+			nodes = TestSuite.launchNetwork(3, STORAGE_MODE.LOG_STRUCTURED, true);
+			PastryNodeImpl node1 = nodes.get(0);
+			UserAgentImpl smith = MockAgentFactory.getAdam();
+			smith.unlock("adamspass");
+			EnvelopeVersion before = node1.createUnencryptedEnvelope("test", smith.getPublicKey(), "This is las2peer!");
+			node1.storeEnvelope(before, smith);
+			// shutdown network, this persists the storage index
+			stopNetwork();
+			Thread.sleep(500);
+			// restart the network and read data
+			nodes = TestSuite.launchNetwork(3, STORAGE_MODE.LOG_STRUCTURED, false);
+			System.out.println("test network restarted");
+			node1 = nodes.get(0);
+			EnvelopeVersion after = node1.fetchEnvelope("test");
+			Assert.assertEquals(before.getContent(), after.getContent());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testAsyncStoreAndFetch() {
+		try {
+			PastryNodeImpl node1 = nodes.get(0);
+			PastryNodeImpl node2 = nodes.get(1);
+			UserAgentImpl smith = MockAgentFactory.getAdam();
+			smith.unlock("adamspass");
+			EnvelopeVersion env = node1.createUnencryptedEnvelope("async", smith.getPublicKey(), "This is las2peer!");
+			Assert.assertTrue(node1.storeEnvelopeAsync(env, smith).get(30, TimeUnit.SECONDS) > 0);
+			EnvelopeVersion fetched = node2.fetchEnvelopeAsync("async").get(30, TimeUnit.SECONDS);
+			Assert.assertEquals(env.getContent(), fetched.getContent());
+			// storing the same version again is a collision
+			try {
+				node2.storeEnvelopeAsync(env, smith).get(30, TimeUnit.SECONDS);
+				Assert.fail("Exception expected");
+			} catch (ExecutionException e) {
+				Assert.assertTrue(e.getCause() instanceof EnvelopeAlreadyExistsException);
+			}
+			try {
+				node2.fetchEnvelopeAsync("missing").get(30, TimeUnit.SECONDS);
+				Assert.fail("Exception expected");
+			} catch (ExecutionException e) {
+				Assert.assertTrue(e.getCause() instanceof EnvelopeNotFoundException);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testEnvelopeCacheInvalidation() {
+		try {
+			PastryNodeImpl node1 = nodes.get(0);
+			PastryNodeImpl node2 = nodes.get(1);
+			EnvelopeCache cache = node1.getSharedStorage().getEnvelopeCache();
+			Assert.assertFalse(cache.isEnabled());
+			cache.setTimeToLive(60000);
+			UserAgentImpl smith = MockAgentFactory.getAdam();
+			smith.unlock("adamspass");
+
+			EnvelopeVersion v1 = node1.createUnencryptedEnvelope("cached", smith.getPublicKey(), "first");
+			node1.storeEnvelope(v1, smith);
+			Assert.assertEquals(v1.getVersion(), cache.get("cached").getVersion());
+
+			// a version stored by another node is missed, until a store of this node collides with it
+			EnvelopeVersion v2 = node2.createUnencryptedEnvelope(v1, "second");
+			node2.storeEnvelope(v2, smith);
+			Assert.assertEquals("first", node1.fetchEnvelope("cached").getContent());
+			try {
+				node1.storeEnvelope(v2, smith);
+				Assert.fail("EnvelopeAlreadyExistsException expected");
+			} catch (EnvelopeAlreadyExistsException e) {
+				// expected
+			}
+			Assert.assertEquals("second", node1.fetchEnvelope("cached").getContent());
+
+			// a store replaces the cached version
+			EnvelopeVersion v3 = node1.createUnencryptedEnvelope(v2, "third");
+			node1.storeEnvelope(v3, smith);
+			Assert.assertEquals(v3.getVersion(), cache.get("cached").getVersion());
+			Assert.assertEquals("third", node1.fetchEnvelope("cached").getContent());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testChunkedRoundTrip() {
+		try {
+			PastryNodeImpl node1 = nodes.get(0);
+			PastryNodeImpl node2 = nodes.get(1);
+			SharedStorage storage = node1.getSharedStorage();
+			storage.setContentDefinedChunking(true);
+			// chunked envelopes are stored uncompressed, otherwise every chunk after a change would differ
+			PayloadCompressor.getInstance().setEnabled(true);
+			UserAgentImpl smith = MockAgentFactory.getAdam();
+			smith.unlock("adamspass");
+
+			// a compressible block repeated several times
+			Random random = new Random(42);
+			byte[] block = new byte[512 * 1024];
+			for (int i = 0; i < block.length; i++) {
+				block[i] = (byte) ('a' + random.nextInt(8));
+			}
+			byte[] content1 = new byte[8 * block.length];
+			for (int i = 0; i < 8; i++) {
+				System.arraycopy(block, 0, content1, i * block.length, block.length);
+			}
+			int minParts = content1.length / NetworkArtifact.MAX_SIZE + 1;
+
+			long before = storage.getInsertedChunkCount();
+			EnvelopeVersion v1 = node1.createUnencryptedEnvelope("chunked", smith.getPublicKey(), content1);
+			node1.storeEnvelope(v1, smith);
+			long insertedV1 = storage.getInsertedChunkCount() - before;
+			// repeated chunks are inserted once
+			Assert.assertTrue(insertedV1 > 0);
+			Assert.assertTrue(insertedV1 < minParts);
+
+			// only the chunks around the change are inserted again
+			byte[] content2 = Arrays.copyOf(content1, content1.length);
+			content2[100 * 1024] = 'z';
+			before = storage.getInsertedChunkCount();
+			EnvelopeVersion v2 = node1.createUnencryptedEnvelope(v1, content2);
+			node1.storeEnvelope(v2, smith);
+			long insertedV2 = storage.getInsertedChunkCount() - before;
+			Assert.assertTrue(insertedV2 > 0);
+			Assert.assertTrue(insertedV2 <= 3);
+
+			SharedStorage otherStorage = node2.getSharedStorage();
+			Assert.assertArrayEquals(content1,
+					(byte[]) otherStorage.fetchEnvelope("chunked", v1.getVersion(), 30000).getContent());
+			Assert.assertArrayEquals(content2,
+					(byte[]) otherStorage.fetchEnvelope("chunked", v2.getVersion(), 30000).getContent());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		} finally {
+			PayloadCompressor.getInstance().setEnabled(PayloadCompressor.DEFAULT_ENABLED);
+		}
+	}
+
+	@Test
+	public void testFetchEnvelopes() {
+		try {
+			PastryNodeImpl node1 = nodes.get(0);
+			PastryNodeImpl node2 = nodes.get(1);
+			UserAgentImpl smith = MockAgentFactory.getAdam();
+			smith.unlock("adamspass");
+			EnvelopeVersion first = node1.createUnencryptedEnvelope("batch1", smith.getPublicKey(), "first");
+			EnvelopeVersion second = node1.createUnencryptedEnvelope("batch2", smith.getPublicKey(), "second");
+			node1.storeEnvelope(first, smith);
+			node1.storeEnvelope(second, smith);
+			Map<String, CompletableFuture<EnvelopeVersion>> results = node2
+					.fetchEnvelopes(Arrays.asList("batch1", "missing", "batch2", "batch1"));
+			Assert.assertEquals(Arrays.asList("batch1", "missing", "batch2"), new ArrayList<>(results.keySet()));
+			Assert.assertEquals(first.getContent(), results.get("batch1").get(30, TimeUnit.SECONDS).getContent());
+			Assert.assertEquals(second.getContent(), results.get("batch2").get(30, TimeUnit.SECONDS).getContent());
+			// a missing envelope does not fail the others
+			try {
+				results.get("missing").get(30, TimeUnit.SECONDS);
+				Assert.fail("Exception expected");
+			} catch (ExecutionException e) {
+				Assert.assertTrue(e.getCause() instanceof EnvelopeNotFoundException);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
 	@Ignore
 	@Test
 	public void testVersionSafety() {
@@ -0,0 +1,42 @@
+package i5.las2peer.persistency.helper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ChunkCacheTest {
+
+	@Test
+	public void testLruEviction() {
+		ChunkCache cache = new ChunkCache(10);
+		cache.put(new byte[] { 1 }, new byte[4]);
+		cache.put(new byte[] { 2 }, new byte[4]);
+		// access chunk 1, so chunk 2 is evicted first
+		assertArrayEquals(new byte[4], cache.get(new byte[] { 1 }));
+		cache.put(new byte[] { 3 }, new byte[4]);
+		assertTrue(cache.contains(new byte[] { 1 }));
+		assertFalse(cache.contains(new byte[] { 2 }));
+		assertTrue(cache.contains(new byte[] { 3 }));
+		assertEquals(2, cache.getCount());
+		assertEquals(8, cache.getSize());
+		// too large chunks are not cached at all
+		cache.put(new byte[] { 4 }, new byte[11]);
+		assertNull(cache.get(new byte[] { 4 }));
+		assertEquals(2, cache.getCount());
+		cache.clear();
+		assertEquals(0, cache.getSize());
+		assertFalse(cache.contains(new byte[] { 1 }));
+	}
+
+	@Test
+	public void testDisabled() {
+		ChunkCache cache = new ChunkCache(0);
+		cache.put(new byte[] { 1 }, new byte[1]);
+		assertFalse(cache.contains(new byte[] { 1 }));
+	}
+
+}
@@ -0,0 +1,111 @@
+package i5.las2peer.persistency.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import i5.las2peer.api.persistency.EnvelopeNotFoundException;
+
+public class PartsInputStreamTest {
+
+	@Test
+	public void testOrderedStreaming() {
+		try {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+				char[] chars = new char[10000];
+				Arrays.fill(chars, 'x');
+				oos.writeObject(new String(chars));
+			}
+			byte[] serialized = baos.toByteArray();
+			int parts = 7;
+			int partsize = serialized.length / parts + 1;
+
+			// parts are requested lazily and completed in reverse order
+			List<CompletableFuture<byte[]>> requested = new CopyOnWriteArrayList<>();
+			PartsInputStream in = new PartsInputStream(parts, index -> {
+				CompletableFuture<byte[]> future = new CompletableFuture<>();
+				requested.add(future);
+				return future;
+			}, 3, 1000);
+			assertEquals(3, requested.size());
+			for (int i = requested.size() - 1; i >= 0; i--) {
+				requested.get(i).complete(
+						Arrays.copyOfRange(serialized, i * partsize, Math.min(serialized.length, (i + 1) * partsize)));
+			}
+			CompletableFuture<Object> result = CompletableFuture.supplyAsync(() -> {
+				try (ObjectInputStream ois = new ObjectInputStream(in)) {
+					return ois.readObject();
+				} catch (IOException | ClassNotFoundException e) {
+					throw new RuntimeException(e);
+				}
+			});
+			// complete the remaining parts as they are requested, never more than three are in flight
+			for (int i = 3; i < parts; i++) {
+				long start = System.currentTimeMillis();
+				while (requested.size() <= i) {
+					assertTrue(System.currentTimeMillis() - start < 5000);
+					Thread.sleep(1);
+				}
+				assertTrue(requested.size() <= i + 3);
+				requested.get(i).complete(
+						Arrays.copyOfRange(serialized, i * partsize, Math.min(serialized.length, (i + 1) * partsize)));
+			}
+			assertEquals(10000, ((String) result.get()).length());
+			assertEquals(parts, requested.size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testFailedPart() {
+		List<CompletableFuture<byte[]>> requested = new CopyOnWriteArrayList<>();
+		PartsInputStream in = new PartsInputStream(3, index -> {
+			CompletableFuture<byte[]> future = new CompletableFuture<>();
+			if (index == 1) {
+				future.completeExceptionally(new EnvelopeNotFoundException("part 1"));
+			} else {
+				future.complete(new byte[] { 1, 2 });
+			}
+			requested.add(future);
+			return future;
+		}, 2, 1000);
+		try {
+			assertEquals(1, in.read());
+			assertEquals(2, in.read());
+			in.read();
+			Assert.fail("IOException expected");
+		} catch (IOException e) {
+			assertTrue(e.getCause() instanceof EnvelopeNotFoundException);
+		}
+		in.close();
+		assertEquals(3, requested.size());
+	}
+
+	@Test
+	public void testTimeout() {
+		PartsInputStream in = new PartsInputStream(1, index -> new CompletableFuture<>(), 1, 10);
+		try {
+			in.read();
+			Assert.fail("IOException expected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("Timeout"));
+		} finally {
+			in.close();
+		}
+	}
+
+}
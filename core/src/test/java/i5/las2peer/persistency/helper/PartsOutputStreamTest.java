@@ -0,0 +1,141 @@
+package i5.las2peer.persistency.helper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PartsOutputStreamTest {
+
+	@Test
+	public void testSplit() {
+		try {
+			List<byte[]> parts = new ArrayList<>();
+			PartsOutputStream out = new PartsOutputStream(4, (index, content) -> {
+				assertEquals(parts.size(), index);
+				parts.add(content);
+			});
+			out.write(new byte[] { 0, 1, 2 });
+			assertEquals(0, out.getPartCount());
+			out.write(3);
+			out.write(new byte[] { 9, 4, 5, 6, 7, 8, 9, 10, 9 }, 1, 7);
+			assertEquals(2, out.getPartCount());
+			out.close();
+			out.close();
+
+			assertEquals(3, parts.size());
+			assertArrayEquals(new byte[] { 0, 1, 2, 3 }, parts.get(0));
+			assertArrayEquals(new byte[] { 4, 5, 6, 7 }, parts.get(1));
+			assertArrayEquals(new byte[] { 8, 9, 10 }, parts.get(2));
+			assertEquals(11, out.getSize());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testRoundTrip() {
+		try {
+			char[] chars = new char[100000];
+			Arrays.fill(chars, 'x');
+			String original = new String(chars);
+			List<byte[]> parts = new ArrayList<>();
+			try (ObjectOutputStream oos = new ObjectOutputStream(
+					new PartsOutputStream(4096, (index, content) -> parts.add(content)))) {
+				oos.writeObject(original);
+			}
+			try (ObjectInputStream ois = new ObjectInputStream(new PartsInputStream(parts.size(),
+					index -> CompletableFuture.completedFuture(parts.get(index)), 2, 1000))) {
+				assertEquals(original, ois.readObject());
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testHandlerFailure() {
+		List<Integer> handled = new ArrayList<>();
+		IOException failure = new IOException("insert failed");
+		try (ObjectOutputStream oos = new ObjectOutputStream(new PartsOutputStream(16, (index, content) -> {
+			handled.add(index);
+			throw failure;
+		}))) {
+			oos.writeObject(new byte[100]);
+			Assert.fail("IOException expected");
+		} catch (IOException e) {
+			assertSame(failure, e);
+		}
+		// no further parts are handed out after a failure
+		assertEquals(1, handled.size());
+	}
+
+	@Test
+	public void testContentDefinedBoundaries() {
+		try {
+			byte[] original = new byte[200000];
+			new Random(42).nextBytes(original);
+			// insert some bytes near the beginning
+			byte[] modified = new byte[original.length + 10];
+			System.arraycopy(original, 0, modified, 0, 1000);
+			System.arraycopy(original, 1000, modified, 1010, original.length - 1000);
+
+			List<byte[]> originalParts = contentDefinedParts(original);
+			List<byte[]> modifiedParts = contentDefinedParts(modified);
+			assertTrue(originalParts.size() > 5);
+			for (byte[] part : originalParts) {
+				assertTrue(part.length <= 16384);
+			}
+			Set<String> known = new HashSet<>();
+			for (byte[] part : originalParts) {
+				known.add(Arrays.toString(part));
+			}
+			int shared = 0;
+			for (byte[] part : modifiedParts) {
+				if (known.contains(Arrays.toString(part))) {
+					shared++;
+				}
+			}
+			// only the parts around the modification differ
+			assertTrue(shared >= originalParts.size() - 2);
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	private static List<byte[]> contentDefinedParts(byte[] data) throws IOException {
+		List<byte[]> parts = new ArrayList<>();
+		ByteArrayOutputStream joined = new ByteArrayOutputStream();
+		try (PartsOutputStream out = PartsOutputStream.contentDefined(1024, 16384, 12, (index, content) -> {
+			assertEquals(parts.size(), index);
+			parts.add(content);
+			joined.write(content);
+		})) {
+			// write in odd slices, boundaries must not depend on them
+			for (int off = 0; off < data.length; off += 777) {
+				out.write(data, off, Math.min(777, data.length - off));
+			}
+		}
+		assertArrayEquals(data, joined.toByteArray());
+		return parts;
+	}
+
+}
@@ -0,0 +1,240 @@
+package i5.las2peer.persistency.pastry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import rice.Continuation;
+import rice.environment.Environment;
+import rice.p2p.commonapi.Id;
+import rice.pastry.commonapi.PastryIdFactory;
+
+public class LogStructuredStorageTest {
+
+	private static final long MAX_SIZE = 10 * 1024 * 1024;
+	private static final long NO_MAINTENANCE = 60 * 60 * 1000;
+
+	private Environment environment;
+	private PastryIdFactory factory;
+	private Path directory;
+
+	private static class Result implements Continuation<Object, Exception> {
+		private Object result;
+		private Exception exception;
+
+		@Override
+		public void receiveResult(Object result) {
+			this.result = result;
+		}
+
+		@Override
+		public void receiveException(Exception exception) {
+			this.exception = exception;
+		}
+
+		private Object get() throws Exception {
+			if (exception != null) {
+				throw exception;
+			}
+			return result;
+		}
+	}
+
+	@Before
+	public void setup() throws IOException {
+		environment = new Environment();
+		factory = new PastryIdFactory(environment);
+		directory = Files.createTempDirectory("log-storage");
+	}
+
+	@After
+	public void cleanup() throws IOException {
+		File[] files = directory.toFile().listFiles();
+		if (files != null) {
+			for (File file : files) {
+				Files.delete(file.toPath());
+			}
+		}
+		Files.delete(directory);
+		environment.destroy();
+	}
+
+	private LogStructuredStorage open(long segmentSize) throws IOException {
+		return new LogStructuredStorage(factory, directory.toString(), MAX_SIZE, segmentSize, 0.5, NO_MAINTENANCE);
+	}
+
+	private static Object store(LogStructuredStorage storage, Id id, Serializable metadata, Serializable obj)
+			throws Exception {
+		Result result = new Result();
+		storage.store(id, metadata, obj, result);
+		return result.get();
+	}
+
+	private static Object get(LogStructuredStorage storage, Id id) throws Exception {
+		Result result = new Result();
+		storage.getObject(id, result);
+		return result.get();
+	}
+
+	@Test
+	public void testStoreAndReopen() {
+		try {
+			Id first = factory.buildId("first");
+			Id second = factory.buildId("second");
+			LogStructuredStorage storage = open(1024 * 1024);
+			Assert.assertEquals(Boolean.TRUE, store(storage, first, 1L, "first content"));
+			Assert.assertEquals(Boolean.TRUE, store(storage, second, null, "second content"));
+			Assert.assertEquals(Boolean.TRUE, store(storage, first, 2L, "first content updated"));
+			Result unstored = new Result();
+			storage.unstore(second, unstored);
+			Assert.assertEquals(Boolean.TRUE, unstored.get());
+			Result metadata = new Result();
+			storage.setMetadata(first, 3L, metadata);
+			Assert.assertEquals(Boolean.TRUE, metadata.get());
+			storage.close();
+
+			storage = open(1024 * 1024);
+			Assert.assertEquals("first content updated", get(storage, first));
+			Assert.assertEquals(3L, storage.getMetadata(first));
+			Assert.assertFalse(storage.exists(second));
+			Assert.assertNull(get(storage, second));
+			Assert.assertEquals(1, storage.getSize());
+			Assert.assertEquals(1, storage.scan().numElements());
+			Assert.assertEquals(1, storage.scanMetadataValuesHead(5L).size());
+			Assert.assertEquals(0, storage.scanMetadataValuesNull().size());
+			storage.close();
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testReplayAfterCrash() {
+		try {
+			Id first = factory.buildId("first");
+			Id second = factory.buildId("second");
+			LogStructuredStorage storage = open(1024 * 1024);
+			store(storage, first, null, "first content");
+			storage.checkpoint();
+			// written after the checkpoint and followed by a torn write
+			store(storage, second, null, "second content");
+			storage.abandon();
+			try (RandomAccessFile segment = new RandomAccessFile(new File(directory.toFile(), "segment-0.log"),
+					"rw")) {
+				segment.seek(segment.length());
+				segment.write(new byte[] { 0, 0, 1, 0, 42 });
+			}
+
+			LogStructuredStorage recovered = open(1024 * 1024);
+			Assert.assertEquals("first content", get(recovered, first));
+			Assert.assertEquals("second content", get(recovered, second));
+			Assert.assertEquals(2, recovered.getSize());
+			// the log continues after the last complete record
+			Id third = factory.buildId("third");
+			store(recovered, third, null, "third content");
+			recovered.close();
+
+			recovered = open(1024 * 1024);
+			Assert.assertEquals("third content", get(recovered, third));
+			Assert.assertEquals(3, recovered.getSize());
+			recovered.close();
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testCheckpointDuringStores() {
+		try {
+			LogStructuredStorage storage = open(4096);
+			Thread checkpoints = new Thread(() -> {
+				try {
+					for (int i = 0; i < 20; i++) {
+						storage.checkpoint();
+					}
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			});
+			checkpoints.start();
+			for (int i = 0; i < 200; i++) {
+				store(storage, factory.buildId("object" + i), null, "content " + i);
+			}
+			checkpoints.join();
+			// the objects stored after the last checkpoint are replayed from the log
+			storage.abandon();
+
+			LogStructuredStorage recovered = open(4096);
+			Assert.assertEquals(200, recovered.getSize());
+			for (int i = 0; i < 200; i++) {
+				Assert.assertEquals("content " + i, get(recovered, factory.buildId("object" + i)));
+			}
+			recovered.close();
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testCompaction() {
+		try {
+			Id kept = factory.buildId("kept");
+			Id deleted = factory.buildId("deleted");
+			Id overwritten = factory.buildId("overwritten");
+			LogStructuredStorage storage = open(512);
+			store(storage, deleted, null, "deleted content");
+			store(storage, kept, null, "kept content");
+			for (int i = 0; i < 20; i++) {
+				store(storage, overwritten, null, "overwritten content " + i);
+			}
+			Result unstored = new Result();
+			storage.unstore(deleted, unstored);
+			Assert.assertEquals(Boolean.TRUE, unstored.get());
+			long sizeBefore = storage.getTotalSize();
+			Assert.assertTrue(storage.compact() > 0);
+			Assert.assertEquals(sizeBefore, storage.getTotalSize());
+			Assert.assertEquals("kept content", get(storage, kept));
+			Assert.assertEquals("overwritten content 19", get(storage, overwritten));
+			Assert.assertNull(get(storage, deleted));
+			storage.close();
+
+			// replaying the compacted log restores the same state
+			Files.delete(directory.resolve("index.dat"));
+			storage = open(512);
+			Assert.assertEquals(2, storage.getSize());
+			Assert.assertEquals("kept content", get(storage, kept));
+			Assert.assertEquals("overwritten content 19", get(storage, overwritten));
+			Assert.assertFalse(storage.exists(deleted));
+			storage.close();
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testMaximumSize() {
+		try {
+			LogStructuredStorage storage = new LogStructuredStorage(factory, directory.toString(), 100, 1024 * 1024,
+					0.5, NO_MAINTENANCE);
+			Assert.assertEquals(Boolean.FALSE, store(storage, factory.buildId("large"), null, new byte[200]));
+			Assert.assertEquals(0, storage.getSize());
+			storage.close();
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+}
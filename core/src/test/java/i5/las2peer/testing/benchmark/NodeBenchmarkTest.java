@@ -0,0 +1,86 @@
+package i5.las2peer.testing.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import i5.las2peer.testing.benchmark.BenchmarkConfig.Network;
+import i5.las2peer.testing.benchmark.BenchmarkConfig.Operation;
+
+public class NodeBenchmarkTest {
+
+	@Test
+	public void testPercentiles() {
+		LatencyRecorder a = new LatencyRecorder();
+		LatencyRecorder b = new LatencyRecorder();
+		for (int i = 1; i <= 1000; i++) {
+			(i % 2 == 0 ? a : b).record(i);
+		}
+		b.recordError();
+		a.merge(b);
+
+		assertEquals(1000, a.getCount());
+		assertEquals(1, a.getErrors());
+		assertEquals(500, a.getPercentile(50));
+		assertEquals(990, a.getPercentile(99));
+		assertEquals(999, a.getPercentile(99.9));
+		assertEquals(1000, a.getMax());
+		assertEquals(500.5, a.getMean(), 0.001);
+		assertEquals(0, new LatencyRecorder().getPercentile(50));
+	}
+
+	@Test
+	public void testConfig() {
+		BenchmarkConfig config = BenchmarkConfig.fromArgs(new String[] { "--network", "pastry", "--nodes", "5",
+				"--mix", "local=1,storage=3", "--output", "out.json" });
+		assertEquals(Network.PASTRY, config.getNetwork());
+		assertEquals(5, config.getNodes());
+		assertEquals(Integer.valueOf(1), config.getMix().get(Operation.LOCAL));
+		assertEquals(Integer.valueOf(0), config.getMix().get(Operation.REMOTE));
+		assertEquals(Integer.valueOf(3), config.getMix().get(Operation.STORAGE));
+		assertEquals("out.json", config.getOutput());
+		assertEquals(BenchmarkConfig.DEFAULT_AGENTS, config.getAgents());
+
+		try {
+			BenchmarkConfig.fromArgs(new String[] { "--mix", "local=0" });
+			Assert.fail("IllegalArgumentException expected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			BenchmarkConfig.fromArgs(new String[] { "--unknown", "1" });
+			Assert.fail("IllegalArgumentException expected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testLocalRun() {
+		BenchmarkConfig config = new BenchmarkConfig();
+		config.setNodes(2);
+		config.setAgents(2);
+		config.setWarmup(0);
+		config.setDuration(2);
+		config.setMix(BenchmarkConfig.parseMix("local=50,remote=50"));
+		NodeBenchmark benchmark = new NodeBenchmark(config);
+		try {
+			benchmark.setUp();
+			benchmark.run();
+			assertTrue(benchmark.getResult(Operation.LOCAL).getCount() > 0);
+			assertTrue(benchmark.getResult(Operation.REMOTE).getCount() > 0);
+			assertEquals(0, benchmark.getResult(Operation.REMOTE).getErrors());
+			String json = benchmark.toJson();
+			assertTrue(json.contains("\"remote\": {\"count\": "));
+			assertTrue(json.contains("\"p999Ms\""));
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		} finally {
+			benchmark.tearDown();
+		}
+	}
+
+}
@@ -93,6 +93,31 @@ public class L2pNodeLauncherConfigurationTest {
 		}
 	}
 
+	@Test
+	public void testSessionKeys() {
+		try {
+			Assert.assertNull(L2pNodeLauncherConfiguration.createFromMainArgs("--debug").getSessionKeys());
+			Assert.assertTrue(L2pNodeLauncherConfiguration.createFromMainArgs("--session-keys").getSessionKeys());
+			Assert.assertTrue(L2pNodeLauncherConfiguration.createFromMainArgs("-sk").getSessionKeys());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
+	@Test
+	public void testCompressPayloads() {
+		try {
+			Assert.assertNull(L2pNodeLauncherConfiguration.createFromMainArgs("--debug").getCompressPayloads());
+			Assert.assertTrue(
+					L2pNodeLauncherConfiguration.createFromMainArgs("--compress-payloads").getCompressPayloads());
+			Assert.assertTrue(L2pNodeLauncherConfiguration.createFromMainArgs("-z").getCompressPayloads());
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail(e.toString());
+		}
+	}
+
 	@Test
 	public void testAllArgs() {
 		try {
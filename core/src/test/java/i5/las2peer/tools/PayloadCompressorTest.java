@@ -0,0 +1,108 @@
+package i5.las2peer.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import i5.las2peer.serialization.SerializationException;
+
+public class PayloadCompressorTest {
+
+	private static byte[] repetitive(int size) {
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < size) {
+			sb.append("<entry name=\"test\">").append(sb.length() % 100).append("</entry>");
+		}
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Before
+	public void enable() {
+		PayloadCompressor.getInstance().setEnabled(true);
+	}
+
+	@After
+	public void reset() {
+		PayloadCompressor.getInstance().setEnabled(PayloadCompressor.DEFAULT_ENABLED);
+	}
+
+	@Test
+	public void testRoundTrip() throws SerializationException {
+		PayloadCompressor compressor = PayloadCompressor.getInstance();
+		for (PayloadCompressor.Algorithm algorithm : new PayloadCompressor.Algorithm[] {
+				PayloadCompressor.Algorithm.DEFLATE, PayloadCompressor.Algorithm.DEFLATE_FAST }) {
+			compressor.setAlgorithm(algorithm);
+			try {
+				byte[] data = repetitive(100000);
+				long before = compressor.getCompressedCount();
+				PayloadCompressor.Payload payload = compressor.compress(data);
+				assertEquals(algorithm, payload.getAlgorithm());
+				assertTrue(payload.getData().length < data.length / 4);
+				assertEquals(before + 1, compressor.getCompressedCount());
+				assertTrue(compressor.getCompressionRatio() < 1);
+				assertArrayEquals(data, compressor.decompress(payload.getData(), payload.getAlgorithm()));
+			} finally {
+				compressor.setAlgorithm(PayloadCompressor.DEFAULT_ALGORITHM);
+			}
+		}
+	}
+
+	@Test
+	public void testSkipped() {
+		PayloadCompressor compressor = PayloadCompressor.getInstance();
+
+		// below threshold
+		byte[] small = repetitive(100);
+		PayloadCompressor.Payload payload = compressor.compress(small);
+		assertEquals(PayloadCompressor.Algorithm.NONE, payload.getAlgorithm());
+		assertSame(small, payload.getData());
+
+		// random data does not compress
+		byte[] random = new byte[100000];
+		new Random(42).nextBytes(random);
+		long before = compressor.getSkippedCount();
+		payload = compressor.compress(random);
+		assertEquals(PayloadCompressor.Algorithm.NONE, payload.getAlgorithm());
+		assertSame(random, payload.getData());
+		assertEquals(before + 1, compressor.getSkippedCount());
+	}
+
+	@Test
+	public void testCorrupted() {
+		PayloadCompressor compressor = PayloadCompressor.getInstance();
+		PayloadCompressor.Payload payload = compressor.compress(repetitive(100000));
+		try {
+			compressor.decompress(Arrays.copyOf(payload.getData(), payload.getData().length / 2),
+					payload.getAlgorithm());
+			fail("SerializationException expected");
+		} catch (SerializationException e) {
+			// intended
+		}
+	}
+
+	@Test
+	public void testAlgorithmNames() throws SerializationException {
+		for (PayloadCompressor.Algorithm algorithm : PayloadCompressor.Algorithm.values()) {
+			assertEquals(algorithm, PayloadCompressor.Algorithm.fromName(algorithm.getName()));
+			assertEquals(algorithm, PayloadCompressor.Algorithm.fromId(algorithm.getId()));
+		}
+		assertEquals(PayloadCompressor.Algorithm.NONE, PayloadCompressor.Algorithm.fromName(""));
+		try {
+			PayloadCompressor.Algorithm.fromName("lz77");
+			fail("SerializationException expected");
+		} catch (SerializationException e) {
+			// intended
+		}
+	}
+
+}
@@ -0,0 +1,74 @@
+package i5.las2peer.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TimingWheelTest {
+
+	@Test
+	public void testExpire() throws InterruptedException {
+		TimingWheel wheel = new TimingWheel("test-wheel", 10);
+		try {
+			CountDownLatch latch = new CountDownLatch(1);
+			long start = System.currentTimeMillis();
+			TimingWheel.Timeout timeout = wheel.schedule(200, latch::countDown);
+			assertEquals(1, wheel.size());
+			assertTrue(latch.await(2, TimeUnit.SECONDS));
+			long elapsed = System.currentTimeMillis() - start;
+			assertTrue("expired too early after " + elapsed + "ms", elapsed >= 190);
+			assertTrue(timeout.isExpired());
+			assertFalse(timeout.cancel());
+			assertEquals(0, wheel.size());
+		} finally {
+			wheel.stop();
+		}
+	}
+
+	@Test
+	public void testHigherWheels() throws InterruptedException {
+		// with 1ms ticks, 700ms need the second wheel and are moved down over time
+		TimingWheel wheel = new TimingWheel("test-wheel", 1);
+		try {
+			CountDownLatch latch = new CountDownLatch(3);
+			long start = System.currentTimeMillis();
+			wheel.schedule(30, latch::countDown);
+			wheel.schedule(300, latch::countDown);
+			wheel.schedule(700, latch::countDown);
+			assertTrue(latch.await(3, TimeUnit.SECONDS));
+			assertTrue(System.currentTimeMillis() - start >= 690);
+		} finally {
+			wheel.stop();
+		}
+	}
+
+	@Test
+	public void testCancel() throws InterruptedException {
+		TimingWheel wheel = new TimingWheel("test-wheel", 10);
+		try {
+			AtomicInteger counter = new AtomicInteger();
+			TimingWheel.Timeout[] timeouts = new TimingWheel.Timeout[1000];
+			for (int i = 0; i < timeouts.length; i++) {
+				timeouts[i] = wheel.schedule(100 + i % 50, counter::incrementAndGet);
+			}
+			assertEquals(1000, wheel.size());
+			for (int i = 0; i < timeouts.length; i += 2) {
+				assertTrue(timeouts[i].cancel());
+				assertTrue(timeouts[i].isCancelled());
+			}
+			assertEquals(500, wheel.size());
+			Thread.sleep(500);
+			assertEquals(500, counter.get());
+			assertEquals(0, wheel.size());
+		} finally {
+			wheel.stop();
+		}
+	}
+
+}
@@ -35,12 +35,14 @@ import javax.ws.rs.core.PathSegment;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import i5.las2peer.api.execution.ServiceInvocationException;
+import i5.las2peer.api.execution.StreamingResult;
 import i5.las2peer.api.p2p.ServiceNameVersion;
 import i5.las2peer.api.p2p.ServiceVersion;
 import i5.las2peer.api.security.AgentException;
@@ -337,26 +339,42 @@ public class WebConnectorRequestHandler {
 					// XXX logging
 				}
 			}
-			// add CORS headers
-			if (connector.enableCrossOriginResourceSharing) {
-				// just reply all requested headers, other values are set by filter
-				String requestedHeaders = requestHeaders.getFirst("Access-Control-Request-Headers");
-				if (requestedHeaders != null) {
-					if (!requestedHeaders.toLowerCase().contains("authorization")) {
-						if (!requestedHeaders.trim().equals("")) {
-							requestedHeaders += ", ";
-						}
-						requestedHeaders += "Authorization";
-					}
-					responseBuilder.header("Access-Control-Allow-Headers", requestedHeaders);
-				}
-			}
+			addCorsHeaders(responseBuilder, requestHeaders);
 			// add response body
 			responseBuilder.entity(restResponse.getBody());
 			return responseBuilder.build();
+		} else if (result instanceof StreamingResult) {
+			// pipe the chunks straight into the response instead of buffering the whole result
+			StreamingResult streamingResult = (StreamingResult) result;
+			ResponseBuilder responseBuilder = Response.ok((StreamingOutput) out -> streamingResult.transferTo(out));
+			if (streamingResult.getContentType() != null) {
+				responseBuilder.type(streamingResult.getContentType());
+			}
+			if (streamingResult.getLength() != StreamingResult.UNKNOWN_LENGTH) {
+				responseBuilder.header(HttpHeaders.CONTENT_LENGTH, streamingResult.getLength());
+			}
+			addCorsHeaders(responseBuilder, requestHeaders);
+			return responseBuilder.build();
 		} else {
 			throw new InternalServerErrorException(
-					"Service method response is not an " + RESTResponse.class.getSimpleName());
+					"Service method response is not an " + RESTResponse.class.getSimpleName() + " or "
+							+ StreamingResult.class.getSimpleName());
+		}
+	}
+
+	private void addCorsHeaders(ResponseBuilder responseBuilder, MultivaluedMap<String, String> requestHeaders) {
+		if (connector.enableCrossOriginResourceSharing) {
+			// just reply all requested headers, other values are set by filter
+			String requestedHeaders = requestHeaders.getFirst("Access-Control-Request-Headers");
+			if (requestedHeaders != null) {
+				if (!requestedHeaders.toLowerCase().contains("authorization")) {
+					if (!requestedHeaders.trim().equals("")) {
+						requestedHeaders += ", ";
+					}
+					requestedHeaders += "Authorization";
+				}
+				responseBuilder.header("Access-Control-Allow-Headers", requestedHeaders);
+			}
 		}
 	}
 